@@ -0,0 +1,103 @@
+package org.iplantc.service.transfer.irods4.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.iplantc.service.transfer.exceptions.RemoteDataException;
+import org.iplantc.service.transfer.irods4.IRODS4;
+import org.iplantc.service.transfer.irods4.ObjStatCache;
+import org.iplantc.service.transfer.irods4.standin.InMemoryAccessObjectFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the client side cost of existence checks against the in-memory
+ * stand-in: path resolution, the stat call and the mapping of a missing path
+ * to a return value or exception. Run with and without an
+ * {@link ObjStatCache} to see what the cache saves.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExistenceProbeBenchmark {
+
+    private static final int FILE_COUNT = 256;
+
+    @Param({ "false", "true" })
+    public boolean objStatCache;
+
+    private IRODS4 client;
+    private InMemoryAccessObjectFactory standIn;
+    private String[] existingPaths;
+    private String[] missingPaths;
+    private int index;
+
+    @Setup
+    public void setUp() throws Exception {
+        client = new IRODS4("localhost", 1247, "benchmark", "benchmark", "demoResc", "benchmarkZone",
+                "ExistenceProbeBenchmark");
+        standIn = new InMemoryAccessObjectFactory();
+        client.setAccessObjectFactory(standIn.getAccessObjectFactory());
+        if (objStatCache) {
+            client.setObjStatCache(new ObjStatCache());
+        }
+
+        existingPaths = new String[FILE_COUNT];
+        missingPaths = new String[FILE_COUNT];
+        for (int i = 0; i < FILE_COUNT; i++) {
+            existingPaths[i] = "dir" + (i % 16) + "/file" + i + ".txt";
+            missingPaths[i] = "dir" + (i % 16) + "/missing" + i + ".txt";
+            standIn.getCatalog().seed(client.resolvePath(existingPaths[i]), new byte[0]);
+        }
+
+        client.authenticate();
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.disconnect();
+    }
+
+    private int next() {
+        int i = index;
+        if (++index == FILE_COUNT) {
+            index = 0;
+        }
+        return i;
+    }
+
+    @Benchmark
+    public boolean doesExistHit() throws IOException, RemoteDataException {
+        return client.doesExist(existingPaths[next()]);
+    }
+
+    @Benchmark
+    public boolean doesExistMiss() throws IOException, RemoteDataException {
+        return client.doesExist(missingPaths[next()]);
+    }
+
+    /**
+     * The miss path of a call which reports a missing path by throwing.
+     */
+    @Benchmark
+    public Object isDirectoryMiss() throws RemoteDataException {
+        try {
+            return client.isDirectory(missingPaths[next()]);
+        } catch (IOException e) {
+            return e;
+        }
+    }
+}
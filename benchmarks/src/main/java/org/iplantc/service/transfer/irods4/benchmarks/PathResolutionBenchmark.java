@@ -0,0 +1,109 @@
+package org.iplantc.service.transfer.irods4.benchmarks;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.iplantc.service.transfer.irods4.IRODS4;
+import org.iplantc.service.transfer.irods4.IrodsBaseTestCase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link IRODS4#resolvePath(String)} over a mix of plain, dotted,
+ * absolute and special character paths, with and without the resolved path
+ * memo. No connection is made.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PathResolutionBenchmark {
+
+    @Param({ "0", "4096" })
+    public int resolvedPathCacheSize;
+
+    @Param({ "plain", "special" })
+    public String corpus;
+
+    private IRODS4 client;
+    private String[] paths;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        client = new IRODS4("localhost", 1247, "benchmark", "benchmark", "demoResc", "benchmarkZone",
+                "PathResolutionBenchmark/home");
+        client.setResolvedPathCacheSize(resolvedPathCacheSize);
+        paths = "special".equals(corpus) ? specialCharacterPaths() : plainPaths();
+    }
+
+    @Benchmark
+    public String resolvePath() throws FileNotFoundException {
+        String path = paths[index];
+        if (++index == paths.length) {
+            index = 0;
+        }
+        return client.resolvePath(path);
+    }
+
+    /**
+     * @return relative and absolute paths with the dot segments, repeated
+     *         and trailing slashes clients send in practice
+     */
+    static String[] plainPaths() {
+        return new String[] {
+            "file.txt",
+            "dir/file.txt",
+            "dir/sub/deeper/file.txt",
+            "dir/./file.txt",
+            "dir/sub/../file.txt",
+            "dir//sub///file.txt",
+            "dir/sub/",
+            "./dir/file.txt",
+            "/shared/project/data/file.txt",
+            "/PathResolutionBenchmark/home/dir/../other/file.txt",
+            "a/b/c/d/e/f/g/h/i/j/k/l/m/n/o/p/file.txt",
+            "dir/sub/.."
+        };
+    }
+
+    /**
+     * @return the names used by the special character tests: each character
+     *         alone, doubled, leading, trailing, bookending and inside a name,
+     *         both relative and nested in a collection
+     */
+    static String[] specialCharacterPaths() {
+        List<String> names = new ArrayList<String>();
+        for (char c: IrodsBaseTestCase.SPECIAL_CHARS.toCharArray()) {
+            for (String sc: new String[] { String.valueOf(c), String.valueOf(c) + c }) {
+                if (c != ' ' && c != '.') {
+                    names.add(sc);
+                }
+                names.add(sc + "leading");
+                names.add("trailing" + sc);
+                names.add(sc + "bookend" + sc);
+                names.add("sand" + sc + "wich");
+            }
+        }
+
+        List<String> paths = new ArrayList<String>(names.size() * 2);
+        for (String name: names) {
+            paths.add(name);
+            paths.add("absolute_path_test/" + name);
+        }
+        return paths.toArray(new String[paths.size()]);
+    }
+}
@@ -0,0 +1,90 @@
+package org.iplantc.service.transfer.irods4.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.iplantc.service.transfer.irods4.DefaultTransferStatusCallbackListener;
+import org.iplantc.service.transfer.irods4.MetricsTransferStatusCallbackListener;
+import org.iplantc.service.transfer.irods4.ProgressTransferStatusCallbackListener;
+import org.iplantc.service.transfer.irods4.TransferMetrics;
+import org.iplantc.service.transfer.irods4.TransferProgress;
+import org.iplantc.service.transfer.irods4.TransferProgressSink;
+import org.irods.jargon.core.exception.JargonException;
+import org.irods.jargon.core.transfer.TransferStatus;
+import org.irods.jargon.core.transfer.TransferStatus.TransferState;
+import org.irods.jargon.core.transfer.TransferStatus.TransferType;
+import org.irods.jargon.core.transfer.TransferStatusCallbackListener.FileStatusCallbackResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the overhead a transfer listener adds to each callback Jargon
+ * makes. Intra-file progress callbacks arrive once per buffer, so this cost
+ * is paid thousands of times for a large file. The {@code metrics} listener
+ * records into standalone {@link TransferMetrics} so the JVM wide aggregate
+ * is left alone, and the {@code progress} listener reports to a sink which
+ * discards its updates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransferCallbackBenchmark {
+
+    @Param({"default", "metrics", "progress"})
+    public String listenerType;
+
+    private DefaultTransferStatusCallbackListener listener;
+    private TransferStatus progress;
+    private TransferStatus success;
+    private TransferStatus overallCompletion;
+
+    @Setup
+    public void setUp() throws JargonException {
+        if ("metrics".equals(listenerType)) {
+            listener = new MetricsTransferStatusCallbackListener(new TransferMetrics(null));
+        } else if ("progress".equals(listenerType)) {
+            listener = new ProgressTransferStatusCallbackListener(new TransferProgressSink() {
+                @Override
+                public void progressUpdated(TransferProgress progress) {}
+            }, 10);
+        } else {
+            listener = new DefaultTransferStatusCallbackListener();
+        }
+        progress = status(TransferState.IN_PROGRESS, 1L << 20);
+        success = status(TransferState.SUCCESS, 1L << 30);
+        overallCompletion = status(TransferState.OVERALL_COMPLETION, 1L << 30);
+    }
+
+    private TransferStatus status(TransferState state, long bytesSoFar) throws JargonException {
+        return TransferStatus.instance(TransferType.PUT, "/tmp/source.dat",
+                "/benchmarkZone/home/benchmark/source.dat", "demoResc", 1L << 30, bytesSoFar,
+                0, 0, 1, state, "localhost", "benchmarkZone");
+    }
+
+    @Benchmark
+    public FileStatusCallbackResponse progressCallback() throws JargonException {
+        return listener.statusCallback(progress);
+    }
+
+    @Benchmark
+    public FileStatusCallbackResponse successCallback() throws JargonException {
+        return listener.statusCallback(success);
+    }
+
+    @Benchmark
+    public DefaultTransferStatusCallbackListener overallCallback() throws JargonException {
+        listener.overallStatusCallback(overallCompletion);
+        return listener;
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * 
+ */
+package org.iplantc.service.transfer.exceptions;
+
+/**
+ * The remote system rejected the credentials, or its identity could not
+ * be verified. Not retryable.
+ */
+public class RemoteAuthenticationException extends RemoteDataException {
+
+	private static final long serialVersionUID = 6632907612315840671L;
+
+	/**
+	 * 
+	 */
+	public RemoteAuthenticationException() {}
+
+	/**
+	 * @param arg0
+	 */
+	public RemoteAuthenticationException(String arg0)
+	{
+		super(arg0);
+	}
+
+	/**
+	 * @param arg0
+	 */
+	public RemoteAuthenticationException(Throwable arg0)
+	{
+		super(arg0);
+	}
+
+	/**
+	 * @param arg0
+	 * @param arg1
+	 */
+	public RemoteAuthenticationException(String arg0, Throwable arg1)
+	{
+		super(arg0, arg1);
+	}
+
+}
@@ -0,0 +1,50 @@
+/**
+ * 
+ */
+package org.iplantc.service.transfer.exceptions;
+
+/**
+ * The remote system could not be reached, or the connection to it failed
+ * part way through a call. Always retryable.
+ */
+public class RemoteConnectionException extends RemoteDataException {
+
+	private static final long serialVersionUID = -4217731296573871329L;
+
+	/**
+	 * 
+	 */
+	public RemoteConnectionException() {}
+
+	/**
+	 * @param arg0
+	 */
+	public RemoteConnectionException(String arg0)
+	{
+		super(arg0);
+	}
+
+	/**
+	 * @param arg0
+	 */
+	public RemoteConnectionException(Throwable arg0)
+	{
+		super(arg0);
+	}
+
+	/**
+	 * @param arg0
+	 * @param arg1
+	 */
+	public RemoteConnectionException(String arg0, Throwable arg1)
+	{
+		super(arg0, arg1);
+	}
+
+	@Override
+	public boolean isRetryable()
+	{
+		return true;
+	}
+
+}
@@ -4,6 +4,9 @@
 package org.iplantc.service.transfer.exceptions;
 
 /**
+ * Failure of an operation on a remote system. Subclasses say what went
+ * wrong, and {@link #isRetryable()} whether trying again may succeed.
+ * 
  * @author dooley
  * 
  */
@@ -41,4 +44,14 @@ public class RemoteDataException extends Exception {
 		super(arg0, arg1);
 	}
 
+	/**
+	 * @return true if the same call may succeed when tried again, such as
+	 *         after a dropped connection. False unless a subclass says
+	 *         otherwise.
+	 */
+	public boolean isRetryable()
+	{
+		return false;
+	}
+
 }
@@ -0,0 +1,44 @@
+/**
+ * 
+ */
+package org.iplantc.service.transfer.exceptions;
+
+/**
+ * The user lacks permission for the requested operation on the remote
+ * system. Not retryable.
+ */
+public class RemotePermissionException extends RemoteDataException {
+
+	private static final long serialVersionUID = -1452386093216174572L;
+
+	/**
+	 * 
+	 */
+	public RemotePermissionException() {}
+
+	/**
+	 * @param arg0
+	 */
+	public RemotePermissionException(String arg0)
+	{
+		super(arg0);
+	}
+
+	/**
+	 * @param arg0
+	 */
+	public RemotePermissionException(Throwable arg0)
+	{
+		super(arg0);
+	}
+
+	/**
+	 * @param arg0
+	 * @param arg1
+	 */
+	public RemotePermissionException(String arg0, Throwable arg1)
+	{
+		super(arg0, arg1);
+	}
+
+}
@@ -0,0 +1,116 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outcome of an operation spanning many files or collections, such as a
+ * parallel tree upload. Failures are collected per path rather than aborting
+ * the whole operation, so callers can retry just the paths that failed. All
+ * counters are safe to update and read from multiple threads while the
+ * operation is running.
+ */
+public class BulkOperationReport {
+    
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+    private final Map<String, Throwable> failures = new ConcurrentHashMap<String, Throwable>();
+    private final long startedAt = System.currentTimeMillis();
+    private volatile long completedAt = 0;
+    
+    /**
+     * Records a path which was processed successfully.
+     * 
+     * @param path the local or remote path processed
+     * @param byteCount number of bytes moved for the path, 0 if none
+     */
+    public void recordSuccess(String path, long byteCount) {
+        succeeded.incrementAndGet();
+        bytes.addAndGet(byteCount);
+    }
+    
+    /**
+     * Records a path which needed no work, such as an unchanged file in a sync.
+     * 
+     * @param path the local or remote path skipped
+     */
+    public void recordSkipped(String path) {
+        skipped.incrementAndGet();
+    }
+    
+    /**
+     * Records a path which could not be processed.
+     * 
+     * @param path the local or remote path processed
+     * @param cause the reason it failed
+     */
+    public void recordFailure(String path, Throwable cause) {
+        failures.put(path, cause);
+    }
+    
+    /**
+     * Marks the operation as finished.
+     */
+    public void complete() {
+        completedAt = System.currentTimeMillis();
+    }
+    
+    /**
+     * @return true if any path failed
+     */
+    public boolean hasErrors() {
+        return !failures.isEmpty();
+    }
+    
+    /**
+     * @return number of paths processed successfully
+     */
+    public int getSucceeded() {
+        return succeeded.get();
+    }
+    
+    /**
+     * @return number of paths which needed no work
+     */
+    public int getSkipped() {
+        return skipped.get();
+    }
+    
+    /**
+     * @return number of paths which failed
+     */
+    public int getFailed() {
+        return failures.size();
+    }
+    
+    /**
+     * @return total bytes moved by successful paths
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+    
+    /**
+     * @return unmodifiable view of the failed paths and their causes
+     */
+    public Map<String, Throwable> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+    
+    /**
+     * @return time in milliseconds the operation took, or has taken so far
+     */
+    public long getElapsedMillis() {
+        return (completedAt == 0 ? System.currentTimeMillis() : completedAt) - startedAt;
+    }
+    
+    @Override
+    public String toString() {
+        return "succeeded=" + getSucceeded() + ", skipped=" + getSkipped() + ", failed=" + getFailed() 
+                + ", bytes=" + getBytes() + ", elapsedMillis=" + getElapsedMillis();
+    }
+}
@@ -0,0 +1,170 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Bounded map of absolute iRODS paths with approximately least recently used
+ * eviction, backing the caches {@link IRODS4} consults on every call. Lookups
+ * and updates go straight to a {@link ConcurrentHashMap}, so threads sharing
+ * a client never queue on a monitor to read a cached path.
+ * <p>
+ * Each lookup stamps the entry with the time it was used. Once the map grows
+ * past its bound, one thread sorts the stamps and drops the least recently
+ * used eighth of the entries in a single pass, while the others carry on. The
+ * map may briefly hold more than its bound while that happens.
+ */
+class ConcurrentLruMap<V> {
+
+    /**
+     * A cached value along with the time it was stored and last used.
+     */
+    static final class Entry<V> {
+        final V value;
+        final long createdAt = System.currentTimeMillis();
+        volatile long lastUsed = System.nanoTime();
+
+        Entry(V value) {
+            this.value = value;
+        }
+
+        /**
+         * @param ttlMillis time in milliseconds an entry is trusted
+         * @return true if the entry was stored more than {@code ttlMillis} ago
+         */
+        boolean isExpired(long ttlMillis) {
+            return System.currentTimeMillis() - createdAt >= ttlMillis;
+        }
+    }
+
+    private final int maxEntries;
+    private final ConcurrentHashMap<String, Entry<V>> entries = new ConcurrentHashMap<String, Entry<V>>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /**
+     * @param maxEntries max number of entries before the least recently used
+     *            ones are evicted
+     */
+    ConcurrentLruMap(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * @param key absolute path on the remote system
+     * @return the entry for the path, or null if absent
+     */
+    Entry<V> get(String key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            entry.lastUsed = System.nanoTime();
+        }
+        return entry;
+    }
+
+    /**
+     * @param key absolute path on the remote system
+     * @param value value to store
+     * @return number of entries evicted to make room
+     */
+    int put(String key, V value) {
+        entries.put(key, new Entry<V>(value));
+        return entries.size() > maxEntries ? evict() : 0;
+    }
+
+    /**
+     * @param key absolute path on the remote system
+     * @return true if an entry was removed
+     */
+    boolean remove(String key) {
+        return entries.remove(key) != null;
+    }
+
+    /**
+     * Removes an entry only if it has not been replaced since it was read,
+     * so dropping an expired entry cannot discard a fresh one.
+     *
+     * @param key absolute path on the remote system
+     * @param entry the entry returned by {@link #get(String)}
+     * @return true if the entry was removed
+     */
+    boolean remove(String key, Entry<V> entry) {
+        return entries.remove(key, entry);
+    }
+
+    /**
+     * Removes the entry for a path along with every entry beneath it.
+     *
+     * @param absolutePath absolute path on the remote system, without trailing slash
+     * @return number of entries removed
+     */
+    int removeTree(String absolutePath) {
+        String prefix = StringUtils.removeEnd(absolutePath, "/") + "/";
+        int removed = 0;
+        Iterator<String> iter = entries.keySet().iterator();
+        while (iter.hasNext()) {
+            String key = iter.next();
+            if (key.equals(absolutePath) || key.startsWith(prefix)) {
+                iter.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Drops the least recently used entries until the map is an eighth below
+     * its bound. Returns straight away if another thread is already evicting.
+     *
+     * @return number of entries evicted
+     */
+    private int evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            long[] stamps = new long[entries.size()];
+            int count = 0;
+            for (Entry<V> entry: entries.values()) {
+                if (count == stamps.length) {
+                    break;
+                }
+                stamps[count++] = entry.lastUsed;
+            }
+
+            int excess = count - (maxEntries - maxEntries / 8);
+            if (excess <= 0) {
+                return 0;
+            }
+            Arrays.sort(stamps, 0, count);
+            long cutoff = stamps[excess - 1];
+
+            // entries used since the stamps were copied are newer than the
+            // cutoff, so they are kept
+            int evicted = 0;
+            Iterator<Map.Entry<String, Entry<V>>> iter = entries.entrySet().iterator();
+            while (evicted < excess && iter.hasNext()) {
+                Map.Entry<String, Entry<V>> candidate = iter.next();
+                if (candidate.getValue().lastUsed <= cutoff
+                        && entries.remove(candidate.getKey(), candidate.getValue())) {
+                    evicted++;
+                }
+            }
+            return evicted;
+        } finally {
+            evicting.set(false);
+        }
+    }
+}
@@ -1,19 +1,60 @@
 package org.iplantc.service.transfer.irods4;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang.StringUtils;
-import org.codehaus.plexus.util.FileUtils;
 import org.ietf.jgss.GSSCredential;
+import org.iplantc.service.transfer.exceptions.RemoteAuthenticationException;
+import org.iplantc.service.transfer.exceptions.RemoteConnectionException;
 import org.iplantc.service.transfer.exceptions.RemoteDataException;
+import org.iplantc.service.transfer.exceptions.RemotePermissionException;
+import org.irods.jargon.core.checksum.ChecksumEncodingEnum;
+import org.irods.jargon.core.checksum.ChecksumValue;
 import org.irods.jargon.core.connection.AuthScheme;
 import org.irods.jargon.core.connection.GSIIRODSAccount;
 import org.irods.jargon.core.connection.IRODSAccount;
 import org.irods.jargon.core.connection.IRODSProtocolManager;
 import org.irods.jargon.core.connection.IRODSSession;
 import org.irods.jargon.core.connection.IRODSSimpleProtocolManager;
+import org.irods.jargon.core.connection.JargonProperties;
+import org.irods.jargon.core.connection.SettableJargonProperties;
 import org.irods.jargon.core.exception.AuthenticationException;
 import org.irods.jargon.core.exception.CatNoAccessException;
 import org.irods.jargon.core.exception.DataNotFoundException;
@@ -21,33 +62,84 @@ import org.irods.jargon.core.exception.DuplicateDataException;
 import org.irods.jargon.core.exception.FileNotFoundException;
 import org.irods.jargon.core.exception.JargonException;
 import org.irods.jargon.core.exception.JargonRuntimeException;
+import org.irods.jargon.core.pub.CollectionAndDataObjectListAndSearchAO;
 import org.irods.jargon.core.pub.DataObjectAO;
+import org.irods.jargon.core.pub.DataObjectChecksumUtilitiesAO;
 import org.irods.jargon.core.pub.DataTransferOperations;
 import org.irods.jargon.core.pub.IRODSAccessObjectFactory;
 import org.irods.jargon.core.pub.IRODSAccessObjectFactoryImpl;
 import org.irods.jargon.core.pub.IRODSFileSystemAO;
+import org.irods.jargon.core.pub.IRODSGenQueryExecutor;
+import org.irods.jargon.core.packinstr.TransferOptions;
 import org.irods.jargon.core.pub.domain.ObjStat;
 import org.irods.jargon.core.pub.io.IRODSFile;
 import org.irods.jargon.core.pub.io.IRODSFileFactory;
+import org.irods.jargon.core.pub.io.IRODSRandomAccessFile;
+import org.irods.jargon.core.query.CollectionAndDataObjectListingEntry;
 import org.irods.jargon.core.query.CollectionAndDataObjectListingEntry.ObjectType;
+import org.irods.jargon.core.query.GenQueryBuilderException;
+import org.irods.jargon.core.query.IRODSGenQueryBuilder;
+import org.irods.jargon.core.query.IRODSGenQueryFromBuilder;
+import org.irods.jargon.core.query.IRODSQueryResultRow;
+import org.irods.jargon.core.query.IRODSQueryResultSetInterface;
+import org.irods.jargon.core.query.JargonQueryException;
+import org.irods.jargon.core.query.QueryConditionOperators;
+import org.irods.jargon.core.query.RodsGenQueryEnum;
+import org.irods.jargon.core.transfer.TransferControlBlock;
 import org.irods.jargon.core.transfer.TransferStatus;
 import org.irods.jargon.core.transfer.TransferStatusCallbackListener;
+import org.irods.jargon.core.utils.IRODSDataConversionUtil;
 
 public class IRODS4 {
     /** integer from some queries signifying user can read a file */
     static final int READ_PERMISSIONS = 1050;
     /** integer from some queries signifying user can write to a file */
     static final int WRITE_PERMISSIONS = 1120;
+    /** buffer size used for streamed transfers when neither the options nor the session set one */
+    static final int DEFAULT_STREAM_BUFFER_SIZE = 1024 * 1024;
+    /** default time a successful session validation is trusted by {@link #authenticate()} */
+    public static final long DEFAULT_SESSION_VALIDATION_TTL_MILLIS = 30000;
+    /** default number of bytes sent by a resumable upload between checkpoint saves */
+    public static final long DEFAULT_CHECKPOINT_INTERVAL_BYTES = 16 * 1024 * 1024;
+    /** number of data objects a single worker deletes at a time in {@link #deleteRecursive(String, int)} */
+    public static final int DELETE_BATCH_SIZE = 256;
+    /** number of names a single catalog query looks up in {@link #statAll(Collection)} */
+    public static final int STAT_BATCH_SIZE = 100;
 
-    private IRODSProtocolManager irodsConnectionManager;
-    private IRODSSession irodsSession;
-    private IRODSAccount irodsAccount;
-    private IRODSAccessObjectFactory accessObjectFactory;
-    private DataTransferOperations dataTransferOperations;
+    // the session and access objects are read without locking by every
+    // thread using the client, so they are volatile and published in order
+    private final Object sessionLock = new Object();
+    private volatile IRODSProtocolManager irodsConnectionManager;
+    private volatile IRODSSession irodsSession;
+    private volatile IRODSAccount irodsAccount;
+    private volatile IRODSAccessObjectFactory accessObjectFactory;
+    private volatile IRODSAccessObjectFactory configuredAccessObjectFactory;
+    private volatile DataTransferOperations dataTransferOperations;
     
-    private DataObjectAO dataObjectAO;
-    private IRODSFileSystemAO fileSystemAO;
-    private IRODSFileFactory irodsFileFactory;
+    private volatile DataObjectAO dataObjectAO;
+    private volatile IRODSFileSystemAO fileSystemAO;
+    private volatile IRODSFileFactory irodsFileFactory;
+    private volatile CollectionAndDataObjectListAndSearchAO listAndSearchAO;
+    private volatile IRODSGenQueryExecutor genQueryExecutor;
+    private IRODSConnectionPool connectionPool = IRODSConnectionPool.getSharedInstance();
+    private long sessionValidationTtlMillis = DEFAULT_SESSION_VALIDATION_TTL_MILLIS;
+    private volatile long sessionValidatedAt = 0;
+    private ObjStatCache objStatCache;
+    private KnownCollectionCache knownCollections;
+    private IRODSTransferOptions defaultTransferOptions;
+    private final ThreadLocal<byte[]> streamBuffer = new ThreadLocal<byte[]>();
+    private int resolvedPathCacheSize = 0;
+    private volatile ConcurrentLruMap<String> resolvedPathCache;
+    private File checkpointDirectory = new File(System.getProperty("java.io.tmpdir"), "irods-checkpoints");
+    private long checkpointIntervalBytes = DEFAULT_CHECKPOINT_INTERVAL_BYTES;
+    private volatile ChecksumEncodingEnum checksumEncoding = ChecksumEncodingEnum.MD5;
+    private volatile DataObjectChecksumUtilitiesAO checksumAO;
+    private final Object propertiesLock = new Object();
+    private int propertyOverrides = 0;
+    private JargonProperties baseJargonProperties;
+    private TransferMetrics transferMetrics = new TransferMetrics();
+    private IRODSCircuitBreaker circuitBreaker;
+    private IRODSRetryPolicy retryPolicy = new IRODSRetryPolicy();
 
     protected AuthScheme type = AuthScheme.STANDARD;
 
@@ -72,6 +164,7 @@ public class IRODS4 {
         this.resource = resource;
         this.zone = zone;
         this.rootDir = "/" + zone + "/home/" + username;
+        this.circuitBreaker = IRODSCircuitBreaker.getSharedInstance(host, port);
 
         updateSystemRoots(rootDir, homeDir);
     }
@@ -111,8 +204,37 @@ public class IRODS4 {
             this.homeDir = this.rootDir;
         }
 
-        this.homeDir = StringUtils.stripEnd(this.homeDir.replaceAll("/+", "/"), " ");
-        this.rootDir = StringUtils.stripEnd(this.rootDir.replaceAll("/+", "/"), " ");
+        this.homeDir = StringUtils.stripEnd(PathNormalizer.collapseSlashes(this.homeDir), " ");
+        this.rootDir = StringUtils.stripEnd(PathNormalizer.collapseSlashes(this.rootDir), " ");
+        
+        ConcurrentLruMap<String> cache = resolvedPathCache;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+    
+    /**
+     * @return max number of resolved paths memoized by {@link #resolvePath(String)}, 0 if disabled
+     */
+    public int getResolvedPathCacheSize() {
+        return resolvedPathCacheSize;
+    }
+    
+    /**
+     * Enables a bounded, approximately least recently used memo of
+     * {@link #resolvePath(String)} results, so paths used over and over, such
+     * as the parent collection of a bulk upload, are only normalized once.
+     * Lookups take no lock. Disabled by default.
+     * 
+     * @param resolvedPathCacheSize max number of memoized paths, 0 to disable
+     */
+    public void setResolvedPathCacheSize(int resolvedPathCacheSize) {
+        this.resolvedPathCacheSize = Math.max(0, resolvedPathCacheSize);
+        if (this.resolvedPathCacheSize == 0) {
+            this.resolvedPathCache = null;
+        } else {
+            this.resolvedPathCache = new ConcurrentLruMap<String>(this.resolvedPathCacheSize);
+        }
     }
 
     /**
@@ -120,423 +242,3002 @@ public class IRODS4 {
      * constructor.
      * This is safe to call repeatedly as the actual authentication call will
      * only
-     * be made if there is not already a valid connection.
+     * be made if there is not already a valid connection. A successful
+     * validation is trusted for {@link #getSessionValidationTtlMillis()}, so
+     * repeated calls within that window make no remote or connection checks
+     * at all. Idle pooled connections are kept alive and checked in the
+     * background by the {@link IRODSConnectionPool}.
+     * <p>
+     * While the {@link #getCircuitBreaker()} is open because the server could
+     * not be reached, this fails fast rather than trying to connect.
+     * <p>
+     * The session is shared by every thread using this client, while each
+     * thread talks to the server over its own connection. A dead connection
+     * is only replaced for the thread which found it.
      * 
      * @throws RemoteAuthenticationException
      */
     public void authenticate() throws RemoteDataException {
+        if (irodsSession != null && sessionValidationTtlMillis > 0
+                && System.currentTimeMillis() - sessionValidatedAt < sessionValidationTtlMillis) {
+            return;
+        }
+        
+        IRODSCircuitBreaker breaker = circuitBreaker;
+        if (breaker != null) {
+            breaker.beforeCall();
+        }
+        
+        Throwable error = null;
         try {
-            if (irodsSession == null || !irodsSession.currentConnection(irodsAccount).isConnected()) {
-                irodsConnectionManager = IRODSSimpleProtocolManager.instance();
-                irodsSession = new IRODSSession(irodsConnectionManager);
-                irodsAccount = getAccount();
-                accessObjectFactory = IRODSAccessObjectFactoryImpl.instance(irodsSession);
-
-                String accountHomeDir = getDataObjectAO().getIRODSAccount().getHomeDirectory();
-                // make a remote call to verify authentication success
-                getIRODSFileFactory().instanceIRODSFile(homeDir);
+            connect();
+        } catch (RemoteDataException | RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            if (breaker != null) {
+                breaker.recordOutcome(error);
+            }
+        }
+    }
+    
+    /**
+     * Opens a session with the server if there is none, then makes sure the
+     * calling thread has an authenticated connection. A connection which
+     * failed for connectivity reasons has already been dropped, so a new
+     * one is opened in its place.
+     * 
+     * @throws RemoteDataException
+     */
+    private void connect() throws RemoteDataException {
+        try {
+            if (irodsSession == null) {
+                openSession();
             }
+            
+            // borrows and authenticates a connection for this thread if it
+            // has none, so an unreachable server or bad credentials fail here
+            accessObjectFactory.authenticateIRODSAccount(irodsAccount);
+            sessionValidatedAt = System.currentTimeMillis();
         } catch (AuthenticationException e) {
-            throw new RemoteDataException("Failed to authenticate to remote server. "
+            throw new RemoteAuthenticationException("Failed to authenticate to remote server. "
                     + e.getMessage(), e);
         } catch (JargonException e) {
-            if (e.getMessage().toLowerCase().contains("unable to start ssl socket")) {
-                throw new RemoteDataException(
-                        "Unable to validate SSL certificate on the IRODS server used for PAM authentication.",
-                        e);
-            } else
-                if (e.getMessage().toLowerCase().contains("connection refused")) {
-                    throw new RemoteDataException(
-                            "Connection refused: Unable to contact IRODS server at " + host + ":"
-                                    + port);
-                } else {
-                    throw new RemoteDataException("Failed to connect to remote server.", e);
-                }
+            throw toRemoteDataException(e);
         } catch (Exception e) {
             throw new RemoteDataException("Failed to authenticate to remote server.", e);
         }
     }
 
     /**
-     * Instance-level singleton for the {@link IRODSFileFactory} associated with
-     * the current {@link AccessObjectFactory}.
+     * Creates the session shared by every thread using this client, unless
+     * another thread got there first. The session is published last, so a
+     * thread which sees it also sees the account and access object factory.
      * 
-     * @return shared instance of a {@link IRODSFileFactory} for this object.
+     * @return true if this call created the session
      * @throws JargonException
      */
-    private IRODSFileFactory getIRODSFileFactory() throws JargonException {
-        if (irodsFileFactory == null) {
-            irodsFileFactory = accessObjectFactory.getIRODSFileFactory(irodsAccount);
+    private boolean openSession() throws JargonException {
+        synchronized (sessionLock) {
+            if (irodsSession != null) {
+                return false;
+            }
+            
+            IRODSAccessObjectFactory factory = configuredAccessObjectFactory;
+            if (factory == null) {
+                IRODSProtocolManager connectionManager;
+                if (connectionPool == null) {
+                    connectionManager = IRODSSimpleProtocolManager.instance();
+                } else {
+                    connectionManager = connectionPool;
+                }
+                irodsConnectionManager = connectionManager;
+                factory = IRODSAccessObjectFactoryImpl.instance(new IRODSSession(connectionManager));
+            }
+            irodsAccount = getAccount();
+            accessObjectFactory = factory;
+            irodsSession = factory.getIrodsSession();
+            return true;
         }
+    }
 
-        return irodsFileFactory;
+    /**
+     * @return the access object factory set with
+     *         {@link #setAccessObjectFactory(IRODSAccessObjectFactory)}, or
+     *         null if this client builds its own
+     */
+    public IRODSAccessObjectFactory getAccessObjectFactory() {
+        return configuredAccessObjectFactory;
     }
 
     /**
-     * Instance-level singleton for the {@link DataObjectAO} associated with
-     * the current {@link AccessObjectFactory}.
+     * Sets the access object factory this client gets every access object
+     * and its session from, in place of one built over the
+     * {@link #getConnectionPool()}. Calls through it still go through the
+     * circuit breaker, retries and reconnects, so benchmarks and load tests
+     * can run the client against an in-process stand-in for the server. The
+     * factory's {@link IRODSAccessObjectFactory#getIrodsSession()} must not
+     * be null. Any current session is dropped.
      * 
-     * @return shared instance of a {@link IRODSFileFactory} for this object.
-     * @throws JargonException
+     * @param accessObjectFactory the factory to use, or null to build one on the next {@link #authenticate()}
      */
-    private DataObjectAO getDataObjectAO() throws JargonException
-    {
-        if (dataObjectAO == null) {
-            dataObjectAO = accessObjectFactory.getDataObjectAO(irodsAccount);
-        }
-        
-        return dataObjectAO;
+    public void setAccessObjectFactory(IRODSAccessObjectFactory accessObjectFactory) {
+        disconnect();
+        this.configuredAccessObjectFactory = accessObjectFactory;
     }
-    
+
     /**
-     * Instance-level singleton for the {@link DataTransferOperations} associated with
-     * the current {@link AccessObjectFactory}.
-     * 
-     * @return shared instance of a {@link IRODSFileFactory} for this object.
-     * @throws JargonException
+     * @return the circuit breaker guarding calls to the server, or null if disabled
      */
-    private DataTransferOperations getDataTransferOperations() throws JargonException
-    {
-        if (dataTransferOperations == null) {
-            dataTransferOperations = accessObjectFactory.getDataTransferOperations(irodsAccount);
-        }
-        
-        return dataTransferOperations;
+    public IRODSCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
     }
-    
-    
+
     /**
-     * Creates a new {@link IRODSAccount} using the connection parameters
-     * provided in the constructor.
+     * Sets the circuit breaker consulted by {@link #authenticate()} and
+     * {@link #stat(String)}. By default clients of the same host and port
+     * share {@link IRODSCircuitBreaker#getSharedInstance(String, int)}. Pass
+     * null to always wait out the connect timeout.
      * 
-     * @return unverified {@link IRODSAccount} object with the proper
-     *         {@link AuthScheme} configured.
-     * @throws EncryptionException
-     * @throws JargonException
+     * @param circuitBreaker the breaker to use, or null
      */
-    private IRODSAccount getAccount() throws JargonException {
-        IRODSAccount account = null;
-        if (this.type == AuthScheme.GSI) {
-            account = GSIIRODSAccount.instance(host, port, credential, resource);
-            account.setZone(zone);
-            account.setHomeDirectory(rootDir);
-        } else {
-            account = new IRODSAccount(host, port, username, password, rootDir, zone,
-                    StringUtils.isEmpty(resource) ? "" : resource);
+    public void setCircuitBreaker(IRODSCircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
 
-            if (this.type == null) {
-                this.type = AuthScheme.STANDARD;
-            }
+    /**
+     * @return the policy for retrying idempotent calls, or null if they are not retried
+     */
+    public IRODSRetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
 
-            account.setAuthenticationScheme(type);
+    /**
+     * Sets the policy for retrying {@link #stat(String)} and the existence
+     * checks built on it, {@link #mkdirs(String)}, and uploads of local
+     * files, when they fail for a transient reason. The session is opened
+     * again before each retry. Pass null to fail on the first error.
+     * 
+     * @param retryPolicy the policy to use, or null
+     */
+    public void setRetryPolicy(IRODSRetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
 
-        }
+    /**
+     * @return the pool this client borrows connections from, or null if
+     *         every session opens its own connection.
+     */
+    public IRODSConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
 
-        return account;
+    /**
+     * Sets the pool this client borrows connections from. Pass null to open
+     * and close a dedicated connection for this client as it authenticates
+     * and disconnects. Takes effect on the next new session.
+     * 
+     * @param connectionPool the pool to use, or null to disable pooling
+     */
+    public void setConnectionPool(IRODSConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
     }
-    
-    private IRODSFileSystemAO getIRODSFileSystemAO() throws JargonException
-    {
-        if (fileSystemAO == null) {
-            fileSystemAO = accessObjectFactory.getIRODSFileSystemAO(irodsAccount);
-        }
-        
-        return fileSystemAO;
+
+    /**
+     * @return the time in milliseconds a successful session validation is
+     *         trusted by {@link #authenticate()}
+     */
+    public long getSessionValidationTtlMillis() {
+        return sessionValidationTtlMillis;
     }
-    
+
     /**
-     * Perform a {@link IRODSFileSystemAO#getObjStat} on the {@code virtualPath}
-     * .
-     * Exceptions are swallowed and relayed as appropriate domain exceptions.
+     * Sets how long a successful session validation is trusted. A value of
+     * zero or less checks the connection on every call to
+     * {@link #authenticate()}.
      * 
-     * @param virtualPath
-     *            the virtual path to the remote object or collection
-     * @return a {@link ObjStat} for the requested {@code virtualPath}.
-     * @throws FileNotFoundException
-     *             if the path is invalid or the object does not exist
-     * @throws RemoteDataException
-     *             on permission or connectivity issues. will wrap
-     *             {@link JargonException}
+     * @param sessionValidationTtlMillis time in milliseconds
      */
-    protected ObjStat stat(String virtualPath) throws IOException, RemoteDataException {
-        String resolvedPath = StringUtils.removeEnd(resolvePath(virtualPath), "/");
-        if (StringUtils.equals(virtualPath, "/") && StringUtils.isEmpty(resolvedPath)) {
-            resolvedPath = "/";
-        }
+    public void setSessionValidationTtlMillis(long sessionValidationTtlMillis) {
+        this.sessionValidationTtlMillis = sessionValidationTtlMillis;
+    }
 
-        try {
-            return getIRODSFileSystemAO().getObjStat(resolvedPath);
-        } catch (FileNotFoundException e) {
-            throw new java.io.FileNotFoundException(
-                    "File/folder does not exist or user lacks access permission");
-        } catch (JargonException e) {
-            if (e.getMessage().toLowerCase().contains("unable to start ssl socket")) {
-                throw new RemoteDataException(
-                        "Unable to validate SSL certificate on the IRODS server used for PAM authentication.",
-                        e);
-            } else
-                if (e.getMessage().toLowerCase().contains("connection refused")) {
-                    throw new RemoteDataException(
-                            "Connection refused: Unable to contact IRODS server at " + host + ":"
-                                    + port);
-                } else {
-                    throw new RemoteDataException("Failed to connect to remote server.", e);
-                }
-        }
+    /**
+     * @return the {@link ObjStatCache} consulted by {@link #stat(String)}, or
+     *         null if caching is disabled
+     */
+    public ObjStatCache getObjStatCache() {
+        return objStatCache;
     }
 
     /**
-     * Resolves a virtualized system path provided by a user to an absolute
-     * system path relative
-     * to the {@link #rootDir} of this instance. Paths that do not begin with a
-     * slash are treated as
-     * relative paths and are resolved against the {@link #homeDir}.
+     * Sets the {@link ObjStatCache} consulted by {@link #stat(String)}. The
+     * same cache may be shared by clients of the same server and user. Pass
+     * null to disable caching, which is the default.
      * 
-     * @param virtualPath
-     *            the virtual path to the remote object or collection
-     * @return absolute path on the remote system of the provided virtual path
-     * @throws FileNotFoundException
+     * @param objStatCache the cache to use, or null
      */
-    public String resolvePath(String virtualPath) 
-    throws java.io.FileNotFoundException 
-    {
-        if (StringUtils.isEmpty(virtualPath)) {
-            return StringUtils.stripEnd(homeDir, " ");
-        } else
-            if (virtualPath.startsWith("/")) {
-                virtualPath = rootDir + virtualPath.replaceFirst("/", "");
-            } else {
-                virtualPath = homeDir + virtualPath;
-            }
-
-        String adjustedPath = virtualPath;
-        if (adjustedPath.endsWith("/..") || adjustedPath.endsWith("/.")) {
-            adjustedPath += File.separator;
-        }
+    public void setObjStatCache(ObjStatCache objStatCache) {
+        this.objStatCache = objStatCache;
+    }
 
-        if (adjustedPath.startsWith("/")) {
-            virtualPath = FileUtils.normalize(adjustedPath);
-        } else {
-            virtualPath = FilenameUtils.normalize(adjustedPath);
-        }
+    /**
+     * @return the metrics file transfers made by this client are recorded
+     *         into, or null if recording is disabled
+     */
+    public TransferMetrics getTransferMetrics() {
+        return transferMetrics;
+    }
 
-        if (virtualPath == null) {
-            throw new java.io.FileNotFoundException(
-                    "File/folder does not exist or user lacks access permission");
-        } else
-            if (!virtualPath.startsWith(rootDir)) {
-                if (!virtualPath.equals(StringUtils.removeEnd(rootDir, "/"))) {
-                    throw new java.io.FileNotFoundException(
-                            "File/folder does not exist or user lacks access permission");
-                }
-            }
+    /**
+     * Sets the metrics file transfers are recorded into. Each client gets its
+     * own instance by default, rolling up into
+     * {@link TransferMetrics#getAggregate()}. Pass null to stop recording.
+     * 
+     * @param transferMetrics the metrics to record into, or null
+     */
+    public void setTransferMetrics(TransferMetrics transferMetrics) {
+        this.transferMetrics = transferMetrics;
+    }
 
-        // prune trailing slashes
-        return StringUtils.stripEnd(virtualPath, " ");
+    /**
+     * @return the cache of collections this client knows to exist, or null if disabled
+     */
+    public KnownCollectionCache getKnownCollections() {
+        return knownCollections;
     }
 
     /**
-     * Check for existence of a file or folder. Exceptions are thrown for
-     * permission
-     * and connectivity issues. Otherwise boolean values are returned.
+     * Sets the cache of collections this client knows to exist. Uploads and
+     * {@link #mkdirs(String)} skip the remote checks for collections in the
+     * cache. Disabled by default, since a collection deleted by another
+     * client stays in the cache until its entry expires. Until then
+     * {@link #mkdirs(String)} reports it as existing, and uploads into it
+     * fail once before it is dropped and recreated.
      * 
-     * @param virtualPath
-     *            the virtual path to the remote object or collection
-     * @return true if the object or collection exists, false otherwise
-     * @throws IOException
-     *             if {@code virtualPath} is invalid
-     * @throws RemoteDataException
-     *             on permission or connectivity issues. will wrap
-     *             {@link JargonException}
+     * @param knownCollections the cache to use, or null to always check the server
      */
-    public boolean doesExist(String virtualPath) throws IOException, RemoteDataException {
-        try {
-            stat(virtualPath);
-            return true;
-        } catch (java.io.FileNotFoundException e) {
-            return false;
-        } catch (IOException | RemoteDataException e) {
-            throw e;
-        }
+    public void setKnownCollections(KnownCollectionCache knownCollections) {
+        this.knownCollections = knownCollections;
     }
-    
+
     /**
-     * 
-     * @param virtualPath the virtual path to the remote object or collection
-     * @return true if the {@code virtualPath} is a collection, false otherwise.
-     * @throws IOException if the path is invalid or does not exist
-     * @throws RemoteDataException
+     * @return the options used by transfers which do not specify their own,
+     *         or null to use the session defaults
      */
-    public boolean isDirectory(String virtualPath) 
-    throws IOException, RemoteDataException
-    {
-        ObjStat stat = stat(virtualPath);
-        
-        // should be redundant. Anything other than a collection at the path will
-        // throw a org.irods.jargon.core.exception.FileNotFoundException
-        return stat.getObjectType() == ObjectType.COLLECTION || 
-               stat.getObjectType() == ObjectType.LOCAL_DIR;
+    public IRODSTransferOptions getDefaultTransferOptions() {
+        return defaultTransferOptions;
     }
 
     /**
-     * Creates an instance of an {@link IRODSFile} at the given {@code virtualPath}.
-     * Note that the
-     * virutal path will be validated and resolved to an absolute path prior to
-     * the {@link IRODSFile} instance being created.
+     * Sets the options used by transfers which do not specify their own.
      * 
-     * @param virtualPath
-     *            the virtual path to the remote object or collection
-     * @return instance of an {@link IRODSFile}. The underlying object or
-     *         collection is not guaranteed to exist.
-     * @throws JargonException
-     * @throws IOException
-     *             if the path is invalid
+     * @param defaultTransferOptions the default options, or null to use the
+     *            session defaults
      */
-    protected IRODSFile getIRODSFile(String virtualPath) throws JargonException, IOException {
-        String resolvedPath = resolvePath(virtualPath);
-        return getIRODSFileFactory().instanceIRODSFile(resolvedPath);
+    public void setDefaultTransferOptions(IRODSTransferOptions defaultTransferOptions) {
+        this.defaultTransferOptions = defaultTransferOptions;
     }
 
     /**
-     * Creates the directory specified by <code>virtualPath</code>. If the
-     * parent
-     * does not exist, this will throw a {@link FileNotFoundException}. Use the
-     * {@link #mkdirs} method in this situation. Note that depending
-     * on the underlying implementation and remote system protocol, the
-     * directory
-     * may or may not be available for writing immediately. In the case of
-     * Azure,
-     * bucket creation can take up to 30 minutes.
-     * 
-     * @param virtualPath
-     *            the virtual path to the remote object or collection
-     * @return true on success, false if the directory already exists
-     * @throws IOException
-     * @throws RemoteDataException
+     * @return the checksum scheme {@link #putVerified(File, String)} computes
+     *         locally while uploading
      */
-    public boolean mkdir(String virtualPath) throws IOException, RemoteDataException {
-        IRODSFile file = null;
+    public ChecksumEncodingEnum getChecksumEncoding() {
+        return checksumEncoding;
+    }
 
-        try {
-            file = getIRODSFile(virtualPath);
-            getIRODSFileSystemAO().mkdir(file, false);
-        } catch (DuplicateDataException e) {
-            return false;
-        } catch (CatNoAccessException e) {
-            throw new RemoteDataException("Failed to create " + virtualPath
-                    + " due to insufficient privileges.", e);
-        } catch (DataNotFoundException e) {
-            throw new java.io.FileNotFoundException("No such file or directory");
-        } catch (JargonException e) {
-            // check if this means that it already exists, and call that a
-            // 'false' instead of an error
-            if (e.getMessage().indexOf("-809000") > -1) {
-                return false;
-            }
-            throw new RemoteDataException("Failed to create " + virtualPath, e);
+    /**
+     * Sets the checksum scheme {@link #putVerified(File, String)} computes
+     * locally while uploading. This should match the default hash scheme of
+     * the server. If it does not, the local file is hashed a second time on
+     * every verified upload.
+     * 
+     * @param checksumEncoding {@link ChecksumEncodingEnum#MD5} or {@link ChecksumEncodingEnum#SHA256}
+     */
+    public void setChecksumEncoding(ChecksumEncodingEnum checksumEncoding) {
+        if (getDigestAlgorithm(checksumEncoding) == null) {
+            throw new IllegalArgumentException("Unsupported checksum encoding " + checksumEncoding);
         }
+        this.checksumEncoding = checksumEncoding;
+    }
 
-        return true;
+    /**
+     * @return the local directory in which resumable uploads save their checkpoints
+     */
+    public File getCheckpointDirectory() {
+        return checkpointDirectory;
     }
 
     /**
-     * Creates the directory(ies) specified by <code>virtualPath</code>. Any
-     * missing
-     * directories are created automatically. Note that depending
-     * on the underlying implementation and remote system protocol, the
-     * directory
-     * may or may not be available for writing immediately. In the case of
-     * Azure,
-     * bucket creation can take up to 30 minutes.
+     * @param checkpointDirectory the local directory in which resumable
+     *            uploads save their checkpoints
+     */
+    public void setCheckpointDirectory(File checkpointDirectory) {
+        this.checkpointDirectory = checkpointDirectory;
+    }
+
+    /**
+     * @return number of bytes a resumable upload sends between checkpoint saves
+     */
+    public long getCheckpointIntervalBytes() {
+        return checkpointIntervalBytes;
+    }
+
+    /**
+     * Sets how much data a resumable upload sends between checkpoint saves.
+     * Smaller values lose less progress if the client dies outright, at the
+     * cost of more local writes. The checkpoint is always saved when an
+     * upload fails with an exception.
+     * 
+     * @param checkpointIntervalBytes number of bytes between checkpoint saves
+     */
+    public void setCheckpointIntervalBytes(long checkpointIntervalBytes) {
+        this.checkpointIntervalBytes = Math.max(1, checkpointIntervalBytes);
+    }
+
+    /**
+     * Builds a {@link TransferControlBlock} for a single transfer from the
+     * given options.
+     * 
+     * @param options the transfer options, may be null
+     * @return a new control block, or null to let Jargon use its defaults
+     * @throws JargonException
+     */
+    private TransferControlBlock buildTransferControlBlock(IRODSTransferOptions options) 
+    throws JargonException 
+    {
+        if (options == null) {
+            return null;
+        }
+        
+        TransferControlBlock transferControlBlock = irodsSession.buildDefaultTransferControlBlockBasedOnJargonProperties();
+        TransferOptions transferOptions = transferControlBlock.getTransferOptions();
+        if (transferOptions == null) {
+            transferOptions = irodsSession.buildTransferOptionsBasedOnJargonProperties();
+        }
+        transferControlBlock.setTransferOptions(options.applyTo(transferOptions));
+        
+        return transferControlBlock;
+    }
+    
+    /**
+     * Creates the listener for a single Jargon transfer, recording into
+     * {@link #getTransferMetrics()} when metrics are enabled.
+     * 
+     * @return a new listener
+     */
+    private DefaultTransferStatusCallbackListener newTransferListener() {
+        TransferMetrics metrics = transferMetrics;
+        return metrics == null ? new DefaultTransferStatusCallbackListener() 
+                : new MetricsTransferStatusCallbackListener(metrics);
+    }
+    
+    /**
+     * Creates the listener for a single Jargon transfer made with the given
+     * options, reporting progress to the options' sink when one is set.
+     * 
+     * @param options the transfer options, may be null
+     * @return a new listener
+     */
+    private DefaultTransferStatusCallbackListener newTransferListener(IRODSTransferOptions options) {
+        TransferProgressTracker tracker = newProgressTracker(options);
+        if (tracker == null) {
+            return newTransferListener();
+        }
+        return new ProgressTransferStatusCallbackListener(tracker, newTransferListener(), true);
+    }
+    
+    /**
+     * @param options the transfer options, may be null
+     * @return a tracker reporting to the options' progress sink, or null if none is set
+     */
+    private TransferProgressTracker newProgressTracker(IRODSTransferOptions options) {
+        if (options == null || options.getProgressSink() == null) {
+            return null;
+        }
+        return new TransferProgressTracker(options.getProgressSink(), options.getProgressUpdatesPerSecond());
+    }
+    
+    /**
+     * Records the outcome of a Jargon transfer which its listener did not
+     * see, and delivers the final progress update.
+     * 
+     * @param listener the listener the transfer was made with
+     * @param succeeded true if the transfer completed without error
+     */
+    private void finishTransfer(DefaultTransferStatusCallbackListener listener, boolean succeeded) {
+        if (!succeeded) {
+            recordTransferFailure(listener);
+        }
+        if (listener instanceof ProgressTransferStatusCallbackListener) {
+            ((ProgressTransferStatusCallbackListener)listener).finish();
+        }
+    }
+    
+    /**
+     * Records a Jargon transfer which threw before its listener could report
+     * the failure.
+     * 
+     * @param listener the listener the transfer was made with, may be null
+     */
+    private void recordTransferFailure(DefaultTransferStatusCallbackListener listener) {
+        if (listener instanceof ProgressTransferStatusCallbackListener) {
+            ((ProgressTransferStatusCallbackListener)listener).recordFailure();
+        } else if (listener instanceof MetricsTransferStatusCallbackListener) {
+            ((MetricsTransferStatusCallbackListener)listener).recordFailure();
+        } else if (transferMetrics != null) {
+            transferMetrics.recordFailure();
+        }
+    }
+    
+    /**
+     * Records a file streamed by this client rather than through Jargon's
+     * transfer operations.
+     * 
+     * @param succeeded true if the whole file was transferred
+     * @param bytes number of bytes transferred
+     * @param startedAt time the transfer started, in milliseconds
+     */
+    private void recordStreamedTransfer(boolean succeeded, long bytes, long startedAt) {
+        TransferMetrics metrics = transferMetrics;
+        if (metrics == null) {
+            return;
+        } else if (succeeded) {
+            metrics.recordFile(bytes, System.currentTimeMillis() - startedAt);
+        } else {
+            metrics.recordFailure();
+        }
+    }
+    
+    /**
+     * Overrides the session Jargon properties for the buffer sizes, thread
+     * count and large file threshold in {@code options}. The session belongs
+     * to this client, so the override is visible to this client only. The
+     * returned properties must be handed to
+     * {@link #restoreJargonProperties(JargonProperties)} when the transfer
+     * completes.
+     * <p>
+     * Overrides are built on the properties in effect before the first of
+     * any overlapping transfers, which are put back when the last of them
+     * completes, so concurrent transfers on one client cannot leave one
+     * another's settings behind. While transfers overlap, the latest
+     * override applies to all of them, which is why {@link SharedIRODS4}
+     * overrides this to leave the session alone.
+     * 
+     * @param options the transfer options, may be null
+     * @return the properties in effect before the override, or null if
+     *         nothing was changed
+     */
+    protected JargonProperties overrideJargonProperties(IRODSTransferOptions options) {
+        if (options == null || !options.hasPropertyOverrides()) {
+            return null;
+        }
+        
+        synchronized (propertiesLock) {
+            if (propertyOverrides++ == 0) {
+                baseJargonProperties = irodsSession.getJargonProperties();
+            }
+            SettableJargonProperties properties = new SettableJargonProperties(baseJargonProperties);
+            if (options.getParallelThreads() > 0) {
+                properties.setMaxParallelThreads(options.getParallelThreads());
+                properties.setUseParallelTransfer(options.getParallelThreads() > 1);
+            }
+            if (options.getPutBufferSize() > 0) {
+                properties.setPutBufferSize(options.getPutBufferSize());
+            }
+            if (options.getGetBufferSize() > 0) {
+                properties.setGetBufferSize(options.getGetBufferSize());
+            }
+            if (options.getLargeFileThreshold() > 0) {
+                properties.setParallelThreadsLengthThreshold(options.getLargeFileThreshold());
+            }
+            irodsSession.setJargonProperties(properties);
+            
+            return baseJargonProperties;
+        }
+    }
+    
+    /**
+     * Reverts an override made by {@link #overrideJargonProperties(IRODSTransferOptions)}
+     * once no other transfer on this client still depends on one.
+     * 
+     * @param original the value returned by the override, may be null
+     */
+    private void restoreJargonProperties(JargonProperties original) {
+        if (original == null) {
+            return;
+        }
+        
+        synchronized (propertiesLock) {
+            if (--propertyOverrides == 0) {
+                IRODSSession session = irodsSession;
+                if (session != null) {
+                    session.setJargonProperties(baseJargonProperties);
+                }
+                baseJargonProperties = null;
+            }
+        }
+    }
+
+    /**
+     * Forces the next call to {@link #authenticate()} to check the connection,
+     * regardless of the validation TTL. Called whenever a remote call fails in
+     * a way that suggests the connection is no longer usable.
+     */
+    protected void invalidateSession() {
+        sessionValidatedAt = 0;
+    }
+
+    /**
+     * Drops the calling thread's connection, which a transient failure
+     * suggests can no longer be trusted, and authenticates on a new one.
+     * Other threads keep their connections.
+     * 
+     * @throws RemoteDataException if a new connection could not be opened
+     */
+    private void reconnect() throws RemoteDataException {
+        discardConnection();
+        sessionValidatedAt = 0;
+        
+        authenticate();
+    }
+    
+    /**
+     * Drops the calling thread's connection so the pool does not hand it
+     * back to us. Other threads keep theirs, so the session stays.
+     */
+    private void discardConnection() {
+        IRODSSession session = irodsSession;
+        if (session != null) {
+            try {
+                session.discardSessionForErrors(irodsAccount);
+            } catch (Exception e) {}
+        }
+    }
+
+    /**
+     * Decides whether a failed call should be tried again under the
+     * {@link #getRetryPolicy()}, and if so waits out the backoff and records
+     * the retry. Nothing is retried while the {@link #getCircuitBreaker()}
+     * has given up on the server, since the retry would only delay the same
+     * error.
+     * 
+     * @param operation the operation which failed
+     * @param failedAttempts number of attempts made so far
+     * @param error the error the last attempt failed with
+     * @return true if the caller should try again
+     */
+    private boolean awaitRetry(IRODSRetryPolicy.Operation operation, int failedAttempts, Throwable error) {
+        IRODSRetryPolicy policy = retryPolicy;
+        if (policy == null) {
+            return false;
+        }
+        
+        policy = policy.getPolicy(operation);
+        if (failedAttempts >= policy.getMaxAttempts() || !policy.isRetryable(error)) {
+            return false;
+        }
+        
+        IRODSCircuitBreaker breaker = circuitBreaker;
+        if (breaker != null && breaker.getState() != IRODSCircuitBreaker.State.CLOSED) {
+            return false;
+        }
+        
+        try {
+            Thread.sleep(policy.getBackoffMillis(failedAttempts));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        
+        TransferMetrics metrics = transferMetrics;
+        if (metrics != null) {
+            metrics.recordRetry(operation);
+        }
+        return true;
+    }
+
+    /**
+     * Clears the access objects bound to the current session so they are
+     * recreated against the next one.
+     */
+    private void resetAccessObjects() {
+        dataObjectAO = null;
+        fileSystemAO = null;
+        irodsFileFactory = null;
+        dataTransferOperations = null;
+        listAndSearchAO = null;
+        genQueryExecutor = null;
+        checksumAO = null;
+    }
+
+    /**
+     * Instance-level singleton for the {@link IRODSFileFactory} associated with
+     * the current {@link AccessObjectFactory}. Like the other access objects
+     * it is created without locking. Threads racing to create it may each
+     * build one, which is harmless since access objects hold no state of
+     * their own and fetch the calling thread's connection from the session.
+     * 
+     * @return shared instance of a {@link IRODSFileFactory} for this object.
+     * @throws JargonException
+     */
+    private IRODSFileFactory getIRODSFileFactory() throws JargonException {
+        IRODSFileFactory ao = irodsFileFactory;
+        if (ao == null) {
+            ao = accessObjectFactory.getIRODSFileFactory(irodsAccount);
+            irodsFileFactory = ao;
+        }
+        
+        return ao;
+    }
+
+    /**
+     * Instance-level singleton for the {@link DataObjectAO} associated with
+     * the current {@link AccessObjectFactory}.
+     * 
+     * @return shared instance of a {@link IRODSFileFactory} for this object.
+     * @throws JargonException
+     */
+    private DataObjectAO getDataObjectAO() throws JargonException
+    {
+        DataObjectAO ao = dataObjectAO;
+        if (ao == null) {
+            ao = accessObjectFactory.getDataObjectAO(irodsAccount);
+            dataObjectAO = ao;
+        }
+        
+        return ao;
+    }
+    
+    /**
+     * Instance-level singleton for the {@link DataTransferOperations} associated with
+     * the current {@link AccessObjectFactory}.
+     * 
+     * @return shared instance of a {@link IRODSFileFactory} for this object.
+     * @throws JargonException
+     */
+    private DataTransferOperations getDataTransferOperations() throws JargonException
+    {
+        DataTransferOperations ao = dataTransferOperations;
+        if (ao == null) {
+            ao = accessObjectFactory.getDataTransferOperations(irodsAccount);
+            dataTransferOperations = ao;
+        }
+        
+        return ao;
+    }
+    
+    
+    /**
+     * Creates a new {@link IRODSAccount} using the connection parameters
+     * provided in the constructor.
+     * 
+     * @return unverified {@link IRODSAccount} object with the proper
+     *         {@link AuthScheme} configured.
+     * @throws EncryptionException
+     * @throws JargonException
+     */
+    private IRODSAccount getAccount() throws JargonException {
+        IRODSAccount account = null;
+        if (this.type == AuthScheme.GSI) {
+            account = GSIIRODSAccount.instance(host, port, credential, resource);
+            account.setZone(zone);
+            account.setHomeDirectory(rootDir);
+        } else {
+            account = new IRODSAccount(host, port, username, password, rootDir, zone,
+                    StringUtils.isEmpty(resource) ? "" : resource);
+
+            if (this.type == null) {
+                this.type = AuthScheme.STANDARD;
+            }
+
+            account.setAuthenticationScheme(type);
+
+        }
+
+        return account;
+    }
+    
+    private IRODSFileSystemAO getIRODSFileSystemAO() throws JargonException
+    {
+        IRODSFileSystemAO ao = fileSystemAO;
+        if (ao == null) {
+            ao = accessObjectFactory.getIRODSFileSystemAO(irodsAccount);
+            fileSystemAO = ao;
+        }
+        
+        return ao;
+    }
+    
+    /**
+     * Instance-level singleton for the {@link CollectionAndDataObjectListAndSearchAO}
+     * associated with the current {@link AccessObjectFactory}.
+     * 
+     * @return shared instance of a {@link CollectionAndDataObjectListAndSearchAO} for this object.
+     * @throws JargonException
+     */
+    private CollectionAndDataObjectListAndSearchAO getListAndSearchAO() throws JargonException
+    {
+        CollectionAndDataObjectListAndSearchAO ao = listAndSearchAO;
+        if (ao == null) {
+            ao = accessObjectFactory.getCollectionAndDataObjectListAndSearchAO(irodsAccount);
+            listAndSearchAO = ao;
+        }
+        
+        return ao;
+    }
+    
+    /**
+     * Instance-level singleton for the {@link IRODSGenQueryExecutor}
+     * associated with the current {@link AccessObjectFactory}.
+     * 
+     * @return shared instance of a {@link IRODSGenQueryExecutor} for this object.
+     * @throws JargonException
+     */
+    private IRODSGenQueryExecutor getGenQueryExecutor() throws JargonException
+    {
+        IRODSGenQueryExecutor ao = genQueryExecutor;
+        if (ao == null) {
+            ao = accessObjectFactory.getIRODSGenQueryExecutor(irodsAccount);
+            genQueryExecutor = ao;
+        }
+        
+        return ao;
+    }
+    
+    /**
+     * Instance-level singleton for the {@link DataObjectChecksumUtilitiesAO}
+     * associated with the current {@link AccessObjectFactory}.
+     * 
+     * @return shared instance of a {@link DataObjectChecksumUtilitiesAO} for this object.
+     * @throws JargonException
+     */
+    private DataObjectChecksumUtilitiesAO getChecksumAO() throws JargonException
+    {
+        DataObjectChecksumUtilitiesAO ao = checksumAO;
+        if (ao == null) {
+            ao = accessObjectFactory.getDataObjectChecksumUtilitiesAO(irodsAccount);
+            checksumAO = ao;
+        }
+        
+        return ao;
+    }
+    
+    /**
+     * Perform a {@link IRODSFileSystemAO#getObjStat} on the {@code virtualPath}
+     * .
+     * Exceptions are swallowed and relayed as appropriate domain exceptions.
      * 
      * @param virtualPath
      *            the virtual path to the remote object or collection
-     * @return true on success, false if the directory already exists
-     * @throws IOException
+     * @return a {@link ObjStat} for the requested {@code virtualPath}.
+     * @throws FileNotFoundException
+     *             if the path is invalid or the object does not exist
+     * @throws RemoteDataException
+     *             on permission or connectivity issues. will wrap
+     *             {@link JargonException}
+     */
+    protected ObjStat stat(String virtualPath) throws IOException, RemoteDataException {
+        ObjStat objStat = statOrNull(resolveStatPath(virtualPath));
+        if (objStat == null) {
+            throw new java.io.FileNotFoundException(
+                    "File/folder does not exist or user lacks access permission");
+        }
+        return objStat;
+    }
+
+    /**
+     * Performs a {@link IRODSFileSystemAO#getObjStat} on an already resolved
+     * path, returning null rather than throwing when nothing is there. This
+     * is the miss path for existence checks, so it allocates nothing beyond
+     * what Jargon itself raises. Transient failures are retried under the
+     * {@link #getRetryPolicy()}.
+     *
+     * @param resolvedPath absolute path without a trailing slash
+     * @return the {@link ObjStat} or null if the path does not exist
      * @throws RemoteDataException
+     *             on permission or connectivity issues. will wrap
+     *             {@link JargonException}
+     */
+    private ObjStat statOrNull(String resolvedPath) throws RemoteDataException {
+        if (objStatCache != null) {
+            ObjStat cached = objStatCache.get(resolvedPath);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (attempt > 1) {
+                    reconnect();
+                }
+                return statFromServer(resolvedPath);
+            } catch (RemoteDataException e) {
+                if (!awaitRetry(IRODSRetryPolicy.Operation.STAT, attempt, e)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Single attempt at {@link #statOrNull(String)} which skips the cache.
+     */
+    private ObjStat statFromServer(String resolvedPath) throws RemoteDataException {
+        IRODSCircuitBreaker breaker = circuitBreaker;
+        if (breaker != null) {
+            breaker.beforeCall();
+        }
+        
+        ObjStat objStat;
+        try {
+            objStat = getIRODSFileSystemAO().getObjStat(resolvedPath);
+        } catch (FileNotFoundException e) {
+            if (breaker != null) {
+                breaker.recordSuccess();
+            }
+            return null;
+        } catch (JargonException e) {
+            if (breaker != null) {
+                breaker.recordOutcome(e);
+            }
+            throw toRemoteDataException(e);
+        }
+        
+        if (breaker != null) {
+            breaker.recordSuccess();
+        }
+        if (objStatCache != null) {
+            objStatCache.put(resolvedPath, objStat);
+        }
+        if (knownCollections != null && RemotePathType.valueOf(objStat) == RemotePathType.COLLECTION) {
+            knownCollections.add(resolvedPath, false);
+        }
+        return objStat;
+    }
+
+    /**
+     * Maps a failed metadata call to a {@link RemoteDataException} and
+     * invalidates the session so the next {@link #authenticate()} checks it.
+     * 
+     * @param e the exception raised by Jargon
+     * @return the exception to throw
+     */
+    private RemoteDataException toRemoteDataException(JargonException e) {
+        invalidateSession();
+        IRODSErrorClassifier.Category category = IRODSErrorClassifier.classify(e);
+        switch (category) {
+            case SSL:
+                return new RemoteAuthenticationException(
+                        "Unable to validate SSL certificate on the IRODS server used for PAM authentication.", e);
+            case CONNECTION:
+                discardConnection();
+                return new RemoteConnectionException(
+                        "Unable to contact IRODS server at " + host + ":" + port, e);
+            default:
+                return IRODSErrorClassifier.toRemoteDataException("Failed to connect to remote server.", e, category);
+        }
+    }
+
+    /**
+     * Looks up metadata for many paths at once. Paths are grouped by parent
+     * collection, and every group of two or more paths is resolved with
+     * catalog queries over the parent restricted to the requested names,
+     * {@link #STAT_BATCH_SIZE} names at a time, rather than one
+     * {@link IRODSFileSystemAO#getObjStat} per path. Work scales with the
+     * number of distinct parents rather than the number of paths, and not at
+     * all with the size of the parents. Lone paths are looked up directly.
+     * Queries are retried and guarded by the circuit breaker just like a
+     * single stat.
+     * <p>
+     * Query results carry no checksum, so {@link ObjStat#getChecksum()} is
+     * not populated for batched entries.
+     * 
+     * @param virtualPaths
+     *            the virtual paths to the remote objects or collections
+     * @return map of each requested virtual path, in iteration order, to its
+     *         {@link ObjStat}, or to null if the path does not exist or
+     *         resolves outside the root directory.
+     * @throws RemoteDataException
+     *             on permission or connectivity issues. will wrap
+     *             {@link JargonException}
+     */
+    public Map<String, ObjStat> statAll(Collection<String> virtualPaths) throws RemoteDataException {
+        Map<String, ObjStat> results = new LinkedHashMap<String, ObjStat>();
+        Map<String, Map<String, List<String>>> groups = new LinkedHashMap<String, Map<String, List<String>>>();
+        
+        for (String virtualPath: virtualPaths) {
+            results.put(virtualPath, null);
+            
+            String resolvedPath;
+            try {
+                resolvedPath = resolveStatPath(virtualPath);
+            } catch (java.io.FileNotFoundException e) {
+                continue;
+            }
+            
+            int idx = resolvedPath.lastIndexOf('/');
+            if (idx < 0 || resolvedPath.length() == 1) {
+                results.put(virtualPath, statOrNull(resolvedPath));
+                continue;
+            }
+            
+            String parentPath = idx == 0 ? "/" : resolvedPath.substring(0, idx);
+            String name = resolvedPath.substring(idx + 1);
+            
+            Map<String, List<String>> children = groups.get(parentPath);
+            if (children == null) {
+                children = new HashMap<String, List<String>>();
+                groups.put(parentPath, children);
+            }
+            List<String> requestedAs = children.get(name);
+            if (requestedAs == null) {
+                requestedAs = new ArrayList<String>(1);
+                children.put(name, requestedAs);
+            }
+            requestedAs.add(virtualPath);
+        }
+        
+        for (Map.Entry<String, Map<String, List<String>>> group: groups.entrySet()) {
+            String parentPath = group.getKey();
+            Map<String, List<String>> children = group.getValue();
+            
+            Map<String, ObjStat> found;
+            if (children.size() == 1) {
+                String name = children.keySet().iterator().next();
+                found = new HashMap<String, ObjStat>(1);
+                found.put(name, statOrNull(childPath(parentPath, name)));
+            } else {
+                found = statChildren(parentPath, children.keySet());
+            }
+            
+            for (Map.Entry<String, List<String>> child: children.entrySet()) {
+                ObjStat objStat = found.get(child.getKey());
+                for (String virtualPath: child.getValue()) {
+                    results.put(virtualPath, objStat);
+                }
+            }
+        }
+        
+        return results;
+    }
+    
+    /**
+     * Batched form of {@link #doesExist(String)}.
+     * 
+     * @param virtualPaths
+     *            the virtual paths to the remote objects or collections
+     * @return map of each requested virtual path, in iteration order, to
+     *         true if it exists, false otherwise.
+     * @throws RemoteDataException
+     *             on permission or connectivity issues. will wrap
+     *             {@link JargonException}
+     * @see #statAll(Collection)
+     */
+    public Map<String, Boolean> doesExist(Collection<String> virtualPaths) throws RemoteDataException {
+        Map<String, ObjStat> stats = statAll(virtualPaths);
+        Map<String, Boolean> results = new LinkedHashMap<String, Boolean>(stats.size() * 2);
+        for (Map.Entry<String, ObjStat> entry: stats.entrySet()) {
+            results.put(entry.getKey(), entry.getValue() != null);
+        }
+        return results;
+    }
+    
+    /**
+     * Looks up the requested children of {@code parentPath}, answering from
+     * the {@link ObjStatCache} where it can and querying the catalog for the
+     * rest, {@link #STAT_BATCH_SIZE} names per query.
+     * 
+     * @param parentPath absolute path of the parent collection
+     * @param names child names to look up
+     * @return map of child name to {@link ObjStat} for those which exist
+     * @throws RemoteDataException
+     */
+    private Map<String, ObjStat> statChildren(String parentPath, Collection<String> names) 
+    throws RemoteDataException 
+    {
+        Map<String, ObjStat> found = new HashMap<String, ObjStat>(names.size() * 2);
+        List<String> queried = new ArrayList<String>(names.size());
+        for (String name: names) {
+            ObjStat cached = objStatCache == null ? null : objStatCache.get(childPath(parentPath, name));
+            if (cached != null) {
+                found.put(name, cached);
+            } else if (name.indexOf('\'') >= 0) {
+                // query values are quoted, so these names are stat'ed one by one
+                found.put(name, statOrNull(childPath(parentPath, name)));
+            } else {
+                queried.add(name);
+            }
+        }
+        
+        for (int i = 0; i < queried.size(); i += STAT_BATCH_SIZE) {
+            List<String> batch = queried.subList(i, Math.min(queried.size(), i + STAT_BATCH_SIZE));
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    if (attempt > 1) {
+                        reconnect();
+                    }
+                    found.putAll(queryChildren(parentPath, batch));
+                    break;
+                } catch (RemoteDataException e) {
+                    if (!awaitRetry(IRODSRetryPolicy.Operation.STAT, attempt, e)) {
+                        throw e;
+                    }
+                }
+            }
+        }
+        
+        return found;
+    }
+    
+    /**
+     * Single attempt at looking up a batch of children of {@code parentPath}.
+     * One query finds the names which are subcollections, and a second finds
+     * the remaining names among the data objects of the parent, so the cost
+     * depends on the number of names rather than the size of the parent.
+     * 
+     * @param parentPath absolute path of the parent collection
+     * @param names child names to look up, none containing a single quote
+     * @return map of child name to {@link ObjStat} for those which exist
+     * @throws RemoteDataException
+     */
+    private Map<String, ObjStat> queryChildren(String parentPath, List<String> names) 
+    throws RemoteDataException 
+    {
+        List<String> childPaths = new ArrayList<String>(names.size());
+        for (String name: names) {
+            childPaths.add(childPath(parentPath, name));
+        }
+        
+        IRODSCircuitBreaker breaker = circuitBreaker;
+        if (breaker != null) {
+            breaker.beforeCall();
+        }
+        
+        Map<String, ObjStat> found = new HashMap<String, ObjStat>(names.size() * 2);
+        try {
+            IRODSGenQueryBuilder collectionQuery = new IRODSGenQueryBuilder(true, null)
+                    .addSelectAsGenQueryValue(RodsGenQueryEnum.COL_COLL_NAME)
+                    .addSelectAsGenQueryValue(RodsGenQueryEnum.COL_COLL_ID)
+                    .addSelectAsGenQueryValue(RodsGenQueryEnum.COL_COLL_OWNER_NAME)
+                    .addSelectAsGenQueryValue(RodsGenQueryEnum.COL_COLL_OWNER_ZONE)
+                    .addSelectAsGenQueryValue(RodsGenQueryEnum.COL_COLL_CREATE_TIME)
+                    .addSelectAsGenQueryValue(RodsGenQueryEnum.COL_COLL_MODIFY_TIME)
+                    .addConditionAsGenQueryField(RodsGenQueryEnum.COL_COLL_PARENT_NAME, QueryConditionOperators.EQUAL, parentPath)
+                    .addConditionAsMultiValueCondition(RodsGenQueryEnum.COL_COLL_NAME, QueryConditionOperators.IN, childPaths);
+            
+            for (IRODSQueryResultRow row: runQuery(collectionQuery, names.size())) {
+                String absolutePath = row.getColumn(0);
+                String name = absolutePath.substring(absolutePath.lastIndexOf('/') + 1);
+                if (!found.containsKey(name)) {
+                    found.put(name, toObjStat(absolutePath, ObjectType.COLLECTION, 0, row.getColumn(1), 
+                            row.getColumn(2), row.getColumn(3), row.getColumn(4), row.getColumn(5)));
+                }
+            }
+            
+            List<String> dataNames = new ArrayList<String>(names.size());
+            for (String name: names) {
+                if (!found.containsKey(name)) {
+                    dataNames.add(name);
+                }
+            }
+            
+            if (!dataNames.isEmpty()) {
+                IRODSGenQueryBuilder dataObjectQuery = new IRODSGenQueryBuilder(true, null)
+                        .addSelectAsGenQueryValue(RodsGenQueryEnum.COL_DATA_NAME)
+                        .addSelectAsGenQueryValue(RodsGenQueryEnum.COL_D_DATA_ID)
+                        .addSelectAsGenQueryValue(RodsGenQueryEnum.COL_DATA_SIZE)
+                        .addSelectAsGenQueryValue(RodsGenQueryEnum.COL_D_OWNER_NAME)
+                        .addSelectAsGenQueryValue(RodsGenQueryEnum.COL_D_OWNER_ZONE)
+                        .addSelectAsGenQueryValue(RodsGenQueryEnum.COL_D_CREATE_TIME)
+                        .addSelectAsGenQueryValue(RodsGenQueryEnum.COL_D_MODIFY_TIME)
+                        .addConditionAsGenQueryField(RodsGenQueryEnum.COL_COLL_NAME, QueryConditionOperators.EQUAL, parentPath)
+                        .addConditionAsMultiValueCondition(RodsGenQueryEnum.COL_DATA_NAME, QueryConditionOperators.IN, dataNames);
+                
+                // replicas of an object come back as separate rows, the first one wins
+                for (IRODSQueryResultRow row: runQuery(dataObjectQuery, dataNames.size())) {
+                    String name = row.getColumn(0);
+                    if (!found.containsKey(name)) {
+                        found.put(name, toObjStat(childPath(parentPath, name), ObjectType.DATA_OBJECT,
+                                IRODSDataConversionUtil.getLongOrZeroFromIRODSValue(row.getColumn(2)), row.getColumn(1), 
+                                row.getColumn(3), row.getColumn(4), row.getColumn(5), row.getColumn(6)));
+                    }
+                }
+            }
+        } catch (GenQueryBuilderException e) {
+            if (breaker != null) {
+                breaker.recordSuccess();
+            }
+            throw new RemoteDataException("Failed to build the query for the children of " + parentPath, e);
+        } catch (JargonQueryException e) {
+            // the server answered, it just could not run the query
+            if (breaker != null) {
+                breaker.recordSuccess();
+            }
+            throw new RemoteDataException("Failed to query the children of " + parentPath, e);
+        } catch (JargonException e) {
+            if (breaker != null) {
+                breaker.recordOutcome(e);
+            }
+            throw toRemoteDataException(e);
+        }
+        
+        if (breaker != null) {
+            breaker.recordSuccess();
+        }
+        for (Map.Entry<String, ObjStat> child: found.entrySet()) {
+            ObjStat objStat = child.getValue();
+            if (objStatCache != null) {
+                objStatCache.put(objStat.getAbsolutePath(), objStat);
+            }
+            if (knownCollections != null && RemotePathType.valueOf(objStat) == RemotePathType.COLLECTION) {
+                knownCollections.add(objStat.getAbsolutePath(), false);
+            }
+        }
+        return found;
+    }
+    
+    /**
+     * Runs a catalog query, following it onto further pages of results.
+     * 
+     * @param builder the query to run
+     * @param expectedRows number of rows expected, used as the page size
+     * @return every row of the result
+     * @throws JargonException
+     * @throws JargonQueryException
+     */
+    private List<IRODSQueryResultRow> runQuery(IRODSGenQueryBuilder builder, int expectedRows) 
+    throws JargonException, JargonQueryException 
+    {
+        IRODSGenQueryFromBuilder query = builder.exportIRODSQueryFromBuilder(Math.max(1, expectedRows));
+        IRODSGenQueryExecutor executor = getGenQueryExecutor();
+        
+        List<IRODSQueryResultRow> rows = new ArrayList<IRODSQueryResultRow>(expectedRows);
+        IRODSQueryResultSetInterface resultSet;
+        do {
+            resultSet = executor.executeIRODSQueryAndCloseResult(query, rows.size());
+            rows.addAll(resultSet.getResults());
+        } while (resultSet.isHasMoreRecords() && !resultSet.getResults().isEmpty());
+        
+        return rows;
+    }
+    
+    /**
+     * Lists the contents of a collection. Entries are fetched from the
+     * catalog a page at a time as the returned listing is iterated, so memory
+     * use stays flat no matter how large the collection is and the first
+     * entries are available as soon as the first page arrives. Listing a
+     * data object returns a single entry for the object itself. A listing
+     * abandoned before its last entry should be closed.
+     * 
+     * @param virtualPath
+     *            the virtual path to the remote collection
+     * @return lazy {@link RemoteCollectionListing} of the collection contents
+     * @throws java.io.FileNotFoundException
+     *             if the path is invalid or does not exist
+     * @throws RemoteDataException
+     *             on permission or connectivity issues. will wrap
+     *             {@link JargonException}
+     */
+    public RemoteCollectionListing list(String virtualPath) 
+    throws IOException, RemoteDataException 
+    {
+        String resolvedPath = resolveStatPath(virtualPath);
+        ObjStat objStat = statOrNull(resolvedPath);
+        
+        if (objStat == null) {
+            throw new java.io.FileNotFoundException(
+                    "File/folder does not exist or user lacks access permission");
+        } 
+        
+        try {
+            if (RemotePathType.valueOf(objStat) == RemotePathType.COLLECTION) {
+                return newListing(getListAndSearchAO(), resolvedPath);
+            } 
+        } catch (JargonException e) {
+            throw toRemoteDataException(e);
+        }
+        
+        CollectionAndDataObjectListingEntry entry = new CollectionAndDataObjectListingEntry();
+        int idx = resolvedPath.lastIndexOf('/');
+        entry.setObjectType(objStat.getObjectType());
+        entry.setParentPath(idx > 0 ? resolvedPath.substring(0, idx) : "/");
+        entry.setPathOrName(resolvedPath.substring(idx + 1));
+        entry.setDataSize(objStat.getObjSize());
+        entry.setCreatedAt(objStat.getCreatedAt());
+        entry.setModifiedAt(objStat.getModifiedAt());
+        entry.setId(objStat.getDataId());
+        entry.setLastResult(true);
+        entry.setCount(1);
+        
+        return RemoteCollectionListing.of(Collections.singletonList(entry));
+    }
+    
+    /**
+     * Creates the lazy listing returned by {@link #list(String)}. Subclasses
+     * may override this to tie up resources for the life of the listing.
+     * 
+     * @param listAndSearchAO access object used to query the catalog
+     * @param absolutePath absolute path of the collection to list
+     * @return listing of the collection
+     */
+    protected RemoteCollectionListing newListing(CollectionAndDataObjectListAndSearchAO listAndSearchAO, String absolutePath) {
+        return new RemoteCollectionListing(listAndSearchAO, absolutePath);
+    }
+    
+    /**
+     * @return the simple name of a listing entry. Collection entries carry
+     *         their absolute path, data object entries just their name.
+     */
+    private String entryName(CollectionAndDataObjectListingEntry entry) {
+        String name = entry.getPathOrName();
+        if (entry.getObjectType() == ObjectType.COLLECTION) {
+            name = name.substring(name.lastIndexOf('/') + 1);
+        }
+        return name;
+    }
+    
+    private String childPath(String parentPath, String name) {
+        return parentPath.endsWith("/") ? parentPath + name : parentPath + "/" + name;
+    }
+    
+    /**
+     * Maps an absolute path under the {@link #rootDir} back to the virtual
+     * path which {@link #resolvePath(String)} resolves to it.
+     */
+    private String toVirtualPath(String resolvedPath) {
+        String virtualPath = StringUtils.removeStart(resolvedPath, StringUtils.removeEnd(rootDir, "/"));
+        return virtualPath.isEmpty() ? "/" : virtualPath;
+    }
+    
+    /**
+     * Builds an {@link ObjStat} from the columns of a catalog query row so
+     * batched and single lookups can be used interchangeably.
+     */
+    private ObjStat toObjStat(String absolutePath, ObjectType objectType, long size, String id, 
+            String ownerName, String ownerZone, String createdAt, String modifiedAt) 
+    {
+        ObjStat objStat = new ObjStat();
+        objStat.setAbsolutePath(absolutePath);
+        objStat.setObjectType(objectType);
+        objStat.setObjSize(size);
+        objStat.setDataId(IRODSDataConversionUtil.getIntOrZeroFromIRODSValue(id));
+        objStat.setOwnerName(ownerName);
+        objStat.setOwnerZone(ownerZone);
+        objStat.setCreatedAt(IRODSDataConversionUtil.getDateFromIRODSValue(createdAt));
+        objStat.setModifiedAt(IRODSDataConversionUtil.getDateFromIRODSValue(modifiedAt));
+        objStat.setSpecColType(ObjStat.SpecColType.NORMAL);
+        return objStat;
+    }
+
+    /**
+     * Resolves the {@code virtualPath} to the absolute path form used for
+     * {@link IRODSFileSystemAO#getObjStat} and as the {@link ObjStatCache} key.
+     * 
+     * @param virtualPath
+     *            the virtual path to the remote object or collection
+     * @return absolute path without a trailing slash
+     * @throws java.io.FileNotFoundException if the path is invalid
+     */
+    protected String resolveStatPath(String virtualPath) throws java.io.FileNotFoundException {
+        String resolvedPath = StringUtils.removeEnd(resolvePath(virtualPath), "/");
+        if (StringUtils.equals(virtualPath, "/") && StringUtils.isEmpty(resolvedPath)) {
+            resolvedPath = "/";
+        }
+        return resolvedPath;
+    }
+
+    /**
+     * Drops cached metadata for a path that was just created or written to,
+     * along with its parent collection whose listing changed.
+     * 
+     * @param resolvedPath absolute path without a trailing slash
+     * @param recursive true if cached entries beneath the path should go too
+     */
+    private void invalidateCachedStat(String resolvedPath, boolean recursive) {
+        if (recursive && knownCollections != null) {
+            knownCollections.removeTree(resolvedPath);
+        }
+        
+        if (objStatCache == null) {
+            return;
+        }
+        
+        if (recursive) {
+            objStatCache.invalidateTree(resolvedPath);
+        } else {
+            objStatCache.invalidate(resolvedPath);
+        }
+        
+        int idx = resolvedPath.lastIndexOf('/');
+        if (idx > 0) {
+            objStatCache.invalidate(resolvedPath.substring(0, idx));
+        } else if (idx == 0 && resolvedPath.length() > 1) {
+            objStatCache.invalidate("/");
+        }
+    }
+
+    /**
+     * Resolves a virtualized system path provided by a user to an absolute
+     * system path relative
+     * to the {@link #rootDir} of this instance. Paths that do not begin with a
+     * slash are treated as
+     * relative paths and are resolved against the {@link #homeDir}.
+     * 
+     * @param virtualPath
+     *            the virtual path to the remote object or collection
+     * @return absolute path on the remote system of the provided virtual path
+     * @throws FileNotFoundException
+     */
+    public String resolvePath(String virtualPath) 
+    throws java.io.FileNotFoundException 
+    {
+        if (StringUtils.isEmpty(virtualPath)) {
+            return StringUtils.stripEnd(homeDir, " ");
+        }
+        
+        ConcurrentLruMap<String> cache = resolvedPathCache;
+        if (cache != null) {
+            ConcurrentLruMap.Entry<String> memo = cache.get(virtualPath);
+            if (memo != null) {
+                return memo.value;
+            }
+        }
+        
+        String base = virtualPath.startsWith("/") ? rootDir : homeDir;
+        int offset = virtualPath.startsWith("/") ? 1 : 0;
+        
+        String normalizedPath;
+        if (base.startsWith("/")) {
+            normalizedPath = PathNormalizer.normalize(base, virtualPath, offset);
+        } else {
+            // relative roots keep the old, slower normalization rules
+            String adjustedPath = base + virtualPath.substring(offset);
+            if (adjustedPath.endsWith("/..") || adjustedPath.endsWith("/.")) {
+                adjustedPath += File.separator;
+            }
+            normalizedPath = FilenameUtils.normalize(adjustedPath);
+        }
+        
+        if (normalizedPath == null) {
+            throw new java.io.FileNotFoundException(
+                    "File/folder does not exist or user lacks access permission");
+        } else if (!normalizedPath.startsWith(rootDir) 
+                && !normalizedPath.equals(StringUtils.removeEnd(rootDir, "/"))) {
+            throw new java.io.FileNotFoundException(
+                    "File/folder does not exist or user lacks access permission");
+        }
+        
+        // prune trailing spaces
+        String resolvedPath = StringUtils.stripEnd(normalizedPath, " ");
+        
+        if (cache != null) {
+            cache.put(virtualPath, resolvedPath);
+        }
+        
+        return resolvedPath;
+    }
+
+    /**
+     * Check for existence of a file or folder. Exceptions are thrown for
+     * permission
+     * and connectivity issues. Otherwise boolean values are returned.
+     * 
+     * @param virtualPath
+     *            the virtual path to the remote object or collection
+     * @return true if the object or collection exists, false otherwise
+     * @throws IOException
+     *             if {@code virtualPath} is invalid
+     * @throws RemoteDataException
+     *             on permission or connectivity issues. will wrap
+     *             {@link JargonException}
+     */
+    public boolean doesExist(String virtualPath) throws IOException, RemoteDataException {
+        return probe(virtualPath).exists();
+    }
+    
+    /**
+     * Tri-state existence check of a file or folder. Unlike {@link #stat}, a
+     * missing path is reported as {@link RemotePathType#ABSENT} rather than an
+     * exception, which keeps existence checks in tight loops cheap.
+     * 
+     * @param virtualPath
+     *            the virtual path to the remote object or collection
+     * @return the {@link RemotePathType} found at the {@code virtualPath}.
+     *         Paths which resolve outside the root directory are
+     *         {@link RemotePathType#ABSENT}.
+     * @throws RemoteDataException
+     *             on permission or connectivity issues. will wrap
+     *             {@link JargonException}
+     */
+    public RemotePathType probe(String virtualPath) throws RemoteDataException {
+        String resolvedPath;
+        try {
+            resolvedPath = resolveStatPath(virtualPath);
+        } catch (java.io.FileNotFoundException e) {
+            return RemotePathType.ABSENT;
+        }
+        
+        return RemotePathType.valueOf(statOrNull(resolvedPath));
+    }
+    
+    /**
+     * 
+     * @param virtualPath the virtual path to the remote object or collection
+     * @return true if the {@code virtualPath} is a collection, false otherwise.
+     * @throws IOException if the path is invalid or does not exist
+     * @throws RemoteDataException
+     */
+    public boolean isDirectory(String virtualPath) 
+    throws IOException, RemoteDataException
+    {
+        RemotePathType pathType = probe(virtualPath);
+        if (pathType == RemotePathType.ABSENT) {
+            throw new java.io.FileNotFoundException(
+                    "File/folder does not exist or user lacks access permission");
+        }
+        
+        return pathType == RemotePathType.COLLECTION;
+    }
+
+    /**
+     * Creates an instance of an {@link IRODSFile} at the given {@code virtualPath}.
+     * Note that the
+     * virutal path will be validated and resolved to an absolute path prior to
+     * the {@link IRODSFile} instance being created.
+     * 
+     * @param virtualPath
+     *            the virtual path to the remote object or collection
+     * @return instance of an {@link IRODSFile}. The underlying object or
+     *         collection is not guaranteed to exist.
+     * @throws JargonException
+     * @throws IOException
+     *             if the path is invalid
+     */
+    protected IRODSFile getIRODSFile(String virtualPath) throws JargonException, IOException {
+        String resolvedPath = resolvePath(virtualPath);
+        return getIRODSFileFactory().instanceIRODSFile(resolvedPath);
+    }
+
+    /**
+     * Creates the directory specified by <code>virtualPath</code>. If the
+     * parent
+     * does not exist, this will throw a {@link FileNotFoundException}. Use the
+     * {@link #mkdirs} method in this situation. Note that depending
+     * on the underlying implementation and remote system protocol, the
+     * directory
+     * may or may not be available for writing immediately. In the case of
+     * Azure,
+     * bucket creation can take up to 30 minutes.
+     * 
+     * @param virtualPath
+     *            the virtual path to the remote object or collection
+     * @return true on success, false if the directory already exists
+     * @throws IOException
+     * @throws RemoteDataException
+     */
+    public boolean mkdir(String virtualPath) throws IOException, RemoteDataException {
+        IRODSFile file = null;
+
+        try {
+            file = getIRODSFile(virtualPath);
+            getIRODSFileSystemAO().mkdir(file, false);
+            invalidateCachedStat(resolveStatPath(virtualPath), false);
+            rememberCollection(virtualPath, false);
+        } catch (DuplicateDataException e) {
+            return false;
+        } catch (CatNoAccessException e) {
+            throw new RemotePermissionException("Failed to create " + virtualPath
+                    + " due to insufficient privileges.", e);
+        } catch (DataNotFoundException e) {
+            throw new java.io.FileNotFoundException("No such file or directory");
+        } catch (JargonException e) {
+            // an already existing collection is a 'false', not an error
+            if (IRODSErrorClassifier.isAlreadyExists(e)) {
+                return false;
+            }
+            throw IRODSErrorClassifier.toRemoteDataException("Failed to create " + virtualPath, e);
+        }
+
+        return true;
+    }
+
+    /**
+     * Creates the directory(ies) specified by <code>virtualPath</code>. Any
+     * missing
+     * directories are created automatically. Note that depending
+     * on the underlying implementation and remote system protocol, the
+     * directory
+     * may or may not be available for writing immediately. In the case of
+     * Azure,
+     * bucket creation can take up to 30 minutes.
+     * 
+     * @param virtualPath
+     *            the virtual path to the remote object or collection
+     * @return true on success, false if the directory already exists
+     * @throws IOException
+     * @throws RemoteDataException
+     */
+    public boolean mkdirs(String virtualPath) throws IOException, RemoteDataException {
+        if (knownCollections != null && knownCollections.contains(resolveStatPath(virtualPath))) {
+            return false;
+        }
+
+        // a retry after an attempt which created the collection but lost
+        // the reply will see it as already existing and return false
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (attempt > 1) {
+                    reconnect();
+                }
+                return createCollections(virtualPath);
+            } catch (RemoteDataException e) {
+                if (!awaitRetry(IRODSRetryPolicy.Operation.MKDIRS, attempt, e)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Single attempt at {@link #mkdirs(String)}.
+     */
+    private boolean createCollections(String virtualPath) throws IOException, RemoteDataException {
+        IRODSFile file = null;
+
+        try {
+            file = getIRODSFile(virtualPath);
+            getIRODSFileSystemAO().mkdir(file, true);
+            invalidateCachedStat(resolveStatPath(virtualPath), false);
+            rememberCollection(virtualPath, true);
+        } catch (DuplicateDataException e) {
+            rememberCollection(virtualPath, true);
+            return false;
+        } catch (CatNoAccessException e) {
+            throw new RemotePermissionException("Failed to create " + virtualPath
+                    + " due to insufficient privileges.", e);
+        } catch (DataNotFoundException e) {
+            throw new java.io.FileNotFoundException("No such file or directory");
+        } catch (JargonException e) {
+            // an already existing collection is a 'false', not an error
+            if (IRODSErrorClassifier.isAlreadyExists(e)) {
+                return false;
+            }
+            throw IRODSErrorClassifier.toRemoteDataException("Failed to create " + virtualPath, e);
+        }
+
+        return true;
+    }
+
+    /**
+     * Records the collection at {@code virtualPath}, and optionally every
+     * collection above it, as known to exist.
+     */
+    private void rememberCollection(String virtualPath, boolean includeAncestors) throws java.io.FileNotFoundException {
+        if (knownCollections != null) {
+            knownCollections.add(resolveStatPath(virtualPath), includeAncestors);
+        }
+    }
+    
+    /**
+     * Makes sure the collection at {@code virtualPath} exists, creating it
+     * and any missing parents if needed. Collections this client already
+     * knows about cost no round trips at all.
+     * 
+     * @return true if the collection was taken from the known collections
+     *         without checking the server
+     */
+    private boolean ensureCollection(String virtualPath) throws IOException, RemoteDataException {
+        if (knownCollections != null && knownCollections.contains(resolveStatPath(virtualPath))) {
+            return true;
+        }
+        
+        if (!doesExist(virtualPath)) {
+            mkdirs(virtualPath);
+        }
+        return false;
+    }
+    
+    /**
+     * Drops the collection at {@code virtualPath} from the known collections
+     * and cached stats after a write into it failed, in case it was removed
+     * behind our back.
+     */
+    private void forgetCollection(String virtualPath) {
+        try {
+            invalidateCachedStat(resolveStatPath(virtualPath), true);
+        } catch (java.io.FileNotFoundException e) {
+            // never cached
+        }
+    }
+    
+    /**
+     * Deletes an object or collection at the {@code virtualPath}.
+     * 
+     * @param virtualPath
+     *            to file on remote system
+     * @throws IOException
+     * @throws RemoteDataException
+     */
+    public void delete(String virtualPath) throws IOException, RemoteDataException {
+        delete(virtualPath, isDirectory(virtualPath));
+    }
+    
+    /**
+     * Deletes an object or collection at the {@code virtualPath} whose type
+     * the caller already knows, saving the lookup {@link #delete(String)}
+     * makes first.
+     * 
+     * @param virtualPath
+     *            to file on remote system
+     * @param isCollection true if the path is a collection, false if it is a data object
+     * @throws IOException
+     * @throws RemoteDataException
+     */
+    public void delete(String virtualPath, boolean isCollection) throws IOException, RemoteDataException {
+        IRODSFile file = null;
+        try {
+            try {
+                if (isCollection) {
+                    file = getIRODSFile(virtualPath);
+                    file.delete();
+                } else {
+                    file = getIRODSFile(virtualPath);
+                    file.deleteWithForceOption();
+                }
+            } finally {
+                invalidateCachedStat(resolveStatPath(virtualPath), isCollection);
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (JargonRuntimeException | CatNoAccessException e) {
+            throw new RemotePermissionException("Failed to delete " + virtualPath
+                    + " due to insufficient privileges.", e);
+        } catch (JargonException e) {
+            throw IRODSErrorClassifier.toRemoteDataException("Failed to connect to remote server.", e);
+        }
+    }
+    
+    /**
+     * Deletes the collection at {@code virtualPath} and everything beneath
+     * it, spreading the work across {@code concurrency} worker threads. Each
+     * collection is listed by one worker, its data objects are deleted in
+     * batches of {@link #DELETE_BATCH_SIZE} by whichever workers are free,
+     * and its subcollections are walked the same way in parallel. Once every
+     * data object is gone, the emptied collections are removed deepest
+     * first. A failure on one path is recorded in the returned report and
+     * does not stop the others. Collections which still hold a failed path
+     * are left in place and reported as failures too.
+     * <p>
+     * When pooling, the workers are capped at one fewer than the
+     * {@link IRODSConnectionPool#getMaxConnectionsPerKey()} of the pool, which
+     * leaves a connection for the calling thread.
+     * <p>
+     * A data object at {@code virtualPath} is simply deleted.
+     * 
+     * @param virtualPath the virtual path to the remote collection
+     * @param concurrency number of worker threads, each holding its own connection
+     * @return report of the paths deleted and any which failed
+     * @throws IOException if {@code virtualPath} does not exist
+     * @throws RemoteDataException
+     */
+    public BulkOperationReport deleteRecursive(String virtualPath, int concurrency) 
+    throws IOException, RemoteDataException 
+    {
+        final BulkOperationReport report = new BulkOperationReport();
+        String resolvedPath = resolveStatPath(virtualPath);
+        RemotePathType pathType = probe(virtualPath);
+        
+        if (pathType == RemotePathType.ABSENT) {
+            throw new java.io.FileNotFoundException("File/folder does not exist or user lacks access permission");
+        } 
+        else if (pathType == RemotePathType.FILE) {
+            delete(virtualPath, false);
+            report.recordSuccess(resolvedPath, 0);
+            report.complete();
+            return report;
+        }
+        
+        final ConcurrentHashMap<String, Integer> collections = new ConcurrentHashMap<String, Integer>();
+        final AtomicInteger pendingTasks = new AtomicInteger();
+        final CountDownLatch walked = new CountDownLatch(1);
+        final ExecutorService executor = newWorkerPool("irods-delete-", capWorkers(concurrency));
+        
+        try {
+            final IRODSFileFactory fileFactory = getIRODSFileFactory();
+            final CollectionAndDataObjectListAndSearchAO listAO = getListAndSearchAO();
+            
+            // each task lists one collection, then fans out its data objects in 
+            // batches and its subcollections as new tasks. The walk is done when
+            // the count of outstanding tasks drops to zero.
+            final class DeleteTask implements Runnable {
+                private final String collection;
+                private final int depth;
+                private final List<String> dataObjects;
+                
+                DeleteTask(String collection, int depth, List<String> dataObjects) {
+                    this.collection = collection;
+                    this.depth = depth;
+                    this.dataObjects = dataObjects;
+                }
+                
+                void submit() {
+                    pendingTasks.incrementAndGet();
+                    executor.execute(this);
+                }
+                
+                @Override
+                public void run() {
+                    try {
+                        if (dataObjects == null) {
+                            walk();
+                        } else {
+                            for (String dataObject: dataObjects) {
+                                try {
+                                    fileFactory.instanceIRODSFile(dataObject).deleteWithForceOption();
+                                    report.recordSuccess(dataObject, 0);
+                                } catch (Throwable e) {
+                                    report.recordFailure(dataObject, e);
+                                }
+                            }
+                        }
+                    } finally {
+                        if (pendingTasks.decrementAndGet() == 0) {
+                            walked.countDown();
+                        }
+                    }
+                }
+                
+                private void walk() {
+                    collections.put(collection, depth);
+                    
+                    // read the whole listing before deleting anything in this
+                    // collection, since deletes would shift the paging offsets
+                    // under it. Subcollections are only removed once the walk
+                    // is done, so they can be handed off as they are found.
+                    List<String> children = new ArrayList<String>();
+                    try {
+                        for (CollectionAndDataObjectListingEntry entry: new RemoteCollectionListing(listAO, collection)) {
+                            String childPath = childPath(collection, entryName(entry));
+                            if (entry.getObjectType() == ObjectType.COLLECTION) {
+                                new DeleteTask(childPath, depth + 1, null).submit();
+                            } else {
+                                children.add(childPath);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        report.recordFailure(collection, e);
+                    }
+                    
+                    for (int from = 0; from < children.size(); from += DELETE_BATCH_SIZE) {
+                        List<String> batch = children.subList(from, Math.min(from + DELETE_BATCH_SIZE, children.size()));
+                        new DeleteTask(collection, depth, batch).submit();
+                    }
+                }
+            }
+            
+            new DeleteTask(resolvedPath, 0, null).submit();
+            walked.await();
+            
+            // remove the emptied collections level by level, deepest first
+            Map<Integer, List<String>> levels = new HashMap<Integer, List<String>>();
+            int maxDepth = 0;
+            for (Map.Entry<String, Integer> collection: collections.entrySet()) {
+                if (!levels.containsKey(collection.getValue())) {
+                    levels.put(collection.getValue(), new ArrayList<String>());
+                }
+                levels.get(collection.getValue()).add(collection.getKey());
+                maxDepth = Math.max(maxDepth, collection.getValue());
+            }
+            
+            for (int depth = maxDepth; depth >= 0; depth--) {
+                List<String> level = levels.get(depth);
+                if (level == null) {
+                    continue;
+                }
+                final CountDownLatch levelDone = new CountDownLatch(level.size());
+                for (final String collection: level) {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                if (!fileFactory.instanceIRODSFile(collection).delete()) {
+                                    report.recordFailure(collection, 
+                                            new IOException("Collection " + collection + " could not be removed"));
+                                } else {
+                                    report.recordSuccess(collection, 0);
+                                }
+                            } catch (Throwable e) {
+                                report.recordFailure(collection, e);
+                            } finally {
+                                levelDone.countDown();
+                            }
+                        }
+                    });
+                }
+                levelDone.await();
+            }
+        }
+        catch (CatNoAccessException e) {
+            throw new RemotePermissionException("Failed to delete " + virtualPath + " due to insufficient privileges.", e);
+        } 
+        catch (JargonException e) {
+            throw IRODSErrorClassifier.toRemoteDataException("Failed to connect to remote server.", e);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteDataException("Interrupted while deleting " + virtualPath, e);
+        }
+        finally {
+            executor.shutdownNow();
+            invalidateCachedStat(resolvedPath, true);
+            report.complete();
+        }
+        
+        return report;
+    }
+    
+    /**
+     * Uploads a local {@link File} to a {@code virtualParentPath} using the
+     * {@link #getDefaultTransferOptions()} of this client.
+     * @param localFile the file to upload
+     * @param virtualParentPath the directory into which the upload will be copied.
+     * @throws IOException
+     * @throws RemoteDataException
+     */
+    public void put(File localFile, String virtualParentPath) throws IOException, RemoteDataException {
+        put(localFile, virtualParentPath, defaultTransferOptions);
+    }
+    
+    /**
+     * Uploads a local {@link File} to a {@code virtualParentPath}, tuning the
+     * transfer with the given {@code options}. Large files can be sent over
+     * multiple streams with larger buffers by raising
+     * {@link IRODSTransferOptions#setParallelThreads(int)} and the buffer sizes.
+     * <p>
+     * Transient failures are retried under the {@link #getRetryPolicy()},
+     * unless the options say to {@link IRODSTransferOptions.OverwritePolicy#FAIL fail}
+     * on an existing target, which a partial first attempt would leave behind.
+     * @param localFile the file to upload
+     * @param virtualParentPath the directory into which the upload will be copied.
+     * @param options the transfer options, or null for the session defaults
+     * @throws IOException
+     * @throws RemoteDataException
+     */
+    public void put(File localFile, String virtualParentPath, IRODSTransferOptions options)
+    throws IOException, RemoteDataException
+    {
+        boolean retryable = options == null
+                || options.getOverwritePolicy() != IRODSTransferOptions.OverwritePolicy.FAIL;
+        TransferProgressTracker tracker = newProgressTracker(options);
+        if (tracker != null) {
+            tracker.expect(localFile.length(), 1);
+        }
+
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    if (attempt > 1) {
+                        reconnect();
+                    }
+                    // a known parent collection may have been deleted by
+                    // another client. The failed attempt drops it from the
+                    // cache, so the second one checks the server and
+                    // recreates it.
+                    if (!putFile(localFile, virtualParentPath, options, tracker)
+                            && !putFile(localFile, virtualParentPath, options, tracker)) {
+                        throw new java.io.FileNotFoundException(
+                                "File/folder does not exist or user lacks access permission");
+                    }
+                    return;
+                } catch (RemoteDataException e) {
+                    if (!retryable || !awaitRetry(IRODSRetryPolicy.Operation.PUT, attempt, e)) {
+                        throw e;
+                    }
+                }
+            }
+        } finally {
+            if (tracker != null) {
+                tracker.finish();
+            }
+        }
+    }
+
+    /**
+     * Single attempt at {@link #put(File, String, IRODSTransferOptions)}.
+     * Progress goes to {@code tracker}, which takes back the bytes of a
+     * failed attempt, so retries are not counted twice.
+     * 
+     * @return true on success, false if the parent collection was taken from
+     *         the known collections but no longer exists. It has been
+     *         dropped from the cache, so the upload can be tried again.
+     */
+    private boolean putFile(File localFile, String virtualParentPath, IRODSTransferOptions options,
+            TransferProgressTracker tracker)
+    throws IOException, RemoteDataException
+    {
+        IRODSFile destFile;
+        boolean knownParent = false;
+        JargonProperties originalProperties = null;
+        DefaultTransferStatusCallbackListener listener = newTransferListener();
+        if (tracker != null) {
+            listener = new ProgressTransferStatusCallbackListener(tracker, listener, false);
+        }
+        boolean succeeded = false;
+        try {
+            destFile = getIRODSFile(virtualParentPath);
+            
+            knownParent = ensureCollection(virtualParentPath);
+            if (knownParent && localFile.isFile()) {
+                // name the data object outright, so a known parent deleted by
+                // another client fails as not found instead of being replaced
+                // by a data object of the same name
+                destFile = getIRODSFileFactory().instanceIRODSFile(resolveStatPath(virtualParentPath), localFile.getName());
+            }
+            
+            try {
+                originalProperties = overrideJargonProperties(options);
+                getDataTransferOperations().putOperation(localFile, destFile, listener, 
+                        buildTransferControlBlock(options));
+            } finally {
+                String resolvedParentPath = resolveStatPath(virtualParentPath);
+                invalidateCachedStat(resolvedParentPath, false);
+                // only a directory upload can leave cached entries beneath the target,
+                // so a single file skips the scan of every cached path
+                invalidateCachedStat(StringUtils.removeEnd(resolvedParentPath, "/") + "/" + localFile.getName(), 
+                        localFile.isDirectory());
+            }
+            
+            if (listener.hasErrors()) {
+                throw listener.getTransferError();
+            }
+            succeeded = true;
+            return true;
+        }
+        catch (CatNoAccessException e) {
+            throw new RemotePermissionException("Failed to put " + localFile.getAbsolutePath() + " due to insufficient privileges.", e);
+        } 
+        catch (FileNotFoundException | DataNotFoundException e) {
+            forgetCollection(virtualParentPath);
+            if (knownParent) {
+                return false;
+            }
+            throw new java.io.FileNotFoundException("File/folder does not exist or user lacks access permission");
+        } 
+        catch (RemoteDataException | IOException e) {
+            throw e;
+        }
+        catch (Throwable e) {
+            throw IRODSErrorClassifier.toRemoteDataException("Failed to transfer file to irods.", e);
+        }
+        finally {
+            finishTransfer(listener, succeeded);
+            restoreJargonProperties(originalProperties);
+        }
+    }
+    
+    /**
+     * Streams {@code length} bytes from {@code in} straight into the data
+     * object at {@code virtualPath}, without staging them in a local file.
+     * Uses the {@link #getDefaultTransferOptions()} of this client.
+     * 
+     * @param in source of the data. It is read but not closed.
+     * @param length number of bytes to send, or -1 to send until the end of the stream
+     * @param virtualPath the virtual path of the data object to write
+     * @return number of bytes written
+     * @throws IOException
+     * @throws RemoteDataException
+     * @see #put(InputStream, long, String, IRODSTransferOptions)
+     */
+    public long put(InputStream in, long length, String virtualPath) throws IOException, RemoteDataException {
+        return put(in, length, virtualPath, defaultTransferOptions);
+    }
+    
+    /**
+     * Streams {@code length} bytes from {@code in} straight into the data
+     * object at {@code virtualPath}, without staging them in a local file.
+     * Missing parent collections are created and an existing object is
+     * overwritten. The stream is read into a buffer of
+     * {@link IRODSTransferOptions#getPutBufferSize()} bytes, reused across
+     * calls on this client, and each full buffer is sent in a single write.
+     * The stream is only read as fast as the server accepts the data, so at
+     * most one buffer is held in memory at a time.
+     * <p>
+     * If the stream ends before {@code length} bytes are read, an
+     * {@link IOException} is thrown. Whenever the upload fails once the
+     * object has been opened, whether the stream ended early or a read or
+     * write failed, the partial object is removed so readers cannot take it
+     * for a complete one.
+     * 
+     * @param in source of the data. It is read but not closed.
+     * @param length number of bytes to send, or -1 to send until the end of the stream
+     * @param virtualPath the virtual path of the data object to write
+     * @param options the transfer options, or null for the session defaults
+     * @return number of bytes written
+     * @throws IOException if the target is a collection or the stream could not be read
+     * @throws RemoteDataException
+     */
+    public long put(InputStream in, long length, String virtualPath, IRODSTransferOptions options) 
+    throws IOException, RemoteDataException 
+    {
+        String resolvedPath = resolveStatPath(virtualPath);
+        if (probe(virtualPath) == RemotePathType.COLLECTION) {
+            throw new IOException("Cannot overwrite collection " + virtualPath + " with a data object");
+        }
+        
+        String virtualParentPath = getVirtualParentPath(virtualPath);
+        ensureCollection(virtualParentPath);
+        
+        IRODSFile destFile = null;
+        boolean opened = false;
+        long startedAt = System.currentTimeMillis();
+        long total = 0;
+        boolean succeeded = false;
+        TransferProgressTracker tracker = newProgressTracker(options);
+        if (tracker != null) {
+            tracker.expect(Math.max(0, length), 1);
+        }
+        try {
+            destFile = getIRODSFileFactory().instanceIRODSFile(resolvedPath);
+            OutputStream out = getIRODSFileFactory().instanceIRODSFileOutputStream(destFile);
+            opened = true;
+            try {
+                byte[] buffer = getStreamBuffer(getStreamBufferSize(options, true));
+                while (length < 0 || total < length) {
+                    int wanted = length < 0 ? buffer.length : (int)Math.min(buffer.length, length - total);
+                    
+                    // fill the buffer before writing so a slow or chunky source 
+                    // does not turn into many small writes to the server
+                    int filled = 0;
+                    int read = 0;
+                    while (filled < wanted && (read = in.read(buffer, filled, wanted - filled)) != -1) {
+                        filled += read;
+                    }
+                    
+                    if (filled > 0) {
+                        out.write(buffer, 0, filled);
+                        total += filled;
+                        if (tracker != null) {
+                            tracker.addBytes(filled, virtualPath);
+                        }
+                    }
+                    
+                    if (read == -1) {
+                        break;
+                    }
+                }
+            } finally {
+                out.close();
+            }
+            
+            if (length >= 0 && total < length) {
+                throw new IOException("Stream ended after " + total + " of " + length + " bytes");
+            }
+            succeeded = true;
+            
+            return total;
+        }
+        catch (CatNoAccessException e) {
+            throw new RemotePermissionException("Failed to put " + virtualPath + " due to insufficient privileges.", e);
+        } 
+        catch (FileNotFoundException | DataNotFoundException e) {
+            forgetCollection(virtualParentPath);
+            throw new java.io.FileNotFoundException("File/folder does not exist or user lacks access permission");
+        } 
+        catch (JargonException e) {
+            throw IRODSErrorClassifier.toRemoteDataException("Failed to transfer stream to irods.", e);
+        }
+        finally {
+            if (opened && !succeeded) {
+                // opening truncated the target, so don't leave a partial copy 
+                // where readers would take it for the real one
+                try {
+                    destFile.deleteWithForceOption();
+                } catch (Exception e) {
+                    // the failure already on its way out is the one worth reporting
+                }
+            }
+            invalidateCachedStat(resolvedPath, false);
+            recordStreamedTransfer(succeeded, total, startedAt);
+            
+            if (tracker != null) {
+                if (succeeded) {
+                    tracker.fileCompleted(0, virtualPath);
+                } else {
+                    tracker.fileFailed(total, virtualPath);
+                }
+                tracker.finish();
+            }
+        }
+    }
+    
+    /**
+     * Streams {@code length} bytes from {@code in} straight into the data
+     * object at {@code virtualPath}. Uses the
+     * {@link #getDefaultTransferOptions()} of this client.
+     * 
+     * @param in source of the data. It is read but not closed.
+     * @param length number of bytes to send, or -1 to send until the end of the channel
+     * @param virtualPath the virtual path of the data object to write
+     * @return number of bytes written
+     * @throws IOException
+     * @throws RemoteDataException
+     * @see #put(InputStream, long, String, IRODSTransferOptions)
+     */
+    public long put(ReadableByteChannel in, long length, String virtualPath) throws IOException, RemoteDataException {
+        return put(in, length, virtualPath, defaultTransferOptions);
+    }
+    
+    /**
+     * Streams {@code length} bytes from {@code in} straight into the data
+     * object at {@code virtualPath}. The channel must be in blocking mode.
+     * 
+     * @param in source of the data. It is read but not closed.
+     * @param length number of bytes to send, or -1 to send until the end of the channel
+     * @param virtualPath the virtual path of the data object to write
+     * @param options the transfer options, or null for the session defaults
+     * @return number of bytes written
+     * @throws IOException
+     * @throws RemoteDataException
+     * @see #put(InputStream, long, String, IRODSTransferOptions)
+     */
+    public long put(ReadableByteChannel in, long length, String virtualPath, IRODSTransferOptions options) 
+    throws IOException, RemoteDataException 
+    {
+        // the adapter only delegates reads, so closing is left to the caller
+        return put(Channels.newInputStream(in), length, virtualPath, options);
+    }
+    
+    /**
+     * Uploads {@code localFile} to the data object at {@code virtualPath} so
+     * that a failed upload can be resumed. As data is written, the completed
+     * byte ranges are saved to a checkpoint in the
+     * {@link #getCheckpointDirectory()}. Calling this method again for the
+     * same file and target sends only the ranges still missing, provided the
+     * local file has not changed and the partial remote object is still there.
+     * Otherwise the upload starts over. The checkpoint is removed once the
+     * upload completes.
+     * <p>
+     * Data is sent in chunks of {@link IRODSTransferOptions#getPutBufferSize()}
+     * bytes from the {@link #getDefaultTransferOptions()} of this client.
+     * 
+     * @param localFile the file to upload
+     * @param virtualPath the virtual path of the data object to write
+     * @return number of bytes sent by this call
+     * @throws IOException if the local file is missing or changes during the upload, or the target is a collection
+     * @throws RemoteDataException
+     */
+    public long putResumable(File localFile, String virtualPath) throws IOException, RemoteDataException 
+    {
+        if (!localFile.isFile()) {
+            throw new java.io.FileNotFoundException("Local file " + localFile.getAbsolutePath() + " does not exist");
+        }
+        
+        String resolvedPath = resolveStatPath(virtualPath);
+        ObjStat objStat = statOrNull(resolvedPath);
+        if (RemotePathType.valueOf(objStat) == RemotePathType.COLLECTION) {
+            throw new IOException("Cannot overwrite collection " + virtualPath + " with a data object");
+        }
+        
+        File checkpointFile = getCheckpointFile(localFile, resolvedPath);
+        TransferCheckpoint checkpoint = TransferCheckpoint.load(checkpointFile);
+        boolean resuming = checkpoint != null 
+                && checkpoint.matches(localFile, resolvedPath)
+                && objStat != null 
+                && objStat.getObjSize() >= checkpoint.getHighWaterMark();
+        if (!resuming) {
+            checkpoint = new TransferCheckpoint(localFile, resolvedPath);
+            if (objStat == null) {
+                ensureCollection(getVirtualParentPath(virtualPath));
+            }
+        }
+        
+        long startedAt = System.currentTimeMillis();
+        long sent = 0;
+        boolean succeeded = false;
+        RandomAccessFile source = null;
+        IRODSRandomAccessFile dest = null;
+        try {
+            IRODSFile destFile = getIRODSFileFactory().instanceIRODSFile(resolvedPath);
+            if (!resuming) {
+                // create or truncate the target so stale bytes from an earlier object cannot survive
+                getIRODSFileFactory().instanceIRODSFileOutputStream(destFile).close();
+            }
+            
+            source = new RandomAccessFile(localFile, "r");
+            dest = getIRODSFileFactory().instanceIRODSRandomAccessFile(destFile);
+            byte[] buffer = getStreamBuffer(getStreamBufferSize(defaultTransferOptions, true));
+            long sinceSave = 0;
+            
+            for (long[] range: checkpoint.getMissingRanges()) {
+                long position = range[0];
+                source.seek(position);
+                dest.seek(position);
+                while (position < range[1]) {
+                    int length = (int)Math.min(buffer.length, range[1] - position);
+                    source.readFully(buffer, 0, length);
+                    dest.write(buffer, 0, length);
+                    checkpoint.markCompleted(position, position + length);
+                    position += length;
+                    sent += length;
+                    sinceSave += length;
+                    
+                    if (sinceSave >= checkpointIntervalBytes) {
+                        checkpoint.save(checkpointFile);
+                        sinceSave = 0;
+                    }
+                }
+            }
+            
+            if (!checkpoint.matches(localFile, resolvedPath)) {
+                checkpointFile.delete();
+                throw new IOException("Local file " + localFile.getAbsolutePath() + " changed during upload");
+            }
+            
+            checkpointFile.delete();
+            succeeded = true;
+            
+            return sent;
+        }
+        catch (CatNoAccessException e) {
+            throw new RemotePermissionException("Failed to put " + localFile.getAbsolutePath() + " due to insufficient privileges.", e);
+        } 
+        catch (FileNotFoundException | DataNotFoundException e) {
+            forgetCollection(getVirtualParentPath(virtualPath));
+            throw new java.io.FileNotFoundException("File/folder does not exist or user lacks access permission");
+        } 
+        catch (JargonException e) {
+            throw IRODSErrorClassifier.toRemoteDataException("Failed to transfer file to irods.", e);
+        }
+        finally {
+            try { if (source != null) source.close(); } catch (IOException e) {}
+            try { if (dest != null) dest.close(); } catch (IOException e) {}
+            
+            if (!checkpoint.isComplete() && sent > 0) {
+                try { checkpoint.save(checkpointFile); } catch (IOException e) {}
+            }
+            
+            invalidateCachedStat(resolvedPath, false);
+            recordStreamedTransfer(succeeded, sent, startedAt);
+        }
+    }
+    
+    /**
+     * Uploads {@code localFile} to the data object at {@code virtualPath} and
+     * verifies it against a checksum computed by the server. The local
+     * checksum is computed on the same bytes as they are sent, so the local
+     * file is only read once. The file is streamed as with
+     * {@link #put(InputStream, long, String, IRODSTransferOptions)} rather
+     * than through Jargon's parallel transfer, since those streams read the
+     * file independently.
+     * <p>
+     * The local hash uses the {@link #getChecksumEncoding()} of this client.
+     * If the server answers in a different scheme, the local file is hashed
+     * again in that scheme. A data object which does not match is deleted
+     * before the mismatch is thrown.
+     * 
+     * @param localFile the file to upload
+     * @param virtualPath the virtual path of the data object to write
+     * @return the checksum registered on the server
+     * @throws IOException if the local file cannot be read or the target is a collection
+     * @throws RemoteDataException if the checksums do not match or cannot be computed
+     */
+    public ChecksumValue putVerified(File localFile, String virtualPath) throws IOException, RemoteDataException 
+    {
+        return putVerified(localFile, virtualPath, checksumEncoding);
+    }
+    
+    /**
+     * Same as {@link #putVerified(File, String)}, hashing the local file in
+     * {@code localEncoding} as it is sent. Callers which know the hash
+     * scheme of the server can pass it here to avoid a second pass over the
+     * file, without changing the setting of a client shared with others.
+     * 
+     * @param localFile the file to upload
+     * @param virtualPath the virtual path of the data object to write
+     * @param localEncoding {@link ChecksumEncodingEnum#MD5} or {@link ChecksumEncodingEnum#SHA256}
+     * @return the checksum registered on the server
+     * @throws IOException if the local file cannot be read or the target is a collection
+     * @throws RemoteDataException if the checksums do not match or cannot be computed
+     */
+    public ChecksumValue putVerified(File localFile, String virtualPath, ChecksumEncodingEnum localEncoding) 
+    throws IOException, RemoteDataException 
+    {
+        if (!localFile.isFile()) {
+            throw new java.io.FileNotFoundException("Local file " + localFile.getAbsolutePath() + " does not exist");
+        }
+        
+        MessageDigest digest = newDigest(localEncoding);
+        InputStream in = new DigestInputStream(new FileInputStream(localFile), digest);
+        try {
+            put(in, localFile.length(), virtualPath, defaultTransferOptions);
+        } finally {
+            in.close();
+        }
+        
+        String resolvedPath = resolveStatPath(virtualPath);
+        ChecksumValue serverChecksum;
+        try {
+            IRODSFile destFile = getIRODSFileFactory().instanceIRODSFile(resolvedPath);
+            serverChecksum = getChecksumAO().computeChecksumOnDataObject(destFile);
+        }
+        catch (CatNoAccessException e) {
+            throw new RemotePermissionException("Failed to checksum " + virtualPath + " due to insufficient privileges.", e);
+        } 
+        catch (FileNotFoundException | DataNotFoundException e) {
+            throw new java.io.FileNotFoundException("File/folder does not exist or user lacks access permission");
+        } 
+        catch (JargonException e) {
+            throw IRODSErrorClassifier.toRemoteDataException("Failed to compute checksum of " + virtualPath + " on the server.", e);
+        }
+        
+        byte[] localHash;
+        if (serverChecksum.getChecksumEncoding() == localEncoding) {
+            localHash = digest.digest();
+        } else {
+            // the server uses a different scheme, so pay for a second pass
+            digest = newDigest(serverChecksum.getChecksumEncoding());
+            localHash = digestFile(localFile, digest);
+        }
+        
+        if (!StringUtils.equals(toHex(localHash), StringUtils.lowerCase(serverChecksum.getHexChecksumValue()))) {
+            // don't leave a corrupt copy where readers would take it for the real one
+            try {
+                getIRODSFileFactory().instanceIRODSFile(resolvedPath).deleteWithForceOption();
+            } catch (Exception e) {
+                // the mismatch below is the error worth reporting
+            } finally {
+                invalidateCachedStat(resolvedPath, false);
+            }
+            throw new RemoteDataException("Checksum mismatch after uploading " + localFile.getAbsolutePath() 
+                    + " to " + virtualPath + ". Local " + serverChecksum.getChecksumEncoding() + " checksum was " 
+                    + toHex(localHash) + ", server reported " + serverChecksum.getHexChecksumValue());
+        }
+        
+        return serverChecksum;
+    }
+    
+    /**
+     * @return a {@link MessageDigest} for the given iRODS checksum scheme
+     * @throws RemoteDataException if the scheme is not supported locally
+     */
+    private MessageDigest newDigest(ChecksumEncodingEnum encoding) throws RemoteDataException {
+        String algorithm = getDigestAlgorithm(encoding);
+        if (algorithm == null) {
+            throw new RemoteDataException("Unsupported checksum encoding " + encoding);
+        }
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RemoteDataException("Unsupported checksum encoding " + encoding, e);
+        }
+    }
+    
+    /**
+     * @return the JCA digest algorithm for an iRODS checksum scheme, or null if there is none
+     */
+    private static String getDigestAlgorithm(ChecksumEncodingEnum encoding) {
+        if (encoding == ChecksumEncodingEnum.MD5) {
+            return "MD5";
+        } else if (encoding == ChecksumEncodingEnum.SHA256) {
+            return "SHA-256";
+        } else {
+            return null;
+        }
+    }
+    
+    /**
+     * Hashes a local file with the client's stream buffer.
+     */
+    private byte[] digestFile(File localFile, MessageDigest digest) throws IOException {
+        InputStream in = new FileInputStream(localFile);
+        try {
+            byte[] buffer = getStreamBuffer(getStreamBufferSize(defaultTransferOptions, true));
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return digest.digest();
+        } finally {
+            in.close();
+        }
+    }
+    
+    /**
+     * @return lower case hex encoding of {@code bytes}
+     */
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b: bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+    
+    /**
+     * @return the checkpoint file for an upload of {@code localFile} to
+     *         {@code resolvedPath} on this client's endpoint
+     */
+    protected File getCheckpointFile(File localFile, String resolvedPath) {
+        String key = host + ":" + port + ":" + zone + ":" + username + ":" + resolvedPath 
+                + "|" + localFile.getAbsolutePath();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            return new File(checkpointDirectory, toHex(digest.digest(key.getBytes("UTF-8"))) + ".checkpoint");
+        } 
+        catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            // every JVM ships MD5 and UTF-8
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * @return the virtual path of the collection holding {@code virtualPath}
+     */
+    private String getVirtualParentPath(String virtualPath) {
+        String trimmedPath = StringUtils.removeEnd(virtualPath, "/");
+        int separator = trimmedPath.lastIndexOf('/');
+        return separator > 0 ? trimmedPath.substring(0, separator) : (separator == 0 ? "/" : "");
+    }
+    
+    /**
+     * Uploads a local {@link File} to a {@code virtualParentPath}, spreading
+     * the files of a directory tree across {@code concurrency} worker threads.
+     * The local tree is walked up front, every remote collection is created
+     * before any file is sent, and files are then uploaded in parallel. A
+     * failure on one file is recorded in the returned report and does not stop
+     * the others. Each worker holds its own connection for the duration of the
+     * upload, so when pooling the workers are capped at one fewer than the
+     * {@link IRODSConnectionPool#getMaxConnectionsPerKey()} of the pool, which
+     * leaves a connection for the calling thread.
+     * <p>
+     * Single files are uploaded as with {@link #put(File, String)}. Every file
+     * is sent with the {@link #getDefaultTransferOptions()} of this client.
+     * 
+     * @param localFile the file or directory to upload
+     * @param virtualParentPath the directory into which the upload will be copied.
+     * @param concurrency number of files to upload at once
+     * @return report of the files uploaded and any which failed
+     * @throws IOException if the local path or remote parent is invalid
+     * @throws RemoteDataException if the remote collections could not be created
+     */
+    public BulkOperationReport put(File localFile, String virtualParentPath, int concurrency) 
+    throws IOException, RemoteDataException 
+    {
+        BulkOperationReport report = new BulkOperationReport();
+        JargonProperties originalProperties = null;
+        
+        if (!localFile.isDirectory()) {
+            put(localFile, virtualParentPath);
+            report.recordSuccess(localFile.getAbsolutePath(), localFile.length());
+            report.complete();
+            return report;
+        }
+        
+        String remoteRoot = childPath(resolveStatPath(virtualParentPath), localFile.getName());
+        
+        // walk the local tree, mapping each directory to its remote collection
+        final ConcurrentLinkedQueue<File[]> uploads = new ConcurrentLinkedQueue<File[]>();
+        final Map<File, String> remoteCollections = new HashMap<File, String>();
+        List<String> leafCollections = new ArrayList<String>();
+        
+        Deque<File> pending = new ArrayDeque<File>();
+        pending.push(localFile);
+        remoteCollections.put(localFile, remoteRoot);
+        
+        while (!pending.isEmpty()) {
+            File dir = pending.pop();
+            String remoteDir = remoteCollections.get(dir);
+            File[] children = dir.listFiles();
+            if (children == null) {
+                report.recordFailure(dir.getAbsolutePath(), new IOException("Unable to read local directory " + dir.getAbsolutePath()));
+                continue;
+            }
+            
+            boolean isLeaf = true;
+            for (File child: children) {
+                if (child.isDirectory()) {
+                    if (Files.isSymbolicLink(child.toPath())) {
+                        // avoid cycles through linked directories
+                        continue;
+                    }
+                    isLeaf = false;
+                    remoteCollections.put(child, childPath(remoteDir, child.getName()));
+                    pending.push(child);
+                } else {
+                    uploads.add(new File[] { child, dir });
+                }
+            }
+            
+            if (isLeaf) {
+                leafCollections.add(remoteDir);
+            }
+        }
+        
+        try {
+            // creating each leaf recursively creates every collection above it
+            for (String leafCollection: leafCollections) {
+                mkdirs(toVirtualPath(leafCollection));
+            }
+            
+            originalProperties = overrideJargonProperties(defaultTransferOptions);
+            
+            uploadInParallel(uploads, remoteCollections, concurrency, defaultTransferOptions, report);
+        } 
+        catch (CatNoAccessException e) {
+            throw new RemotePermissionException("Failed to put " + localFile.getAbsolutePath() + " due to insufficient privileges.", e);
+        } 
+        catch (FileNotFoundException | DataNotFoundException e) {
+            throw new java.io.FileNotFoundException("File/folder does not exist or user lacks access permission");
+        } 
+        catch (JargonException e) {
+            throw IRODSErrorClassifier.toRemoteDataException("Failed to transfer file to irods.", e);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteDataException("Interrupted while uploading " + localFile.getAbsolutePath(), e);
+        }
+        finally {
+            restoreJargonProperties(originalProperties);
+            invalidateCachedStat(remoteRoot, true);
+            report.complete();
+        }
+        
+        return report;
+    }
+    
+    /**
+     * Drains {@code uploads} across up to {@code concurrency} worker threads.
+     * Each entry is a local file and the local directory holding it, which
+     * {@code remoteCollections} maps to the collection it is uploaded into.
+     * Transient failures are retried under the {@link #getRetryPolicy()} on
+     * a fresh connection. Failures are recorded in {@code report} and do not
+     * stop the other uploads. Returns once every upload has finished.
      */
-    public boolean mkdirs(String virtualPath) throws IOException, RemoteDataException {
-        IRODSFile file = null;
+    private void uploadInParallel(final ConcurrentLinkedQueue<File[]> uploads, final Map<File, String> remoteCollections, 
+            int concurrency, final IRODSTransferOptions options, final BulkOperationReport report) 
+    throws JargonException, InterruptedException 
+    {
+        if (uploads.isEmpty()) {
+            return;
+        }
+        
+        final DataTransferOperations transferOperations = getDataTransferOperations();
+        final IRODSFileFactory fileFactory = getIRODSFileFactory();
+        final IRODSAccessObjectFactory workerAccessObjectFactory = accessObjectFactory;
+        final IRODSAccount workerAccount = irodsAccount;
+        final boolean retryable = options == null
+                || options.getOverwritePolicy() != IRODSTransferOptions.OverwritePolicy.FAIL;
 
-        try {
-            file = getIRODSFile(virtualPath);
-            getIRODSFileSystemAO().mkdir(file, true);
-        } catch (DuplicateDataException e) {
-            return false;
-        } catch (CatNoAccessException e) {
-            throw new RemoteDataException("Failed to create " + virtualPath
-                    + " due to insufficient privileges.", e);
-        } catch (DataNotFoundException e) {
-            throw new java.io.FileNotFoundException("No such file or directory");
-        } catch (JargonException e) {
-            // check if this means that it already exists, and call that a
-            // 'false' instead of an error
-            if (e.getMessage().indexOf("-809000") > -1) {
-                return false;
+        int workers = Math.min(capWorkers(concurrency), uploads.size());
+        ExecutorService executor = newWorkerPool("irods-upload-", workers);
+        
+        final TransferProgressTracker tracker = newProgressTracker(options);
+        if (tracker != null) {
+            long totalBytes = 0;
+            for (File[] upload: uploads) {
+                totalBytes += upload[0].length();
             }
-            throw new RemoteDataException("Failed to create " + virtualPath, e);
+            tracker.expect(totalBytes, uploads.size());
         }
+        
+        try {
+            for (int i=0; i<workers; i++) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        File[] upload;
+                        while ((upload = uploads.poll()) != null) {
+                            File file = upload[0];
+                            for (int attempt = 1; ; attempt++) {
+                                DefaultTransferStatusCallbackListener listener = newTransferListener();
+                                if (tracker != null) {
+                                    listener = new ProgressTransferStatusCallbackListener(tracker, listener, false);
+                                }
+                                try {
+                                    IRODSFile destFile = fileFactory.instanceIRODSFile(remoteCollections.get(upload[1]));
+                                    transferOperations.putOperation(file, destFile, listener,
+                                            buildTransferControlBlock(options));
 
-        return true;
+                                    if (listener.hasErrors()) {
+                                        throw listener.getTransferError();
+                                    }
+                                    report.recordSuccess(file.getAbsolutePath(), file.length());
+                                    break;
+                                } catch (Throwable e) {
+                                    recordTransferFailure(listener);
+                                    if (!retryable || !awaitRetry(IRODSRetryPolicy.Operation.PUT, attempt, e)) {
+                                        report.recordFailure(file.getAbsolutePath(), e);
+                                        break;
+                                    }
+                                    discardWorkerConnection(workerAccessObjectFactory, workerAccount);
+                                }
+                            }
+                        }
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+        }
+        
+        while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+            // wait for all uploads to finish
+        }
+        
+        if (tracker != null) {
+            tracker.finish();
+        }
     }
-
+    
     /**
-     * Deletes an object or collection at the {@code virtualPath}.
+     * Drops the calling worker thread's connection after a transient
+     * failure, so its next call opens a new one rather than reusing it.
+     */
+    private void discardWorkerConnection(IRODSAccessObjectFactory workerAccessObjectFactory, IRODSAccount workerAccount) {
+        try {
+            workerAccessObjectFactory.getIrodsSession().discardSessionForErrors(workerAccount);
+        } catch (Exception e) {}
+    }
+    
+    /**
+     * Caps the worker count of a bulk operation so the workers fit within
+     * the connections the pool allows alongside the calling thread, which
+     * keeps its own connection while they run. Otherwise, with
+     * {@code concurrency} at the pool's limit, the last worker would wait out
+     * the pool's borrow timeout for a connection that is never returned.
      * 
-     * @param virtualPath
-     *            to file on remote system
+     * @param concurrency number of workers requested
+     * @return number of workers to start, at least 1
+     */
+    private int capWorkers(int concurrency) {
+        int workers = Math.max(1, concurrency);
+        IRODSConnectionPool pool = connectionPool;
+        if (pool != null) {
+            workers = Math.min(workers, Math.max(1, pool.getMaxConnectionsPerKey() - 1));
+        }
+        return workers;
+    }
+    
+    /**
+     * Creates a fixed pool of daemon worker threads named with
+     * {@code namePrefix}. Each worker talks to iRODS over its own connection,
+     * which is handed back to the pool when the worker thread exits.
+     */
+    private ExecutorService newWorkerPool(final String namePrefix, int workers) {
+        final IRODSAccessObjectFactory workerAccessObjectFactory = accessObjectFactory;
+        final IRODSAccount workerAccount = irodsAccount;
+        
+        return Executors.newFixedThreadPool(workers, new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+            @Override
+            public Thread newThread(final Runnable r) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            r.run();
+                        } finally {
+                            // hand this worker's connection back to the pool
+                            workerAccessObjectFactory.closeSessionAndEatExceptions(workerAccount);
+                        }
+                    }
+                }, namePrefix + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+    
+    /**
+     * Makes the collection at {@code virtualPath} mirror {@code localDir}
+     * using the default {@link IRODSSyncOptions}.
+     * 
+     * @param localDir the local directory to mirror
+     * @param virtualPath the remote collection to update
+     * @return report of the files uploaded, skipped, deleted and failed
      * @throws IOException
      * @throws RemoteDataException
+     * @see #sync(File, String, IRODSSyncOptions)
      */
-    public void delete(String virtualPath) throws IOException, RemoteDataException {
-        IRODSFile file = null;
+    public BulkOperationReport sync(File localDir, String virtualPath) throws IOException, RemoteDataException {
+        return sync(localDir, virtualPath, new IRODSSyncOptions());
+    }
+    
+    /**
+     * Makes the collection at {@code virtualPath} mirror the contents of
+     * {@code localDir}, sending only what has changed. Unlike
+     * {@link #put(File, String)}, the contents of {@code localDir} go
+     * directly into {@code virtualPath}, so syncing the same directory
+     * to the same path again is a no-op.
+     * <p>
+     * Each remote collection is read with one paged listing, and nothing is
+     * looked up per file. A local file is uploaded if it is missing remotely,
+     * if its size differs, or if it was modified after the remote copy.
+     * When {@link IRODSSyncOptions#isCompareChecksums()} is set, files of
+     * equal size are compared by checksum instead of modification time.
+     * Collections created during the sync are not listed at all. Remote
+     * entries with no local counterpart are deleted only when
+     * {@link IRODSSyncOptions#isDeleteOrphans()} is set.
+     * <p>
+     * Modification times are compared across machines, so clocks are
+     * assumed to be roughly in sync. A file whose remote copy is a
+     * collection, or the reverse, is recorded as a failure and left alone.
+     * 
+     * @param localDir the local directory to mirror
+     * @param virtualPath the remote collection to update. It is created if missing.
+     * @param options how to compare and what to delete
+     * @return report of the files uploaded, skipped, deleted and failed
+     * @throws IOException if {@code localDir} is not a directory or {@code virtualPath} is a file
+     * @throws RemoteDataException if the remote tree could not be read
+     */
+    public BulkOperationReport sync(File localDir, String virtualPath, IRODSSyncOptions options) 
+    throws IOException, RemoteDataException 
+    {
+        if (!localDir.isDirectory()) {
+            throw new java.io.FileNotFoundException("Local directory " + localDir.getAbsolutePath() + " does not exist");
+        }
+        if (options == null) {
+            options = new IRODSSyncOptions();
+        }
+        
+        BulkOperationReport report = new BulkOperationReport();
+        String remoteRoot = resolveStatPath(virtualPath);
+        RemotePathType rootType = probe(virtualPath);
+        if (rootType == RemotePathType.FILE) {
+            throw new IOException("Cannot sync a directory into file " + virtualPath);
+        }
+        
+        final ConcurrentLinkedQueue<File[]> uploads = new ConcurrentLinkedQueue<File[]>();
+        final Map<File, String> remoteCollections = new HashMap<File, String>();
+        Set<File> newDirectories = new HashSet<File>();
+        
+        // a changed file must replace its remote copy, whatever the defaults say
+        IRODSTransferOptions transferOptions = defaultTransferOptions == null ? 
+                new IRODSTransferOptions() : new IRODSTransferOptions(defaultTransferOptions);
+        transferOptions.setOverwritePolicy(IRODSTransferOptions.OverwritePolicy.OVERWRITE);
+        
+        JargonProperties originalProperties = null;
         try {
-            if (isDirectory(virtualPath)) {
-                file = getIRODSFile(virtualPath);
-                file.delete();
-            } else {
-                file = getIRODSFile(virtualPath);
-                file.deleteWithForceOption();
+            if (rootType == RemotePathType.ABSENT) {
+                mkdirs(virtualPath);
+                newDirectories.add(localDir);
             }
-        } catch (IOException e) {
-            throw e;
-        } catch (RemoteDataException e) {
-            throw e;
-        } catch (JargonRuntimeException | CatNoAccessException e) {
-            throw new RemoteDataException("Failed to delete " + virtualPath
-                    + " due to insufficient privileges.", e);
-        } catch (JargonException e) {
-            throw new RemoteDataException("Failed to connect to remote server.", e);
+            
+            Deque<File> pending = new ArrayDeque<File>();
+            pending.push(localDir);
+            remoteCollections.put(localDir, remoteRoot);
+            
+            while (!pending.isEmpty()) {
+                File dir = pending.pop();
+                String remoteDir = remoteCollections.get(dir);
+                File[] children = dir.listFiles();
+                if (children == null) {
+                    report.recordFailure(dir.getAbsolutePath(), new IOException("Unable to read local directory " + dir.getAbsolutePath()));
+                    continue;
+                }
+                
+                Map<String, CollectionAndDataObjectListingEntry> remoteEntries = 
+                        new HashMap<String, CollectionAndDataObjectListingEntry>();
+                if (!newDirectories.contains(dir)) {
+                    for (CollectionAndDataObjectListingEntry entry: new RemoteCollectionListing(getListAndSearchAO(), remoteDir)) {
+                        remoteEntries.put(entryName(entry), entry);
+                    }
+                }
+                
+                for (File child: children) {
+                    CollectionAndDataObjectListingEntry remoteEntry = remoteEntries.remove(child.getName());
+                    String remoteChild = childPath(remoteDir, child.getName());
+                    
+                    if (child.isDirectory()) {
+                        if (Files.isSymbolicLink(child.toPath())) {
+                            // avoid cycles through linked directories
+                            continue;
+                        }
+                        if (remoteEntry == null) {
+                            mkdirs(toVirtualPath(remoteChild));
+                            newDirectories.add(child);
+                        } else if (remoteEntry.getObjectType() != ObjectType.COLLECTION) {
+                            report.recordFailure(child.getAbsolutePath(), 
+                                    new IOException("Remote path " + remoteChild + " is a file, not a collection"));
+                            continue;
+                        }
+                        remoteCollections.put(child, remoteChild);
+                        pending.push(child);
+                    } 
+                    else if (remoteEntry != null && remoteEntry.getObjectType() == ObjectType.COLLECTION) {
+                        report.recordFailure(child.getAbsolutePath(), 
+                                new IOException("Remote path " + remoteChild + " is a collection, not a file"));
+                    } 
+                    else if (remoteEntry == null || isChanged(child, remoteChild, remoteEntry, options)) {
+                        uploads.add(new File[] { child, dir });
+                    } 
+                    else {
+                        report.recordSkipped(child.getAbsolutePath());
+                    }
+                }
+                
+                if (options.isDeleteOrphans()) {
+                    for (CollectionAndDataObjectListingEntry orphan: remoteEntries.values()) {
+                        String orphanPath = childPath(remoteDir, entryName(orphan));
+                        boolean isCollection = orphan.getObjectType() == ObjectType.COLLECTION;
+                        try {
+                            IRODSFile orphanFile = getIRODSFileFactory().instanceIRODSFile(orphanPath);
+                            if (isCollection) {
+                                orphanFile.delete();
+                            } else {
+                                orphanFile.deleteWithForceOption();
+                            }
+                            report.recordSuccess(orphanPath, 0);
+                        } catch (Exception e) {
+                            report.recordFailure(orphanPath, e);
+                        } finally {
+                            invalidateCachedStat(orphanPath, isCollection);
+                        }
+                    }
+                }
+            }
+            
+            originalProperties = overrideJargonProperties(transferOptions);
+            
+            uploadInParallel(uploads, remoteCollections, options.getConcurrency(), transferOptions, report);
+        }
+        catch (CatNoAccessException e) {
+            throw new RemotePermissionException("Failed to sync " + localDir.getAbsolutePath() + " due to insufficient privileges.", e);
+        } 
+        catch (FileNotFoundException | DataNotFoundException e) {
+            throw new java.io.FileNotFoundException("File/folder does not exist or user lacks access permission");
+        } 
+        catch (JargonException e) {
+            throw IRODSErrorClassifier.toRemoteDataException("Failed to sync " + localDir.getAbsolutePath() + " to irods.", e);
+        }
+        catch (JargonRuntimeException e) {
+            throw IRODSErrorClassifier.toRemoteDataException("Failed to list remote collection while syncing " + localDir.getAbsolutePath(), e);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteDataException("Interrupted while syncing " + localDir.getAbsolutePath(), e);
+        }
+        finally {
+            restoreJargonProperties(originalProperties);
+            invalidateCachedStat(remoteRoot, true);
+            report.complete();
+        }
+        
+        return report;
+    }
+    
+    /**
+     * @return true if {@code localFile} differs from the remote data object
+     *         described by {@code remoteEntry}
+     */
+    private boolean isChanged(File localFile, String remotePath, CollectionAndDataObjectListingEntry remoteEntry, 
+            IRODSSyncOptions options) 
+    throws JargonException, IOException, RemoteDataException 
+    {
+        if (localFile.length() != remoteEntry.getDataSize()) {
+            return true;
+        } 
+        else if (options.isCompareChecksums()) {
+            ChecksumValue remoteChecksum = getChecksumAO().retrieveExistingChecksumForDataObject(remotePath);
+            if (remoteChecksum == null || StringUtils.isEmpty(remoteChecksum.getHexChecksumValue())) {
+                remoteChecksum = getChecksumAO().computeChecksumOnDataObject(
+                        getIRODSFileFactory().instanceIRODSFile(remotePath));
+            }
+            String localChecksum = toHex(digestFile(localFile, newDigest(remoteChecksum.getChecksumEncoding())));
+            return !StringUtils.equals(localChecksum, StringUtils.lowerCase(remoteChecksum.getHexChecksumValue()));
+        } 
+        else {
+            return remoteEntry.getModifiedAt() == null 
+                    || localFile.lastModified() > remoteEntry.getModifiedAt().getTime();
         }
     }
     
     /**
-     * Uploads a local {@link File} to a {@code virtualParentPath}.
-     * @param localFile the file to upload
-     * @param virtualParentPath the directory into which the upload will be copied.
-     * @throws IOException
+     * Downloads the object or collection at {@code virtualPath} using the
+     * {@link #getDefaultTransferOptions()} of this client.
+     * 
+     * @param virtualPath the virtual path to the remote object or collection
+     * @param localTarget local file to write, or existing directory to download into
+     * @throws IOException if the remote path does not exist or the local target cannot be written
      * @throws RemoteDataException
+     * @see #get(String, File, IRODSTransferOptions)
      */
-    public void put(File localFile, String virtualParentPath) throws IOException, RemoteDataException {
+    public void get(String virtualPath, File localTarget) throws IOException, RemoteDataException {
+        get(virtualPath, localTarget, defaultTransferOptions);
+    }
+    
+    /**
+     * Downloads the object or collection at {@code virtualPath}. Data objects
+     * below the large file threshold are streamed straight into a local
+     * {@link FileChannel} which is preallocated to the object size, using a
+     * buffer that is reused across calls on this client. Larger objects,
+     * collections, and transfers which ask for a checksum are handed to
+     * Jargon so they can use parallel streams as configured in
+     * {@code options}.
+     * <p>
+     * Data objects are downloaded to a hidden sibling of the local file and
+     * renamed over it once complete, so a failed download leaves any
+     * existing copy untouched rather than a truncated file in its place.
+     * 
+     * @param virtualPath the virtual path to the remote object or collection
+     * @param localTarget local file to write, or existing directory to download into
+     * @param options the transfer options, or null for the session defaults
+     * @throws IOException if the remote path does not exist or the local target cannot be written
+     * @throws RemoteDataException
+     */
+    public void get(String virtualPath, File localTarget, IRODSTransferOptions options) 
+    throws IOException, RemoteDataException 
+    {
+        String resolvedPath = resolveStatPath(virtualPath);
+        ObjStat objStat = statOrNull(resolvedPath);
+        if (objStat == null) {
+            throw new java.io.FileNotFoundException(
+                    "File/folder does not exist or user lacks access permission");
+        }
         
-        IRODSFile destFile;
+        File target = localTarget;
+        if (localTarget.isDirectory() && RemotePathType.valueOf(objStat) == RemotePathType.FILE) {
+            target = new File(localTarget, resolvedPath.substring(resolvedPath.lastIndexOf('/') + 1));
+        }
+        
+        if (options != null && options.getOverwritePolicy() == IRODSTransferOptions.OverwritePolicy.FAIL 
+                && target.isFile()) {
+            throw new IOException("Local file " + target.getAbsolutePath() + " already exists");
+        }
+        
+        boolean isCollection = RemotePathType.valueOf(objStat) == RemotePathType.COLLECTION;
+        File download = isCollection ? target : new File(target.getAbsoluteFile().getParentFile(), 
+                "." + target.getName() + "." + UUID.randomUUID().toString() + ".part");
+        
+        JargonProperties originalProperties = null;
+        DefaultTransferStatusCallbackListener listener = null;
+        long startedAt = System.currentTimeMillis();
+        long written = 0;
+        boolean succeeded = false;
         try {
-            destFile = getIRODSFile(virtualParentPath);
+            IRODSFile sourceFile = getIRODSFileFactory().instanceIRODSFile(resolvedPath);
             
-            if (!doesExist(virtualParentPath)) {
-                mkdirs(virtualParentPath);
+            if (isCollection || isDelegatedToJargon(objStat.getObjSize(), options)) {
+                originalProperties = overrideJargonProperties(options);
+                
+                listener = newTransferListener(options);
+                getDataTransferOperations().getOperation(sourceFile, download, listener, 
+                        buildTransferControlBlock(options));
+                
+                if (listener.hasErrors()) {
+                    throw listener.getTransferError();
+                }
+            } 
+            else {
+                RandomAccessFile randomAccessFile = new RandomAccessFile(download, "rw");
+                FileChannel channel = randomAccessFile.getChannel();
+                try {
+                    // size the file once up front rather than growing it write by write
+                    randomAccessFile.setLength(objStat.getObjSize());
+                    written = copyToChannel(sourceFile, channel, getStreamBufferSize(options, false));
+                } finally {
+                    try {
+                        // trim to the bytes which arrived, in case the object 
+                        // shrank since it was stat'ed
+                        if (channel.position() != objStat.getObjSize()) {
+                            randomAccessFile.setLength(channel.position());
+                        }
+                    } finally {
+                        randomAccessFile.close();
+                    }
+                }
             }
             
-            DefaultTransferStatusCallbackListener listener = new DefaultTransferStatusCallbackListener();
-            
-            getDataTransferOperations().putOperation(localFile, destFile, listener, null);
-            
-            if (listener.hasErrors()) {
-                throw listener.getTransferError();
+            if (!isCollection) {
+                Files.move(download.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
             }
+            succeeded = true;
         }
         catch (CatNoAccessException e) {
-            throw new RemoteDataException("Failed to put " + localFile.getAbsolutePath() + " due to insufficient privileges.", e);
+            throw new RemotePermissionException("Failed to get " + virtualPath + " due to insufficient privileges.", e);
         } 
         catch (FileNotFoundException | DataNotFoundException e) {
             throw new java.io.FileNotFoundException("File/folder does not exist or user lacks access permission");
@@ -545,19 +3246,288 @@ public class IRODS4 {
             throw e;
         }
         catch (Throwable e) {
-            throw new RemoteDataException("Failed to transfer file to irods.", e);
+            throw IRODSErrorClassifier.toRemoteDataException("Failed to transfer file from irods.", e);
+        }
+        finally {
+            if (listener != null) {
+                finishTransfer(listener, succeeded);
+            } else {
+                recordStreamedTransfer(succeeded, written, startedAt);
+                
+                TransferProgressTracker tracker = newProgressTracker(options);
+                if (tracker != null) {
+                    // small files are copied in one go, so only the outcome is reported
+                    tracker.expect(objStat.getObjSize(), 1);
+                    if (succeeded) {
+                        tracker.fileCompleted(written, resolvedPath);
+                    } else {
+                        tracker.fileFailed(0, resolvedPath);
+                    }
+                    tracker.finish();
+                }
+            }
+            if (!isCollection && !succeeded) {
+                download.delete();
+            }
+            restoreJargonProperties(originalProperties);
         }
     }
     
     /**
-     * Close connection and invalidate session.
+     * Streams the data object at {@code virtualPath} into a caller supplied
+     * channel, using a buffer that is reused across calls on this client.
+     * The channel is not closed.
+     * 
+     * @param virtualPath the virtual path to the remote object
+     * @param target channel to write the object contents to
+     * @return number of bytes written
+     * @throws IOException if the remote path does not exist, is a collection, or the channel cannot be written
+     * @throws RemoteDataException
      */
-    public void disconnect()
+    public long get(String virtualPath, WritableByteChannel target) throws IOException, RemoteDataException 
     {
+        String resolvedPath = resolveStatPath(virtualPath);
+        RemotePathType pathType = RemotePathType.valueOf(statOrNull(resolvedPath));
+        if (pathType == RemotePathType.ABSENT) {
+            throw new java.io.FileNotFoundException(
+                    "File/folder does not exist or user lacks access permission");
+        } else if (pathType == RemotePathType.COLLECTION) {
+            throw new IOException("Cannot stream collection " + virtualPath);
+        }
+        
+        long startedAt = System.currentTimeMillis();
+        long written = 0;
+        boolean succeeded = false;
         try {
-            accessObjectFactory.closeSessionAndEatExceptions();
-            irodsSession = null;
-            accessObjectFactory = null;
-        } catch (Exception e) {}
+            written = copyToChannel(getIRODSFileFactory().instanceIRODSFile(resolvedPath), target, 
+                    getStreamBufferSize(defaultTransferOptions, false));
+            succeeded = true;
+            return written;
+        }
+        catch (CatNoAccessException e) {
+            throw new RemotePermissionException("Failed to get " + virtualPath + " due to insufficient privileges.", e);
+        } 
+        catch (FileNotFoundException | DataNotFoundException e) {
+            throw new java.io.FileNotFoundException("File/folder does not exist or user lacks access permission");
+        } 
+        catch (JargonException e) {
+            throw IRODSErrorClassifier.toRemoteDataException("Failed to transfer file from irods.", e);
+        }
+        finally {
+            recordStreamedTransfer(succeeded, written, startedAt);
+        }
+    }
+    
+    /**
+     * Opens a read-only, seekable channel over the data object at
+     * {@code virtualPath}. The object handle stays open until the channel is
+     * closed, so repeated range reads cost one round trip each, plus a seek
+     * when they are not sequential. Callers must close the channel.
+     * 
+     * @param virtualPath the virtual path to the remote object
+     * @return open channel positioned at the start of the object
+     * @throws IOException if the remote path does not exist or is a collection
+     * @throws RemoteDataException
+     */
+    public IRODSSeekableByteChannel openChannel(String virtualPath) throws IOException, RemoteDataException 
+    {
+        String resolvedPath = resolveStatPath(virtualPath);
+        ObjStat objStat = statOrNull(resolvedPath);
+        RemotePathType pathType = RemotePathType.valueOf(objStat);
+        if (pathType == RemotePathType.ABSENT) {
+            throw new java.io.FileNotFoundException(
+                    "File/folder does not exist or user lacks access permission");
+        } else if (pathType == RemotePathType.COLLECTION) {
+            throw new IOException("Cannot open a channel on collection " + virtualPath);
+        }
+        
+        return openHandle(virtualPath, resolvedPath, objStat.getObjSize());
+    }
+    
+    /**
+     * Opens a handle on the data object at {@code resolvedPath} and wraps it
+     * in a channel of the given size.
+     */
+    private IRODSSeekableByteChannel openHandle(String virtualPath, String resolvedPath, long size) 
+    throws IOException, RemoteDataException 
+    {
+        try {
+            IRODSFile irodsFile = getIRODSFileFactory().instanceIRODSFile(resolvedPath);
+            return newChannel(getIRODSFileFactory().instanceIRODSRandomAccessFile(irodsFile), size);
+        }
+        catch (CatNoAccessException e) {
+            throw new RemotePermissionException("Failed to open " + virtualPath + " due to insufficient privileges.", e);
+        } 
+        catch (FileNotFoundException | DataNotFoundException e) {
+            throw new java.io.FileNotFoundException("File/folder does not exist or user lacks access permission");
+        } 
+        catch (JargonException e) {
+            throw IRODSErrorClassifier.toRemoteDataException("Failed to open " + virtualPath + " for reading.", e);
+        }
+    }
+    
+    /**
+     * Creates the channel returned by {@link #openChannel(String)} around an
+     * open handle.
+     * 
+     * @param randomAccessFile open handle on the data object
+     * @param size size of the data object in bytes
+     * @return a new channel owning the handle
+     */
+    protected IRODSSeekableByteChannel newChannel(IRODSRandomAccessFile randomAccessFile, long size) {
+        return new IRODSSeekableByteChannel(randomAccessFile, size);
+    }
+    
+    /**
+     * Reads a byte range of the data object at {@code virtualPath} into
+     * {@code dst}, starting at {@code offset}, without downloading the rest
+     * of the object or touching the local disk. Reads until {@code dst} is
+     * full or the end of the object is reached. Nothing is allocated beyond
+     * the caller's buffer when it is backed by an array.
+     * 
+     * <p>The object is not stat'ed first, so a read costs an open, a seek
+     * when {@code offset} is not 0, one round trip per read of up to the
+     * buffer size and a close. That is at least three round trips for every
+     * call. For many reads from the same object, use
+     * {@link #openChannel(String)}, which pays for the stat and open once
+     * and then one round trip per read.</p>
+     * 
+     * @param virtualPath the virtual path to the remote object
+     * @param offset byte offset into the object to start reading from
+     * @param dst buffer to fill from its current position
+     * @return number of bytes read, or -1 if {@code offset} is at or past the end of the object
+     * @throws IOException if the remote path does not exist
+     * @throws RemoteDataException if the remote path is a collection or the read fails
+     */
+    public int read(String virtualPath, long offset, ByteBuffer dst) throws IOException, RemoteDataException 
+    {
+        // without a stat the size is unknown, so the channel reads until the
+        // server reports the end of the object
+        IRODSSeekableByteChannel channel = openHandle(virtualPath, resolveStatPath(virtualPath), Long.MAX_VALUE);
+        try {
+            channel.position(offset);
+            return channel.read(dst);
+        } finally {
+            channel.close();
+        }
+    }
+    
+    /**
+     * Copies the contents of a data object into a channel. Each read is a
+     * single server round trip of up to {@code bufferSize} bytes.
+     */
+    private long copyToChannel(IRODSFile sourceFile, WritableByteChannel channel, int bufferSize) 
+    throws JargonException, IOException 
+    {
+        InputStream in = getIRODSFileFactory().instanceIRODSFileInputStream(sourceFile);
+        try {
+            byte[] buffer = getStreamBuffer(bufferSize);
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+            long total = 0;
+            int read;
+            while ((read = in.read(buffer, 0, buffer.length)) != -1) {
+                byteBuffer.clear();
+                byteBuffer.limit(read);
+                while (byteBuffer.hasRemaining()) {
+                    channel.write(byteBuffer);
+                }
+                total += read;
+            }
+            return total;
+        } finally {
+            in.close();
+        }
+    }
+    
+    /**
+     * @return true if a download of {@code size} bytes should go through
+     *         Jargon's transfer engine rather than a single stream
+     */
+    private boolean isDelegatedToJargon(long size, IRODSTransferOptions options) {
+        if (options != null) {
+            if (options.getChecksumPolicy() != IRODSTransferOptions.ChecksumPolicy.NONE) {
+                return true;
+            }
+            if (options.getParallelThreads() == 1) {
+                return false;
+            }
+            if (options.getLargeFileThreshold() > 0) {
+                return size >= options.getLargeFileThreshold();
+            }
+        }
+        
+        JargonProperties properties = irodsSession.getJargonProperties();
+        return properties.isUseParallelTransfer() 
+                && size >= properties.getParallelThreadsLengthThreshold();
+    }
+    
+    /**
+     * @return the buffer size for a streamed transfer in the given direction
+     */
+    private int getStreamBufferSize(IRODSTransferOptions options, boolean upload) {
+        int size = 0;
+        if (options != null) {
+            size = upload ? options.getPutBufferSize() : options.getGetBufferSize();
+        }
+        if (size <= 0) {
+            JargonProperties properties = irodsSession.getJargonProperties();
+            size = upload ? properties.getPutBufferSize() : properties.getGetBufferSize();
+        }
+        return size > 0 ? size : DEFAULT_STREAM_BUFFER_SIZE;
+    }
+    
+    /**
+     * @return a transfer buffer of exactly {@code size} bytes, reused across
+     *         calls on this client by the calling thread as long as the size
+     *         does not change
+     */
+    private byte[] getStreamBuffer(int size) {
+        byte[] buffer = streamBuffer.get();
+        if (buffer == null || buffer.length != size) {
+            buffer = new byte[size];
+            streamBuffer.set(buffer);
+        }
+        return buffer;
+    }
+    
+    /**
+     * Hands the calling thread's connection back to the
+     * {@link IRODSConnectionPool}, keeping the session so the client stays
+     * usable. The next call made on this thread borrows a connection again.
+     * Threads which share a client but only use it now and then should call
+     * this when done, so they do not hold a connection each.
+     */
+    public void releaseConnection()
+    {
+        IRODSAccessObjectFactory factory = accessObjectFactory;
+        if (factory != null) {
+            try {
+                factory.closeSessionAndEatExceptions(irodsAccount);
+            } catch (Exception e) {}
+        }
+    }
+    
+    /**
+     * Close connection and invalidate session. When pooling is enabled the
+     * connection is returned to the {@link IRODSConnectionPool} rather than
+     * closed. Only the calling thread's connection is released, and the
+     * session is dropped for every thread, so a shared client should only
+     * be disconnected once its other threads are done with it.
+     */
+    public void disconnect()
+    {
+        synchronized (sessionLock) {
+            try {
+                if (accessObjectFactory != null) {
+                    accessObjectFactory.closeSessionAndEatExceptions(irodsAccount);
+                }
+            } catch (Exception e) {}
+            finally {
+                sessionValidatedAt = 0;
+                irodsSession = null;
+                accessObjectFactory = null;
+                resetAccessObjects();
+            }
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,234 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.iplantc.service.transfer.exceptions.RemoteConnectionException;
+import org.iplantc.service.transfer.exceptions.RemoteDataException;
+
+/**
+ * Circuit breaker for a single iRODS endpoint. After
+ * {@link #getFailureThreshold()} calls in a row fail because the server
+ * could not be reached, the breaker opens and every {@link IRODS4} sharing
+ * it fails fast for {@link #getOpenMillis()} instead of waiting out its own
+ * connect timeout. The first call after that window is let through as a
+ * probe while the others keep failing fast. A probe which reaches the
+ * server closes the breaker, a probe which does not opens it again.
+ * <p>
+ * Only failures the {@link IRODSErrorClassifier} puts down to connectivity
+ * count. A server which answers with an error, such as a missing file or a
+ * bad password, is up as far as the breaker is concerned. While the
+ * breaker is closed, checking it is a single volatile read.
+ */
+public class IRODSCircuitBreaker {
+
+    /** default number of consecutive connectivity failures which open the breaker */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    /** default time the breaker stays open before letting a probe through */
+    public static final long DEFAULT_OPEN_MILLIS = 30000;
+
+    /**
+     * State of the breaker.
+     */
+    public enum State {
+        /** calls go through */
+        CLOSED,
+        /** calls fail fast until the open window expires */
+        OPEN,
+        /** one probe call is testing whether the server is back */
+        HALF_OPEN
+    }
+
+    private static final ConcurrentHashMap<String, IRODSCircuitBreaker> sharedInstances = new ConcurrentHashMap<String, IRODSCircuitBreaker>();
+
+    private final String endpoint;
+    private final AtomicReference<State> state = new AtomicReference<State>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong retryAt = new AtomicLong();
+    private final AtomicLong trips = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+    private volatile long openMillis = DEFAULT_OPEN_MILLIS;
+
+    /**
+     * @param endpoint name of the endpoint used in error messages, such as {@code host:port}
+     */
+    public IRODSCircuitBreaker(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Breaker shared by every client of the same endpoint in this JVM, so
+     * one client learning a host is down spares all the others the wait.
+     *
+     * @param host the iRODS host
+     * @param port the iRODS port
+     * @return the shared {@link IRODSCircuitBreaker} for the endpoint
+     */
+    public static IRODSCircuitBreaker getSharedInstance(String host, int port) {
+        String endpoint = host + ":" + port;
+        IRODSCircuitBreaker breaker = sharedInstances.get(endpoint);
+        if (breaker == null) {
+            IRODSCircuitBreaker newBreaker = new IRODSCircuitBreaker(endpoint);
+            breaker = sharedInstances.putIfAbsent(endpoint, newBreaker);
+            if (breaker == null) {
+                breaker = newBreaker;
+            }
+        }
+        return breaker;
+    }
+
+    /**
+     * Checks the breaker before a remote call. Returns at once while the
+     * breaker is closed. Every call allowed through must be followed by
+     * {@link #recordSuccess()} or {@link #recordFailure()}, or by
+     * {@link #recordOutcome(Throwable)}.
+     *
+     * @throws RemoteConnectionException if the breaker is open, or a probe is already testing the server
+     */
+    public void beforeCall() throws RemoteDataException {
+        if (state.get() == State.CLOSED) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long due = retryAt.get();
+        if (now >= due && retryAt.compareAndSet(due, now + openMillis)) {
+            // this caller is the probe. the new deadline frees another probe
+            // if this one never reports back.
+            state.set(State.HALF_OPEN);
+            return;
+        }
+
+        rejected.incrementAndGet();
+        throw new RemoteConnectionException("Unable to contact IRODS server at " + endpoint
+                + ". Failing fast for " + Math.max(0, retryAt.get() - now)
+                + "ms after repeated connection failures.");
+    }
+
+    /**
+     * Records a call which reached the server.
+     */
+    public void recordSuccess() {
+        if (state.get() != State.CLOSED) {
+            consecutiveFailures.set(0);
+            state.set(State.CLOSED);
+        } else if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    /**
+     * Records a call which could not reach the server.
+     */
+    public void recordFailure() {
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            trip(current);
+        } else if (consecutiveFailures.incrementAndGet() >= failureThreshold && current == State.CLOSED) {
+            trip(current);
+        }
+    }
+
+    /**
+     * Records the outcome of a call, counting it as a failure only if
+     * {@code error} shows the server could not be reached.
+     *
+     * @param error the error the call raised, or null if it succeeded
+     */
+    public void recordOutcome(Throwable error) {
+        if (error != null && IRODSErrorClassifier.isConnectivityFailure(error)) {
+            recordFailure();
+        } else {
+            recordSuccess();
+        }
+    }
+
+    private void trip(State from) {
+        retryAt.set(System.currentTimeMillis() + openMillis);
+        if (state.compareAndSet(from, State.OPEN)) {
+            trips.incrementAndGet();
+        }
+    }
+
+    /**
+     * Closes the breaker and forgets past failures.
+     */
+    public void reset() {
+        consecutiveFailures.set(0);
+        retryAt.set(0);
+        state.set(State.CLOSED);
+    }
+
+    /**
+     * @return the current state of the breaker
+     */
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * @return name of the endpoint this breaker guards
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * @return number of consecutive connectivity failures seen
+     */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    /**
+     * @return number of times the breaker has opened
+     */
+    public long getTrips() {
+        return trips.get();
+    }
+
+    /**
+     * @return number of calls failed fast
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @return number of consecutive connectivity failures which open the breaker
+     */
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    /**
+     * @param failureThreshold number of consecutive connectivity failures which open the breaker
+     */
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+    }
+
+    /**
+     * @return time in milliseconds the breaker stays open before letting a probe through
+     */
+    public long getOpenMillis() {
+        return openMillis;
+    }
+
+    /**
+     * @param openMillis time in milliseconds the breaker stays open before letting a probe through
+     */
+    public void setOpenMillis(long openMillis) {
+        this.openMillis = Math.max(0, openMillis);
+    }
+
+    @Override
+    public String toString() {
+        return endpoint + " state=" + getState() + ", consecutiveFailures=" + getConsecutiveFailures()
+                + ", trips=" + getTrips() + ", rejected=" + getRejected();
+    }
+}
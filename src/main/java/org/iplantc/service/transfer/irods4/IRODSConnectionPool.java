@@ -0,0 +1,607 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.StringUtils;
+import org.irods.jargon.core.connection.AbstractIRODSMidLevelProtocol;
+import org.irods.jargon.core.connection.AuthScheme;
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.irods.jargon.core.connection.IRODSProtocolManager;
+import org.irods.jargon.core.connection.IRODSSession;
+import org.irods.jargon.core.connection.PipelineConfiguration;
+import org.irods.jargon.core.exception.AuthenticationException;
+import org.irods.jargon.core.exception.JargonException;
+import org.irods.jargon.core.packinstr.MiscSvrInfo;
+
+/**
+ * Process-wide, bounded pool of authenticated iRODS connections. The pool
+ * plugs into Jargon as an {@link IRODSProtocolManager}, so any
+ * {@link IRODSSession} built on top of it borrows a connection the first time
+ * a thread talks to the server and hands it back when the session is closed
+ * for that account. Connections are keyed by host, port, zone, user and
+ * {@link AuthScheme}, so short-lived {@link IRODS4} instances pointing at the
+ * same endpoint reuse a small set of sockets instead of re-authenticating.
+ */
+public class IRODSConnectionPool extends IRODSProtocolManager {
+
+    /** default max number of connections, active and idle, per pool key */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_KEY = 8;
+    /** default time to wait for a connection when a key is exhausted */
+    public static final long DEFAULT_MAX_WAIT_MILLIS = 30000;
+    /** default time a connection may sit idle before being evicted */
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 300000;
+    /** default interval between idle eviction runs */
+    public static final long DEFAULT_EVICTION_INTERVAL_MILLIS = 60000;
+    /** default interval between keep-alive round trips on idle connections */
+    public static final long DEFAULT_KEEP_ALIVE_INTERVAL_MILLIS = 30000;
+
+    private static class SharedInstanceHolder {
+        private static final IRODSConnectionPool INSTANCE = new IRODSConnectionPool();
+    }
+
+    private final ConcurrentHashMap<PoolKey, KeyedPool> pools = new ConcurrentHashMap<PoolKey, KeyedPool>();
+    private final ConcurrentHashMap<AbstractIRODSMidLevelProtocol, PooledConnection> leased = new ConcurrentHashMap<AbstractIRODSMidLevelProtocol, PooledConnection>();
+
+    private volatile int maxConnectionsPerKey = DEFAULT_MAX_CONNECTIONS_PER_KEY;
+    private volatile long maxWaitMillis = DEFAULT_MAX_WAIT_MILLIS;
+    private volatile long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+    private volatile long evictionIntervalMillis = DEFAULT_EVICTION_INTERVAL_MILLIS;
+    private volatile long keepAliveIntervalMillis = DEFAULT_KEEP_ALIVE_INTERVAL_MILLIS;
+    private volatile boolean validateOnBorrow = true;
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong returned = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong keepAlives = new AtomicLong();
+    private final AtomicLong keepAliveFailures = new AtomicLong();
+
+    private volatile ScheduledExecutorService evictor;
+
+    public IRODSConnectionPool() {
+        super();
+    }
+
+    /**
+     * Process-wide pool used by {@link IRODS4} unless another pool is set on
+     * the client.
+     *
+     * @return the shared {@link IRODSConnectionPool}
+     */
+    public static IRODSConnectionPool getSharedInstance() {
+        return SharedInstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Borrows an idle connection for the account, validating it first, or
+     * opens and authenticates a new one if the key has spare capacity. Blocks
+     * up to {@link #getMaxWaitMillis()} when the key is exhausted.
+     */
+    @Override
+    public AbstractIRODSMidLevelProtocol getIRODSProtocol(IRODSAccount irodsAccount,
+            PipelineConfiguration pipelineConfiguration, IRODSSession irodsSession)
+            throws AuthenticationException, JargonException
+    {
+        ensureEvictorStarted();
+
+        KeyedPool pool = getKeyedPool(new PoolKey(irodsAccount));
+        long deadline = System.currentTimeMillis() + maxWaitMillis;
+
+        while (true) {
+            PooledConnection connection = pool.idle.pollFirst();
+
+            if (connection == null) {
+                if (pool.tryReserve(maxConnectionsPerKey)) {
+                    try {
+                        connection = new PooledConnection(pool,
+                                createNewProtocol(irodsAccount, pipelineConfiguration, irodsSession));
+                        created.incrementAndGet();
+                    } catch (JargonException | RuntimeException e) {
+                        pool.release();
+                        throw e;
+                    }
+                    return lease(connection);
+                }
+
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    timeouts.incrementAndGet();
+                    throw new JargonException("Timed out after " + maxWaitMillis
+                            + "ms waiting for a pooled connection to " + pool.key);
+                }
+
+                try {
+                    // poll in short slices so capacity freed by eviction is noticed
+                    connection = pool.idle.pollFirst(Math.min(remaining, 100), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new JargonException("Interrupted waiting for a pooled connection to " + pool.key, e);
+                }
+
+                if (connection == null) {
+                    continue;
+                }
+            }
+
+            if (!validateOnBorrow || isValid(connection)) {
+                reused.incrementAndGet();
+                return lease(connection);
+            } else {
+                validationFailures.incrementAndGet();
+                destroy(connection);
+            }
+        }
+    }
+
+    /**
+     * Returns a connection to the idle queue of its key. Connections which
+     * are no longer connected, or which this pool did not lease, are shut down.
+     */
+    @Override
+    public void returnIRODSProtocol(AbstractIRODSMidLevelProtocol abstractIRODSMidLevelProtocol)
+            throws JargonException
+    {
+        if (abstractIRODSMidLevelProtocol == null) {
+            return;
+        }
+
+        PooledConnection connection = leased.remove(abstractIRODSMidLevelProtocol);
+        if (connection == null) {
+            abstractIRODSMidLevelProtocol.shutdown();
+        } else if (!abstractIRODSMidLevelProtocol.isConnected()) {
+            destroy(connection);
+        } else {
+            returned.incrementAndGet();
+            connection.lastUsedAt = System.currentTimeMillis();
+            // LIFO keeps hot connections warm and lets cold ones age out
+            connection.pool.idle.offerFirst(connection);
+        }
+    }
+
+    /**
+     * Discards a connection that failed mid-operation, freeing its slot.
+     */
+    @Override
+    public void returnWithForce(AbstractIRODSMidLevelProtocol abstractIRODSMidLevelProtocol) {
+        if (abstractIRODSMidLevelProtocol == null) {
+            return;
+        }
+
+        PooledConnection connection = leased.remove(abstractIRODSMidLevelProtocol);
+        if (connection != null) {
+            connection.pool.release();
+        }
+        abstractIRODSMidLevelProtocol.obliterateConnectionAndDiscardErrors();
+    }
+
+    /**
+     * Shuts down every idle connection and stops the eviction thread.
+     * Leased connections are closed as they are returned.
+     */
+    @Override
+    public synchronized void destroy() throws JargonException {
+        if (evictor != null) {
+            evictor.shutdownNow();
+            evictor = null;
+        }
+
+        for (KeyedPool pool : pools.values()) {
+            PooledConnection connection;
+            while ((connection = pool.idle.pollFirst()) != null) {
+                destroy(connection);
+            }
+        }
+    }
+
+    /**
+     * Closes idle connections which have not been used within
+     * {@link #getIdleTimeoutMillis()}.
+     */
+    public void evictIdleConnections() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        for (KeyedPool pool : pools.values()) {
+            Iterator<PooledConnection> iter = pool.idle.descendingIterator();
+            while (iter.hasNext()) {
+                PooledConnection connection = iter.next();
+                // remove only succeeds if no borrower grabbed it first
+                if (connection.lastUsedAt < cutoff && pool.idle.remove(connection)) {
+                    evicted.incrementAndGet();
+                    destroy(connection);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends a lightweight server info request over every idle connection
+     * that has not been checked within {@link #getKeepAliveIntervalMillis()}.
+     * This keeps firewalls from silently dropping idle sockets and finds dead
+     * connections in the background instead of on a borrower's request path.
+     * Connections are taken off the idle queue while they are checked, so a
+     * borrower never shares a socket with the keep-alive.
+     */
+    public void keepAliveIdleConnections() {
+        long cutoff = System.currentTimeMillis() - keepAliveIntervalMillis;
+        for (KeyedPool pool : pools.values()) {
+            Iterator<PooledConnection> iter = pool.idle.descendingIterator();
+            while (iter.hasNext()) {
+                PooledConnection connection = iter.next();
+                if (connection.lastValidatedAt >= cutoff || !pool.idle.remove(connection)) {
+                    continue;
+                }
+
+                try {
+                    connection.protocol.irodsFunction(MiscSvrInfo.instance());
+                    connection.lastValidatedAt = System.currentTimeMillis();
+                    keepAlives.incrementAndGet();
+                    // back of the queue, lastUsedAt untouched so eviction still applies
+                    pool.idle.offerLast(connection);
+                } catch (Exception e) {
+                    keepAliveFailures.incrementAndGet();
+                    destroy(connection);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a point in time snapshot of the pool counters.
+     */
+    public Statistics getStatistics() {
+        int idle = 0;
+        int total = 0;
+        for (KeyedPool pool : pools.values()) {
+            idle += pool.idle.size();
+            total += pool.total.get();
+        }
+
+        return new Statistics(created.get(), borrowed.get(), reused.get(), returned.get(),
+                evicted.get(), validationFailures.get(), timeouts.get(),
+                keepAlives.get(), keepAliveFailures.get(),
+                Math.max(total - idle, 0), idle);
+    }
+
+    protected boolean isValid(PooledConnection connection) {
+        return connection.protocol.isConnected();
+    }
+
+    private AbstractIRODSMidLevelProtocol lease(PooledConnection connection) {
+        borrowed.incrementAndGet();
+        connection.lastUsedAt = System.currentTimeMillis();
+        leased.put(connection.protocol, connection);
+        return connection.protocol;
+    }
+
+    private void destroy(PooledConnection connection) {
+        connection.pool.release();
+        try {
+            connection.protocol.shutdown();
+        } catch (Exception e) {
+            connection.protocol.obliterateConnectionAndDiscardErrors();
+        }
+    }
+
+    private KeyedPool getKeyedPool(PoolKey key) {
+        KeyedPool pool = pools.get(key);
+        if (pool == null) {
+            KeyedPool newPool = new KeyedPool(key);
+            pool = pools.putIfAbsent(key, newPool);
+            if (pool == null) {
+                pool = newPool;
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Starts the eviction thread on first use. Every borrow calls this, so
+     * the lock is only taken while no evictor is running.
+     */
+    private void ensureEvictorStarted() {
+        if (evictor == null) {
+            startEvictor();
+        }
+    }
+
+    private synchronized void startEvictor() {
+        if (evictor == null) {
+            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "irods-connection-pool-evictor");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        evictIdleConnections();
+                    } catch (Throwable t) {
+                        // never let the evictor die
+                    }
+                }
+            }, evictionIntervalMillis, evictionIntervalMillis, TimeUnit.MILLISECONDS);
+            
+            if (keepAliveIntervalMillis > 0) {
+                executor.scheduleWithFixedDelay(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            keepAliveIdleConnections();
+                        } catch (Throwable t) {
+                            // never let the keep-alive die
+                        }
+                    }
+                }, keepAliveIntervalMillis, keepAliveIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+            
+            // publish only once scheduled, so a borrow never sees a bare executor
+            evictor = executor;
+        }
+    }
+
+    /**
+     * @return the max number of connections, active and idle, per key
+     */
+    public int getMaxConnectionsPerKey() {
+        return maxConnectionsPerKey;
+    }
+
+    /**
+     * @param maxConnectionsPerKey the max number of connections, active and idle, per key
+     */
+    public void setMaxConnectionsPerKey(int maxConnectionsPerKey) {
+        this.maxConnectionsPerKey = Math.max(1, maxConnectionsPerKey);
+    }
+
+    /**
+     * @return the time in milliseconds to wait for a connection when a key is exhausted
+     */
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    /**
+     * @param maxWaitMillis the time in milliseconds to wait for a connection when a key is exhausted
+     */
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * @return the time in milliseconds a connection may sit idle before eviction
+     */
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    /**
+     * @param idleTimeoutMillis the time in milliseconds a connection may sit idle before eviction
+     */
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * @return the interval in milliseconds between idle eviction runs
+     */
+    public long getEvictionIntervalMillis() {
+        return evictionIntervalMillis;
+    }
+
+    /**
+     * Sets the eviction interval. Takes effect the next time the evictor is
+     * started, ie. after {@link #destroy()}.
+     *
+     * @param evictionIntervalMillis the interval in milliseconds between idle eviction runs
+     */
+    public void setEvictionIntervalMillis(long evictionIntervalMillis) {
+        this.evictionIntervalMillis = Math.max(1, evictionIntervalMillis);
+    }
+
+    /**
+     * @return the interval in milliseconds between keep-alive round trips on idle connections
+     */
+    public long getKeepAliveIntervalMillis() {
+        return keepAliveIntervalMillis;
+    }
+
+    /**
+     * Sets the keep-alive interval. A value of zero or less disables the
+     * background keep-alive. Takes effect the next time the evictor is
+     * started, ie. after {@link #destroy()}.
+     *
+     * @param keepAliveIntervalMillis the interval in milliseconds between keep-alive round trips
+     */
+    public void setKeepAliveIntervalMillis(long keepAliveIntervalMillis) {
+        this.keepAliveIntervalMillis = keepAliveIntervalMillis;
+    }
+
+    /**
+     * @return true if idle connections are validated before being handed out
+     */
+    public boolean isValidateOnBorrow() {
+        return validateOnBorrow;
+    }
+
+    /**
+     * @param validateOnBorrow true if idle connections should be validated before being handed out
+     */
+    public void setValidateOnBorrow(boolean validateOnBorrow) {
+        this.validateOnBorrow = validateOnBorrow;
+    }
+
+    /**
+     * Identity of a pooled connection. The password takes part in equality
+     * so a client with bad credentials never rides on another client's
+     * authenticated socket, but it is never rendered.
+     */
+    static final class PoolKey {
+        private final String host;
+        private final int port;
+        private final String zone;
+        private final String username;
+        private final AuthScheme authScheme;
+        private final String password;
+
+        PoolKey(IRODSAccount account) {
+            this.host = account.getHost();
+            this.port = account.getPort();
+            this.zone = account.getZone();
+            this.username = account.getUserName();
+            this.authScheme = account.getAuthenticationScheme();
+            this.password = account.getPassword();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof PoolKey)) return false;
+            PoolKey other = (PoolKey) o;
+            return port == other.port
+                    && StringUtils.equals(host, other.host)
+                    && StringUtils.equals(zone, other.zone)
+                    && StringUtils.equals(username, other.username)
+                    && authScheme == other.authScheme
+                    && StringUtils.equals(password, other.password);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = host == null ? 0 : host.hashCode();
+            result = 31 * result + port;
+            result = 31 * result + (zone == null ? 0 : zone.hashCode());
+            result = 31 * result + (username == null ? 0 : username.hashCode());
+            result = 31 * result + (authScheme == null ? 0 : authScheme.hashCode());
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return username + "#" + zone + "@" + host + ":" + port + " (" + authScheme + ")";
+        }
+    }
+
+    /**
+     * Idle connections and capacity accounting for a single {@link PoolKey}.
+     */
+    static final class KeyedPool {
+        final PoolKey key;
+        final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<PooledConnection>();
+        final AtomicInteger total = new AtomicInteger();
+
+        KeyedPool(PoolKey key) {
+            this.key = key;
+        }
+
+        boolean tryReserve(int max) {
+            while (true) {
+                int current = total.get();
+                if (current >= max) {
+                    return false;
+                }
+                if (total.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void release() {
+            total.decrementAndGet();
+        }
+    }
+
+    /**
+     * A physical connection along with its bookkeeping.
+     */
+    static final class PooledConnection {
+        final KeyedPool pool;
+        final AbstractIRODSMidLevelProtocol protocol;
+        final long createdAt = System.currentTimeMillis();
+        volatile long lastUsedAt = createdAt;
+        volatile long lastValidatedAt = createdAt;
+
+        PooledConnection(KeyedPool pool, AbstractIRODSMidLevelProtocol protocol) {
+            this.pool = pool;
+            this.protocol = protocol;
+        }
+    }
+
+    /**
+     * Immutable snapshot of pool activity.
+     */
+    public static final class Statistics {
+        private final long created;
+        private final long borrowed;
+        private final long reused;
+        private final long returned;
+        private final long evicted;
+        private final long validationFailures;
+        private final long timeouts;
+        private final long keepAlives;
+        private final long keepAliveFailures;
+        private final int active;
+        private final int idle;
+
+        Statistics(long created, long borrowed, long reused, long returned, long evicted,
+                long validationFailures, long timeouts, long keepAlives, long keepAliveFailures,
+                int active, int idle) {
+            this.created = created;
+            this.borrowed = borrowed;
+            this.reused = reused;
+            this.returned = returned;
+            this.evicted = evicted;
+            this.validationFailures = validationFailures;
+            this.timeouts = timeouts;
+            this.keepAlives = keepAlives;
+            this.keepAliveFailures = keepAliveFailures;
+            this.active = active;
+            this.idle = idle;
+        }
+
+        /** @return number of physical connections opened */
+        public long getCreated() { return created; }
+        /** @return number of times a connection was handed out */
+        public long getBorrowed() { return borrowed; }
+        /** @return number of borrows satisfied by an idle connection */
+        public long getReused() { return reused; }
+        /** @return number of connections handed back */
+        public long getReturned() { return returned; }
+        /** @return number of idle connections closed by eviction */
+        public long getEvicted() { return evicted; }
+        /** @return number of idle connections that failed validation on borrow */
+        public long getValidationFailures() { return validationFailures; }
+        /** @return number of borrows that timed out on an exhausted key */
+        public long getTimeouts() { return timeouts; }
+        /** @return number of successful keep-alive round trips on idle connections */
+        public long getKeepAlives() { return keepAlives; }
+        /** @return number of idle connections closed after a failed keep-alive */
+        public long getKeepAliveFailures() { return keepAliveFailures; }
+        /** @return connections currently leased */
+        public int getActive() { return active; }
+        /** @return connections currently idle */
+        public int getIdle() { return idle; }
+
+        @Override
+        public String toString() {
+            return "created=" + created + ", borrowed=" + borrowed + ", reused=" + reused
+                    + ", returned=" + returned + ", evicted=" + evicted
+                    + ", validationFailures=" + validationFailures + ", timeouts=" + timeouts
+                    + ", keepAlives=" + keepAlives + ", keepAliveFailures=" + keepAliveFailures
+                    + ", active=" + active + ", idle=" + idle;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.EOFException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import javax.net.ssl.SSLException;
+
+import org.iplantc.service.transfer.exceptions.RemoteAuthenticationException;
+import org.iplantc.service.transfer.exceptions.RemoteConnectionException;
+import org.iplantc.service.transfer.exceptions.RemoteDataException;
+import org.iplantc.service.transfer.exceptions.RemotePermissionException;
+import org.irods.jargon.core.exception.AuthenticationException;
+import org.irods.jargon.core.exception.CatNoAccessException;
+import org.irods.jargon.core.exception.DataNotFoundException;
+import org.irods.jargon.core.exception.DuplicateDataException;
+import org.irods.jargon.core.exception.FileNotFoundException;
+import org.irods.jargon.core.exception.JargonException;
+import org.irods.jargon.core.exception.JargonFileOrCollAlreadyExistsException;
+
+/**
+ * Sorts the errors raised by Jargon into a few {@link Category categories}
+ * by exception type, iRODS error code and the socket exceptions in the
+ * cause chain, never by message text. Each category knows whether the
+ * failed call is worth retrying and which {@link RemoteDataException}
+ * subclass reports it.
+ */
+public final class IRODSErrorClassifier {
+
+    /** iRODS error code for a catalog entry which already exists */
+    public static final int CATALOG_ALREADY_HAS_ITEM_BY_THAT_NAME = -809000;
+
+    /**
+     * What kind of failure an error represents.
+     */
+    public enum Category {
+        /** the path does not exist */
+        NOT_FOUND(false),
+        /** the path already exists, usually a benign outcome */
+        ALREADY_EXISTS(false),
+        /** the user may not perform the operation */
+        PERMISSION_DENIED(false),
+        /** the credentials were rejected */
+        AUTHENTICATION(false),
+        /** the server's certificate could not be verified */
+        SSL(false),
+        /** the server could not be reached or the connection dropped */
+        CONNECTION(true),
+        /** any other error reported by the server */
+        SERVER(false);
+
+        private final boolean retryable;
+
+        private Category(boolean retryable) {
+            this.retryable = retryable;
+        }
+
+        /**
+         * @return true if a call failing this way may succeed when tried again
+         */
+        public boolean isRetryable() {
+            return retryable;
+        }
+    }
+
+    private IRODSErrorClassifier() {}
+
+    /**
+     * Classifies an error by the first exception in its cause chain which
+     * says what went wrong.
+     *
+     * @param error the error to classify
+     * @return the category of the error, {@link Category#SERVER} if nothing more specific applies
+     */
+    public static Category classify(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            Category category = classifyOne(cause);
+            if (category != null) {
+                return category;
+            }
+        }
+        return Category.SERVER;
+    }
+
+    private static Category classifyOne(Throwable error) {
+        if (error instanceof JargonException) {
+            if (error instanceof FileNotFoundException || error instanceof DataNotFoundException) {
+                return Category.NOT_FOUND;
+            } else if (error instanceof DuplicateDataException || error instanceof JargonFileOrCollAlreadyExistsException) {
+                return Category.ALREADY_EXISTS;
+            } else if (error instanceof CatNoAccessException) {
+                return Category.PERMISSION_DENIED;
+            } else if (error instanceof AuthenticationException) {
+                return Category.AUTHENTICATION;
+            }
+            return classifyErrorCode(((JargonException)error).getUnderlyingIRODSExceptionCode());
+        } else if (error instanceof SSLException) {
+            return Category.SSL;
+        } else if (error instanceof SocketException
+                || error instanceof SocketTimeoutException
+                || error instanceof UnknownHostException
+                || error instanceof EOFException) {
+            return Category.CONNECTION;
+        } else if (error instanceof RemoteConnectionException) {
+            return Category.CONNECTION;
+        } else if (error instanceof RemotePermissionException) {
+            return Category.PERMISSION_DENIED;
+        } else if (error instanceof RemoteAuthenticationException) {
+            return Category.AUTHENTICATION;
+        }
+        return null;
+    }
+
+    /**
+     * @param code an iRODS error code, with or without its errno
+     * @return the category of the code, or null if it is not one this class knows
+     */
+    public static Category classifyErrorCode(int code) {
+        switch (normalizeErrorCode(code)) {
+            case CATALOG_ALREADY_HAS_ITEM_BY_THAT_NAME:
+            case -812000:   // CAT_NAME_EXISTS_AS_COLLECTION
+            case -813000:   // CAT_NAME_EXISTS_AS_DATAOBJ
+                return Category.ALREADY_EXISTS;
+            case -808000:   // CAT_NO_ROWS_FOUND
+            case -814000:   // CAT_UNKNOWN_COLLECTION
+            case -817000:   // CAT_UNKNOWN_FILE
+            case -310000:   // USER_FILE_DOES_NOT_EXIST
+                return Category.NOT_FOUND;
+            case -818000:   // CAT_NO_ACCESS_PERMISSION
+                return Category.PERMISSION_DENIED;
+            case -826000:   // CAT_INVALID_AUTHENTICATION
+            case -827000:   // CAT_INVALID_USER
+            case -840000:   // CAT_PASSWORD_EXPIRED
+                return Category.AUTHENTICATION;
+            case -4000:     // SYS_HEADER_READ_LEN_ERR
+            case -5000:     // SYS_HEADER_WRITE_LEN_ERR
+            case -115000:   // SYS_SOCK_READ_TIMEDOUT
+            case -116000:   // SYS_SOCK_READ_ERR
+            case -304000:   // USER_SOCK_OPEN_ERR
+            case -305000:   // USER_SOCK_CONNECT_ERR
+            case -347000:   // USER_SOCK_CONNECT_TIMEDOUT
+                return Category.CONNECTION;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Strips the errno iRODS folds into the last three digits of its codes,
+     * so {@code -809002} and {@code -809000} compare equal.
+     *
+     * @param code an iRODS error code
+     * @return the code without its errno
+     */
+    public static int normalizeErrorCode(int code) {
+        return code / 1000 * 1000;
+    }
+
+    /**
+     * Cheap check for the benign outcome of creating something which is
+     * already there. Only the exception type and error code are looked at.
+     *
+     * @param e the exception raised by Jargon
+     * @return true if the target already exists
+     */
+    public static boolean isAlreadyExists(JargonException e) {
+        return e instanceof DuplicateDataException
+                || e instanceof JargonFileOrCollAlreadyExistsException
+                || classifyErrorCode(e.getUnderlyingIRODSExceptionCode()) == Category.ALREADY_EXISTS;
+    }
+
+    /**
+     * @param error the error to check
+     * @return true if the server could not be reached or the connection dropped
+     */
+    public static boolean isConnectivityFailure(Throwable error) {
+        return classify(error) == Category.CONNECTION;
+    }
+
+    /**
+     * Whether the call which raised {@code error} may succeed when tried
+     * again. A {@link RemoteDataException} which reports itself retryable is
+     * trusted, otherwise the cause chain is classified.
+     *
+     * @param error the error to check
+     * @return true if retrying may help
+     */
+    public static boolean isRetryable(Throwable error) {
+        if (error instanceof RemoteDataException && ((RemoteDataException)error).isRetryable()) {
+            return true;
+        }
+        return classify(error).isRetryable();
+    }
+
+    /**
+     * Wraps an error in the {@link RemoteDataException} subclass for its
+     * category. Missing paths are not mapped here, since callers report
+     * those as {@link java.io.FileNotFoundException}.
+     *
+     * @param message the message of the new exception
+     * @param error the error to wrap
+     * @return a {@link RemoteConnectionException}, {@link RemoteAuthenticationException},
+     *         {@link RemotePermissionException} or plain {@link RemoteDataException}
+     */
+    public static RemoteDataException toRemoteDataException(String message, Throwable error) {
+        return toRemoteDataException(message, error, classify(error));
+    }
+
+    /**
+     * Wraps an error already classified by the caller.
+     *
+     * @param message the message of the new exception
+     * @param error the error to wrap
+     * @param category the category of {@code error}
+     * @return the {@link RemoteDataException} subclass for the category
+     * @see #toRemoteDataException(String, Throwable)
+     */
+    public static RemoteDataException toRemoteDataException(String message, Throwable error, Category category) {
+        switch (category) {
+            case CONNECTION:
+                return new RemoteConnectionException(message, error);
+            case AUTHENTICATION:
+            case SSL:
+                return new RemoteAuthenticationException(message, error);
+            case PERMISSION_DENIED:
+                return new RemotePermissionException(message, error);
+            default:
+                return new RemoteDataException(message, error);
+        }
+    }
+}
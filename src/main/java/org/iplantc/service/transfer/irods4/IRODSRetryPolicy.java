@@ -0,0 +1,204 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How an {@link IRODS4} client retries idempotent calls which fail for a
+ * reason the {@link IRODSErrorClassifier} considers transient, such as a
+ * dropped connection. Between attempts the client waits an exponentially
+ * growing backoff, less a random share of it so clients which failed
+ * together do not all come back at once, and then opens a new connection.
+ * <p>
+ * Each {@link Operation} uses this policy unless an override is set for it
+ * with {@link #setOverride(Operation, IRODSRetryPolicy)}.
+ */
+public class IRODSRetryPolicy {
+
+    /** default number of attempts, including the first */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    /** default wait before the first retry */
+    public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 250;
+    /** default longest wait between attempts */
+    public static final long DEFAULT_MAX_BACKOFF_MILLIS = 10000;
+    /** default factor the wait grows by after each retry */
+    public static final double DEFAULT_BACKOFF_MULTIPLIER = 2.0;
+    /** default share of each wait which is randomized */
+    public static final double DEFAULT_JITTER = 0.5;
+
+    /**
+     * The idempotent calls the policy applies to.
+     */
+    public enum Operation {
+        /** metadata lookups such as {@link IRODS4#doesExist(String)} */
+        STAT,
+        /** {@link IRODS4#mkdirs(String)} */
+        MKDIRS,
+        /** uploads of local files with {@link IRODS4#put(java.io.File, String)} */
+        PUT
+    }
+
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private long initialBackoffMillis = DEFAULT_INITIAL_BACKOFF_MILLIS;
+    private long maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+    private double backoffMultiplier = DEFAULT_BACKOFF_MULTIPLIER;
+    private double jitter = DEFAULT_JITTER;
+    private final Map<Operation, IRODSRetryPolicy> overrides = new EnumMap<Operation, IRODSRetryPolicy>(Operation.class);
+
+    public IRODSRetryPolicy() {}
+
+    /**
+     * Copy constructor. Overrides are copied as well.
+     *
+     * @param policy the policy to copy
+     */
+    public IRODSRetryPolicy(IRODSRetryPolicy policy) {
+        this.maxAttempts = policy.maxAttempts;
+        this.initialBackoffMillis = policy.initialBackoffMillis;
+        this.maxBackoffMillis = policy.maxBackoffMillis;
+        this.backoffMultiplier = policy.backoffMultiplier;
+        this.jitter = policy.jitter;
+        for (Map.Entry<Operation, IRODSRetryPolicy> override: policy.overrides.entrySet()) {
+            this.overrides.put(override.getKey(), new IRODSRetryPolicy(override.getValue()));
+        }
+    }
+
+    /**
+     * @return a policy which never retries
+     */
+    public static IRODSRetryPolicy noRetries() {
+        IRODSRetryPolicy policy = new IRODSRetryPolicy();
+        policy.setMaxAttempts(1);
+        return policy;
+    }
+
+    /**
+     * @param operation the operation being retried
+     * @return the override for {@code operation}, or this policy if none is set
+     */
+    public IRODSRetryPolicy getPolicy(Operation operation) {
+        IRODSRetryPolicy override = overrides.get(operation);
+        return override == null ? this : override;
+    }
+
+    /**
+     * @param operation the operation
+     * @return the override for {@code operation}, or null if none is set
+     */
+    public IRODSRetryPolicy getOverride(Operation operation) {
+        return overrides.get(operation);
+    }
+
+    /**
+     * Sets the policy used for {@code operation} in place of this one. The
+     * override's own overrides are ignored.
+     *
+     * @param operation the operation
+     * @param policy the policy to use, or null to use this one again
+     */
+    public void setOverride(Operation operation, IRODSRetryPolicy policy) {
+        if (policy == null) {
+            overrides.remove(operation);
+        } else {
+            overrides.put(operation, policy);
+        }
+    }
+
+    /**
+     * @param error the error a call failed with
+     * @return true if the call may succeed when tried again
+     */
+    public boolean isRetryable(Throwable error) {
+        return IRODSErrorClassifier.isRetryable(error);
+    }
+
+    /**
+     * Time to wait after the given number of failed attempts. The wait
+     * starts at {@link #getInitialBackoffMillis()}, grows by
+     * {@link #getBackoffMultiplier()} after each retry up to
+     * {@link #getMaxBackoffMillis()}, and is then cut by a random amount of
+     * at most {@link #getJitter()} of itself.
+     *
+     * @param failedAttempts number of attempts which have failed, at least 1
+     * @return the time to wait in milliseconds
+     */
+    public long getBackoffMillis(int failedAttempts) {
+        double backoff = Math.min((double)maxBackoffMillis,
+                initialBackoffMillis * Math.pow(backoffMultiplier, Math.max(0, failedAttempts - 1)));
+        if (jitter > 0) {
+            backoff -= backoff * jitter * ThreadLocalRandom.current().nextDouble();
+        }
+        return (long)backoff;
+    }
+
+    /**
+     * @return number of attempts, including the first
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @param maxAttempts number of attempts, including the first. 1 disables retries.
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /**
+     * @return wait in milliseconds before the first retry
+     */
+    public long getInitialBackoffMillis() {
+        return initialBackoffMillis;
+    }
+
+    /**
+     * @param initialBackoffMillis wait in milliseconds before the first retry
+     */
+    public void setInitialBackoffMillis(long initialBackoffMillis) {
+        this.initialBackoffMillis = Math.max(0, initialBackoffMillis);
+    }
+
+    /**
+     * @return longest wait in milliseconds between attempts
+     */
+    public long getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    /**
+     * @param maxBackoffMillis longest wait in milliseconds between attempts
+     */
+    public void setMaxBackoffMillis(long maxBackoffMillis) {
+        this.maxBackoffMillis = Math.max(0, maxBackoffMillis);
+    }
+
+    /**
+     * @return factor the wait grows by after each retry
+     */
+    public double getBackoffMultiplier() {
+        return backoffMultiplier;
+    }
+
+    /**
+     * @param backoffMultiplier factor the wait grows by after each retry. 1 keeps it constant.
+     */
+    public void setBackoffMultiplier(double backoffMultiplier) {
+        this.backoffMultiplier = Math.max(1.0, backoffMultiplier);
+    }
+
+    /**
+     * @return share of each wait which is randomized, between 0 and 1
+     */
+    public double getJitter() {
+        return jitter;
+    }
+
+    /**
+     * @param jitter share of each wait which is randomized, between 0 and 1. 0 disables jitter.
+     */
+    public void setJitter(double jitter) {
+        this.jitter = Math.min(1.0, Math.max(0.0, jitter));
+    }
+}
@@ -0,0 +1,154 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+import org.irods.jargon.core.pub.io.IRODSRandomAccessFile;
+
+/**
+ * Read-only {@link SeekableByteChannel} over an open iRODS data object
+ * handle. The handle stays open for the life of the channel, so each read is
+ * a single server round trip, plus one seek when the read does not continue
+ * where the previous one stopped. Reads go straight into the caller's buffer
+ * when it is backed by an array; direct buffers are filled through a scratch
+ * array allocated once per channel.
+ */
+public class IRODSSeekableByteChannel implements SeekableByteChannel {
+    
+    private final IRODSRandomAccessFile randomAccessFile;
+    private final long size;
+    private long position = 0;
+    private long remotePosition = 0;
+    private byte[] scratch;
+    private boolean open = true;
+    
+    /**
+     * @param randomAccessFile open handle on the data object, owned by this channel
+     * @param size size of the data object in bytes
+     */
+    public IRODSSeekableByteChannel(IRODSRandomAccessFile randomAccessFile, long size) {
+        this.randomAccessFile = randomAccessFile;
+        this.size = size;
+    }
+    
+    /**
+     * Reads from the current position into {@code dst}, continuing until the
+     * buffer is full or the end of the object is reached.
+     * 
+     * @return number of bytes read, or -1 if the position is at or past the end
+     */
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (!dst.hasRemaining()) {
+            return 0;
+        } else if (position >= size) {
+            return -1;
+        }
+        
+        if (remotePosition != position) {
+            randomAccessFile.seek(position);
+            remotePosition = position;
+        }
+        
+        int total = 0;
+        while (dst.hasRemaining()) {
+            int read;
+            if (dst.hasArray()) {
+                read = randomAccessFile.read(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+                if (read > 0) {
+                    dst.position(dst.position() + read);
+                }
+            } else {
+                int length = (int)Math.min(dst.remaining(), getScratch(dst.remaining()).length);
+                read = randomAccessFile.read(scratch, 0, length);
+                if (read > 0) {
+                    dst.put(scratch, 0, read);
+                }
+            }
+            
+            if (read <= 0) {
+                break;
+            }
+            total += read;
+            position += read;
+            remotePosition += read;
+        }
+        
+        return total == 0 ? -1 : total;
+    }
+    
+    /**
+     * Channels are read-only.
+     * 
+     * @throws NonWritableChannelException always
+     */
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        throw new NonWritableChannelException();
+    }
+    
+    @Override
+    public long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+    
+    /**
+     * Moves the read position. No remote call is made until the next read.
+     */
+    @Override
+    public SeekableByteChannel position(long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Position cannot be negative");
+        }
+        position = newPosition;
+        return this;
+    }
+    
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return size;
+    }
+    
+    /**
+     * Channels are read-only.
+     * 
+     * @throws NonWritableChannelException always
+     */
+    @Override
+    public SeekableByteChannel truncate(long size) throws IOException {
+        throw new NonWritableChannelException();
+    }
+    
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (open) {
+            open = false;
+            randomAccessFile.close();
+        }
+    }
+    
+    private void ensureOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+    
+    private byte[] getScratch(int wanted) {
+        if (scratch == null) {
+            scratch = new byte[Math.min(Math.max(wanted, 8192), IRODS4.DEFAULT_STREAM_BUFFER_SIZE)];
+        }
+        return scratch;
+    }
+}
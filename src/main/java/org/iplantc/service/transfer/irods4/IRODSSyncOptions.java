@@ -0,0 +1,63 @@
+package org.iplantc.service.transfer.irods4;
+
+/**
+ * Settings for {@link IRODS4#sync(java.io.File, String, IRODSSyncOptions)}.
+ * By default a sync compares files by size and modification time, uploads
+ * one file at a time, and leaves remote files with no local counterpart alone.
+ */
+public class IRODSSyncOptions {
+
+    private boolean compareChecksums = false;
+    private boolean deleteOrphans = false;
+    private int concurrency = 1;
+
+    public IRODSSyncOptions() {}
+
+    /**
+     * @return true if files of equal size are compared by checksum rather
+     *         than modification time
+     */
+    public boolean isCompareChecksums() {
+        return compareChecksums;
+    }
+
+    /**
+     * When enabled, files of equal size are compared by checksum rather than
+     * modification time. This costs a local read and a server checksum per
+     * file of unchanged size, but catches edits which keep the size and
+     * ignores touches which keep the content.
+     *
+     * @param compareChecksums true to compare files of equal size by checksum
+     */
+    public void setCompareChecksums(boolean compareChecksums) {
+        this.compareChecksums = compareChecksums;
+    }
+
+    /**
+     * @return true if remote files and collections with no local counterpart are deleted
+     */
+    public boolean isDeleteOrphans() {
+        return deleteOrphans;
+    }
+
+    /**
+     * @param deleteOrphans true to delete remote files and collections with no local counterpart
+     */
+    public void setDeleteOrphans(boolean deleteOrphans) {
+        this.deleteOrphans = deleteOrphans;
+    }
+
+    /**
+     * @return number of files uploaded at once
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * @param concurrency number of files uploaded at once
+     */
+    public void setConcurrency(int concurrency) {
+        this.concurrency = Math.max(1, concurrency);
+    }
+}
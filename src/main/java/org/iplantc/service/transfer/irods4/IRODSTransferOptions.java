@@ -0,0 +1,231 @@
+package org.iplantc.service.transfer.irods4;
+
+import org.irods.jargon.core.packinstr.TransferOptions;
+import org.irods.jargon.core.packinstr.TransferOptions.ForceOption;
+
+/**
+ * Tuning knobs for a single transfer, or the defaults for every transfer made
+ * by an {@link IRODS4} client. Any numeric value left at zero falls back to
+ * the Jargon properties of the session, so only the settings which matter to
+ * the caller need to be set.
+ */
+public class IRODSTransferOptions {
+
+    /**
+     * When, if ever, a checksum is computed on the server after a transfer.
+     */
+    public enum ChecksumPolicy {
+        /** do not compute a checksum */
+        NONE,
+        /** have the server compute and register a checksum */
+        COMPUTE,
+        /** have the server compute a checksum and verify it against the local file */
+        VERIFY
+    }
+
+    /**
+     * What to do when the target of a transfer already exists.
+     */
+    public enum OverwritePolicy {
+        /** replace the existing target */
+        OVERWRITE(ForceOption.USE_FORCE),
+        /** fail the transfer */
+        FAIL(ForceOption.NO_FORCE),
+        /** ask the transfer listener */
+        ASK_LISTENER(ForceOption.ASK_CALLBACK_LISTENER);
+
+        private final ForceOption forceOption;
+
+        private OverwritePolicy(ForceOption forceOption) {
+            this.forceOption = forceOption;
+        }
+
+        /**
+         * @return the Jargon {@link ForceOption} for this policy
+         */
+        public ForceOption getForceOption() {
+            return forceOption;
+        }
+    }
+
+    private int parallelThreads = 0;
+    private int putBufferSize = 0;
+    private int getBufferSize = 0;
+    private long largeFileThreshold = 0;
+    private ChecksumPolicy checksumPolicy = ChecksumPolicy.NONE;
+    private OverwritePolicy overwritePolicy = OverwritePolicy.OVERWRITE;
+    private TransferProgressSink progressSink;
+    private int progressUpdatesPerSecond = TransferProgressTracker.DEFAULT_UPDATES_PER_SECOND;
+
+    public IRODSTransferOptions() {}
+
+    /**
+     * Copy constructor.
+     *
+     * @param options the options to copy
+     */
+    public IRODSTransferOptions(IRODSTransferOptions options) {
+        this.parallelThreads = options.parallelThreads;
+        this.putBufferSize = options.putBufferSize;
+        this.getBufferSize = options.getBufferSize;
+        this.largeFileThreshold = options.largeFileThreshold;
+        this.checksumPolicy = options.checksumPolicy;
+        this.overwritePolicy = options.overwritePolicy;
+        this.progressSink = options.progressSink;
+        this.progressUpdatesPerSecond = options.progressUpdatesPerSecond;
+    }
+
+    /**
+     * Applies these options to the Jargon {@link TransferOptions} of a
+     * transfer control block.
+     *
+     * @param transferOptions the Jargon options to update
+     * @return the updated {@code transferOptions}
+     */
+    public TransferOptions applyTo(TransferOptions transferOptions) {
+        if (parallelThreads > 0) {
+            transferOptions.setMaxThreads(parallelThreads);
+            transferOptions.setUseParallelTransfer(parallelThreads > 1);
+        }
+        transferOptions.setComputeChecksumAfterTransfer(checksumPolicy == ChecksumPolicy.COMPUTE);
+        transferOptions.setComputeAndVerifyChecksumAfterTransfer(checksumPolicy == ChecksumPolicy.VERIFY);
+        transferOptions.setForceOption(overwritePolicy.getForceOption());
+        transferOptions.setIntraFileStatusCallbacks(progressSink != null);
+
+        return transferOptions;
+    }
+
+    /**
+     * @return true if any setting requires the session Jargon properties to change
+     */
+    public boolean hasPropertyOverrides() {
+        return parallelThreads > 0 || putBufferSize > 0 || getBufferSize > 0 || largeFileThreshold > 0;
+    }
+
+    /**
+     * @return true if any setting can only be applied through the session
+     *         Jargon properties, rather than the transfer control block of
+     *         the call
+     */
+    public boolean hasSessionWideSettings() {
+        return putBufferSize > 0 || getBufferSize > 0 || largeFileThreshold > 0;
+    }
+
+    /**
+     * @return the max number of parallel streams used for large files, 0 for the session default
+     */
+    public int getParallelThreads() {
+        return parallelThreads;
+    }
+
+    /**
+     * @param parallelThreads the max number of parallel streams used for large files.
+     * 1 disables parallel transfer, 0 uses the session default.
+     */
+    public void setParallelThreads(int parallelThreads) {
+        this.parallelThreads = Math.max(0, parallelThreads);
+    }
+
+    /**
+     * @return the buffer size in bytes used for uploads, 0 for the session default
+     */
+    public int getPutBufferSize() {
+        return putBufferSize;
+    }
+
+    /**
+     * @param putBufferSize the buffer size in bytes used for uploads, 0 for the session default
+     */
+    public void setPutBufferSize(int putBufferSize) {
+        this.putBufferSize = Math.max(0, putBufferSize);
+    }
+
+    /**
+     * @return the buffer size in bytes used for downloads, 0 for the session default
+     */
+    public int getGetBufferSize() {
+        return getBufferSize;
+    }
+
+    /**
+     * @param getBufferSize the buffer size in bytes used for downloads, 0 for the session default
+     */
+    public void setGetBufferSize(int getBufferSize) {
+        this.getBufferSize = Math.max(0, getBufferSize);
+    }
+
+    /**
+     * @return the size in bytes above which a file is sent over parallel streams, 0 for the session default
+     */
+    public long getLargeFileThreshold() {
+        return largeFileThreshold;
+    }
+
+    /**
+     * @param largeFileThreshold the size in bytes above which a file is sent over parallel streams, 0 for the session default
+     */
+    public void setLargeFileThreshold(long largeFileThreshold) {
+        this.largeFileThreshold = Math.max(0, largeFileThreshold);
+    }
+
+    /**
+     * @return when a checksum is computed after transfer
+     */
+    public ChecksumPolicy getChecksumPolicy() {
+        return checksumPolicy;
+    }
+
+    /**
+     * @param checksumPolicy when a checksum is computed after transfer
+     */
+    public void setChecksumPolicy(ChecksumPolicy checksumPolicy) {
+        this.checksumPolicy = checksumPolicy == null ? ChecksumPolicy.NONE : checksumPolicy;
+    }
+
+    /**
+     * @return what to do when the target already exists
+     */
+    public OverwritePolicy getOverwritePolicy() {
+        return overwritePolicy;
+    }
+
+    /**
+     * @param overwritePolicy what to do when the target already exists
+     */
+    public void setOverwritePolicy(OverwritePolicy overwritePolicy) {
+        this.overwritePolicy = overwritePolicy == null ? OverwritePolicy.OVERWRITE : overwritePolicy;
+    }
+
+    /**
+     * @return the sink progress updates are delivered to, or null if progress is not reported
+     */
+    public TransferProgressSink getProgressSink() {
+        return progressSink;
+    }
+
+    /**
+     * Sets the sink progress updates are delivered to. Setting a sink turns
+     * on Jargon's intra-file status callbacks so large files report progress
+     * as they go.
+     *
+     * @param progressSink the sink to deliver updates to, or null to not report progress
+     */
+    public void setProgressSink(TransferProgressSink progressSink) {
+        this.progressSink = progressSink;
+    }
+
+    /**
+     * @return the most progress updates the sink will see per second
+     */
+    public int getProgressUpdatesPerSecond() {
+        return progressUpdatesPerSecond;
+    }
+
+    /**
+     * @param progressUpdatesPerSecond the most progress updates the sink will see per second
+     */
+    public void setProgressUpdatesPerSecond(int progressUpdatesPerSecond) {
+        this.progressUpdatesPerSecond = progressUpdatesPerSecond < 1 ?
+                TransferProgressTracker.DEFAULT_UPDATES_PER_SECOND : progressUpdatesPerSecond;
+    }
+}
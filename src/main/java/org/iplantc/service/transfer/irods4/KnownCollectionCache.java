@@ -0,0 +1,116 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, time limited set of absolute iRODS collection paths known to
+ * exist, evicting approximately the least recently used paths first.
+ * {@link IRODS4} fills it from successful {@code mkdir}, {@code mkdirs} and
+ * {@code stat} calls and clears entries when it deletes a collection, so
+ * uploads into a collection it has already confirmed skip the existence check
+ * and create calls entirely.
+ * <p>
+ * Entries are only as fresh as their time to live, since collections removed
+ * by other clients are not seen. A failed upload into a cached collection
+ * drops it from the cache and is tried once more, which recreates it. The
+ * cache is off unless set with {@link IRODS4#setKnownCollections(KnownCollectionCache)}.
+ * Checks take no lock, so threads sharing a client do not wait on one
+ * another to read it.
+ */
+public class KnownCollectionCache {
+
+    /** default max number of cached collections */
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+    /** default time in milliseconds an entry is trusted */
+    public static final long DEFAULT_TTL_MILLIS = 60000;
+
+    private final long ttlMillis;
+    private final ConcurrentLruMap<Boolean> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public KnownCollectionCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS);
+    }
+
+    /**
+     * @param maxEntries max number of cached collections before the least
+     *            recently used ones are evicted
+     * @param ttlMillis time in milliseconds an entry is trusted
+     */
+    public KnownCollectionCache(int maxEntries, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.entries = new ConcurrentLruMap<Boolean>(maxEntries);
+    }
+
+    /**
+     * @param absolutePath absolute path on the remote system, without trailing slash
+     * @return true if the collection was confirmed to exist within the time to live
+     */
+    public boolean contains(String absolutePath) {
+        ConcurrentLruMap.Entry<Boolean> entry = entries.get(absolutePath);
+        if (entry != null) {
+            if (!entry.isExpired(ttlMillis)) {
+                hits.incrementAndGet();
+                return true;
+            }
+            entries.remove(absolutePath, entry);
+        }
+        misses.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Records a collection as existing. When {@code includeAncestors} is set,
+     * every collection above it is recorded as well, since they must exist too.
+     *
+     * @param absolutePath absolute path on the remote system, without trailing slash
+     * @param includeAncestors true to record the parent collections as well
+     */
+    public void add(String absolutePath, boolean includeAncestors) {
+        String path = absolutePath;
+        do {
+            entries.put(path, Boolean.TRUE);
+            int idx = path.lastIndexOf('/');
+            path = idx > 0 ? path.substring(0, idx) : null;
+        } while (includeAncestors && path != null);
+    }
+
+    /**
+     * Forgets a collection along with every cached collection beneath it.
+     *
+     * @param absolutePath absolute path on the remote system, without trailing slash
+     */
+    public void removeTree(String absolutePath) {
+        entries.removeTree(absolutePath);
+    }
+
+    /**
+     * Empties the cache. Counters are left intact.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return number of cached collections, including expired entries not yet purged
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return number of checks answered from the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of checks which had to go to the server
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,76 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.irods.jargon.core.exception.JargonException;
+import org.irods.jargon.core.transfer.TransferStatus;
+import org.irods.jargon.core.transfer.TransferStatus.TransferState;
+
+/**
+ * Transfer listener which records every file Jargon reports as done into a
+ * {@link TransferMetrics}. A file's duration runs from the previous file's
+ * completion, or from the start of the operation for the first one, since
+ * Jargon only reports when a file finishes. Intra-file progress reports are
+ * ignored, so the per chunk cost is a single enum check.
+ */
+public class MetricsTransferStatusCallbackListener extends DefaultTransferStatusCallbackListener {
+
+    private final TransferMetrics metrics;
+    private final AtomicLong fileStartedAt = new AtomicLong(System.currentTimeMillis());
+    private volatile boolean failureRecorded = false;
+
+    /**
+     * @param metrics the metrics to record completed and failed files into
+     */
+    public MetricsTransferStatusCallbackListener(TransferMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public FileStatusCallbackResponse statusCallback(TransferStatus transferStatus)
+            throws JargonException {
+        FileStatusCallbackResponse response = super.statusCallback(transferStatus);
+
+        TransferState state = transferStatus.getTransferState();
+        if (state == TransferState.FAILURE || transferStatus.getTransferException() != null) {
+            fileStartedAt.set(System.currentTimeMillis());
+            failureRecorded = true;
+            metrics.recordFailure();
+        }
+        else if (state == TransferState.SUCCESS) {
+            long now = System.currentTimeMillis();
+            long bytes = transferStatus.getBytesTransfered() > 0 ?
+                    transferStatus.getBytesTransfered() : transferStatus.getTotalSize();
+            metrics.recordFile(bytes, now - fileStartedAt.getAndSet(now));
+        }
+
+        return response;
+    }
+
+    @Override
+    public void overallStatusCallback(TransferStatus transferStatus) throws JargonException {
+        super.overallStatusCallback(transferStatus);
+
+        if (transferStatus.getTransferState() == TransferState.OVERALL_INITIATION) {
+            fileStartedAt.set(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Records a failure for an operation which threw before Jargon could
+     * report it, unless a failure was already recorded through the callbacks.
+     */
+    public void recordFailure() {
+        if (!failureRecorded) {
+            failureRecorded = true;
+            metrics.recordFailure();
+        }
+    }
+
+    /**
+     * @return the metrics this listener records into
+     */
+    public TransferMetrics getMetrics() {
+        return metrics;
+    }
+}
@@ -0,0 +1,162 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.irods.jargon.core.pub.domain.ObjStat;
+
+/**
+ * Bounded, time limited cache of {@link ObjStat} lookups keyed by absolute
+ * iRODS path, evicting approximately the least recently used entries first.
+ * Only successful lookups are cached. Entries are invalidated by
+ * {@link IRODS4} whenever it creates, uploads to, or deletes a path, so
+ * repeated metadata checks within one logical operation are served locally.
+ * <p>
+ * A single instance may be shared by several {@link IRODS4} clients, but only
+ * when they connect to the same server as the same user, since entries carry
+ * neither the endpoint nor the caller's permissions. Lookups take no lock,
+ * so threads sharing a client do not wait on one another to read it.
+ */
+public class ObjStatCache {
+
+    /** default max number of cached paths */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+    /** default time in milliseconds an entry is trusted */
+    public static final long DEFAULT_TTL_MILLIS = 5000;
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final ConcurrentLruMap<ObjStat> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ObjStatCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS);
+    }
+
+    /**
+     * @param maxEntries max number of cached paths before the least recently
+     *            used entries are evicted
+     * @param ttlMillis time in milliseconds an entry is trusted
+     */
+    public ObjStatCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMillis = ttlMillis;
+        this.entries = new ConcurrentLruMap<ObjStat>(this.maxEntries);
+    }
+
+    /**
+     * @param absolutePath absolute path on the remote system, without trailing slash
+     * @return the cached {@link ObjStat} or null if absent or expired
+     */
+    public ObjStat get(String absolutePath) {
+        ConcurrentLruMap.Entry<ObjStat> entry = entries.get(absolutePath);
+        if (entry != null) {
+            if (!entry.isExpired(ttlMillis)) {
+                hits.incrementAndGet();
+                return entry.value;
+            }
+            if (entries.remove(absolutePath, entry)) {
+                evictions.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * @param absolutePath absolute path on the remote system, without trailing slash
+     * @param objStat result of a successful lookup on that path
+     */
+    public void put(String absolutePath, ObjStat objStat) {
+        if (objStat == null) {
+            return;
+        }
+        int evicted = entries.put(absolutePath, objStat);
+        if (evicted > 0) {
+            evictions.addAndGet(evicted);
+        }
+    }
+
+    /**
+     * Removes the entry for a single path.
+     *
+     * @param absolutePath absolute path on the remote system, without trailing slash
+     */
+    public void invalidate(String absolutePath) {
+        if (entries.remove(absolutePath)) {
+            invalidations.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes the entry for a path along with every cached path beneath it.
+     * Used when a collection is deleted or replaced.
+     *
+     * @param absolutePath absolute path on the remote system, without trailing slash
+     */
+    public void invalidateTree(String absolutePath) {
+        int removed = entries.removeTree(absolutePath);
+        if (removed > 0) {
+            invalidations.addAndGet(removed);
+        }
+    }
+
+    /**
+     * Empties the cache. Counters are left intact.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return number of cached paths, including expired entries not yet purged
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return number of lookups served from the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of lookups which had to go to the server
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of entries dropped due to size or age
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return number of entries dropped due to a write on the path
+     */
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    /**
+     * @return the max number of cached paths
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return the time in milliseconds an entry is trusted
+     */
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+}
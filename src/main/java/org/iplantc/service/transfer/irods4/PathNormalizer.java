@@ -0,0 +1,120 @@
+package org.iplantc.service.transfer.irods4;
+
+/**
+ * Single pass normalization of absolute iRODS paths. Produces the same result
+ * as appending a separator to paths ending in {@code /.} or {@code /..} and
+ * then calling plexus {@code FileUtils.normalize}, which is what
+ * {@link IRODS4#resolvePath(String)} has always done, without the regular
+ * expressions and intermediate strings. Runs of slashes collapse to one,
+ * {@code .} segments are dropped, {@code ..} segments remove the segment
+ * before them, and a trailing slash is kept. Every other character, including
+ * spaces and the rest of the special characters iRODS allows in names, is
+ * copied through untouched.
+ */
+public final class PathNormalizer {
+
+    private PathNormalizer() {}
+
+    /**
+     * Normalizes the absolute path formed by {@code base} followed by
+     * {@code path} from {@code pathOffset} on, without concatenating them
+     * first.
+     *
+     * @param base leading part of the path. Must start with a slash.
+     * @param path trailing part of the path
+     * @param pathOffset index of the first character of {@code path} to use
+     * @return the normalized path, or null if a {@code ..} segment would
+     *         climb above the root
+     */
+    public static String normalize(String base, String path, int pathOffset) {
+        int baseLength = base.length();
+        int length = baseLength + path.length() - pathOffset;
+        StringBuilder sb = new StringBuilder(length + 1);
+
+        int i = 0;
+        while (i < length) {
+            // skip the separators in front of the next segment
+            while (i < length && charAt(base, path, pathOffset, i) == '/') {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+
+            int start = i;
+            while (i < length && charAt(base, path, pathOffset, i) != '/') {
+                i++;
+            }
+            int segmentLength = i - start;
+
+            if (segmentLength == 1 && charAt(base, path, pathOffset, start) == '.') {
+                continue;
+            } 
+            else if (segmentLength == 2 && charAt(base, path, pathOffset, start) == '.' 
+                    && charAt(base, path, pathOffset, start + 1) == '.') {
+                if (sb.length() == 0) {
+                    return null;
+                }
+                sb.setLength(sb.lastIndexOf("/"));
+            } 
+            else {
+                sb.append('/');
+                for (int j = start; j < i; j++) {
+                    sb.append(charAt(base, path, pathOffset, j));
+                }
+            }
+        }
+
+        if (sb.length() == 0 || endsWithSeparator(base, path, pathOffset, length)) {
+            sb.append('/');
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Collapses each run of slashes in {@code path} to a single slash.
+     *
+     * @param path the path to clean up
+     * @return {@code path} itself if it has no repeated slashes
+     */
+    public static String collapseSlashes(String path) {
+        int idx = path.indexOf("//");
+        if (idx == -1) {
+            return path;
+        }
+
+        StringBuilder sb = new StringBuilder(path.length());
+        sb.append(path, 0, idx + 1);
+        for (int i = idx + 1; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c != '/' || sb.charAt(sb.length() - 1) != '/') {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return true if the joined path ends with a slash or with a {@code .}
+     *         or {@code ..} segment, both of which name a collection
+     */
+    private static boolean endsWithSeparator(String base, String path, int pathOffset, int length) {
+        char last = charAt(base, path, pathOffset, length - 1);
+        if (last == '/') {
+            return true;
+        } else if (last != '.' || length < 2) {
+            return false;
+        }
+
+        char previous = charAt(base, path, pathOffset, length - 2);
+        if (previous == '/') {
+            return true;
+        }
+        return previous == '.' && length >= 3 && charAt(base, path, pathOffset, length - 3) == '/';
+    }
+
+    private static char charAt(String base, String path, int pathOffset, int index) {
+        return index < base.length() ? base.charAt(index) : path.charAt(pathOffset + index - base.length());
+    }
+}
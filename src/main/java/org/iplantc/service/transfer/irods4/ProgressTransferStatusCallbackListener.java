@@ -0,0 +1,144 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.irods.jargon.core.exception.JargonException;
+import org.irods.jargon.core.transfer.TransferStatus;
+import org.irods.jargon.core.transfer.TransferStatus.TransferState;
+import org.irods.jargon.core.transfer.TransferStatusCallbackListener;
+
+/**
+ * Transfer listener which feeds the status reports of a Jargon transfer
+ * into a {@link TransferProgressTracker}, which passes them on to a
+ * {@link TransferProgressSink} at a limited rate. Intra-file reports carry
+ * the bytes sent so far for the current file, so each one costs a few
+ * atomic operations and allocates nothing. Every callback is also passed to
+ * an optional {@code next} listener, so progress can be added to the
+ * listener a transfer would otherwise use.
+ * <p>
+ * A listener which owns its tracker takes the transfer totals from Jargon
+ * and finishes the tracker when Jargon reports overall completion. Listeners
+ * for the single files of a larger transfer share a tracker they do not
+ * own, and the caller finishes it once every file is done.
+ */
+public class ProgressTransferStatusCallbackListener extends DefaultTransferStatusCallbackListener {
+
+    private final TransferProgressTracker tracker;
+    private final TransferStatusCallbackListener next;
+    private final boolean ownsTracker;
+    private final AtomicLong currentFileBytes = new AtomicLong();
+    private volatile boolean failureRecorded = false;
+
+    /**
+     * Creates a listener which owns a new tracker for the given sink.
+     *
+     * @param sink the sink to deliver updates to
+     * @param maxUpdatesPerSecond most updates the sink will see per second
+     */
+    public ProgressTransferStatusCallbackListener(TransferProgressSink sink, int maxUpdatesPerSecond) {
+        this(new TransferProgressTracker(sink, maxUpdatesPerSecond), null, true);
+    }
+
+    /**
+     * @param tracker the tracker to report progress to
+     * @param next listener every callback is also passed to, may be null
+     * @param ownsTracker true if this listener should set the tracker's
+     *        totals and finish it when Jargon reports overall completion
+     */
+    public ProgressTransferStatusCallbackListener(TransferProgressTracker tracker,
+            TransferStatusCallbackListener next, boolean ownsTracker) {
+        this.tracker = tracker;
+        this.next = next;
+        this.ownsTracker = ownsTracker;
+    }
+
+    @Override
+    public FileStatusCallbackResponse statusCallback(TransferStatus transferStatus)
+            throws JargonException {
+        FileStatusCallbackResponse response = super.statusCallback(transferStatus);
+
+        TransferState state = transferStatus.getTransferState();
+        if (state == TransferState.FAILURE || transferStatus.getTransferException() != null) {
+            failureRecorded = true;
+            tracker.fileFailed(currentFileBytes.getAndSet(0), transferStatus.getSourceFileAbsolutePath());
+        }
+        else if (state == TransferState.IN_PROGRESS) {
+            long sent = transferStatus.getBytesTransfered();
+            long delta = sent - currentFileBytes.getAndSet(sent);
+            if (delta != 0) {
+                tracker.addBytes(delta, transferStatus.getSourceFileAbsolutePath());
+            }
+        }
+        else if (state == TransferState.SUCCESS) {
+            long remaining = transferStatus.getTotalSize() - currentFileBytes.getAndSet(0);
+            tracker.fileCompleted(Math.max(0, remaining), transferStatus.getSourceFileAbsolutePath());
+        }
+
+        return next == null ? response : next.statusCallback(transferStatus);
+    }
+
+    @Override
+    public void overallStatusCallback(TransferStatus transferStatus) throws JargonException {
+        super.overallStatusCallback(transferStatus);
+
+        if (ownsTracker) {
+            TransferState state = transferStatus.getTransferState();
+            if (state == TransferState.OVERALL_INITIATION) {
+                tracker.offerTotals(transferStatus.getTotalSize(), transferStatus.getTotalFilesToTransfer());
+            } else if (state == TransferState.OVERALL_COMPLETION) {
+                tracker.finish();
+            }
+        }
+
+        if (next != null) {
+            next.overallStatusCallback(transferStatus);
+        }
+    }
+
+    @Override
+    public CallbackResponse transferAsksWhetherToForceOperation(String irodsAbsolutePath, boolean isCollection) {
+        return next == null ? super.transferAsksWhetherToForceOperation(irodsAbsolutePath, isCollection)
+                : next.transferAsksWhetherToForceOperation(irodsAbsolutePath, isCollection);
+    }
+
+    /**
+     * Records a failure for a transfer which threw before Jargon could
+     * report it, unless a failure was already reported through the
+     * callbacks. The failure is passed on to a
+     * {@link MetricsTransferStatusCallbackListener} next in line.
+     */
+    public void recordFailure() {
+        if (!failureRecorded) {
+            failureRecorded = true;
+            tracker.fileFailed(currentFileBytes.getAndSet(0), null);
+        }
+        if (next instanceof MetricsTransferStatusCallbackListener) {
+            ((MetricsTransferStatusCallbackListener)next).recordFailure();
+        }
+    }
+
+    /**
+     * Delivers the final update if this listener owns its tracker. Call when
+     * the transfer ends, since a failed transfer may never report overall
+     * completion.
+     */
+    public void finish() {
+        if (ownsTracker) {
+            tracker.finish();
+        }
+    }
+
+    /**
+     * @return the tracker progress is reported to
+     */
+    public TransferProgressTracker getTracker() {
+        return tracker;
+    }
+
+    /**
+     * @return the listener every callback is also passed to, may be null
+     */
+    public TransferStatusCallbackListener getNext() {
+        return next;
+    }
+}
@@ -0,0 +1,146 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.irods.jargon.core.exception.FileNotFoundException;
+import org.irods.jargon.core.exception.JargonException;
+import org.irods.jargon.core.exception.JargonRuntimeException;
+import org.irods.jargon.core.pub.CollectionAndDataObjectListAndSearchAO;
+import org.irods.jargon.core.query.CollectionAndDataObjectListingEntry;
+
+/**
+ * Lazy, paged listing of a collection. Subcollections are returned first,
+ * followed by data objects. Only one page of catalog results is held in
+ * memory at a time, and the next page is fetched only when the current one
+ * has been consumed, so listings of very large collections stream in
+ * constant memory and the first entries are available after one round trip.
+ * Page size is governed by the Jargon {@code maxFilesAndDirsQueryMax}
+ * property of the session.
+ * <p>
+ * Remote failures while paging are raised from {@link #hasNext()} and
+ * {@link #next()} as a {@link JargonRuntimeException} wrapping the original
+ * {@link JargonException}.
+ * <p>
+ * A listing is closed once it has been read to the end or a page fails to
+ * load. Callers which stop early should {@link #close()} it, so a client
+ * holding a connection for the listing can let it go.
+ */
+public class RemoteCollectionListing implements Iterator<CollectionAndDataObjectListingEntry>, 
+    Iterable<CollectionAndDataObjectListingEntry>, Closeable 
+{
+    private final CollectionAndDataObjectListAndSearchAO listAndSearchAO;
+    private final String absolutePath;
+    
+    private boolean listingCollections = true;
+    private boolean lastPage = false;
+    private int offset = 0;
+    private List<CollectionAndDataObjectListingEntry> page = Collections.emptyList();
+    private int index = 0;
+    private boolean consumed = false;
+    
+    /**
+     * @param listAndSearchAO access object used to query the catalog
+     * @param absolutePath absolute path of the collection to list
+     */
+    public RemoteCollectionListing(CollectionAndDataObjectListAndSearchAO listAndSearchAO, String absolutePath) {
+        this.listAndSearchAO = listAndSearchAO;
+        this.absolutePath = absolutePath;
+    }
+    
+    /**
+     * Creates a listing over a fixed set of entries. Used to present a data
+     * object as a listing of itself.
+     * 
+     * @param entries the entries to return
+     * @return listing which makes no remote calls
+     */
+    public static RemoteCollectionListing of(List<CollectionAndDataObjectListingEntry> entries) {
+        RemoteCollectionListing listing = new RemoteCollectionListing(null, null);
+        listing.page = entries;
+        listing.listingCollections = false;
+        listing.lastPage = true;
+        return listing;
+    }
+    
+    @Override
+    public boolean hasNext() {
+        while (index >= page.size()) {
+            if (lastPage) {
+                if (!listingCollections) {
+                    close();
+                    return false;
+                }
+                // collections exhausted, move on to data objects
+                listingCollections = false;
+                lastPage = false;
+                offset = 0;
+            }
+            fetchNextPage();
+        }
+        return true;
+    }
+    
+    @Override
+    public CollectionAndDataObjectListingEntry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.get(index++);
+    }
+    
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Listings are read only");
+    }
+    
+    /**
+     * Returns this listing so it can be used in a for-each loop. A listing
+     * can only be iterated once.
+     */
+    @Override
+    public Iterator<CollectionAndDataObjectListingEntry> iterator() {
+        if (consumed) {
+            throw new IllegalStateException("Listing of " + absolutePath + " has already been iterated");
+        }
+        consumed = true;
+        return this;
+    }
+    
+    /**
+     * Stops the listing. Entries already fetched are dropped and no further
+     * pages are requested. Safe to call more than once.
+     */
+    @Override
+    public void close() {
+        page = Collections.emptyList();
+        index = 0;
+        listingCollections = false;
+        lastPage = true;
+    }
+    
+    private void fetchNextPage() {
+        try {
+            page = listingCollections ? 
+                    listAndSearchAO.listCollectionsUnderPath(absolutePath, offset) : 
+                    listAndSearchAO.listDataObjectsUnderPath(absolutePath, offset);
+        } catch (FileNotFoundException e) {
+            page = Collections.emptyList();
+        } catch (JargonException e) {
+            close();
+            throw new JargonRuntimeException("Failed to list " + absolutePath, e);
+        }
+        
+        index = 0;
+        if (page.isEmpty()) {
+            lastPage = true;
+        } else {
+            CollectionAndDataObjectListingEntry last = page.get(page.size() - 1);
+            lastPage = last.isLastResult();
+            offset = last.getCount();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.iplantc.service.transfer.irods4;
+
+import org.irods.jargon.core.pub.domain.ObjStat;
+import org.irods.jargon.core.query.CollectionAndDataObjectListingEntry.ObjectType;
+
+/**
+ * Outcome of an existence probe on a remote path. Returned by
+ * {@link IRODS4#probe(String)} so callers can tell files from collections
+ * and detect missing paths without catching exceptions.
+ */
+public enum RemotePathType {
+    /** the path is a data object */
+    FILE,
+    /** the path is a collection */
+    COLLECTION,
+    /** nothing exists at the path, or the user cannot see it */
+    ABSENT;
+    
+    /**
+     * @return true unless this is {@link #ABSENT}
+     */
+    public boolean exists() {
+        return this != ABSENT;
+    }
+    
+    /**
+     * Maps the {@link ObjectType} of an {@link ObjStat} to a path type.
+     * 
+     * @param objStat result of a stat call, may be null
+     * @return {@link #ABSENT} for a null stat, otherwise the matching type
+     */
+    public static RemotePathType valueOf(ObjStat objStat) {
+        if (objStat == null) {
+            return ABSENT;
+        } else if (objStat.getObjectType() == ObjectType.COLLECTION || 
+                objStat.getObjectType() == ObjectType.LOCAL_DIR) {
+            return COLLECTION;
+        } else {
+            return FILE;
+        }
+    }
+}
@@ -0,0 +1,509 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.Map;
+
+import org.iplantc.service.transfer.exceptions.RemoteDataException;
+import org.irods.jargon.core.checksum.ChecksumEncodingEnum;
+import org.irods.jargon.core.checksum.ChecksumValue;
+import org.irods.jargon.core.connection.AuthScheme;
+import org.irods.jargon.core.connection.JargonProperties;
+import org.irods.jargon.core.pub.CollectionAndDataObjectListAndSearchAO;
+import org.irods.jargon.core.pub.domain.ObjStat;
+import org.irods.jargon.core.pub.io.IRODSRandomAccessFile;
+
+/**
+ * {@link IRODS4} client meant to be shared by a whole pool of worker
+ * threads. Jargon gives every thread its own connection and keeps it until
+ * the thread closes its session, so a plain client used from many threads
+ * holds one connection per thread. This client hands the calling thread's
+ * connection back to the {@link IRODSConnectionPool} as soon as each
+ * operation completes, so the threads take turns over at most
+ * {@link IRODSConnectionPool#getMaxConnectionsPerKey()} connections and
+ * only wait for one when that many operations are in flight at once.
+ * <p>
+ * Operations which call other operations release the connection once, when
+ * the outermost one completes. Tracking that is a thread local counter, so
+ * no lock is taken on the way in or out. A channel from
+ * {@link #openChannel(String)} keeps the connection it was opened on until
+ * it is closed, and must be closed on the thread which opened it. A
+ * collection listing from {@link #list(String)} likewise keeps its
+ * connection until it is read to the end or closed, on the thread which
+ * opened it.
+ * <p>
+ * Transfer options apply to the call they are passed to. Buffer sizes and
+ * the large file threshold of a file transfer can only be set on the
+ * session every thread shares, so file transfers given options with those
+ * settings are rejected rather than changing the other threads' transfers.
+ * Streamed transfers take their buffer sizes from the call, as usual.
+ * <p>
+ * Settings such as the caches, retry policy and default transfer options
+ * should be configured before the client is shared.
+ */
+public class SharedIRODS4 extends IRODS4 {
+
+    /**
+     * Number of operations the owning thread has in progress on this client.
+     */
+    private static class Lease {
+        private int depth;
+    }
+
+    private final ThreadLocal<Lease> leases = new ThreadLocal<Lease>() {
+        @Override
+        protected Lease initialValue() {
+            return new Lease();
+        }
+    };
+
+    public SharedIRODS4(String host, int port, String username, String password, String resource,
+            String zone, String homeDir)
+    {
+        super(host, port, username, password, resource, zone, homeDir);
+    }
+
+    public SharedIRODS4(String host, int port, String username, String password, String resource,
+            String zone, String homeDir, AuthScheme type)
+    {
+        super(host, port, username, password, resource, zone, homeDir, type);
+    }
+
+    /**
+     * Marks the start of an operation on the calling thread.
+     *
+     * @return the lease to hand to {@link #exit(Lease)}
+     */
+    private Lease enter() {
+        Lease lease = leases.get();
+        lease.depth++;
+        return lease;
+    }
+
+    /**
+     * Marks the end of an operation, releasing the calling thread's
+     * connection if it was the outermost one.
+     *
+     * @param lease the lease returned by {@link #enter()}
+     */
+    private void exit(Lease lease) {
+        if (--lease.depth == 0) {
+            releaseConnection();
+        }
+    }
+
+    /**
+     * @return number of operations the calling thread has in progress on
+     *         this client, including open channels
+     */
+    int getLeaseDepth() {
+        return leases.get().depth;
+    }
+
+    /**
+     * Rejects options which could only be honored by changing the session
+     * Jargon properties.
+     *
+     * @param options the transfer options, may be null
+     * @throws IllegalArgumentException if the options set a buffer size or
+     *             large file threshold
+     */
+    private static void checkTransferOptions(IRODSTransferOptions options) {
+        if (options != null && options.hasSessionWideSettings()) {
+            throw new IllegalArgumentException("Buffer sizes and the large file threshold "
+                    + "apply to every thread sharing this client, so they cannot be set per transfer. "
+                    + "Set them on the session Jargon properties before sharing the client.");
+        }
+    }
+
+    /**
+     * Leaves the session Jargon properties alone, since every thread using
+     * this client shares them. The thread count still applies to the call
+     * through its transfer control block, and the settings which can only be
+     * made on the session are rejected before the transfer starts.
+     */
+    @Override
+    protected JargonProperties overrideJargonProperties(IRODSTransferOptions options) {
+        return null;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the options set a buffer size or
+     *             large file threshold
+     */
+    @Override
+    public void setDefaultTransferOptions(IRODSTransferOptions defaultTransferOptions) {
+        checkTransferOptions(defaultTransferOptions);
+        super.setDefaultTransferOptions(defaultTransferOptions);
+    }
+
+    @Override
+    public void authenticate() throws RemoteDataException {
+        Lease lease = enter();
+        try {
+            super.authenticate();
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public Map<String, ObjStat> statAll(Collection<String> virtualPaths) throws RemoteDataException {
+        Lease lease = enter();
+        try {
+            return super.statAll(virtualPaths);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public Map<String, Boolean> doesExist(Collection<String> virtualPaths) throws RemoteDataException {
+        Lease lease = enter();
+        try {
+            return super.doesExist(virtualPaths);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public RemoteCollectionListing list(String virtualPath) throws IOException, RemoteDataException {
+        Lease lease = enter();
+        try {
+            return super.list(virtualPath);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public boolean doesExist(String virtualPath) throws IOException, RemoteDataException {
+        Lease lease = enter();
+        try {
+            return super.doesExist(virtualPath);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public RemotePathType probe(String virtualPath) throws RemoteDataException {
+        Lease lease = enter();
+        try {
+            return super.probe(virtualPath);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public boolean isDirectory(String virtualPath) throws IOException, RemoteDataException {
+        Lease lease = enter();
+        try {
+            return super.isDirectory(virtualPath);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public boolean mkdir(String virtualPath) throws IOException, RemoteDataException {
+        Lease lease = enter();
+        try {
+            return super.mkdir(virtualPath);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public boolean mkdirs(String virtualPath) throws IOException, RemoteDataException {
+        Lease lease = enter();
+        try {
+            return super.mkdirs(virtualPath);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public void delete(String virtualPath) throws IOException, RemoteDataException {
+        Lease lease = enter();
+        try {
+            super.delete(virtualPath);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public void delete(String virtualPath, boolean isCollection) throws IOException, RemoteDataException {
+        Lease lease = enter();
+        try {
+            super.delete(virtualPath, isCollection);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public BulkOperationReport deleteRecursive(String virtualPath, int concurrency)
+    throws IOException, RemoteDataException
+    {
+        Lease lease = enter();
+        try {
+            return super.deleteRecursive(virtualPath, concurrency);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public void put(File localFile, String virtualParentPath) throws IOException, RemoteDataException {
+        Lease lease = enter();
+        try {
+            super.put(localFile, virtualParentPath);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the options set a buffer size or
+     *             large file threshold
+     */
+    @Override
+    public void put(File localFile, String virtualParentPath, IRODSTransferOptions options)
+    throws IOException, RemoteDataException
+    {
+        checkTransferOptions(options);
+        Lease lease = enter();
+        try {
+            super.put(localFile, virtualParentPath, options);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public long put(InputStream in, long length, String virtualPath) throws IOException, RemoteDataException {
+        Lease lease = enter();
+        try {
+            return super.put(in, length, virtualPath);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public long put(InputStream in, long length, String virtualPath, IRODSTransferOptions options)
+    throws IOException, RemoteDataException
+    {
+        Lease lease = enter();
+        try {
+            return super.put(in, length, virtualPath, options);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public long put(ReadableByteChannel in, long length, String virtualPath) throws IOException, RemoteDataException {
+        Lease lease = enter();
+        try {
+            return super.put(in, length, virtualPath);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public long put(ReadableByteChannel in, long length, String virtualPath, IRODSTransferOptions options)
+    throws IOException, RemoteDataException
+    {
+        Lease lease = enter();
+        try {
+            return super.put(in, length, virtualPath, options);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public long putResumable(File localFile, String virtualPath) throws IOException, RemoteDataException {
+        Lease lease = enter();
+        try {
+            return super.putResumable(localFile, virtualPath);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public ChecksumValue putVerified(File localFile, String virtualPath) throws IOException, RemoteDataException {
+        Lease lease = enter();
+        try {
+            return super.putVerified(localFile, virtualPath);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public ChecksumValue putVerified(File localFile, String virtualPath, ChecksumEncodingEnum localEncoding)
+    throws IOException, RemoteDataException
+    {
+        Lease lease = enter();
+        try {
+            return super.putVerified(localFile, virtualPath, localEncoding);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public BulkOperationReport put(File localFile, String virtualParentPath, int concurrency)
+    throws IOException, RemoteDataException
+    {
+        Lease lease = enter();
+        try {
+            return super.put(localFile, virtualParentPath, concurrency);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public BulkOperationReport sync(File localDir, String virtualPath) throws IOException, RemoteDataException {
+        Lease lease = enter();
+        try {
+            return super.sync(localDir, virtualPath);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public BulkOperationReport sync(File localDir, String virtualPath, IRODSSyncOptions options)
+    throws IOException, RemoteDataException
+    {
+        Lease lease = enter();
+        try {
+            return super.sync(localDir, virtualPath, options);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public void get(String virtualPath, File localTarget) throws IOException, RemoteDataException {
+        Lease lease = enter();
+        try {
+            super.get(virtualPath, localTarget);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the options set a buffer size or
+     *             large file threshold
+     */
+    @Override
+    public void get(String virtualPath, File localTarget, IRODSTransferOptions options)
+    throws IOException, RemoteDataException
+    {
+        checkTransferOptions(options);
+        Lease lease = enter();
+        try {
+            super.get(virtualPath, localTarget, options);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public long get(String virtualPath, WritableByteChannel target) throws IOException, RemoteDataException {
+        Lease lease = enter();
+        try {
+            return super.get(virtualPath, target);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public IRODSSeekableByteChannel openChannel(String virtualPath) throws IOException, RemoteDataException {
+        Lease lease = enter();
+        try {
+            return super.openChannel(virtualPath);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    @Override
+    public int read(String virtualPath, long offset, ByteBuffer dst) throws IOException, RemoteDataException {
+        Lease lease = enter();
+        try {
+            return super.read(virtualPath, offset, dst);
+        } finally {
+            exit(lease);
+        }
+    }
+
+    /**
+     * Wraps the listing so it holds on to the calling thread's connection,
+     * which fetches every page, and lets it go once the listing is read to
+     * the end or closed.
+     */
+    @Override
+    protected RemoteCollectionListing newListing(CollectionAndDataObjectListAndSearchAO listAndSearchAO,
+            String absolutePath)
+    {
+        final Lease lease = enter();
+        return new RemoteCollectionListing(listAndSearchAO, absolutePath) {
+            private boolean released = false;
+
+            @Override
+            public void close() {
+                super.close();
+                if (!released) {
+                    released = true;
+                    exit(lease);
+                }
+            }
+        };
+    }
+
+    /**
+     * Wraps the handle in a channel which holds on to the calling thread's
+     * connection, since the handle is only valid on the connection it was
+     * opened on, and lets it go when the channel is closed.
+     */
+    @Override
+    protected IRODSSeekableByteChannel newChannel(IRODSRandomAccessFile randomAccessFile, long size) {
+        final Lease lease = enter();
+        return new IRODSSeekableByteChannel(randomAccessFile, size) {
+            private boolean released = false;
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (!released) {
+                        released = true;
+                        exit(lease);
+                    }
+                }
+            }
+        };
+    }
+}
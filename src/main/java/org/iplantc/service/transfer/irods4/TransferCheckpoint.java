@@ -0,0 +1,273 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Local record of the byte ranges of a file already written to a remote data
+ * object. {@link IRODS4#putResumable(File, String)} saves one of these as it
+ * sends a large file, so a failed upload can be resumed by sending only the
+ * ranges still missing. A checkpoint is only trusted while the local file keeps
+ * the same length and modification time it had when the upload started.
+ * <p>
+ * Checkpoints are stored as small properties files. Ranges are kept sorted
+ * and adjacent ranges are merged, so an upload that runs in order is recorded
+ * as a single range.
+ */
+public class TransferCheckpoint {
+
+    private static final String LOCAL_PATH = "local.path";
+    private static final String LOCAL_LENGTH = "local.length";
+    private static final String LOCAL_LAST_MODIFIED = "local.lastModified";
+    private static final String REMOTE_PATH = "remote.path";
+    private static final String COMPLETED_RANGES = "completed.ranges";
+
+    private final String localPath;
+    private final long localLength;
+    private final long localLastModified;
+    private final String remotePath;
+    private final List<long[]> completedRanges = new ArrayList<long[]>();
+
+    /**
+     * Creates an empty checkpoint for an upload of {@code localFile} to
+     * {@code remotePath}.
+     *
+     * @param localFile the file being uploaded
+     * @param remotePath absolute path of the data object on the remote system
+     */
+    public TransferCheckpoint(File localFile, String remotePath) {
+        this(localFile.getAbsolutePath(), localFile.length(), localFile.lastModified(), remotePath);
+    }
+
+    private TransferCheckpoint(String localPath, long localLength, long localLastModified, String remotePath) {
+        this.localPath = localPath;
+        this.localLength = localLength;
+        this.localLastModified = localLastModified;
+        this.remotePath = remotePath;
+    }
+
+    /**
+     * Reads a checkpoint saved with {@link #save(File)}.
+     *
+     * @param checkpointFile the saved checkpoint
+     * @return the checkpoint, or null if the file is missing or unreadable
+     */
+    public static TransferCheckpoint load(File checkpointFile) {
+        if (!checkpointFile.isFile()) {
+            return null;
+        }
+
+        Properties props = new Properties();
+        InputStream in = null;
+        try {
+            in = new FileInputStream(checkpointFile);
+            props.load(in);
+
+            TransferCheckpoint checkpoint = new TransferCheckpoint(
+                    props.getProperty(LOCAL_PATH),
+                    Long.parseLong(props.getProperty(LOCAL_LENGTH)),
+                    Long.parseLong(props.getProperty(LOCAL_LAST_MODIFIED)),
+                    props.getProperty(REMOTE_PATH));
+
+            for (String range: StringUtils.split(props.getProperty(COMPLETED_RANGES, ""), ",")) {
+                String[] bounds = StringUtils.split(range, "-");
+                checkpoint.markCompleted(Long.parseLong(bounds[0]), Long.parseLong(bounds[1]));
+            }
+
+            return checkpoint;
+        }
+        catch (IOException | RuntimeException e) {
+            return null;
+        }
+        finally {
+            try { if (in != null) in.close(); } catch (IOException e) {}
+        }
+    }
+
+    /**
+     * Writes this checkpoint to {@code checkpointFile}. The file is written to
+     * a temporary sibling first and renamed into place, so a crash mid-save
+     * leaves the previous checkpoint intact.
+     *
+     * @param checkpointFile the file to write
+     * @throws IOException
+     */
+    public void save(File checkpointFile) throws IOException {
+        Properties props = new Properties();
+        props.setProperty(LOCAL_PATH, localPath);
+        props.setProperty(LOCAL_LENGTH, String.valueOf(localLength));
+        props.setProperty(LOCAL_LAST_MODIFIED, String.valueOf(localLastModified));
+        props.setProperty(REMOTE_PATH, remotePath);
+
+        StringBuilder ranges = new StringBuilder();
+        synchronized (completedRanges) {
+            for (long[] range: completedRanges) {
+                if (ranges.length() > 0) {
+                    ranges.append(',');
+                }
+                ranges.append(range[0]).append('-').append(range[1]);
+            }
+        }
+        props.setProperty(COMPLETED_RANGES, ranges.toString());
+
+        checkpointFile.getParentFile().mkdirs();
+        File tmpFile = new File(checkpointFile.getParentFile(), checkpointFile.getName() + ".tmp");
+        OutputStream out = new FileOutputStream(tmpFile);
+        try {
+            props.store(out, "iRODS upload checkpoint");
+        } finally {
+            out.close();
+        }
+
+        if (!tmpFile.renameTo(checkpointFile)) {
+            checkpointFile.delete();
+            if (!tmpFile.renameTo(checkpointFile)) {
+                throw new IOException("Failed to save checkpoint " + checkpointFile.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * @param localFile the file about to be uploaded
+     * @param remotePath absolute path of the target data object
+     * @return true if this checkpoint describes an upload of the same, unchanged
+     *         file to the same target
+     */
+    public boolean matches(File localFile, String remotePath) {
+        return StringUtils.equals(localPath, localFile.getAbsolutePath())
+                && StringUtils.equals(this.remotePath, remotePath)
+                && localLength == localFile.length()
+                && localLastModified == localFile.lastModified();
+    }
+
+    /**
+     * Records the range {@code [start, end)} as written to the remote object.
+     *
+     * @param start offset of the first byte written
+     * @param end offset one past the last byte written
+     */
+    public void markCompleted(long start, long end) {
+        if (end <= start) {
+            return;
+        }
+
+        synchronized (completedRanges) {
+            long[] merged = new long[] { start, end };
+            List<long[]> result = new ArrayList<long[]>(completedRanges.size() + 1);
+            boolean added = false;
+            for (long[] range: completedRanges) {
+                if (range[1] < merged[0]) {
+                    result.add(range);
+                } else if (merged[1] < range[0]) {
+                    if (!added) {
+                        result.add(merged);
+                        added = true;
+                    }
+                    result.add(range);
+                } else {
+                    merged[0] = Math.min(merged[0], range[0]);
+                    merged[1] = Math.max(merged[1], range[1]);
+                }
+            }
+            if (!added) {
+                result.add(merged);
+            }
+            completedRanges.clear();
+            completedRanges.addAll(result);
+        }
+    }
+
+    /**
+     * @return the ranges of the local file still to be sent, as
+     *         {@code [start, end)} pairs in file order
+     */
+    public List<long[]> getMissingRanges() {
+        List<long[]> missing = new ArrayList<long[]>();
+        long next = 0;
+        synchronized (completedRanges) {
+            for (long[] range: completedRanges) {
+                if (range[0] > next) {
+                    missing.add(new long[] { next, Math.min(range[0], localLength) });
+                }
+                next = Math.max(next, range[1]);
+            }
+        }
+        if (next < localLength) {
+            missing.add(new long[] { next, localLength });
+        }
+        return missing;
+    }
+
+    /**
+     * @return the ranges already written, as {@code [start, end)} pairs in file order
+     */
+    public List<long[]> getCompletedRanges() {
+        synchronized (completedRanges) {
+            List<long[]> copy = new ArrayList<long[]>(completedRanges.size());
+            for (long[] range: completedRanges) {
+                copy.add(new long[] { range[0], range[1] });
+            }
+            return Collections.unmodifiableList(copy);
+        }
+    }
+
+    /**
+     * @return the number of bytes already written
+     */
+    public long getCompletedBytes() {
+        long total = 0;
+        synchronized (completedRanges) {
+            for (long[] range: completedRanges) {
+                total += range[1] - range[0];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return offset one past the highest byte written, or 0 if nothing has been written
+     */
+    public long getHighWaterMark() {
+        synchronized (completedRanges) {
+            return completedRanges.isEmpty() ? 0 : completedRanges.get(completedRanges.size() - 1)[1];
+        }
+    }
+
+    /**
+     * @return true once every byte of the local file has been written
+     */
+    public boolean isComplete() {
+        return getMissingRanges().isEmpty();
+    }
+
+    /**
+     * @return absolute path of the local file
+     */
+    public String getLocalPath() {
+        return localPath;
+    }
+
+    /**
+     * @return length of the local file when the upload started
+     */
+    public long getLocalLength() {
+        return localLength;
+    }
+
+    /**
+     * @return absolute path of the target data object
+     */
+    public String getRemotePath() {
+        return remotePath;
+    }
+}
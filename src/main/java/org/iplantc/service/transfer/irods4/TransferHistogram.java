@@ -0,0 +1,103 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of non-negative values in power of two buckets. Each
+ * value lands in the bucket of its highest set bit, so recording is a couple
+ * of atomic increments and percentiles are accurate to within a factor of
+ * two, which is enough to spot slow transfers without the cost of exact
+ * quantiles. Safe to record into and read from multiple threads.
+ */
+public class TransferHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param value the value to record. Negative values are recorded as 0.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(value == 0 ? 0 : BUCKETS - 1 - Long.numberOfLeadingZeros(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long currentMax;
+        while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+            // another thread raised the max first, try again
+        }
+    }
+
+    /**
+     * @param percentile the percentile to estimate, between 0 and 100
+     * @return the upper bound of the bucket holding the percentile, capped
+     *         at the max recorded value, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long)Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                long upperBound = i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+                return Math.min(upperBound, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * @return number of values recorded
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return sum of the values recorded
+     */
+    public long getSum() {
+        return sum.get();
+    }
+
+    /**
+     * @return largest value recorded, 0 if none
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return mean of the values recorded, 0 if none
+     */
+    public double getMean() {
+        long total = count.get();
+        return total == 0 ? 0 : (double)sum.get() / total;
+    }
+
+    /**
+     * Forgets every recorded value. Values recorded while the reset runs
+     * may be partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+}
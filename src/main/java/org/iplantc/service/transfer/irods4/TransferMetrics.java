@@ -0,0 +1,285 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and histograms of the file transfers made by an {@link IRODS4}
+ * client. Every client records into its own instance, which passes each
+ * value on to the JVM wide {@link #getAggregate()} instance, so hot spots
+ * can be traced to a client while totals stay in one place. Recording costs
+ * a handful of atomic operations and never blocks.
+ * <p>
+ * The aggregate is registered with the platform MBean server the first time
+ * it is used. Per client metrics are only visible over JMX once
+ * {@link #registerMBean(String)} is called, and should be unregistered when
+ * the client is retired so long running services do not leak MBeans.
+ */
+public class TransferMetrics implements TransferMetricsMXBean {
+
+    /** JMX domain the metrics are registered under */
+    public static final String JMX_DOMAIN = "org.iplantc.service.transfer.irods4";
+
+    private static class AggregateHolder {
+        private static final TransferMetrics INSTANCE = new TransferMetrics(null);
+        static {
+            try {
+                INSTANCE.registerMBean("aggregate");
+            } catch (Exception e) {
+                // metrics are still collected, they just can't be seen over JMX
+            }
+        }
+    }
+
+    private final TransferMetrics parent;
+    private final AtomicLong filesTransferred = new AtomicLong();
+    private final AtomicLong filesFailed = new AtomicLong();
+    private final AtomicLong bytesTransferred = new AtomicLong();
+    private final TransferHistogram fileDurationMillis = new TransferHistogram();
+    private final TransferHistogram throughputBytesPerSecond = new TransferHistogram();
+    private final AtomicLongArray retries = new AtomicLongArray(IRODSRetryPolicy.Operation.values().length);
+    private ObjectName objectName;
+
+    /**
+     * Creates metrics which roll up into the {@link #getAggregate()} instance.
+     */
+    public TransferMetrics() {
+        this(getAggregate());
+    }
+
+    /**
+     * @param parent metrics every recorded value is also passed to, or null for none
+     */
+    public TransferMetrics(TransferMetrics parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * @return the metrics of every client in this JVM
+     */
+    public static TransferMetrics getAggregate() {
+        return AggregateHolder.INSTANCE;
+    }
+
+    /**
+     * Records a file transferred successfully.
+     *
+     * @param bytes size of the file
+     * @param durationMillis time the transfer took
+     */
+    public void recordFile(long bytes, long durationMillis) {
+        filesTransferred.incrementAndGet();
+        bytesTransferred.addAndGet(bytes);
+        fileDurationMillis.record(durationMillis);
+        throughputBytesPerSecond.record(bytes * 1000 / Math.max(1, durationMillis));
+
+        if (parent != null) {
+            parent.recordFile(bytes, durationMillis);
+        }
+    }
+
+    /**
+     * Records a file which failed to transfer.
+     */
+    public void recordFailure() {
+        filesFailed.incrementAndGet();
+
+        if (parent != null) {
+            parent.recordFailure();
+        }
+    }
+
+    /**
+     * Records a failed call which is about to be tried again. A retried
+     * upload is also counted as a failed file, so
+     * {@code getFilesFailed() - getPutRetries()} is the number of uploads
+     * which were given up on.
+     *
+     * @param operation the operation being retried
+     */
+    public void recordRetry(IRODSRetryPolicy.Operation operation) {
+        retries.incrementAndGet(operation.ordinal());
+
+        if (parent != null) {
+            parent.recordRetry(operation);
+        }
+    }
+
+    /**
+     * @param operation the operation
+     * @return number of times calls of {@code operation} were retried
+     */
+    public long getRetries(IRODSRetryPolicy.Operation operation) {
+        return retries.get(operation.ordinal());
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server under
+     * {@code org.iplantc.service.transfer.irods4:type=TransferMetrics,name=<name>},
+     * replacing any earlier registration of this instance.
+     *
+     * @param name name distinguishing these metrics, such as the client's endpoint
+     * @return the name the metrics were registered under
+     * @throws JMException if the name is invalid or already taken
+     */
+    public synchronized ObjectName registerMBean(String name) throws JMException {
+        unregisterMBean();
+
+        ObjectName newName = new ObjectName(JMX_DOMAIN + ":type=TransferMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, newName);
+        objectName = newName;
+
+        return objectName;
+    }
+
+    /**
+     * Removes these metrics from the platform MBean server, if registered.
+     */
+    public synchronized void unregisterMBean() {
+        if (objectName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                if (server.isRegistered(objectName)) {
+                    server.unregisterMBean(objectName);
+                }
+            } catch (JMException e) {
+                // already gone
+            } finally {
+                objectName = null;
+            }
+        }
+    }
+
+    /**
+     * @return the name these metrics are registered under, or null if they are not
+     */
+    public synchronized ObjectName getObjectName() {
+        return objectName;
+    }
+
+    @Override
+    public long getFilesTransferred() {
+        return filesTransferred.get();
+    }
+
+    @Override
+    public long getFilesFailed() {
+        return filesFailed.get();
+    }
+
+    @Override
+    public long getBytesTransferred() {
+        return bytesTransferred.get();
+    }
+
+    @Override
+    public long getTransferMillis() {
+        return fileDurationMillis.getSum();
+    }
+
+    @Override
+    public long getMeanThroughputBytesPerSecond() {
+        return getBytesTransferred() * 1000 / Math.max(1, getTransferMillis());
+    }
+
+    @Override
+    public long getThroughputBytesPerSecondP50() {
+        return throughputBytesPerSecond.getPercentile(50);
+    }
+
+    @Override
+    public long getThroughputBytesPerSecondP5() {
+        return throughputBytesPerSecond.getPercentile(5);
+    }
+
+    @Override
+    public double getFileDurationMillisMean() {
+        return fileDurationMillis.getMean();
+    }
+
+    @Override
+    public long getFileDurationMillisP50() {
+        return fileDurationMillis.getPercentile(50);
+    }
+
+    @Override
+    public long getFileDurationMillisP95() {
+        return fileDurationMillis.getPercentile(95);
+    }
+
+    @Override
+    public long getFileDurationMillisP99() {
+        return fileDurationMillis.getPercentile(99);
+    }
+
+    @Override
+    public long getFileDurationMillisMax() {
+        return fileDurationMillis.getMax();
+    }
+
+    @Override
+    public long getRetries() {
+        long total = 0;
+        for (int i = 0; i < retries.length(); i++) {
+            total += retries.get(i);
+        }
+        return total;
+    }
+
+    @Override
+    public long getStatRetries() {
+        return getRetries(IRODSRetryPolicy.Operation.STAT);
+    }
+
+    @Override
+    public long getMkdirsRetries() {
+        return getRetries(IRODSRetryPolicy.Operation.MKDIRS);
+    }
+
+    @Override
+    public long getPutRetries() {
+        return getRetries(IRODSRetryPolicy.Operation.PUT);
+    }
+
+    /**
+     * @return histogram of single file transfer durations in milliseconds
+     */
+    public TransferHistogram getFileDurationHistogram() {
+        return fileDurationMillis;
+    }
+
+    /**
+     * @return histogram of single file transfer throughput in bytes per second
+     */
+    public TransferHistogram getThroughputHistogram() {
+        return throughputBytesPerSecond;
+    }
+
+    /**
+     * Clears these metrics only. The aggregate keeps its totals.
+     */
+    @Override
+    public void reset() {
+        filesTransferred.set(0);
+        filesFailed.set(0);
+        bytesTransferred.set(0);
+        fileDurationMillis.reset();
+        throughputBytesPerSecond.reset();
+        for (int i = 0; i < retries.length(); i++) {
+            retries.set(i, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "filesTransferred=" + getFilesTransferred() + ", filesFailed=" + getFilesFailed()
+                + ", bytesTransferred=" + getBytesTransferred() + ", meanThroughputBytesPerSecond="
+                + getMeanThroughputBytesPerSecond() + ", fileDurationMillisP95=" + getFileDurationMillisP95()
+                + ", retries=" + getRetries();
+    }
+}
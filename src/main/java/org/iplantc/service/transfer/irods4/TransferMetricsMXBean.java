@@ -0,0 +1,96 @@
+package org.iplantc.service.transfer.irods4;
+
+/**
+ * JMX view of the {@link TransferMetrics} of one {@link IRODS4} client or of
+ * every client in the JVM. Durations are in milliseconds and throughput in
+ * bytes per second. Percentiles are estimates accurate to within a factor
+ * of two.
+ */
+public interface TransferMetricsMXBean {
+
+    /**
+     * @return number of files transferred successfully
+     */
+    long getFilesTransferred();
+
+    /**
+     * @return number of files which failed to transfer
+     */
+    long getFilesFailed();
+
+    /**
+     * @return bytes moved by successful file transfers
+     */
+    long getBytesTransferred();
+
+    /**
+     * @return total time spent on successful file transfers
+     */
+    long getTransferMillis();
+
+    /**
+     * @return bytes transferred divided by the time spent transferring them
+     */
+    long getMeanThroughputBytesPerSecond();
+
+    /**
+     * @return median throughput of a single file transfer
+     */
+    long getThroughputBytesPerSecondP50();
+
+    /**
+     * @return throughput below which the slowest 5% of file transfers fall
+     */
+    long getThroughputBytesPerSecondP5();
+
+    /**
+     * @return mean duration of a single file transfer
+     */
+    double getFileDurationMillisMean();
+
+    /**
+     * @return median duration of a single file transfer
+     */
+    long getFileDurationMillisP50();
+
+    /**
+     * @return 95th percentile duration of a single file transfer
+     */
+    long getFileDurationMillisP95();
+
+    /**
+     * @return 99th percentile duration of a single file transfer
+     */
+    long getFileDurationMillisP99();
+
+    /**
+     * @return longest single file transfer
+     */
+    long getFileDurationMillisMax();
+
+    /**
+     * @return number of failed calls of any operation which were tried again
+     */
+    long getRetries();
+
+    /**
+     * @return number of failed metadata lookups which were tried again
+     */
+    long getStatRetries();
+
+    /**
+     * @return number of failed collection creations which were tried again
+     */
+    long getMkdirsRetries();
+
+    /**
+     * @return number of failed uploads which were tried again, each also
+     *         counted in {@link #getFilesFailed()}
+     */
+    long getPutRetries();
+
+    /**
+     * Clears every counter and histogram.
+     */
+    void reset();
+}
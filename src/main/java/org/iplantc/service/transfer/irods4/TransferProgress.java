@@ -0,0 +1,128 @@
+package org.iplantc.service.transfer.irods4;
+
+/**
+ * Snapshot of how far a transfer has gone, handed to a
+ * {@link TransferProgressSink}. The same instance is refilled for every
+ * update of a transfer so reporting does not allocate, which means a sink
+ * must copy any value it wants to keep past the callback.
+ */
+public class TransferProgress {
+
+    private long bytesTransferred;
+    private long totalBytes;
+    private int filesTransferred;
+    private int filesFailed;
+    private int totalFiles;
+    private String currentFile;
+    private long elapsedMillis;
+    private boolean complete;
+
+    TransferProgress() {}
+
+    void update(long bytesTransferred, long totalBytes, int filesTransferred, int filesFailed,
+            int totalFiles, String currentFile, long elapsedMillis, boolean complete) {
+        this.bytesTransferred = bytesTransferred;
+        this.totalBytes = totalBytes;
+        this.filesTransferred = filesTransferred;
+        this.filesFailed = filesFailed;
+        this.totalFiles = totalFiles;
+        this.currentFile = currentFile;
+        this.elapsedMillis = elapsedMillis;
+        this.complete = complete;
+    }
+
+    /**
+     * @return bytes transferred so far, including the partly sent files
+     */
+    public long getBytesTransferred() {
+        return bytesTransferred;
+    }
+
+    /**
+     * @return bytes the whole transfer will move, or 0 if not yet known
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return number of files completed so far
+     */
+    public int getFilesTransferred() {
+        return filesTransferred;
+    }
+
+    /**
+     * @return number of files which failed so far
+     */
+    public int getFilesFailed() {
+        return filesFailed;
+    }
+
+    /**
+     * @return number of files in the whole transfer, or 0 if not yet known
+     */
+    public int getTotalFiles() {
+        return totalFiles;
+    }
+
+    /**
+     * @return source path of the file most recently reported on, may be null
+     */
+    public String getCurrentFile() {
+        return currentFile;
+    }
+
+    /**
+     * @return milliseconds since the transfer started
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return true if this is the last update of the transfer
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return average rate of the transfer so far in bytes per second
+     */
+    public long getBytesPerSecond() {
+        return bytesTransferred * 1000 / Math.max(1, elapsedMillis);
+    }
+
+    /**
+     * @return estimated milliseconds until the transfer completes at the
+     *         average rate so far, 0 once complete, or -1 if it cannot be
+     *         estimated yet
+     */
+    public long getEtaMillis() {
+        if (complete) {
+            return 0;
+        } else if (totalBytes <= 0 || bytesTransferred <= 0) {
+            return -1;
+        }
+        return (long)((double)Math.max(0, totalBytes - bytesTransferred) * elapsedMillis / bytesTransferred);
+    }
+
+    /**
+     * @return percent of the total bytes transferred, or -1 if the total is not known
+     */
+    public double getPercentComplete() {
+        if (complete) {
+            return 100;
+        }
+        return totalBytes <= 0 ? -1 : Math.min(100, bytesTransferred * 100.0 / totalBytes);
+    }
+
+    @Override
+    public String toString() {
+        return "bytesTransferred=" + bytesTransferred + ", totalBytes=" + totalBytes
+                + ", filesTransferred=" + filesTransferred + ", filesFailed=" + filesFailed
+                + ", totalFiles=" + totalFiles + ", currentFile=" + currentFile
+                + ", elapsedMillis=" + elapsedMillis + ", complete=" + complete;
+    }
+}
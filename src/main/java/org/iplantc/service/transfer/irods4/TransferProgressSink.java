@@ -0,0 +1,17 @@
+package org.iplantc.service.transfer.irods4;
+
+/**
+ * Receives rate limited progress updates for a transfer. Updates are
+ * delivered on a transfer thread, one at a time, so implementations should
+ * hand the values off quickly rather than block.
+ */
+public interface TransferProgressSink {
+
+    /**
+     * Called with the latest progress of a transfer. The snapshot is reused
+     * for the next update, so copy any values needed after this returns.
+     *
+     * @param progress the current progress of the transfer
+     */
+    public void progressUpdated(TransferProgress progress);
+}
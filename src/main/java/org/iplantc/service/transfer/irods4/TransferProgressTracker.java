@@ -0,0 +1,163 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adds up the progress of one transfer, which may span many files sent by
+ * many threads, and passes it to a {@link TransferProgressSink} no more than
+ * a fixed number of times per second. Recording progress is a few atomic
+ * operations and a clock read; only the thread which wins the right to the
+ * next update fills the shared {@link TransferProgress} and calls the sink.
+ * The final update from {@link #finish()} is always delivered.
+ */
+public class TransferProgressTracker {
+
+    /** Updates per second used when none is given */
+    public static final int DEFAULT_UPDATES_PER_SECOND = 4;
+
+    private final TransferProgressSink sink;
+    private final long updateIntervalNanos;
+    private final long startedAt = System.nanoTime();
+    private final AtomicLong nextUpdateAt = new AtomicLong(startedAt);
+    private final AtomicLong bytesTransferred = new AtomicLong();
+    private final AtomicInteger filesTransferred = new AtomicInteger();
+    private final AtomicInteger filesFailed = new AtomicInteger();
+    private final TransferProgress progress = new TransferProgress();
+    private volatile long totalBytes = 0;
+    private volatile int totalFiles = 0;
+    private volatile boolean totalsFixed = false;
+    private volatile boolean finished = false;
+    private volatile String currentFile;
+
+    /**
+     * @param sink the sink to deliver updates to
+     * @param maxUpdatesPerSecond most updates the sink will see per second,
+     *        with values below 1 falling back to {@link #DEFAULT_UPDATES_PER_SECOND}
+     */
+    public TransferProgressTracker(TransferProgressSink sink, int maxUpdatesPerSecond) {
+        if (sink == null) {
+            throw new IllegalArgumentException("A progress sink is required");
+        }
+        this.sink = sink;
+        this.updateIntervalNanos = TimeUnit.SECONDS.toNanos(1)
+                / (maxUpdatesPerSecond < 1 ? DEFAULT_UPDATES_PER_SECOND : maxUpdatesPerSecond);
+    }
+
+    /**
+     * Sets the size of the whole transfer up front. Totals reported later by
+     * the individual file transfers are then ignored.
+     *
+     * @param totalBytes bytes the transfer will move
+     * @param totalFiles files the transfer will move
+     */
+    public void expect(long totalBytes, int totalFiles) {
+        this.totalBytes = totalBytes;
+        this.totalFiles = totalFiles;
+        this.totalsFixed = true;
+    }
+
+    /**
+     * Sets the size of the transfer as reported by Jargon, unless it was
+     * already given to {@link #expect(long, int)}.
+     *
+     * @param totalBytes bytes the transfer will move, ignored if not positive
+     * @param totalFiles files the transfer will move, ignored if not positive
+     */
+    void offerTotals(long totalBytes, int totalFiles) {
+        if (!totalsFixed) {
+            if (totalBytes > 0) {
+                this.totalBytes = totalBytes;
+            }
+            if (totalFiles > 0) {
+                this.totalFiles = totalFiles;
+            }
+        }
+    }
+
+    /**
+     * Adds bytes sent for a file still in flight. Negative values take back
+     * bytes of a file which failed.
+     *
+     * @param bytes number of bytes
+     * @param file source path of the file, may be null
+     */
+    public void addBytes(long bytes, String file) {
+        bytesTransferred.addAndGet(bytes);
+        if (file != null) {
+            currentFile = file;
+        }
+        update(false);
+    }
+
+    /**
+     * Records a file as done.
+     *
+     * @param remainingBytes bytes of the file not yet passed to {@link #addBytes(long, String)}
+     * @param file source path of the file, may be null
+     */
+    public void fileCompleted(long remainingBytes, String file) {
+        bytesTransferred.addAndGet(remainingBytes);
+        filesTransferred.incrementAndGet();
+        if (file != null) {
+            currentFile = file;
+        }
+        update(false);
+    }
+
+    /**
+     * Records a file as failed.
+     *
+     * @param sentBytes bytes of the file already passed to {@link #addBytes(long, String)}, which are taken back
+     * @param file source path of the file, may be null
+     */
+    public void fileFailed(long sentBytes, String file) {
+        bytesTransferred.addAndGet(-sentBytes);
+        filesFailed.incrementAndGet();
+        if (file != null) {
+            currentFile = file;
+        }
+        update(false);
+    }
+
+    /**
+     * Delivers the final update of the transfer. Later calls do nothing.
+     */
+    public void finish() {
+        if (!finished) {
+            finished = true;
+            update(true);
+        }
+    }
+
+    /**
+     * @return true once {@link #finish()} has been called
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Delivers an update if one is due, or unconditionally when
+     * {@code force} is true.
+     */
+    private void update(boolean force) {
+        long now = System.nanoTime();
+        if (!force) {
+            long due = nextUpdateAt.get();
+            if (now - due < 0 || finished || !nextUpdateAt.compareAndSet(due, now + updateIntervalNanos)) {
+                return;
+            }
+        }
+
+        synchronized (progress) {
+            if (progress.isComplete()) {
+                return;
+            }
+            progress.update(bytesTransferred.get(), totalBytes, filesTransferred.get(), filesFailed.get(),
+                    totalFiles, currentFile, TimeUnit.NANOSECONDS.toMillis(now - startedAt), force);
+            sink.progressUpdated(progress);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.commons.io.FileUtils;
+import org.irods.jargon.core.pub.domain.ObjStat;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for batched existence and stat lookups against IRODS4 instances.
+ * These tests were run against the {@code agaveapi/irods:4.0.3} Docker image
+ * used for integration testing by the Agave Platform.
+ */
+@Test(singleThreaded=true)
+public class Irods4BatchExistenceTest extends IrodsBaseTestCase {
+
+    @Test(priority=1)
+    public void testBatchDoesExistMatchesSingleDoesExist()
+    {
+        File testDir = stageTestDirectory();
+        String remoteDir = testDir.getName() + "/" + testDir.getName();
+
+        List<String> paths = new ArrayList<String>();
+        paths.add(remoteDir + "/alpha.txt");
+        paths.add(remoteDir + "/beta.txt");
+        paths.add(remoteDir + "/sub1");
+        paths.add(remoteDir + "/" + UUID.randomUUID().toString());
+        paths.add(remoteDir + "/sub1/sub_alpha.txt");
+        paths.add(remoteDir + "/sub1/" + UUID.randomUUID().toString());
+        paths.add(UUID.randomUUID().toString() + "/" + UUID.randomUUID().toString());
+        paths.add("/../../../../../../etc/passwd");
+
+        try {
+            Map<String, Boolean> results = getClient().doesExist(paths);
+
+            Assert.assertEquals(results.size(), paths.size(), "Batch doesExist should return a result for every path");
+
+            for (String path: paths) {
+                Assert.assertEquals(results.get(path), Boolean.valueOf(getClient().doesExist(path)),
+                        "Batch doesExist should match single doesExist for " + path);
+            }
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown on batch existence checks.", e);
+        }
+        finally {
+            try { getClient().delete(testDir.getName()); } catch (Exception e) {}
+            FileUtils.deleteQuietly(testDir);
+        }
+    }
+
+    @Test(priority=2)
+    public void testStatAllReturnsTypeAndSize()
+    {
+        File testDir = stageTestDirectory();
+        String remoteDir = testDir.getName() + "/" + testDir.getName();
+
+        List<String> paths = new ArrayList<String>();
+        paths.add(remoteDir + "/alpha.txt");
+        paths.add(remoteDir + "/sub1");
+        paths.add(remoteDir + "/" + UUID.randomUUID().toString());
+
+        try {
+            Map<String, ObjStat> results = getClient().statAll(paths);
+
+            Assert.assertNull(results.get(paths.get(2)), "statAll should report a missing name as null");
+
+            ObjStat fileStat = results.get(remoteDir + "/alpha.txt");
+            Assert.assertNotNull(fileStat, "statAll should find uploaded file");
+            Assert.assertEquals(RemotePathType.valueOf(fileStat), RemotePathType.FILE, "statAll should report uploaded file as a file");
+            Assert.assertEquals(fileStat.getObjSize(), new File(testDir, "alpha.txt").length(), "statAll should report the uploaded file size");
+
+            ObjStat dirStat = results.get(remoteDir + "/sub1");
+            Assert.assertNotNull(dirStat, "statAll should find uploaded subdirectory");
+            Assert.assertEquals(RemotePathType.valueOf(dirStat), RemotePathType.COLLECTION, "statAll should report uploaded subdirectory as a collection");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown on batch stat of valid paths.", e);
+        }
+        finally {
+            try { getClient().delete(testDir.getName()); } catch (Exception e) {}
+            FileUtils.deleteQuietly(testDir);
+        }
+    }
+}
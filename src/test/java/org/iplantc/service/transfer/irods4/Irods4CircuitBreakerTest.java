@@ -0,0 +1,197 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.net.ConnectException;
+
+import org.iplantc.service.transfer.exceptions.RemoteDataException;
+import org.iplantc.service.transfer.irods4.IRODSCircuitBreaker.State;
+import org.iplantc.service.transfer.irods4.standin.InMemoryAccessObjectFactory;
+import org.irods.jargon.core.exception.CatNoAccessException;
+import org.irods.jargon.core.exception.JargonException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the per-endpoint circuit breaker of the IRODS4 client, run
+ * against the in-memory stand-in for the iRODS access objects. These tests
+ * do not talk to a server, so they run without the {@code agaveapi/irods:4.0.3}
+ * Docker image used for integration testing by the Agave Platform.
+ */
+@Test(singleThreaded=true)
+public class Irods4CircuitBreakerTest {
+
+    private InMemoryAccessObjectFactory standIn;
+    private IRODS4 client;
+    private IRODSCircuitBreaker breaker;
+
+    @BeforeMethod
+    protected void beforeMethod() throws Exception {
+        standIn = new InMemoryAccessObjectFactory();
+        client = IrodsBaseTestCase.createStandInClient(standIn);
+
+        // a private breaker keeps the shared one for this endpoint out of the tests
+        breaker = new IRODSCircuitBreaker("docker.example.com:1247");
+        breaker.setFailureThreshold(3);
+        breaker.setOpenMillis(200);
+        client.setCircuitBreaker(breaker);
+        // retries would spend several injected failures on a single call
+        client.setRetryPolicy(null);
+
+        client.authenticate();
+        client.mkdirs("");
+        standIn.resetCallCounts();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    protected void afterMethod() {
+        try { client.disconnect(); } catch (Exception e) {}
+    }
+
+    private JargonException connectionRefused() {
+        return new JargonException("unable to connect", new ConnectException("Connection refused"));
+    }
+
+    /**
+     * @return calls which reached the server, whether to authenticate or stat
+     */
+    private long serverCalls() {
+        return standIn.getCallCount("authenticateIRODSAccount") + standIn.getCallCount("getObjStat");
+    }
+
+    private boolean probe(String path) throws Exception {
+        try {
+            client.authenticate();
+            client.doesExist(path);
+            return true;
+        } catch (RemoteDataException e) {
+            return false;
+        }
+    }
+
+    @Test
+    public void testConnectionFailuresOpenTheBreaker() throws Exception
+    {
+        standIn.failNextCalls(InMemoryAccessObjectFactory.ANY_METHOD, 3, connectionRefused());
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertFalse(probe("down" + i), "doesExist: connection failures should be thrown");
+        }
+        Assert.assertEquals(breaker.getState(), State.OPEN, "3 connection failures in a row should open the breaker");
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            Assert.assertFalse(probe("down"), "doesExist: calls should fail fast while the breaker is open");
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        Assert.assertEquals(serverCalls(), 3, "No calls should reach the server while open");
+        Assert.assertEquals(breaker.getRejected(), 100, "Every call should be rejected while open");
+        Assert.assertTrue(elapsedMillis < 100, "Rejected calls should not wait, took " + elapsedMillis + "ms for 100");
+    }
+
+    @Test
+    public void testProbeClosesTheBreakerOnRecovery() throws Exception
+    {
+        standIn.failNextCalls(InMemoryAccessObjectFactory.ANY_METHOD, 3, connectionRefused());
+        for (int i = 0; i < 3; i++) {
+            probe("down" + i);
+        }
+        Assert.assertEquals(breaker.getState(), State.OPEN, "The breaker should be open");
+
+        Thread.sleep(250);
+        Assert.assertTrue(probe("up"), "doesExist: the probe should reach the recovered server");
+        Assert.assertEquals(breaker.getState(), State.CLOSED, "A successful probe should close the breaker");
+        Assert.assertTrue(probe("up"), "doesExist: calls should go through once closed");
+    }
+
+    @Test
+    public void testFailedProbeReopensTheBreaker() throws Exception
+    {
+        standIn.failNextCalls(InMemoryAccessObjectFactory.ANY_METHOD, 4, connectionRefused());
+        for (int i = 0; i < 3; i++) {
+            probe("down" + i);
+        }
+
+        Thread.sleep(250);
+        Assert.assertFalse(probe("down"), "doesExist: the probe should fail against a server still down");
+        Assert.assertEquals(breaker.getState(), State.OPEN, "A failed probe should open the breaker again");
+        Assert.assertEquals(breaker.getTrips(), 2, "The breaker should have opened twice");
+        Assert.assertFalse(probe("down"), "doesExist: calls should fail fast after the failed probe");
+        Assert.assertEquals(serverCalls(), 4, "Only the probe should reach the server");
+    }
+
+    @Test
+    public void testOnlyOneProbeAtATime() throws Exception
+    {
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure();
+        }
+        Thread.sleep(250);
+
+        breaker.beforeCall();
+        Assert.assertEquals(breaker.getState(), State.HALF_OPEN, "The first caller should become the probe");
+        try {
+            breaker.beforeCall();
+            Assert.fail("A second caller should fail fast while the probe is out");
+        } catch (RemoteDataException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testFailedAuthenticationOpensTheBreaker() throws Exception
+    {
+        client.disconnect();
+        standIn.failNextCalls("authenticateIRODSAccount", 3, connectionRefused());
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                client.authenticate();
+                Assert.fail("authenticate: connection failures should be thrown");
+            } catch (RemoteDataException e) {
+                // expected
+            }
+        }
+        Assert.assertEquals(breaker.getState(), State.OPEN, "3 failed connection attempts should open the breaker");
+
+        try {
+            client.authenticate();
+            Assert.fail("authenticate: should fail fast while the breaker is open");
+        } catch (RemoteDataException e) {
+            // expected
+        }
+        Assert.assertEquals(standIn.getCallCount("authenticateIRODSAccount"), 3,
+                "No connection attempts should reach the server while open");
+    }
+
+    @Test
+    public void testServerErrorsDoNotOpenTheBreaker() throws Exception
+    {
+        standIn.failNextCalls("getObjStat", 5, new CatNoAccessException("no access"));
+
+        for (int i = 0; i < 5; i++) {
+            Assert.assertFalse(probe("denied" + i), "doesExist: permission errors should be thrown");
+        }
+        for (int i = 0; i < 5; i++) {
+            Assert.assertFalse(client.doesExist("missing" + i), "doesExist: missing paths should not exist");
+        }
+
+        Assert.assertEquals(breaker.getState(), State.CLOSED, "Errors from a live server should not open the breaker");
+        Assert.assertEquals(breaker.getConsecutiveFailures(), 0, "No connectivity failures should be counted");
+    }
+
+    @Test
+    public void testBreakerIsSharedPerEndpoint() throws Exception
+    {
+        Assert.assertSame(IRODSCircuitBreaker.getSharedInstance("irods.example.com", 1247),
+                IRODSCircuitBreaker.getSharedInstance("irods.example.com", 1247),
+                "Clients of the same endpoint should share a breaker");
+        Assert.assertNotSame(IRODSCircuitBreaker.getSharedInstance("irods.example.com", 1247),
+                IRODSCircuitBreaker.getSharedInstance("irods.example.com", 1248),
+                "Clients of different endpoints should not share a breaker");
+        Assert.assertSame(new IRODS4("irods.example.com", 1247, "testuser", "testuser", "demoResc", "iplant", "work")
+                .getCircuitBreaker(), IRODSCircuitBreaker.getSharedInstance("irods.example.com", 1247),
+                "New clients should use the shared breaker by default");
+    }
+}
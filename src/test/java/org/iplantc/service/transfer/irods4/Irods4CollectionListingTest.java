@@ -0,0 +1,71 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.commons.io.FileUtils;
+import org.irods.jargon.core.query.CollectionAndDataObjectListingEntry;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for paged collection listings against IRODS4 instances. These
+ * tests were run against the {@code agaveapi/irods:4.0.3} Docker image used
+ * for integration testing by the Agave Platform.
+ */
+@Test(singleThreaded=true)
+public class Irods4CollectionListingTest extends IrodsBaseTestCase {
+
+    @Test(priority=1)
+    public void testListReturnsCollectionsAndDataObjects()
+    {
+        File testDir = stageTestDirectory();
+        String remoteDir = testDir.getName() + "/" + testDir.getName();
+
+        try {
+            Set<String> names = new HashSet<String>();
+            for (CollectionAndDataObjectListingEntry entry: getClient().list(remoteDir)) {
+                String name = entry.getPathOrName();
+                names.add(name.substring(name.lastIndexOf('/') + 1));
+            }
+
+            Assert.assertEquals(names.size(), 3, "list: should return every child of the collection exactly once");
+            Assert.assertTrue(names.contains("alpha.txt"), "list: should return data object alpha.txt");
+            Assert.assertTrue(names.contains("beta.txt"), "list: should return data object beta.txt");
+            Assert.assertTrue(names.contains("sub1"), "list: should return subcollection sub1");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown listing a valid collection.", e);
+        }
+        finally {
+            try { getClient().delete(testDir.getName()); } catch (Exception e) {}
+            FileUtils.deleteQuietly(testDir);
+        }
+    }
+
+    @Test(priority=1)
+    public void testListOfEmptyCollectionReturnsNoEntries()
+    {
+        String dirName = UUID.randomUUID().toString();
+
+        try {
+            getClient().mkdirs(dirName);
+
+            Assert.assertFalse(getClient().list(dirName).hasNext(), "list: should return no entries for an empty collection");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown listing an empty collection.", e);
+        }
+        finally {
+            try { getClient().delete(dirName); } catch (Exception e) {}
+        }
+    }
+
+    @Test(priority=1, expectedExceptions=java.io.FileNotFoundException.class)
+    public void testListOfMissingPathThrowsFileNotFoundException() throws Exception
+    {
+        getClient().list(UUID.randomUUID().toString());
+    }
+}
@@ -0,0 +1,71 @@
+package org.iplantc.service.transfer.irods4;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for connection reuse across short-lived {@link IRODS4} clients.
+ * These tests were run against the {@code agaveapi/irods:4.0.3} Docker image
+ * used for integration testing by the Agave Platform.
+ */
+@Test(singleThreaded=true)
+public class Irods4ConnectionPoolTest extends IrodsBaseTestCase {
+
+    @Test(priority=1)
+    public void testShortLivedClientsReusePooledConnection()
+    {
+        IRODSConnectionPool pool = getClient().getConnectionPool();
+        Assert.assertNotNull(pool, "Clients should use the shared connection pool by default");
+
+        // release this thread's connection so the next client must borrow it back
+        getClient().disconnect();
+
+        IRODSConnectionPool.Statistics before = pool.getStatistics();
+
+        try {
+            for (int i=0; i<10; i++) {
+                IRODS4 client = createClient();
+                try {
+                    client.authenticate();
+                    Assert.assertTrue(client.doesExist(""), "doesExist: test home directory should exist");
+                }
+                finally {
+                    client.disconnect();
+                }
+            }
+        }
+        catch (Exception e) {
+            Assert.fail("Short lived clients should authenticate and stat without error", e);
+        }
+
+        IRODSConnectionPool.Statistics after = pool.getStatistics();
+
+        Assert.assertTrue(after.getCreated() - before.getCreated() <= 1,
+                "Sequential short lived clients should share a single pooled connection");
+        Assert.assertTrue(after.getReused() - before.getReused() >= 9,
+                "Sequential short lived clients should be served from idle pooled connections");
+    }
+
+    @Test(priority=2)
+    public void testUnpooledClientOpensDedicatedConnection()
+    {
+        IRODSConnectionPool pool = IRODSConnectionPool.getSharedInstance();
+        IRODSConnectionPool.Statistics before = pool.getStatistics();
+
+        IRODS4 client = createClient();
+        client.setConnectionPool(null);
+        try {
+            client.authenticate();
+            Assert.assertTrue(client.doesExist(""), "doesExist: test home directory should exist");
+        }
+        catch (Exception e) {
+            Assert.fail("Unpooled client should authenticate and stat without error", e);
+        }
+        finally {
+            client.disconnect();
+        }
+
+        Assert.assertEquals(pool.getStatistics().getBorrowed(), before.getBorrowed(),
+                "Unpooled client should not borrow from the shared pool");
+    }
+}
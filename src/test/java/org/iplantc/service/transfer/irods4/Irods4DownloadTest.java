@@ -0,0 +1,140 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.UUID;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for downloads from IRODS4 instances. These tests were run 
+ * against the {@code agaveapi/irods:4.0.3} Docker image used for integration 
+ * testing by the Agave Platform.
+ */
+@Test(singleThreaded=true)
+public class Irods4DownloadTest extends IrodsBaseTestCase {
+
+    @Test(priority=1)
+    public void testGetReplacesExistingLocalFile()
+    {
+        File localFile = stageTestFile();
+        File downloadDir = new File(FileUtils.getTempDirectory(), UUID.randomUUID().toString());
+        File downloadFile = new File(downloadDir, "download.txt");
+        
+        try {
+            FileUtils.write(downloadFile, "a previous copy which is longer than the uploaded file");
+            
+            getClient().get(localFile.getName() + "/" + localFile.getName(), downloadFile);
+            
+            Assert.assertEquals(FileUtils.readFileToString(downloadFile), FileUtils.readFileToString(localFile), 
+                    "Downloaded file should replace the existing copy");
+            Assert.assertEquals(downloadDir.list().length, 1, "Download should be renamed into place, leaving no partial file");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown downloading over an existing file.", e);
+        }
+        finally {
+            try { getClient().delete(localFile.getName()); } catch (Exception e) {}
+            FileUtils.deleteQuietly(localFile);
+            FileUtils.deleteQuietly(downloadDir);
+        }
+    }
+    
+    @Test(priority=1)
+    public void testGetFileToLocalFile()
+    {
+        File localFile = stageTestFile();
+        File downloadFile = new File(FileUtils.getTempDirectory(), UUID.randomUUID().toString());
+        
+        try {
+            getClient().get(localFile.getName() + "/" + localFile.getName(), downloadFile);
+            
+            Assert.assertEquals(FileUtils.readFileToString(downloadFile), FileUtils.readFileToString(localFile), 
+                    "Downloaded file should match uploaded file");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown downloading a valid file.", e);
+        }
+        finally {
+            try { getClient().delete(localFile.getName()); } catch (Exception e) {}
+            FileUtils.deleteQuietly(localFile);
+            FileUtils.deleteQuietly(downloadFile);
+        }
+    }
+    
+    @Test(priority=1)
+    public void testGetFileToChannel()
+    {
+        File localFile = stageTestFile();
+        
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            long written = getClient().get(localFile.getName() + "/" + localFile.getName(), Channels.newChannel(out));
+            
+            Assert.assertEquals(written, localFile.length(), "Bytes written should match uploaded file size");
+            Assert.assertEquals(out.toString(), FileUtils.readFileToString(localFile), 
+                    "Streamed content should match uploaded file");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown streaming a valid file.", e);
+        }
+        finally {
+            try { getClient().delete(localFile.getName()); } catch (Exception e) {}
+            FileUtils.deleteQuietly(localFile);
+        }
+    }
+    
+    @Test(priority=1)
+    public void testReadRangeIntoByteBuffer()
+    {
+        File localFile = stageTestFile();
+        String remotePath = localFile.getName() + "/" + localFile.getName();
+        
+        try {
+            byte[] expected = FileUtils.readFileToByteArray(localFile);
+            int offset = expected.length / 2;
+            ByteBuffer heap = ByteBuffer.allocate(expected.length - offset);
+            
+            int read = getClient().read(remotePath, offset, heap);
+            
+            Assert.assertEquals(read, expected.length - offset, "read: should fill the buffer with the tail of the file");
+            for (int i = 0; i < read; i++) {
+                Assert.assertEquals(heap.get(i), expected[offset + i], "read: byte " + i + " should match the local file");
+            }
+            Assert.assertEquals(getClient().read(remotePath, expected.length, ByteBuffer.allocate(4)), -1, 
+                    "read: should report end of stream past the end of the file");
+            
+            ByteBuffer direct = ByteBuffer.allocateDirect(4);
+            IRODSSeekableByteChannel channel = getClient().openChannel(remotePath);
+            try {
+                channel.position(1);
+                Assert.assertEquals(channel.read(direct), 4, "channel: should read into a direct buffer");
+                Assert.assertEquals(direct.get(0), expected[1], "channel: should read from the requested position");
+                Assert.assertEquals(channel.position(), 5, "channel: position should advance by the bytes read");
+                
+                channel.position(expected.length);
+                direct.clear();
+                Assert.assertEquals(channel.read(direct), -1, "channel: should report end of stream past the end of the file");
+            } finally {
+                channel.close();
+            }
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown reading a range of a valid file.", e);
+        }
+        finally {
+            try { getClient().delete(localFile.getName()); } catch (Exception e) {}
+            FileUtils.deleteQuietly(localFile);
+        }
+    }
+    
+    @Test(priority=1, expectedExceptions=java.io.FileNotFoundException.class)
+    public void testGetMissingFileThrowsFileNotFoundException() throws Exception
+    {
+        getClient().get(UUID.randomUUID().toString(), new File(FileUtils.getTempDirectory(), UUID.randomUUID().toString()));
+    }
+}
@@ -0,0 +1,168 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.File;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.UUID;
+
+import javax.net.ssl.SSLHandshakeException;
+
+import org.apache.commons.io.FileUtils;
+import org.iplantc.service.transfer.exceptions.RemoteConnectionException;
+import org.iplantc.service.transfer.exceptions.RemoteDataException;
+import org.iplantc.service.transfer.exceptions.RemotePermissionException;
+import org.iplantc.service.transfer.irods4.IRODSErrorClassifier.Category;
+import org.iplantc.service.transfer.irods4.standin.InMemoryAccessObjectFactory;
+import org.irods.jargon.core.exception.AuthenticationException;
+import org.irods.jargon.core.exception.CatNoAccessException;
+import org.irods.jargon.core.exception.DataNotFoundException;
+import org.irods.jargon.core.exception.DuplicateDataException;
+import org.irods.jargon.core.exception.JargonException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the error classification used by the IRODS4 client, run against
+ * the in-memory stand-in for the iRODS access objects. These tests do not
+ * talk to a server, so they run without the {@code agaveapi/irods:4.0.3}
+ * Docker image used for integration testing by the Agave Platform.
+ */
+@Test(singleThreaded=true)
+public class Irods4ErrorClassifierTest {
+
+    private InMemoryAccessObjectFactory standIn;
+    private IRODS4 client;
+    private File localDir;
+
+    @BeforeMethod
+    protected void beforeMethod() throws Exception {
+        standIn = new InMemoryAccessObjectFactory();
+        client = IrodsBaseTestCase.createStandInClient(standIn);
+        client.setCircuitBreaker(null);
+        client.setTransferMetrics(null);
+        client.setRetryPolicy(null);
+        client.authenticate();
+        client.mkdirs("");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    protected void afterMethod() {
+        try { client.disconnect(); } catch (Exception e) {}
+        FileUtils.deleteQuietly(localDir);
+    }
+
+    @Test
+    public void testClassifyByExceptionType() throws Exception
+    {
+        Assert.assertEquals(IRODSErrorClassifier.classify(new DuplicateDataException("dup")), Category.ALREADY_EXISTS,
+                "DuplicateDataException should mean the target exists");
+        Assert.assertEquals(IRODSErrorClassifier.classify(new DataNotFoundException("gone")), Category.NOT_FOUND,
+                "DataNotFoundException should mean the target is missing");
+        Assert.assertEquals(IRODSErrorClassifier.classify(new CatNoAccessException("denied")), Category.PERMISSION_DENIED,
+                "CatNoAccessException should mean permission was denied");
+        Assert.assertEquals(IRODSErrorClassifier.classify(new AuthenticationException("bad password")), Category.AUTHENTICATION,
+                "AuthenticationException should mean the credentials were rejected");
+        Assert.assertEquals(IRODSErrorClassifier.classify(new JargonException("something else")), Category.SERVER,
+                "Unknown errors should fall back to a server error");
+    }
+
+    @Test
+    public void testClassifyByErrorCode() throws Exception
+    {
+        Assert.assertEquals(IRODSErrorClassifier.classify(new JargonException("dup", -809000)), Category.ALREADY_EXISTS,
+                "-809000 should mean the target exists");
+        Assert.assertEquals(IRODSErrorClassifier.classify(new JargonException("dup", -809002)), Category.ALREADY_EXISTS,
+                "The errno in the last digits of a code should be ignored");
+        Assert.assertEquals(IRODSErrorClassifier.classify(new JargonException("denied", -818000)), Category.PERMISSION_DENIED,
+                "-818000 should mean permission was denied");
+        Assert.assertEquals(IRODSErrorClassifier.classify(new JargonException("read failed", -116104)), Category.CONNECTION,
+                "A socket read error should mean the connection dropped");
+        Assert.assertTrue(IRODSErrorClassifier.isAlreadyExists(new JargonException("dup", -809000)),
+                "isAlreadyExists should recognize the error code");
+        Assert.assertFalse(IRODSErrorClassifier.isAlreadyExists(new JargonException("other", -818000)),
+                "isAlreadyExists should not match other codes");
+    }
+
+    @Test
+    public void testClassifyByCauseChain() throws Exception
+    {
+        JargonException refused = new JargonException("unable to connect", new ConnectException("Connection refused"));
+        JargonException timedOut = new JargonException("read failed", new SocketTimeoutException("Read timed out"));
+        JargonException ssl = new JargonException("unable to start ssl socket", new SSLHandshakeException("bad cert"));
+
+        Assert.assertEquals(IRODSErrorClassifier.classify(refused), Category.CONNECTION, "A refused connection is a connection failure");
+        Assert.assertEquals(IRODSErrorClassifier.classify(timedOut), Category.CONNECTION, "A socket timeout is a connection failure");
+        Assert.assertEquals(IRODSErrorClassifier.classify(ssl), Category.SSL, "An SSL handshake failure is an SSL failure");
+        Assert.assertTrue(IRODSErrorClassifier.isRetryable(new RemoteDataException("wrapped", refused)),
+                "Connection failures should be retryable however deeply they are wrapped");
+        Assert.assertFalse(IRODSErrorClassifier.isRetryable(ssl), "SSL failures should not be retryable");
+        Assert.assertFalse(IRODSErrorClassifier.classify(new JargonException((String)null)) == null,
+                "Errors without a message should still be classified");
+    }
+
+    @Test
+    public void testMkdirTreatsExistingCodeAsFalse() throws Exception
+    {
+        standIn.failNextCalls("mkdir", 1, new JargonException("CATALOG_ALREADY_HAS_ITEM_BY_THAT_NAME", -809000));
+
+        Assert.assertFalse(client.mkdir("existing"), "mkdir: an existing collection should return false");
+    }
+
+    @Test
+    public void testMkdirPermissionFailureIsNotRetryable() throws Exception
+    {
+        standIn.failNextCalls("mkdir", 1, new JargonException("no access", -818000));
+
+        try {
+            client.mkdir("denied");
+            Assert.fail("mkdir: permission failure should be thrown");
+        } catch (RemotePermissionException e) {
+            Assert.assertFalse(e.isRetryable(), "Permission failures should not be retryable");
+        }
+    }
+
+    @Test
+    public void testStatConnectionFailureIsRetryable() throws Exception
+    {
+        standIn.failNextCalls("getObjStat", 1, new JargonException("unable to connect", new ConnectException("Connection refused")));
+
+        try {
+            client.doesExist("unreachable");
+            Assert.fail("doesExist: connection failure should be thrown");
+        } catch (RemoteConnectionException e) {
+            Assert.assertTrue(e.isRetryable(), "Connection failures should be retryable");
+        }
+    }
+
+    @Test
+    public void testStatFailureWithoutMessageDoesNotThrowNullPointer() throws Exception
+    {
+        standIn.failNextCalls("getObjStat", 1, new JargonException((String)null));
+
+        try {
+            client.doesExist("nomessage");
+            Assert.fail("doesExist: failure should be thrown");
+        } catch (RemoteDataException e) {
+            Assert.assertFalse(e.isRetryable(), "Unknown server errors should not be retryable");
+        }
+    }
+
+    @Test
+    public void testPutConnectionFailureIsRetryable() throws Exception
+    {
+        localDir = new File(FileUtils.getTempDirectory(), UUID.randomUUID().toString());
+        File localFile = new File(localDir, "file.dat");
+        FileUtils.writeByteArrayToFile(localFile, new byte[16]);
+        standIn.failNextCalls("putOperation", 1, new JargonException("reset", new java.net.SocketException("Connection reset")));
+
+        try {
+            client.put(localFile, "");
+            Assert.fail("put: connection failure should be thrown");
+        } catch (RemoteDataException e) {
+            Assert.assertTrue(e instanceof RemoteConnectionException, "put: a dropped connection should be reported as such");
+            Assert.assertTrue(e.isRetryable(), "put: a dropped connection should be retryable");
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.File;
+import java.util.UUID;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for {@link KnownCollectionCache} use by uploads and directory
+ * creation against IRODS4 instances. These tests were run against the
+ * {@code agaveapi/irods:4.0.3} Docker image used for integration testing by
+ * the Agave Platform.
+ */
+@Test(singleThreaded=true)
+public class Irods4KnownCollectionCacheTest extends IrodsBaseTestCase {
+
+    @BeforeMethod
+    protected void beforeMethod() {
+        getClient().setKnownCollections(new KnownCollectionCache());
+    }
+    
+    @AfterMethod(alwaysRun=true)
+    protected void afterMethod() {
+        getClient().setKnownCollections(null);
+    }
+    
+    @Test(priority=1)
+    public void testRepeatedPutsIntoSameCollectionHitCache()
+    {
+        String dirName = UUID.randomUUID().toString();
+        File localFile = null;
+        KnownCollectionCache cache = getClient().getKnownCollections();
+        
+        try {
+            localFile = File.createTempFile(UUID.randomUUID().toString(), "tmp");
+            FileUtils.write(localFile, "Some temp data");
+            
+            getClient().put(localFile, dirName);
+            long hits = cache.getHits();
+            long misses = cache.getMisses();
+            
+            for (int i = 0; i < 3; i++) {
+                getClient().put(localFile, dirName);
+            }
+            
+            Assert.assertEquals(cache.getMisses(), misses, "put: should not check the server for a known parent collection");
+            Assert.assertEquals(cache.getHits(), hits + 3, "put: should find the parent collection in the cache every time");
+            Assert.assertTrue(getClient().doesExist(dirName + "/" + localFile.getName()), "put: should still upload the file");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown uploading into a known collection.", e);
+        }
+        finally {
+            try { getClient().delete(dirName); } catch (Exception e) {}
+            FileUtils.deleteQuietly(localFile);
+        }
+    }
+    
+    @Test(priority=2)
+    public void testDeleteForgetsKnownCollection()
+    {
+        String dirName = UUID.randomUUID().toString();
+        
+        try {
+            Assert.assertTrue(getClient().mkdirs(dirName + "/child"), "mkdirs: should create missing directories");
+            Assert.assertFalse(getClient().mkdirs(dirName + "/child"), "mkdirs: should report known directory as existing");
+            Assert.assertTrue(getClient().getKnownCollections().contains(getClient().resolveStatPath(dirName)), 
+                    "mkdirs: should record parent collections as known");
+            
+            getClient().delete(dirName);
+            
+            Assert.assertFalse(getClient().getKnownCollections().contains(getClient().resolveStatPath(dirName + "/child")), 
+                    "delete: should forget deleted collections and their children");
+            Assert.assertTrue(getClient().mkdirs(dirName + "/child"), "mkdirs: should recreate a deleted directory");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown creating and deleting directories.", e);
+        }
+        finally {
+            try { getClient().delete(dirName); } catch (Exception e) {}
+        }
+    }
+}
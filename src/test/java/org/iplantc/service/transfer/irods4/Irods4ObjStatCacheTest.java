@@ -0,0 +1,95 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for {@link ObjStatCache} hits and write-through invalidation
+ * against IRODS4 instances. These tests were run against the
+ * {@code agaveapi/irods:4.0.3} Docker image used for integration testing by
+ * the Agave Platform.
+ */
+@Test(singleThreaded=true)
+public class Irods4ObjStatCacheTest extends IrodsBaseTestCase {
+
+    @BeforeMethod
+    protected void beforeMethod() {
+        getClient().setObjStatCache(new ObjStatCache(100, 60000));
+    }
+
+    @AfterMethod(alwaysRun=true)
+    protected void afterMethod() {
+        getClient().setObjStatCache(null);
+    }
+
+    @Test(priority=1)
+    public void testRepeatedExistenceChecksAreServedFromCache()
+    {
+        File localFile = stageTestFile();
+        ObjStatCache cache = getClient().getObjStatCache();
+
+        try {
+            Assert.assertTrue(getClient().doesExist(localFile.getName()), "doesExist: should return true for uploaded file");
+            long misses = cache.getMisses();
+
+            Assert.assertTrue(getClient().doesExist(localFile.getName()), "doesExist: should return true for cached file");
+            Assert.assertTrue(getClient().doesExist(localFile.getName()), "doesExist: should return true for cached file");
+
+            Assert.assertEquals(cache.getMisses(), misses, "Repeated stat of the same path should not go to the server");
+            Assert.assertTrue(cache.getHits() >= 2, "Repeated stat of the same path should be counted as cache hits");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown on existence checks for valid files and collections.", e);
+        }
+        finally {
+            try { getClient().delete(localFile.getName()); } catch (Exception e) {}
+            FileUtils.deleteQuietly(localFile);
+        }
+    }
+
+    @Test(priority=2)
+    public void testDeleteInvalidatesCachedStat()
+    {
+        File localFile = stageTestFile();
+
+        try {
+            Assert.assertTrue(getClient().doesExist(localFile.getName()), "doesExist: should return true for uploaded file");
+
+            getClient().delete(localFile.getName());
+
+            Assert.assertFalse(getClient().doesExist(localFile.getName()), "doesExist: should return false after deletion with a warm cache");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown on existence checks after deletion.", e);
+        }
+        finally {
+            try { getClient().delete(localFile.getName()); } catch (Exception e) {}
+            FileUtils.deleteQuietly(localFile);
+        }
+    }
+
+    @Test(priority=3)
+    public void testMkdirAfterMissIsVisible()
+    {
+        String dirName = "objstat-cache-mkdir";
+
+        try {
+            Assert.assertFalse(getClient().doesExist(dirName), "doesExist: should return false before creation");
+
+            Assert.assertTrue(getClient().mkdir(dirName), "mkdir: should create missing directory");
+
+            Assert.assertTrue(getClient().doesExist(dirName), "doesExist: should return true after creation with a warm cache");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown on existence checks after creation.", e);
+        }
+        finally {
+            try { getClient().delete(dirName); } catch (Exception e) {}
+        }
+    }
+}
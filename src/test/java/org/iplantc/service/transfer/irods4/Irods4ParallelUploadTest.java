@@ -0,0 +1,101 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for parallel directory uploads against IRODS4 instances. These
+ * tests were run against the {@code agaveapi/irods:4.0.3} Docker image used
+ * for integration testing by the Agave Platform.
+ */
+@Test(singleThreaded=true)
+public class Irods4ParallelUploadTest extends IrodsBaseTestCase {
+
+    @Test(priority=1)
+    public void testParallelPutUploadsEntireTree()
+    {
+        File testDir = null;
+        try {
+            testDir = createLocalTestDirectory();
+            String remoteDir = testDir.getName() + "/" + testDir.getName();
+
+            BulkOperationReport report = getClient().put(testDir, testDir.getName(), 4);
+
+            Assert.assertFalse(report.hasErrors(), "Parallel put should not report errors: " + report.getFailures());
+            Assert.assertEquals(report.getSucceeded(), 4, "Parallel put should upload every file in the tree");
+            Assert.assertEquals(report.getBytes(), FileUtils.sizeOfDirectory(testDir), "Parallel put should report every byte uploaded");
+
+            Assert.assertTrue(getClient().doesExist(remoteDir + "/alpha.txt"), "alpha.txt should exist after parallel put");
+            Assert.assertTrue(getClient().doesExist(remoteDir + "/beta.txt"), "beta.txt should exist after parallel put");
+            Assert.assertTrue(getClient().isDirectory(remoteDir + "/sub1"), "sub1 should be a collection after parallel put");
+            Assert.assertTrue(getClient().doesExist(remoteDir + "/sub1/sub_alpha.txt"), "sub1/sub_alpha.txt should exist after parallel put");
+            Assert.assertTrue(getClient().doesExist(remoteDir + "/sub1/sub_beta.txt"), "sub1/sub_beta.txt should exist after parallel put");
+        }
+        catch (Exception e) {
+            Assert.fail("Parallel put of a valid directory should not throw an exception.", e);
+        }
+        finally {
+            if (testDir != null) {
+                try { getClient().delete(testDir.getName()); } catch (Exception e) {}
+                FileUtils.deleteQuietly(testDir);
+            }
+        }
+    }
+
+    @Test(priority=2)
+    public void testParallelPutOfSingleFileBehavesLikePut()
+    {
+        File localFile = null;
+        try {
+            localFile = File.createTempFile("parallel-put", "tmp");
+            FileUtils.write(localFile, "Some temp data");
+
+            BulkOperationReport report = getClient().put(localFile, localFile.getName(), 4);
+
+            Assert.assertFalse(report.hasErrors(), "Parallel put of a single file should not report errors");
+            Assert.assertEquals(report.getSucceeded(), 1, "Parallel put of a single file should upload one file");
+            Assert.assertTrue(getClient().doesExist(localFile.getName()), "File should exist after parallel put");
+        }
+        catch (Exception e) {
+            Assert.fail("Parallel put of a valid file should not throw an exception.", e);
+        }
+        finally {
+            if (localFile != null) {
+                try { getClient().delete(localFile.getName()); } catch (Exception e) {}
+                FileUtils.deleteQuietly(localFile);
+            }
+        }
+    }
+
+    @Test(priority=3)
+    public void testPutWithTransferOptions()
+    {
+        File localFile = null;
+        try {
+            localFile = File.createTempFile("options-put", "tmp");
+            FileUtils.write(localFile, "Some temp data");
+
+            IRODSTransferOptions options = new IRODSTransferOptions();
+            options.setParallelThreads(4);
+            options.setPutBufferSize(4 * 1024 * 1024);
+            options.setLargeFileThreshold(1);
+            options.setChecksumPolicy(IRODSTransferOptions.ChecksumPolicy.VERIFY);
+
+            getClient().put(localFile, localFile.getName(), options);
+
+            Assert.assertTrue(getClient().doesExist(localFile.getName()), "File should exist after put with transfer options");
+        }
+        catch (Exception e) {
+            Assert.fail("Put with valid transfer options should not throw an exception.", e);
+        }
+        finally {
+            if (localFile != null) {
+                try { getClient().delete(localFile.getName()); } catch (Exception e) {}
+                FileUtils.deleteQuietly(localFile);
+            }
+        }
+    }
+}
@@ -81,4 +81,36 @@ public class Irods4PathExistenceTest extends IrodsBaseTestCase {
             }
         }
     }
-}
\ No newline at end of file
+    
+    @Test(dataProvider="testIRODSFileExistsReturnsFalseOnMissingFileProvider", priority=3)
+    public void testProbeReturnsAbsentOnMissingPath(String filename, String message)
+    {
+        try {
+            Assert.assertEquals(getClient().probe(filename), RemotePathType.ABSENT, "probe: " + message);
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown on probes of missing paths", e);
+        }
+    }
+    
+    @Test(dataProvider="testIRODSFileExistsReturnsFalseOnMissingFileProvider", priority=4)
+    public void testProbeReturnsCollectionOnEmptyDirectories(String filename, String message)
+    {
+        try {
+            Assert.assertTrue(getClient().mkdirs(filename), "Failed to created " + filename + " on remote system.");
+            
+            Assert.assertEquals(getClient().probe(filename), RemotePathType.COLLECTION, "probe: should return COLLECTION for valid empty folder");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown on probes of valid paths", e);
+        }
+        finally {
+            try { 
+                getClient().delete(filename); 
+            } 
+            catch (Exception e) { 
+                Assert.fail("Failed to clean up after test", e); 
+            }
+        }
+    }
+}
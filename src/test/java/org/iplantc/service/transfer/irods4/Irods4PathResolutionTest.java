@@ -0,0 +1,77 @@
+package org.iplantc.service.transfer.irods4;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for virtual path resolution by the IRODS4 client. These tests 
+ * do not talk to a server, so they run without the {@code agaveapi/irods:4.0.3}
+ * Docker image used for integration testing by the Agave Platform.
+ */
+@Test(singleThreaded=true)
+public class Irods4PathResolutionTest {
+    
+    private static final String ROOT = "/iplant/home/testuser/";
+    private static final String HOME = ROOT + "work/";
+    
+    private IRODS4 createClient() {
+        return new IRODS4("docker.example.com", 1247, "testuser", "testuser", "demoResc", "iplant", "work");
+    }
+    
+    @DataProvider
+    protected Object[][] testResolvePathProvider() {
+        return new Object[][] {
+                { "", HOME, "Empty path should resolve to the home directory" },
+                { "a", HOME + "a", "Relative path should resolve against the home directory" },
+                { "a/", HOME + "a/", "Trailing slash should be kept" },
+                { "/", ROOT, "Slash should resolve to the root directory" },
+                { "/a", ROOT + "a", "Absolute path should resolve against the root directory" },
+                { "a//b/./c/../d", HOME + "a/b/d", "Repeated slashes, dot and dot dot segments should be resolved" },
+                { "a/b/..", HOME + "a/", "Trailing dot dot should name the parent collection" },
+                { "a/.", HOME + "a/", "Trailing dot should name the collection" },
+                { "..", ROOT, "Dot dot from the home directory should resolve to the root directory" },
+                { "trailing ", HOME + "trailing", "Trailing spaces should be pruned" },
+                { " leading", HOME + " leading", "Leading spaces should be kept" },
+                { "sand" + IrodsBaseTestCase.SPECIAL_CHARS + "wich", HOME + "sand" + IrodsBaseTestCase.SPECIAL_CHARS + "wich", 
+                        "Special characters should be passed through untouched" },
+                { "...", HOME + "...", "Three dots are a name, not a relative segment" },
+        };
+    }
+    
+    @Test(dataProvider="testResolvePathProvider")
+    public void testResolvePath(String virtualPath, String expectedPath, String message) throws Exception
+    {
+        Assert.assertEquals(createClient().resolvePath(virtualPath), expectedPath, message);
+    }
+    
+    @DataProvider
+    protected Object[][] testResolvePathOutsideRootThrowsFileNotFoundExceptionProvider() {
+        return new Object[][] {
+                { "../.." },
+                { "/.." },
+                { "/../../../../../../etc/passwd" },
+                { "a/../../../.." },
+        };
+    }
+    
+    @Test(dataProvider="testResolvePathOutsideRootThrowsFileNotFoundExceptionProvider", 
+            expectedExceptions=java.io.FileNotFoundException.class)
+    public void testResolvePathOutsideRootThrowsFileNotFoundException(String virtualPath) throws Exception
+    {
+        createClient().resolvePath(virtualPath);
+    }
+    
+    @Test
+    public void testResolvedPathCacheReturnsSameResult() throws Exception
+    {
+        IRODS4 client = createClient();
+        client.setResolvedPathCacheSize(2);
+        
+        Assert.assertEquals(client.resolvePath("a/./b"), HOME + "a/b", "First resolution should normalize the path");
+        Assert.assertEquals(client.resolvePath("a/./b"), HOME + "a/b", "Memoized resolution should match");
+        
+        client.updateSystemRoots("/iplant/home/testuser", "other");
+        Assert.assertEquals(client.resolvePath("a/./b"), ROOT + "other/a/b", "Changing the roots should clear memoized paths");
+    }
+}
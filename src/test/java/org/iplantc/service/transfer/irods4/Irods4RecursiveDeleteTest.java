@@ -0,0 +1,85 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for parallel recursive deletes against IRODS4 instances. These 
+ * tests were run against the {@code agaveapi/irods:4.0.3} Docker image used 
+ * for integration testing by the Agave Platform.
+ */
+@Test(singleThreaded=true)
+public class Irods4RecursiveDeleteTest extends IrodsBaseTestCase {
+
+    @Test(priority=1)
+    public void testDeleteRecursiveRemovesWholeTree()
+    {
+        File testDir = stageTestDirectory();
+        
+        try {
+            BulkOperationReport report = getClient().deleteRecursive(testDir.getName(), 4);
+            
+            Assert.assertFalse(report.hasErrors(), "deleteRecursive: should not report errors. " + report.getFailures());
+            // 4 data objects plus the root, the uploaded directory and sub1
+            Assert.assertEquals(report.getSucceeded(), 7, "deleteRecursive: should report every deleted path");
+            Assert.assertFalse(getClient().doesExist(testDir.getName()), "deleteRecursive: should remove the root collection");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown deleting a valid tree.", e);
+        }
+        finally {
+            try { getClient().delete(testDir.getName()); } catch (Exception e) {}
+            FileUtils.deleteQuietly(testDir);
+        }
+    }
+    
+    @Test(priority=1)
+    public void testDeleteRecursiveOfFileDeletesFile()
+    {
+        File localFile = stageTestFile();
+        String remotePath = localFile.getName() + "/" + localFile.getName();
+        
+        try {
+            BulkOperationReport report = getClient().deleteRecursive(remotePath, 4);
+            
+            Assert.assertEquals(report.getSucceeded(), 1, "deleteRecursive: should report the deleted file");
+            Assert.assertFalse(getClient().doesExist(remotePath), "deleteRecursive: should remove the file");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown deleting a valid file.", e);
+        }
+        finally {
+            try { getClient().delete(localFile.getName()); } catch (Exception e) {}
+            FileUtils.deleteQuietly(localFile);
+        }
+    }
+    
+    @Test(priority=1)
+    public void testDeleteWithKnownTypeSkipsStat()
+    {
+        File localFile = stageTestFile();
+        
+        try {
+            getClient().delete(localFile.getName() + "/" + localFile.getName(), false);
+            getClient().delete(localFile.getName(), true);
+            
+            Assert.assertFalse(getClient().doesExist(localFile.getName()), "delete: should remove a collection of known type");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown deleting paths of known type.", e);
+        }
+        finally {
+            try { getClient().delete(localFile.getName()); } catch (Exception e) {}
+            FileUtils.deleteQuietly(localFile);
+        }
+    }
+    
+    @Test(priority=2, expectedExceptions=java.io.FileNotFoundException.class)
+    public void testDeleteRecursiveMissingPathThrowsFileNotFoundException() throws Exception
+    {
+        getClient().deleteRecursive(java.util.UUID.randomUUID().toString(), 4);
+    }
+}
@@ -0,0 +1,178 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for resumable, checkpointed uploads to IRODS4 instances. These 
+ * tests were run against the {@code agaveapi/irods:4.0.3} Docker image used 
+ * for integration testing by the Agave Platform.
+ */
+@Test(singleThreaded=true)
+public class Irods4ResumableUploadTest extends IrodsBaseTestCase {
+    
+    private static final int CHUNK_SIZE = 1024;
+    
+    private File checkpointDir;
+    
+    @BeforeMethod
+    protected void beforeMethod() {
+        checkpointDir = new File(FileUtils.getTempDirectory(), UUID.randomUUID().toString());
+        getClient().setCheckpointDirectory(checkpointDir);
+        
+        IRODSTransferOptions options = new IRODSTransferOptions();
+        options.setPutBufferSize(CHUNK_SIZE);
+        getClient().setDefaultTransferOptions(options);
+    }
+    
+    @AfterMethod(alwaysRun=true)
+    protected void afterMethod() {
+        getClient().setDefaultTransferOptions(null);
+        FileUtils.deleteQuietly(checkpointDir);
+    }
+    
+    private File createLocalFile(int size) throws Exception {
+        byte[] content = new byte[size];
+        new Random().nextBytes(content);
+        File localFile = File.createTempFile(UUID.randomUUID().toString(), "tmp");
+        FileUtils.writeByteArrayToFile(localFile, content);
+        return localFile;
+    }
+    
+    private byte[] readRemote(String remotePath) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        getClient().get(remotePath, Channels.newChannel(out));
+        return out.toByteArray();
+    }
+    
+    @Test(priority=1)
+    public void testCheckpointMergesAndReportsMissingRanges() throws Exception
+    {
+        File localFile = createLocalFile(10 * CHUNK_SIZE);
+        try {
+            TransferCheckpoint checkpoint = new TransferCheckpoint(localFile, "/zone/home/test/file");
+            checkpoint.markCompleted(0, CHUNK_SIZE);
+            checkpoint.markCompleted(3 * CHUNK_SIZE, 4 * CHUNK_SIZE);
+            checkpoint.markCompleted(CHUNK_SIZE, 2 * CHUNK_SIZE);
+            
+            Assert.assertEquals(checkpoint.getCompletedRanges().size(), 2, "Adjacent ranges should be merged");
+            Assert.assertEquals(checkpoint.getCompletedBytes(), 3 * CHUNK_SIZE, "Completed bytes should sum the ranges");
+            
+            List<long[]> missing = checkpoint.getMissingRanges();
+            Assert.assertEquals(missing.size(), 2, "Gaps between and after the ranges should be missing");
+            Assert.assertTrue(Arrays.equals(missing.get(0), new long[] { 2 * CHUNK_SIZE, 3 * CHUNK_SIZE }), "First gap should be reported");
+            Assert.assertTrue(Arrays.equals(missing.get(1), new long[] { 4 * CHUNK_SIZE, 10 * CHUNK_SIZE }), "Tail should be reported");
+            
+            File checkpointFile = new File(checkpointDir, "test.checkpoint");
+            checkpoint.save(checkpointFile);
+            TransferCheckpoint loaded = TransferCheckpoint.load(checkpointFile);
+            
+            Assert.assertNotNull(loaded, "Saved checkpoint should load");
+            Assert.assertTrue(loaded.matches(localFile, "/zone/home/test/file"), "Loaded checkpoint should match the unchanged file");
+            Assert.assertEquals(loaded.getCompletedBytes(), checkpoint.getCompletedBytes(), "Loaded checkpoint should keep its ranges");
+        }
+        finally {
+            FileUtils.deleteQuietly(localFile);
+        }
+    }
+    
+    @Test(priority=2)
+    public void testPutResumableUploadsWholeFile()
+    {
+        File localFile = null;
+        String remotePath = UUID.randomUUID().toString();
+        
+        try {
+            localFile = createLocalFile(5 * CHUNK_SIZE + 17);
+            
+            long sent = getClient().putResumable(localFile, remotePath);
+            
+            Assert.assertEquals(sent, localFile.length(), "putResumable: should send the whole file on a fresh upload");
+            Assert.assertEquals(readRemote(remotePath), FileUtils.readFileToByteArray(localFile), 
+                    "Uploaded object should match the local file");
+            Assert.assertFalse(getClient().getCheckpointFile(localFile, getClient().resolvePath(remotePath)).exists(), 
+                    "putResumable: should remove the checkpoint after a complete upload");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown on a resumable upload.", e);
+        }
+        finally {
+            try { getClient().delete(remotePath); } catch (Exception e) {}
+            FileUtils.deleteQuietly(localFile);
+        }
+    }
+    
+    @Test(priority=3)
+    public void testPutResumableSendsOnlyMissingRanges()
+    {
+        File localFile = null;
+        String remotePath = UUID.randomUUID().toString();
+        
+        try {
+            localFile = createLocalFile(5 * CHUNK_SIZE + 17);
+            byte[] content = FileUtils.readFileToByteArray(localFile);
+            int partial = 2 * CHUNK_SIZE;
+            
+            // simulate an upload which died after the first two chunks
+            getClient().put(new ByteArrayInputStream(content, 0, partial), partial, remotePath);
+            TransferCheckpoint checkpoint = new TransferCheckpoint(localFile, getClient().resolvePath(remotePath));
+            checkpoint.markCompleted(0, partial);
+            checkpoint.save(getClient().getCheckpointFile(localFile, getClient().resolvePath(remotePath)));
+            
+            long sent = getClient().putResumable(localFile, remotePath);
+            
+            Assert.assertEquals(sent, content.length - partial, "putResumable: should only send the missing ranges");
+            Assert.assertEquals(readRemote(remotePath), content, "Resumed object should match the local file");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown on a resumed upload.", e);
+        }
+        finally {
+            try { getClient().delete(remotePath); } catch (Exception e) {}
+            FileUtils.deleteQuietly(localFile);
+        }
+    }
+    
+    @Test(priority=4)
+    public void testPutResumableRestartsWhenLocalFileChanged()
+    {
+        File localFile = null;
+        String remotePath = UUID.randomUUID().toString();
+        
+        try {
+            localFile = createLocalFile(3 * CHUNK_SIZE);
+            byte[] content = FileUtils.readFileToByteArray(localFile);
+            
+            getClient().put(new ByteArrayInputStream(content, 0, CHUNK_SIZE), CHUNK_SIZE, remotePath);
+            TransferCheckpoint checkpoint = new TransferCheckpoint(localFile, getClient().resolvePath(remotePath));
+            checkpoint.markCompleted(0, CHUNK_SIZE);
+            checkpoint.save(getClient().getCheckpointFile(localFile, getClient().resolvePath(remotePath)));
+            
+            localFile.setLastModified(localFile.lastModified() - 60000);
+            
+            long sent = getClient().putResumable(localFile, remotePath);
+            
+            Assert.assertEquals(sent, content.length, "putResumable: should start over when the local file changed");
+            Assert.assertEquals(readRemote(remotePath), content, "Restarted object should match the local file");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown on a restarted upload.", e);
+        }
+        finally {
+            try { getClient().delete(remotePath); } catch (Exception e) {}
+            FileUtils.deleteQuietly(localFile);
+        }
+    }
+}
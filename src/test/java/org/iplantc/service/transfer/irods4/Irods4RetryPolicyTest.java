@@ -0,0 +1,229 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.File;
+import java.net.ConnectException;
+import java.net.SocketException;
+
+import org.apache.commons.io.FileUtils;
+import org.iplantc.service.transfer.exceptions.RemoteConnectionException;
+import org.iplantc.service.transfer.exceptions.RemoteDataException;
+import org.iplantc.service.transfer.exceptions.RemotePermissionException;
+import org.iplantc.service.transfer.irods4.IRODSRetryPolicy.Operation;
+import org.iplantc.service.transfer.irods4.IRODSTransferOptions.OverwritePolicy;
+import org.iplantc.service.transfer.irods4.standin.InMemoryAccessObjectFactory;
+import org.irods.jargon.core.exception.CatNoAccessException;
+import org.irods.jargon.core.exception.JargonException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the retry policy of the IRODS4 client, run against the in-memory
+ * stand-in for the iRODS access objects. These tests do not talk to a
+ * server, so they run without the {@code agaveapi/irods:4.0.3} Docker image
+ * used for integration testing by the Agave Platform.
+ */
+@Test(singleThreaded=true)
+public class Irods4RetryPolicyTest {
+
+    private InMemoryAccessObjectFactory standIn;
+    private IRODS4 client;
+    private IRODSRetryPolicy policy;
+    private TransferMetrics metrics;
+    private File localDir;
+
+    @BeforeMethod
+    protected void beforeMethod() throws Exception {
+        standIn = new InMemoryAccessObjectFactory();
+        client = IrodsBaseTestCase.createStandInClient(standIn);
+        client.setCircuitBreaker(null);
+
+        // short waits keep the tests fast
+        policy = new IRODSRetryPolicy();
+        policy.setInitialBackoffMillis(1);
+        policy.setMaxBackoffMillis(5);
+        client.setRetryPolicy(policy);
+
+        metrics = new TransferMetrics(null);
+        client.setTransferMetrics(metrics);
+
+        client.authenticate();
+        client.mkdirs("");
+        standIn.resetCallCounts();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    protected void afterMethod() {
+        try { client.disconnect(); } catch (Exception e) {}
+        FileUtils.deleteQuietly(localDir);
+    }
+
+    private JargonException connectionReset() {
+        return new JargonException("read failed", new SocketException("Connection reset"));
+    }
+
+    @Test
+    public void testTransientStatFailuresAreRetried() throws Exception
+    {
+        standIn.failNextCalls("getObjStat", 2, connectionReset());
+
+        Assert.assertFalse(client.doesExist("missing"), "doesExist: the third attempt should find nothing there");
+        Assert.assertEquals(standIn.getCallCount("getObjStat"), 3, "Each attempt should reach the server");
+        Assert.assertEquals(metrics.getStatRetries(), 2, "Both retries should be counted");
+        Assert.assertEquals(metrics.getRetries(), 2, "The total should include the stat retries");
+    }
+
+    @Test
+    public void testRetriesStopAtMaxAttempts() throws Exception
+    {
+        standIn.failNextCalls("getObjStat", 5, new JargonException("unable to connect", new ConnectException("Connection refused")));
+
+        try {
+            client.doesExist("unreachable");
+            Assert.fail("doesExist: the last failure should be thrown once attempts run out");
+        } catch (RemoteConnectionException e) {
+            // expected
+        }
+        Assert.assertEquals(standIn.getCallCount("getObjStat"), IRODSRetryPolicy.DEFAULT_MAX_ATTEMPTS,
+                "No more than the max attempts should be made");
+        Assert.assertEquals(metrics.getStatRetries(), IRODSRetryPolicy.DEFAULT_MAX_ATTEMPTS - 1,
+                "Every attempt but the first is a retry");
+    }
+
+    @Test
+    public void testPermanentFailuresAreNotRetried() throws Exception
+    {
+        standIn.failNextCalls("getObjStat", 5, new CatNoAccessException("no access"));
+
+        try {
+            client.doesExist("denied");
+            Assert.fail("doesExist: permission failure should be thrown");
+        } catch (RemotePermissionException e) {
+            // expected
+        }
+        Assert.assertEquals(standIn.getCallCount("getObjStat"), 1, "A permission failure should not be retried");
+        Assert.assertEquals(metrics.getRetries(), 0, "No retries should be counted");
+    }
+
+    @Test
+    public void testNullPolicyDisablesRetries() throws Exception
+    {
+        client.setRetryPolicy(null);
+        standIn.failNextCalls("getObjStat", 1, connectionReset());
+
+        try {
+            client.doesExist("once");
+            Assert.fail("doesExist: the first failure should be thrown without a policy");
+        } catch (RemoteConnectionException e) {
+            // expected
+        }
+        Assert.assertEquals(standIn.getCallCount("getObjStat"), 1, "Only one attempt should be made");
+    }
+
+    @Test
+    public void testPerOperationOverride() throws Exception
+    {
+        IRODSRetryPolicy mkdirsPolicy = new IRODSRetryPolicy(policy);
+        mkdirsPolicy.setMaxAttempts(4);
+        policy.setMaxAttempts(1);
+        policy.setOverride(Operation.MKDIRS, mkdirsPolicy);
+
+        standIn.failNextCalls("mkdir", 3, connectionReset());
+        Assert.assertTrue(client.mkdirs("a/b/c"), "mkdirs: the override should allow a fourth attempt");
+        Assert.assertEquals(metrics.getMkdirsRetries(), 3, "mkdirs retries should be counted");
+
+        standIn.failNextCalls("getObjStat", 1, connectionReset());
+        try {
+            client.doesExist("once");
+            Assert.fail("doesExist: stat should use the policy without retries");
+        } catch (RemoteConnectionException e) {
+            // expected
+        }
+        Assert.assertEquals(metrics.getStatRetries(), 0, "stat should not have been retried");
+    }
+
+    @Test
+    public void testPutIsRetriedAfterConnectionReset() throws Exception
+    {
+        localDir = IrodsBaseTestCase.createLocalTestDirectory(1, 64);
+        client.mkdirs("single");
+        standIn.failNextCalls("putOperation", 1, connectionReset());
+
+        client.put(new File(localDir, "file0.dat"), "single");
+
+        Assert.assertTrue(client.doesExist("single/file0.dat"), "put: the retry should upload the file");
+        Assert.assertEquals(metrics.getPutRetries(), 1, "The put retry should be counted");
+        Assert.assertEquals(metrics.getFilesTransferred(), 1, "The uploaded file should be counted once");
+        Assert.assertEquals(metrics.getFilesFailed() - metrics.getPutRetries(), 0,
+                "No upload should have been given up on");
+    }
+
+    @Test
+    public void testPutWhichMustNotOverwriteIsNotRetried() throws Exception
+    {
+        localDir = IrodsBaseTestCase.createLocalTestDirectory(1, 64);
+        client.mkdirs("single");
+        IRODSTransferOptions options = new IRODSTransferOptions();
+        options.setOverwritePolicy(OverwritePolicy.FAIL);
+        standIn.failNextCalls("putOperation", 1, connectionReset());
+
+        try {
+            client.put(new File(localDir, "file0.dat"), "single", options);
+            Assert.fail("put: the failure should be thrown");
+        } catch (RemoteDataException e) {
+            Assert.assertTrue(e.isRetryable(), "put: the failure itself is transient");
+        }
+        Assert.assertEquals(metrics.getPutRetries(), 0, "A put which must not overwrite should not be retried");
+    }
+
+    @Test
+    public void testParallelPutRetriesEachFile() throws Exception
+    {
+        localDir = IrodsBaseTestCase.createLocalTestDirectory(12, 16);
+        standIn.failNextCalls("putOperation", 3, connectionReset());
+
+        BulkOperationReport report = client.put(localDir, "bulk", 4);
+
+        Assert.assertEquals(report.getFailed(), 0, "put: every transient failure should be retried");
+        Assert.assertEquals(report.getSucceeded(), 12, "put: every file should be uploaded");
+        Assert.assertEquals(metrics.getPutRetries(), 3, "Each retry should be counted");
+        Assert.assertEquals(metrics.getFilesTransferred(), 12, "Each file should be counted once");
+    }
+
+    @Test
+    public void testBackoffGrowsToTheMaximum() throws Exception
+    {
+        IRODSRetryPolicy backoff = new IRODSRetryPolicy();
+        backoff.setInitialBackoffMillis(100);
+        backoff.setMaxBackoffMillis(1000);
+        backoff.setBackoffMultiplier(2);
+        backoff.setJitter(0);
+
+        Assert.assertEquals(backoff.getBackoffMillis(1), 100, "The first wait should be the initial backoff");
+        Assert.assertEquals(backoff.getBackoffMillis(2), 200, "The wait should double after each retry");
+        Assert.assertEquals(backoff.getBackoffMillis(4), 800, "The wait should double after each retry");
+        Assert.assertEquals(backoff.getBackoffMillis(5), 1000, "The wait should not exceed the maximum");
+        Assert.assertEquals(backoff.getBackoffMillis(100), 1000, "Large attempt counts should not overflow");
+
+        backoff.setJitter(0.5);
+        for (int i = 0; i < 100; i++) {
+            long wait = backoff.getBackoffMillis(1);
+            Assert.assertTrue(wait >= 50 && wait <= 100, "Jitter should cut at most half the wait, got " + wait);
+        }
+    }
+
+    @Test
+    public void testCopyConstructorCopiesOverrides() throws Exception
+    {
+        IRODSRetryPolicy override = new IRODSRetryPolicy();
+        override.setMaxAttempts(7);
+        policy.setOverride(Operation.PUT, override);
+
+        IRODSRetryPolicy copy = new IRODSRetryPolicy(policy);
+        Assert.assertEquals(copy.getPolicy(Operation.PUT).getMaxAttempts(), 7, "The copy should keep the override");
+        Assert.assertNotSame(copy.getOverride(Operation.PUT), override, "The override should be copied too");
+        Assert.assertSame(copy.getPolicy(Operation.STAT), copy, "Operations without an override use the policy itself");
+        Assert.assertEquals(IRODSRetryPolicy.noRetries().getMaxAttempts(), 1, "noRetries should make a single attempt");
+    }
+}
@@ -0,0 +1,115 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for a {@link SharedIRODS4} client borrowing its connections from
+ * a real {@link IRODSConnectionPool}. Each test uses its own small pool with a
+ * short borrow timeout, so a thread left waiting on an exhausted pool shows up
+ * as a timeout rather than a 30 second stall. These tests were run against the
+ * {@code agaveapi/irods:4.0.3} Docker image used for integration testing by
+ * the Agave Platform.
+ */
+@Test(singleThreaded=true)
+public class Irods4SharedClientPoolTest extends IrodsBaseTestCase {
+
+    private static final int MAX_CONNECTIONS = 3;
+    private static final int THREADS = 12;
+
+    private IRODSConnectionPool pool;
+    private SharedIRODS4 client;
+    private File localDir;
+
+    @BeforeMethod
+    protected void beforeMethod() throws Exception {
+        pool = new IRODSConnectionPool();
+        pool.setMaxConnectionsPerKey(MAX_CONNECTIONS);
+        pool.setMaxWaitMillis(5000);
+
+        client = createSharedClient();
+        client.setConnectionPool(pool);
+        client.authenticate();
+
+        localDir = new File(FileUtils.getTempDirectory(), UUID.randomUUID().toString());
+        localDir.mkdirs();
+        for (int i = 0; i < THREADS; i++) {
+            FileUtils.write(new File(localDir, "file" + i + ".txt"), "this is file" + i + ".txt");
+        }
+    }
+
+    @AfterMethod(alwaysRun = true)
+    protected void afterMethod() {
+        try { client.disconnect(); } catch (Exception e) {}
+        try { pool.destroy(); } catch (Exception e) {}
+        FileUtils.deleteQuietly(localDir);
+    }
+
+    @Test(priority=1)
+    public void testWorkerThreadsShareThePool() throws Exception
+    {
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int t = 0; t < THREADS; t++) {
+            final int worker = t;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    String parent = "pooled/worker" + worker;
+                    client.mkdirs(parent);
+                    client.put(new File(localDir, "file" + worker + ".txt"), parent);
+                    Assert.assertTrue(client.doesExist(parent + "/file" + worker + ".txt"),
+                            "put: the upload should be visible to the thread which made it");
+                    return null;
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (Future<Void> future: executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        IRODSConnectionPool.Statistics stats = pool.getStatistics();
+        Assert.assertTrue(stats.getCreated() <= MAX_CONNECTIONS,
+                "Worker threads should take turns over the pooled connections: " + stats);
+        Assert.assertEquals(stats.getTimeouts(), 0, "No worker should time out waiting for a connection: " + stats);
+        Assert.assertEquals(stats.getActive(), 0, "Every connection should be back in the pool: " + stats);
+    }
+
+    @Test(priority=2)
+    public void testBulkPutAtPoolLimitWhileChannelIsOpen() throws Exception
+    {
+        client.put(new File(localDir, "file0.txt"), "");
+        IRODSSeekableByteChannel channel = client.openChannel("file0.txt");
+        try {
+            BulkOperationReport report = client.put(localDir, "bulk", MAX_CONNECTIONS);
+
+            Assert.assertFalse(report.hasErrors(),
+                    "Bulk put should not fail while the caller holds a connection: " + report.getFailures());
+            Assert.assertEquals(report.getSucceeded(), THREADS, "Bulk put should upload every file");
+        }
+        finally {
+            channel.close();
+        }
+
+        IRODSConnectionPool.Statistics stats = pool.getStatistics();
+        Assert.assertEquals(stats.getTimeouts(), 0,
+                "Bulk put workers should leave a connection for the caller's open channel: " + stats);
+    }
+}
@@ -0,0 +1,275 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.iplantc.service.transfer.irods4.standin.InMemoryAccessObjectFactory;
+import org.irods.jargon.core.connection.IRODSSession;
+import org.irods.jargon.core.connection.JargonProperties;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of a single IRODS4 client shared by many worker threads, run against
+ * the in-memory stand-in for the iRODS access objects. These tests do not
+ * talk to a server, so they run without the {@code agaveapi/irods:4.0.3}
+ * Docker image used for integration testing by the Agave Platform.
+ */
+@Test(singleThreaded=true)
+public class Irods4SharedClientTest {
+
+    private static final int THREADS = 16;
+
+    private InMemoryAccessObjectFactory standIn;
+    private List<IRODS4> clients;
+    private File localDir;
+
+    @BeforeMethod
+    protected void beforeMethod() {
+        standIn = new InMemoryAccessObjectFactory();
+        clients = new ArrayList<IRODS4>();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    protected void afterMethod() {
+        for (IRODS4 client: clients) {
+            try { client.disconnect(); } catch (Exception e) {}
+        }
+        FileUtils.deleteQuietly(localDir);
+    }
+
+    private SharedIRODS4 createClient() {
+        SharedIRODS4 client = IrodsBaseTestCase.createSharedStandInClient(standIn);
+        clients.add(client);
+        return client;
+    }
+
+    private void runConcurrently(List<Callable<Void>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        try {
+            for (Future<Void> future: executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConcurrentAuthenticateOpensOneSession() throws Exception
+    {
+        final SharedIRODS4 client = createClient();
+        final CountDownLatch start = new CountDownLatch(1);
+        standIn.resetCallCounts();
+
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int t = 0; t < THREADS; t++) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    client.authenticate();
+                    return null;
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (Callable<Void> task: tasks) {
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+            for (Future<Void> future: futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(standIn.getCallCount("getIrodsSession"), 1,
+                "authenticate: threads racing to authenticate should share one session");
+    }
+
+    @Test
+    public void testConnectionIsReleasedOnceAfterEachOperation() throws Exception
+    {
+        SharedIRODS4 client = createClient();
+        client.authenticate();
+        client.mkdirs("single");
+        localDir = IrodsBaseTestCase.createLocalTestDirectory(1, 64);
+        standIn.resetCallCounts();
+
+        client.put(new File(localDir, "file0.dat"), "single");
+
+        Assert.assertEquals(standIn.getCallCount("closeSessionAndEatExceptions"), 1,
+                "put: nested operations should release the connection once, when the put completes");
+        Assert.assertEquals(client.getLeaseDepth(), 0, "put: no operation should still be in progress");
+
+        IRODS4 plain = IrodsBaseTestCase.createStandInClient(standIn);
+        clients.add(plain);
+        plain.authenticate();
+        standIn.resetCallCounts();
+
+        plain.put(new File(localDir, "file0.dat"), "single");
+
+        Assert.assertEquals(standIn.getCallCount("closeSessionAndEatExceptions"), 0,
+                "put: an unshared client should keep its connection");
+    }
+
+    @Test
+    public void testListingHoldsConnectionUntilReadOrClosed() throws Exception
+    {
+        SharedIRODS4 client = createClient();
+        client.authenticate();
+        client.mkdirs("listed");
+        localDir = IrodsBaseTestCase.createLocalTestDirectory(5, 16);
+        for (int i = 0; i < 5; i++) {
+            client.put(new File(localDir, "file" + i + ".dat"), "listed");
+        }
+        standIn.setPageSize(2);
+        standIn.resetCallCounts();
+
+        RemoteCollectionListing listing = client.list("listed");
+        Assert.assertEquals(client.getLeaseDepth(), 1, "list: the listing should hold the connection its pages are fetched on");
+        int entries = 0;
+        for (Object entry: listing) {
+            entries++;
+        }
+        Assert.assertEquals(entries, 5, "list: every entry should be returned");
+        Assert.assertEquals(client.getLeaseDepth(), 0, "list: a listing read to the end should let its connection go");
+        Assert.assertEquals(standIn.getCallCount("closeSessionAndEatExceptions"), 1,
+                "list: the connection should be released once, after the last page");
+
+        listing = client.list("listed");
+        listing.next();
+        listing.close();
+        Assert.assertEquals(client.getLeaseDepth(), 0, "list: a listing closed early should let its connection go");
+        Assert.assertFalse(listing.hasNext(), "list: a closed listing should return no more entries");
+    }
+
+    @Test
+    public void testWorkerThreadsShareOneClient() throws Exception
+    {
+        final SharedIRODS4 client = createClient();
+        client.authenticate();
+        client.mkdirs("");
+        localDir = IrodsBaseTestCase.createLocalTestDirectory(THREADS, 256);
+        standIn.setCallLatencyMillis(1);
+
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int t = 0; t < THREADS; t++) {
+            final int worker = t;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    String parent = "workers/worker" + worker;
+                    client.mkdirs(parent);
+                    client.put(new File(localDir, "file" + worker + ".dat"), parent);
+                    Assert.assertTrue(client.doesExist(parent + "/file" + worker + ".dat"),
+                            "put: the upload should be visible to the thread which made it");
+                    return null;
+                }
+            });
+        }
+        runConcurrently(tasks);
+
+        for (int t = 0; t < THREADS; t++) {
+            Assert.assertTrue(client.doesExist("workers/worker" + t + "/file" + t + ".dat"),
+                    "put: every worker's upload should exist");
+        }
+    }
+
+    @Test
+    public void testPerCallThreadCountsLeaveSessionPropertiesAlone() throws Exception
+    {
+        final SharedIRODS4 client = createClient();
+        client.authenticate();
+        client.mkdirs("overlap");
+        localDir = IrodsBaseTestCase.createLocalTestDirectory(THREADS, 64);
+        standIn.setCallLatencyMillis("putOperation", 10);
+        final IRODSSession session = standIn.getAccessObjectFactory().getIrodsSession();
+        final JargonProperties original = session.getJargonProperties();
+
+        // watch the session properties while the uploads overlap
+        final AtomicBoolean uploading = new AtomicBoolean(true);
+        final AtomicInteger changes = new AtomicInteger();
+        Thread watcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (uploading.get()) {
+                    if (session.getJargonProperties() != original) {
+                        changes.incrementAndGet();
+                    }
+                    Thread.yield();
+                }
+            }
+        });
+        watcher.start();
+
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int t = 0; t < THREADS; t++) {
+            final int worker = t;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    IRODSTransferOptions options = new IRODSTransferOptions();
+                    options.setParallelThreads(worker % 4 + 1);
+                    client.put(new File(localDir, "file" + worker + ".dat"), "overlap", options);
+                    return null;
+                }
+            });
+        }
+        try {
+            runConcurrently(tasks);
+        } finally {
+            uploading.set(false);
+            watcher.join();
+        }
+
+        Assert.assertTrue(standIn.getPeakConcurrentCalls() > 1, "put: the uploads should overlap");
+        Assert.assertEquals(changes.get(), 0,
+                "put: a per call thread count should not change the session properties other threads use");
+        for (int t = 0; t < THREADS; t++) {
+            Assert.assertTrue(client.doesExist("overlap/file" + t + ".dat"), "put: every upload should exist");
+        }
+    }
+
+    @Test
+    public void testSessionWideSettingsAreRejected() throws Exception
+    {
+        SharedIRODS4 client = createClient();
+        client.authenticate();
+        client.mkdirs("rejected");
+        localDir = IrodsBaseTestCase.createLocalTestDirectory(1, 64);
+        standIn.resetCallCounts();
+
+        IRODSTransferOptions options = new IRODSTransferOptions();
+        options.setPutBufferSize(4096);
+        try {
+            client.put(new File(localDir, "file0.dat"), "rejected", options);
+            Assert.fail("put: a buffer size should be rejected on a shared client");
+        } catch (IllegalArgumentException e) {}
+
+        try {
+            client.setDefaultTransferOptions(options);
+            Assert.fail("setDefaultTransferOptions: a buffer size should be rejected on a shared client");
+        } catch (IllegalArgumentException e) {}
+
+        Assert.assertEquals(standIn.getCallCount("putOperation"), 0, "put: nothing should be sent");
+        Assert.assertEquals(client.getLeaseDepth(), 0, "put: a rejected call should not hold a lease");
+        Assert.assertNull(client.getDefaultTransferOptions(), "setDefaultTransferOptions: the defaults should be unchanged");
+    }
+}
@@ -0,0 +1,68 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.File;
+import java.util.UUID;
+
+import org.apache.commons.io.FileUtils;
+import org.iplantc.service.transfer.irods4.standin.InMemoryAccessObjectFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of collections deleted behind the back of an IRODS4 client, run
+ * against the in-memory stand-in for the iRODS access objects. These tests
+ * do not talk to a server, so they run without the
+ * {@code agaveapi/irods:4.0.3} Docker image used for integration testing by
+ * the Agave Platform.
+ */
+@Test(singleThreaded=true)
+public class Irods4StaleCollectionTest {
+
+    private InMemoryAccessObjectFactory standIn;
+    private IRODS4 client;
+    private File localFile;
+
+    @BeforeMethod
+    protected void beforeMethod() throws Exception {
+        standIn = new InMemoryAccessObjectFactory();
+        client = IrodsBaseTestCase.createStandInClient(standIn);
+        client.authenticate();
+        localFile = File.createTempFile(UUID.randomUUID().toString(), "tmp");
+        FileUtils.write(localFile, "Some temp data");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    protected void afterMethod() {
+        try { client.disconnect(); } catch (Exception e) {}
+        FileUtils.deleteQuietly(localFile);
+    }
+
+    @Test
+    public void testKnownCollectionsAreDisabledByDefault() throws Exception
+    {
+        Assert.assertNull(client.getKnownCollections(), "The known collection cache should be opt-in");
+
+        Assert.assertTrue(client.mkdirs("stale"), "mkdirs: should create missing directories");
+        standIn.getCatalog().deleteTree(client.resolveStatPath("stale"));
+
+        Assert.assertTrue(client.mkdirs("stale"), "mkdirs: should recreate a directory deleted by another client");
+    }
+
+    @Test
+    public void testPutRecreatesKnownCollectionDeletedElsewhere() throws Exception
+    {
+        client.setKnownCollections(new KnownCollectionCache());
+        client.mkdirs("stale");
+        client.put(localFile, "stale");
+        standIn.getCatalog().deleteTree(client.resolveStatPath("stale"));
+
+        client.put(localFile, "stale");
+
+        Assert.assertTrue(client.doesExist("stale/" + localFile.getName()),
+                "put: should recreate a known collection deleted by another client");
+        Assert.assertEquals(standIn.getCallCount("putOperation"), 3,
+                "put: should try once more after dropping the stale collection");
+    }
+}
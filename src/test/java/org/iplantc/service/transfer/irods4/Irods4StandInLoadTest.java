@@ -0,0 +1,245 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.iplantc.service.transfer.exceptions.RemoteDataException;
+import org.iplantc.service.transfer.irods4.standin.InMemoryAccessObjectFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Load and scaling tests of the IRODS4 client against the in-memory stand-in
+ * for the iRODS access objects. These tests do not talk to a server, so they
+ * run without the {@code agaveapi/irods:4.0.3} Docker image used for
+ * integration testing by the Agave Platform. Timing assertions only check
+ * for wide margins so they hold on a busy build machine.
+ */
+@Test(singleThreaded=true)
+public class Irods4StandInLoadTest {
+
+    private InMemoryAccessObjectFactory standIn;
+    private List<IRODS4> clients;
+    private File localDir;
+
+    @BeforeMethod
+    protected void beforeMethod() {
+        standIn = new InMemoryAccessObjectFactory();
+        clients = new ArrayList<IRODS4>();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    protected void afterMethod() {
+        for (IRODS4 client: clients) {
+            try { client.disconnect(); } catch (Exception e) {}
+        }
+        FileUtils.deleteQuietly(localDir);
+    }
+
+    private IRODS4 createClient() throws Exception {
+        IRODS4 client = IrodsBaseTestCase.createStandInClient(standIn);
+        client.authenticate();
+        client.mkdirs("");
+        clients.add(client);
+        return client;
+    }
+
+    @Test
+    public void testSharedObjStatCacheAbsorbsConcurrentProbes() throws Exception
+    {
+        final int threads = 8;
+        final int paths = 50;
+        final int rounds = 20;
+
+        ObjStatCache cache = new ObjStatCache(ObjStatCache.DEFAULT_MAX_ENTRIES, 600000);
+        IRODS4 seeder = createClient();
+        for (int i = 0; i < paths; i++) {
+            standIn.getCatalog().seed(seeder.resolvePath("probe/file" + i), new byte[1]);
+        }
+        standIn.setCallLatencyMillis(1);
+        standIn.resetCallCounts();
+
+        List<Callable<Integer>> probers = new ArrayList<Callable<Integer>>();
+        for (int t = 0; t < threads; t++) {
+            final IRODS4 client = createClient();
+            client.setObjStatCache(cache);
+            probers.add(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    int found = 0;
+                    for (int r = 0; r < rounds; r++) {
+                        for (int i = 0; i < paths; i++) {
+                            if (client.doesExist("probe/file" + i)) {
+                                found++;
+                            }
+                        }
+                    }
+                    return found;
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Integer> future: executor.invokeAll(probers)) {
+                Assert.assertEquals(future.get().intValue(), rounds * paths,
+                        "doesExist: every seeded path should be found on every probe");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertTrue(standIn.getCallCount("getObjStat") <= threads * paths,
+                "Shared cache should let at most one stat per path per client reach the server, saw "
+                + standIn.getCallCount("getObjStat"));
+    }
+
+    @Test
+    public void testParallelPutScalesWithConcurrency() throws Exception
+    {
+        IRODS4 client = createClient();
+        localDir = IrodsBaseTestCase.createLocalTestDirectory(24, 16);
+        standIn.setCallLatencyMillis("putOperation", 25);
+
+        long start = System.currentTimeMillis();
+        BulkOperationReport serial = client.put(localDir, "serial", 1);
+        long serialMillis = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        BulkOperationReport parallel = client.put(localDir, "parallel", 8);
+        long parallelMillis = System.currentTimeMillis() - start;
+
+        Assert.assertEquals(serial.getSucceeded(), 24, "put: every file should be uploaded serially");
+        Assert.assertEquals(parallel.getSucceeded(), 24, "put: every file should be uploaded in parallel");
+        Assert.assertTrue(standIn.getPeakConcurrentCalls() > 1, "put: parallel uploads should overlap");
+        Assert.assertTrue(parallelMillis * 3 < serialMillis,
+                "put: 8 workers should be well over 3x faster than 1 on a high latency server, took "
+                + parallelMillis + "ms vs " + serialMillis + "ms");
+    }
+
+    @Test
+    public void testMaxConcurrentCallsBoundsParallelPut() throws Exception
+    {
+        IRODS4 client = createClient();
+        localDir = IrodsBaseTestCase.createLocalTestDirectory(24, 16);
+        standIn.setCallLatencyMillis(5);
+        standIn.setMaxConcurrentCalls(3);
+        standIn.resetCallCounts();
+
+        BulkOperationReport report = client.put(localDir, "bounded", 12);
+
+        Assert.assertFalse(report.hasErrors(), "put: callers over the server limit should wait, not fail");
+        Assert.assertEquals(report.getSucceeded(), 24, "put: every file should be uploaded");
+        Assert.assertTrue(standIn.getPeakConcurrentCalls() <= 3,
+                "Server should never serve more than 3 calls at once, saw " + standIn.getPeakConcurrentCalls());
+    }
+
+    @Test
+    public void testInjectedFailuresAreReportedPerFile() throws Exception
+    {
+        IRODS4 client = createClient();
+        localDir = IrodsBaseTestCase.createLocalTestDirectory(24, 16);
+        standIn.failNextCalls("putOperation", 5, null);
+
+        BulkOperationReport report = client.put(localDir, "failures", 4);
+
+        Assert.assertEquals(report.getFailed(), 5, "put: each injected failure should be reported against its file");
+        Assert.assertEquals(report.getSucceeded(), 19, "put: the other files should still be uploaded");
+        Assert.assertEquals(standIn.getInjectedFailureCount(), 5, "Exactly 5 failures should have been injected");
+        Assert.assertEquals(standIn.getCatalog().getChildren(client.resolvePath("failures/" + localDir.getName()), false).size(), 19,
+                "Only the successful uploads should exist on the server");
+    }
+
+    @Test
+    public void testBandwidthLimitIsSharedAcrossTransfers() throws Exception
+    {
+        IRODS4 client = createClient();
+        localDir = IrodsBaseTestCase.createLocalTestDirectory(4, 64 * 1024);
+        standIn.setBandwidthBytesPerSecond(512 * 1024);
+
+        long start = System.currentTimeMillis();
+        BulkOperationReport report = client.put(localDir, "bandwidth", 4);
+        long elapsedMillis = System.currentTimeMillis() - start;
+
+        Assert.assertEquals(report.getSucceeded(), 4, "put: every file should be uploaded");
+        Assert.assertEquals(standIn.getBytesTransferred(), 4 * 64 * 1024, "Every byte should cross the simulated link");
+        Assert.assertTrue(elapsedMillis >= 450,
+                "256KB over a shared 512KB/s link should take about 500ms however many workers send it, took "
+                + elapsedMillis + "ms");
+    }
+
+    @Test
+    public void testRecursiveDeleteOfLargeTreeWithPagedListings() throws Exception
+    {
+        IRODS4 client = createClient();
+        String tree = client.resolvePath("tree");
+        for (int c = 0; c < 20; c++) {
+            for (int f = 0; f < 100; f++) {
+                standIn.getCatalog().seed(tree + "/coll" + c + "/file" + f, new byte[0]);
+            }
+        }
+        standIn.setPageSize(64);
+        standIn.setCallLatencyMillis(1);
+        standIn.resetCallCounts();
+
+        BulkOperationReport report = client.deleteRecursive("tree", 8);
+
+        Assert.assertFalse(report.hasErrors(), "deleteRecursive: no errors expected, saw " + report.getFailures());
+        Assert.assertNull(standIn.getCatalog().get(tree), "deleteRecursive: tree should be gone");
+        Assert.assertTrue(standIn.getCallCount("listDataObjectsUnderPath") >= 20 * 2,
+                "deleteRecursive: listings of 100 files should span several 64 entry pages");
+    }
+
+    @Test
+    public void testRecursiveDeleteOfCollectionLargerThanOneBatch() throws Exception
+    {
+        IRODS4 client = createClient();
+        String wide = client.resolvePath("wide");
+        for (int f = 0; f < 600; f++) {
+            standIn.getCatalog().seed(wide + "/file" + f, new byte[0]);
+        }
+        standIn.setPageSize(100);
+        standIn.setCallLatencyMillis(1);
+
+        BulkOperationReport report = client.deleteRecursive("wide", 4);
+
+        Assert.assertFalse(report.hasErrors(), "deleteRecursive: no errors expected, saw " + report.getFailures());
+        Assert.assertEquals(report.getSucceeded(), 601, "deleteRecursive: every object and the collection should be deleted");
+        Assert.assertNull(standIn.getCatalog().get(wide), "deleteRecursive: collection should be gone");
+    }
+
+    @Test
+    public void testRandomFailuresAreRepeatableWithSeed() throws Exception
+    {
+        Assert.assertEquals(probeWithRandomFailures(), probeWithRandomFailures(),
+                "The same seed should fail the same calls");
+    }
+
+    private List<Integer> probeWithRandomFailures() throws Exception {
+        standIn = new InMemoryAccessObjectFactory();
+        IRODS4 client = createClient();
+        standIn.setRandomSeed(42);
+        standIn.setFailureProbability("getObjStat", 0.3);
+
+        List<Integer> failed = new ArrayList<Integer>();
+        for (int i = 0; i < 200; i++) {
+            try {
+                client.authenticate();
+                client.doesExist("random" + i);
+            } catch (RemoteDataException e) {
+                failed.add(i);
+            }
+        }
+        Assert.assertTrue(failed.size() > 20 && failed.size() < 100,
+                "Roughly 30% of 200 calls should fail, saw " + failed.size());
+        return failed;
+    }
+}
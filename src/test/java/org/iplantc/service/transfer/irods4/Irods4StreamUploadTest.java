@@ -0,0 +1,127 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.Channels;
+import java.util.UUID;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for stream uploads to IRODS4 instances. These tests were run 
+ * against the {@code agaveapi/irods:4.0.3} Docker image used for integration 
+ * testing by the Agave Platform.
+ */
+@Test(singleThreaded=true)
+public class Irods4StreamUploadTest extends IrodsBaseTestCase {
+
+    @Test(priority=1)
+    public void testPutInputStreamCreatesDataObject()
+    {
+        String dirName = UUID.randomUUID().toString();
+        String remotePath = dirName + "/stream.txt";
+        byte[] content = "Some streamed data".getBytes();
+        
+        try {
+            long written = getClient().put(new ByteArrayInputStream(content), content.length, remotePath);
+            
+            Assert.assertEquals(written, content.length, "put: should report every byte of the stream as written");
+            Assert.assertFalse(getClient().isDirectory(remotePath), "put: should create a data object, not a collection");
+            
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            getClient().get(remotePath, Channels.newChannel(out));
+            Assert.assertEquals(out.toByteArray(), content, "Uploaded object should match the streamed data");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown streaming data to a new path.", e);
+        }
+        finally {
+            try { getClient().delete(dirName); } catch (Exception e) {}
+        }
+    }
+    
+    @Test(priority=1)
+    public void testPutChannelOfUnknownLength()
+    {
+        String remotePath = UUID.randomUUID().toString();
+        byte[] content = "Some streamed data".getBytes();
+        
+        try {
+            long written = getClient().put(Channels.newChannel(new ByteArrayInputStream(content)), -1, remotePath);
+            
+            Assert.assertEquals(written, content.length, "put: should read the channel to the end when length is unknown");
+            Assert.assertTrue(getClient().doesExist(remotePath), "put: should create the data object");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown streaming a channel of unknown length.", e);
+        }
+        finally {
+            try { getClient().delete(remotePath); } catch (Exception e) {}
+        }
+    }
+    
+    @Test(priority=2)
+    public void testPutShortStreamThrowsIOException()
+    {
+        String remotePath = UUID.randomUUID().toString();
+        byte[] content = "Some streamed data".getBytes();
+        
+        try {
+            getClient().put(new ByteArrayInputStream(content), content.length + 10, remotePath);
+            Assert.fail("put: should fail when the stream ends before the declared length");
+        }
+        catch (IOException e) {
+            try {
+                Assert.assertFalse(getClient().doesExist(remotePath), "put: should remove the partial object");
+            } catch (Exception e1) {
+                Assert.fail("Exception should not be thrown checking for a partial upload.", e1);
+            }
+        }
+        catch (Exception e) {
+            Assert.fail("IOException should be thrown when the stream is short.", e);
+        }
+        finally {
+            try { getClient().delete(remotePath); } catch (Exception e) {}
+        }
+    }
+    
+    @Test(priority=2)
+    public void testPutFailingStreamRemovesPartialObject()
+    {
+        String remotePath = UUID.randomUUID().toString();
+        byte[] content = "Some streamed data".getBytes();
+        
+        // hands back the data, then fails the way a dropped connection would
+        InputStream failingStream = new SequenceInputStream(new ByteArrayInputStream(content), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Source failed mid-stream");
+            }
+        });
+        
+        try {
+            getClient().put(new ByteArrayInputStream(content), content.length, remotePath);
+            
+            getClient().put(failingStream, content.length * 2, remotePath);
+            Assert.fail("put: should fail when the source stream throws");
+        }
+        catch (IOException e) {
+            try {
+                Assert.assertFalse(getClient().doesExist(remotePath), 
+                        "put: should remove the partial object rather than leave it in place of the old one");
+            } catch (Exception e1) {
+                Assert.fail("Exception should not be thrown checking for a partial upload.", e1);
+            }
+        }
+        catch (Exception e) {
+            Assert.fail("IOException should be thrown when the source stream fails.", e);
+        }
+        finally {
+            try { getClient().delete(remotePath); } catch (Exception e) {}
+        }
+    }
+}
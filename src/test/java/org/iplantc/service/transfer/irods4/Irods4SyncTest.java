@@ -0,0 +1,109 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for incremental directory sync against IRODS4 instances. These 
+ * tests were run against the {@code agaveapi/irods:4.0.3} Docker image used 
+ * for integration testing by the Agave Platform.
+ */
+@Test(singleThreaded=true)
+public class Irods4SyncTest extends IrodsBaseTestCase {
+
+    @Test(priority=1)
+    public void testSyncUploadsNewTreeThenSkipsUnchangedFiles()
+    {
+        File testDir = null;
+        
+        try {
+            testDir = createLocalTestDirectory();
+            
+            BulkOperationReport first = getClient().sync(testDir, testDir.getName());
+            Assert.assertFalse(first.hasErrors(), "sync: should not report errors for a new tree. " + first.getFailures());
+            Assert.assertEquals(first.getSucceeded(), 4, "sync: should upload every file of a new tree");
+            Assert.assertTrue(getClient().doesExist(testDir.getName() + "/sub1/sub_beta.txt"), 
+                    "sync: should mirror the local tree directly under the target path");
+            
+            BulkOperationReport second = getClient().sync(testDir, testDir.getName());
+            Assert.assertEquals(second.getSucceeded(), 0, "sync: should upload nothing when nothing changed");
+            Assert.assertEquals(second.getSkipped(), 4, "sync: should skip every unchanged file");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown syncing a valid directory.", e);
+        }
+        finally {
+            try { getClient().delete(testDir.getName()); } catch (Exception e) {}
+            FileUtils.deleteQuietly(testDir);
+        }
+    }
+    
+    @Test(priority=2)
+    public void testSyncUploadsOnlyChangedFiles()
+    {
+        File testDir = null;
+        
+        try {
+            testDir = createLocalTestDirectory();
+            getClient().sync(testDir, testDir.getName());
+            
+            FileUtils.write(new File(testDir, "sub1/sub_alpha.txt"), "this is a longer sub1/sub_alpha.txt");
+            FileUtils.write(new File(testDir, "gamma.txt"), "this is gamma.txt");
+            
+            BulkOperationReport report = getClient().sync(testDir, testDir.getName());
+            Assert.assertFalse(report.hasErrors(), "sync: should not report errors for a changed tree. " + report.getFailures());
+            Assert.assertEquals(report.getSucceeded(), 2, "sync: should upload only the changed and new files");
+            Assert.assertEquals(report.getSkipped(), 3, "sync: should skip the unchanged files");
+            Assert.assertEquals(getClient().stat(testDir.getName() + "/sub1/sub_alpha.txt").getObjSize(), 
+                    new File(testDir, "sub1/sub_alpha.txt").length(), "sync: should replace the changed file");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown syncing a changed directory.", e);
+        }
+        finally {
+            try { getClient().delete(testDir.getName()); } catch (Exception e) {}
+            FileUtils.deleteQuietly(testDir);
+        }
+    }
+    
+    @Test(priority=3)
+    public void testSyncDeletesOrphansOnlyWhenAsked()
+    {
+        File testDir = null;
+        
+        try {
+            testDir = createLocalTestDirectory();
+            getClient().sync(testDir, testDir.getName());
+            
+            FileUtils.deleteQuietly(new File(testDir, "beta.txt"));
+            FileUtils.deleteQuietly(new File(testDir, "sub1"));
+            
+            getClient().sync(testDir, testDir.getName());
+            Assert.assertTrue(getClient().doesExist(testDir.getName() + "/beta.txt"), 
+                    "sync: should keep orphans by default");
+            
+            IRODSSyncOptions options = new IRODSSyncOptions();
+            options.setDeleteOrphans(true);
+            options.setCompareChecksums(true);
+            BulkOperationReport report = getClient().sync(testDir, testDir.getName(), options);
+            
+            Assert.assertFalse(report.hasErrors(), "sync: should not report errors deleting orphans. " + report.getFailures());
+            Assert.assertFalse(getClient().doesExist(testDir.getName() + "/beta.txt"), 
+                    "sync: should delete orphaned files when asked");
+            Assert.assertFalse(getClient().doesExist(testDir.getName() + "/sub1"), 
+                    "sync: should delete orphaned collections when asked");
+            Assert.assertTrue(getClient().doesExist(testDir.getName() + "/alpha.txt"), 
+                    "sync: should keep files which still exist locally");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown syncing with orphan deletion.", e);
+        }
+        finally {
+            try { getClient().delete(testDir.getName()); } catch (Exception e) {}
+            FileUtils.deleteQuietly(testDir);
+        }
+    }
+}
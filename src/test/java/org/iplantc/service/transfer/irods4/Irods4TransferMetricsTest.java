@@ -0,0 +1,190 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.io.FileUtils;
+import org.iplantc.service.transfer.exceptions.RemoteDataException;
+import org.iplantc.service.transfer.irods4.standin.InMemoryAccessObjectFactory;
+import org.irods.jargon.core.exception.JargonException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the transfer metrics recorded by the IRODS4 client, run against
+ * the in-memory stand-in for the iRODS access objects. These tests do not
+ * talk to a server, so they run without the {@code agaveapi/irods:4.0.3}
+ * Docker image used for integration testing by the Agave Platform.
+ */
+@Test(singleThreaded=true)
+public class Irods4TransferMetricsTest {
+
+    private InMemoryAccessObjectFactory standIn;
+    private IRODS4 client;
+    private TransferMetrics parent;
+    private TransferMetrics metrics;
+    private File localDir;
+
+    @BeforeMethod
+    protected void beforeMethod() throws Exception {
+        standIn = new InMemoryAccessObjectFactory();
+        client = IrodsBaseTestCase.createStandInClient(standIn);
+        client.authenticate();
+        client.mkdirs("");
+
+        // keep the JVM wide aggregate out of the assertions
+        parent = new TransferMetrics(null);
+        metrics = new TransferMetrics(parent);
+        client.setTransferMetrics(metrics);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    protected void afterMethod() {
+        try { client.disconnect(); } catch (Exception e) {}
+        metrics.unregisterMBean();
+        FileUtils.deleteQuietly(localDir);
+    }
+
+    @Test
+    public void testParallelPutRecordsEveryFile() throws Exception
+    {
+        localDir = IrodsBaseTestCase.createLocalTestDirectory(10, 16);
+
+        BulkOperationReport report = client.put(localDir, "metrics", 4);
+
+        Assert.assertEquals(report.getSucceeded(), 10, "put: every file should be uploaded");
+        Assert.assertEquals(metrics.getFilesTransferred(), 10, "Every uploaded file should be counted");
+        Assert.assertEquals(metrics.getBytesTransferred(), 160, "Every uploaded byte should be counted");
+        Assert.assertEquals(metrics.getFilesFailed(), 0, "No failures should be counted");
+        Assert.assertEquals(metrics.getFileDurationHistogram().getCount(), 10,
+                "A duration should be recorded for every file");
+        Assert.assertEquals(parent.getFilesTransferred(), 10, "Files should roll up into the parent metrics");
+        Assert.assertEquals(parent.getBytesTransferred(), 160, "Bytes should roll up into the parent metrics");
+    }
+
+    @Test
+    public void testFailedUploadsAreCountedOnce() throws Exception
+    {
+        localDir = IrodsBaseTestCase.createLocalTestDirectory(10, 16);
+        standIn.failNextCalls("putOperation", 3, null);
+
+        BulkOperationReport report = client.put(localDir, "failures", 4);
+
+        Assert.assertEquals(report.getFailed(), 3, "put: each injected failure should be reported");
+        Assert.assertEquals(metrics.getFilesFailed(), 3, "Each failed file should be counted once");
+        Assert.assertEquals(metrics.getFilesTransferred(), 7, "Only the uploaded files should be counted as transferred");
+        Assert.assertEquals(parent.getFilesFailed(), 3, "Failures should roll up into the parent metrics");
+    }
+
+    @Test
+    public void testFailedSinglePutIsCounted() throws Exception
+    {
+        localDir = IrodsBaseTestCase.createLocalTestDirectory(1, 16);
+        standIn.failNextCalls("putOperation", 1, null);
+
+        try {
+            client.put(new File(localDir, "file0.dat"), "single");
+            Assert.fail("put: injected failure should be thrown");
+        } catch (RemoteDataException e) {
+            // expected
+        }
+
+        Assert.assertEquals(metrics.getFilesFailed(), 1, "The failed put should be counted once");
+        Assert.assertEquals(metrics.getFilesTransferred(), 0, "Nothing should be counted as transferred");
+    }
+
+    @Test
+    public void testFailedStreamedGetIsCountedAndKeepsExistingCopy() throws Exception
+    {
+        standIn.getCatalog().seed("/iplant/home/testuser/work/download.dat", new byte[64 * 1024]);
+        standIn.failNextCalls("instanceIRODSFileInputStream", 1, new JargonException("Connection reset"));
+        localDir = new File(FileUtils.getTempDirectory(), UUID.randomUUID().toString());
+        localDir.mkdirs();
+        File target = new File(localDir, "download.dat");
+        FileUtils.write(target, "the previous copy");
+        IRODSTransferOptions options = new IRODSTransferOptions();
+        options.setParallelThreads(1);
+
+        try {
+            client.get("download.dat", target, options);
+            Assert.fail("get: injected failure should be thrown");
+        } catch (RemoteDataException e) {
+            // expected
+        }
+
+        Assert.assertEquals(FileUtils.readFileToString(target), "the previous copy",
+                "get: a failed download should leave the existing copy untouched");
+        Assert.assertEquals(localDir.list().length, 1, "get: a failed download should not leave a partial file behind");
+        Assert.assertEquals(metrics.getFilesFailed(), 1, "The failed get should be counted once");
+    }
+
+    @Test
+    public void testNullMetricsDisablesRecording() throws Exception
+    {
+        localDir = IrodsBaseTestCase.createLocalTestDirectory(2, 16);
+        client.setTransferMetrics(null);
+
+        BulkOperationReport report = client.put(localDir, "unmetered", 2);
+
+        Assert.assertEquals(report.getSucceeded(), 2, "put: uploads should work without metrics");
+        Assert.assertEquals(metrics.getFilesTransferred(), 0, "Nothing should be recorded once metrics are removed");
+    }
+
+    @Test
+    public void testMetricsAreReadableOverJmx() throws Exception
+    {
+        localDir = IrodsBaseTestCase.createLocalTestDirectory(3, 16);
+        client.put(localDir, "jmx", 2);
+
+        ObjectName name = metrics.registerMBean("test-" + UUID.randomUUID());
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        Assert.assertEquals(server.getAttribute(name, "FilesTransferred"), Long.valueOf(3),
+                "FilesTransferred should be visible over JMX");
+        Assert.assertEquals(server.getAttribute(name, "BytesTransferred"), Long.valueOf(48),
+                "BytesTransferred should be visible over JMX");
+
+        server.invoke(name, "reset", new Object[0], new String[0]);
+        Assert.assertEquals(metrics.getFilesTransferred(), 0, "reset should be invokable over JMX");
+        Assert.assertEquals(parent.getFilesTransferred(), 3, "reset should leave the parent metrics alone");
+
+        metrics.unregisterMBean();
+        Assert.assertFalse(server.isRegistered(name), "Metrics should be removed from JMX when unregistered");
+    }
+
+    @Test
+    public void testAggregateIsRegistered() throws Exception
+    {
+        ObjectName name = TransferMetrics.getAggregate().getObjectName();
+
+        Assert.assertNotNull(name, "The aggregate should register itself on first use");
+        Assert.assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name),
+                "The aggregate should be visible over JMX");
+        Assert.assertNotNull(new IRODS4("docker.example.com", 1247, "testuser", "testuser", "demoResc", "iplant", "work")
+                .getTransferMetrics(), "New clients should record metrics by default");
+    }
+
+    @Test
+    public void testHistogramPercentiles() throws Exception
+    {
+        TransferHistogram histogram = new TransferHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+
+        Assert.assertEquals(histogram.getCount(), 100, "Every value should be counted");
+        Assert.assertEquals(histogram.getMax(), 100, "Max should be the largest value");
+        Assert.assertEquals(histogram.getMean(), 50.5, 0.001, "Mean should be exact");
+        Assert.assertEquals(histogram.getPercentile(50), 63, "p50 should be the upper bound of the 32-63 bucket");
+        Assert.assertEquals(histogram.getPercentile(99), 100, "p99 should be capped at the max");
+
+        histogram.reset();
+        Assert.assertEquals(histogram.getPercentile(50), 0, "An empty histogram should report 0");
+    }
+}
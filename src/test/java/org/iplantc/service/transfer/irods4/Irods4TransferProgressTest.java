@@ -0,0 +1,164 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.iplantc.service.transfer.irods4.standin.InMemoryAccessObjectFactory;
+import org.irods.jargon.core.transfer.TransferStatus;
+import org.irods.jargon.core.transfer.TransferStatus.TransferState;
+import org.irods.jargon.core.transfer.TransferStatus.TransferType;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the throttled progress reporting of the IRODS4 client, run
+ * against the in-memory stand-in for the iRODS access objects. These tests
+ * do not talk to a server, so they run without the {@code agaveapi/irods:4.0.3}
+ * Docker image used for integration testing by the Agave Platform.
+ */
+@Test(singleThreaded=true)
+public class Irods4TransferProgressTest {
+
+    /**
+     * Copies every update it receives, since the snapshot is reused.
+     */
+    private static class RecordingSink implements TransferProgressSink {
+        final List<String> updates = new ArrayList<String>();
+        long lastBytes = -1;
+        long lastTotal = -1;
+        int lastFiles = -1;
+        boolean complete = false;
+
+        @Override
+        public synchronized void progressUpdated(TransferProgress progress) {
+            updates.add(progress.toString());
+            lastBytes = progress.getBytesTransferred();
+            lastTotal = progress.getTotalBytes();
+            lastFiles = progress.getFilesTransferred();
+            complete = progress.isComplete();
+        }
+    }
+
+    private InMemoryAccessObjectFactory standIn;
+    private IRODS4 client;
+    private RecordingSink sink;
+    private File localDir;
+
+    @BeforeMethod
+    protected void beforeMethod() throws Exception {
+        standIn = new InMemoryAccessObjectFactory();
+        client = IrodsBaseTestCase.createStandInClient(standIn);
+        client.setTransferMetrics(new TransferMetrics(null));
+        client.authenticate();
+        client.mkdirs("");
+        sink = new RecordingSink();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    protected void afterMethod() {
+        try { client.disconnect(); } catch (Exception e) {}
+        FileUtils.deleteQuietly(localDir);
+    }
+
+    private TransferStatus status(TransferState state, long totalSize, long bytesSoFar) throws Exception {
+        return TransferStatus.instance(TransferType.PUT, "/tmp/source.dat", "/iplant/home/testuser/source.dat",
+                "demoResc", totalSize, bytesSoFar, 0, 0, 1, state, "localhost", "iplant");
+    }
+
+    @Test
+    public void testIntraFileUpdatesAreThrottled() throws Exception
+    {
+        long fileSize = 1L << 30;
+        ProgressTransferStatusCallbackListener listener = new ProgressTransferStatusCallbackListener(sink, 2);
+        listener.overallStatusCallback(status(TransferState.OVERALL_INITIATION, fileSize, 0));
+
+        TransferStatus[] chunks = new TransferStatus[1024];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = status(TransferState.IN_PROGRESS, fileSize, (fileSize / chunks.length) * (i + 1));
+        }
+        long start = System.currentTimeMillis();
+        for (int round = 0; round < 200; round++) {
+            for (TransferStatus chunk: chunks) {
+                listener.statusCallback(chunk);
+            }
+        }
+        long elapsedSeconds = (System.currentTimeMillis() - start) / 1000;
+
+        listener.statusCallback(status(TransferState.SUCCESS, fileSize, fileSize));
+        listener.overallStatusCallback(status(TransferState.OVERALL_COMPLETION, fileSize, fileSize));
+
+        Assert.assertTrue(sink.updates.size() <= (elapsedSeconds + 1) * 2 + 2,
+                "At most 2 updates per second plus the final one should be delivered, saw " + sink.updates.size());
+        Assert.assertTrue(sink.complete, "The final update should mark the transfer complete");
+        Assert.assertEquals(sink.lastBytes, fileSize, "Repeated progress reports should not be counted twice");
+        Assert.assertEquals(sink.lastTotal, fileSize, "The total should come from the overall initiation");
+        Assert.assertEquals(sink.lastFiles, 1, "The completed file should be counted");
+    }
+
+    @Test
+    public void testProgressSnapshotEstimates() throws Exception
+    {
+        TransferProgress progress = new TransferProgress();
+        progress.update(250, 1000, 0, 0, 1, "/tmp/source.dat", 1000, false);
+
+        Assert.assertEquals(progress.getBytesPerSecond(), 250, "Rate should be bytes over elapsed time");
+        Assert.assertEquals(progress.getEtaMillis(), 3000, "ETA should assume the average rate holds");
+        Assert.assertEquals(progress.getPercentComplete(), 25.0, 0.001, "Percent should be of the total bytes");
+
+        progress.update(250, 0, 0, 0, 0, null, 1000, false);
+        Assert.assertEquals(progress.getEtaMillis(), -1, "ETA should be unknown without a total");
+    }
+
+    @Test
+    public void testPutReportsFinalProgress() throws Exception
+    {
+        localDir = IrodsBaseTestCase.createLocalTestDirectory(1, 2048);
+        IRODSTransferOptions options = new IRODSTransferOptions();
+        options.setProgressSink(sink);
+
+        client.put(new File(localDir, "file0.dat"), "single", options);
+
+        Assert.assertTrue(sink.complete, "put: a final update should be delivered");
+        Assert.assertEquals(sink.lastBytes, 2048, "put: every byte should be reported");
+        Assert.assertEquals(sink.lastFiles, 1, "put: the file should be reported as done");
+        Assert.assertEquals(sink.updates.size(), 2, "put: one file should yield the first update and the final one");
+    }
+
+    @Test
+    public void testParallelPutSharesOneTracker() throws Exception
+    {
+        localDir = IrodsBaseTestCase.createLocalTestDirectory(12, 100);
+        IRODSTransferOptions options = new IRODSTransferOptions();
+        options.setProgressSink(sink);
+        client.setDefaultTransferOptions(options);
+        standIn.failNextCalls("putOperation", 2, null);
+
+        BulkOperationReport report = client.put(localDir, "bulk", 4);
+
+        Assert.assertEquals(report.getFailed(), 2, "put: each injected failure should be reported");
+        Assert.assertTrue(sink.complete, "put: a final update should be delivered once every file is done");
+        Assert.assertEquals(sink.lastTotal, 1200, "put: the total should cover every file");
+        Assert.assertEquals(sink.lastBytes, 1000, "put: only the uploaded bytes should be counted");
+        Assert.assertEquals(sink.lastFiles, 10, "put: only the uploaded files should be counted");
+        Assert.assertTrue(sink.updates.size() <= 3,
+                "put: a fast bulk upload should not flood the sink, saw " + sink.updates.size());
+    }
+
+    @Test
+    public void testOptionsCopyProgressSettings() throws Exception
+    {
+        IRODSTransferOptions options = new IRODSTransferOptions();
+        Assert.assertNull(options.getProgressSink(), "Progress should not be reported by default");
+
+        options.setProgressSink(sink);
+        options.setProgressUpdatesPerSecond(0);
+        IRODSTransferOptions copy = new IRODSTransferOptions(options);
+        Assert.assertSame(copy.getProgressSink(), sink, "The copy constructor should keep the sink");
+        Assert.assertEquals(copy.getProgressUpdatesPerSecond(), TransferProgressTracker.DEFAULT_UPDATES_PER_SECOND,
+                "An invalid rate should fall back to the default");
+    }
+}
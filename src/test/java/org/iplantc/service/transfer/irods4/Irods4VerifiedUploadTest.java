@@ -0,0 +1,61 @@
+package org.iplantc.service.transfer.irods4;
+
+import java.io.File;
+import java.security.MessageDigest;
+import java.util.UUID;
+
+import org.apache.commons.io.FileUtils;
+import org.irods.jargon.core.checksum.ChecksumEncodingEnum;
+import org.irods.jargon.core.checksum.ChecksumValue;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for checksum verified uploads to IRODS4 instances. These tests 
+ * were run against the {@code agaveapi/irods:4.0.3} Docker image used for 
+ * integration testing by the Agave Platform.
+ */
+@Test(singleThreaded=true)
+public class Irods4VerifiedUploadTest extends IrodsBaseTestCase {
+
+    @Test(priority=1)
+    public void testPutVerifiedReturnsMatchingServerChecksum()
+    {
+        File localFile = null;
+        String remotePath = UUID.randomUUID().toString();
+        
+        try {
+            localFile = File.createTempFile(UUID.randomUUID().toString(), "tmp");
+            FileUtils.write(localFile, "Some temp data to verify");
+            
+            ChecksumEncodingEnum encoding = getClient().getChecksumEncoding();
+            ChecksumValue checksum = getClient().putVerified(localFile, remotePath);
+            
+            Assert.assertNotNull(checksum, "putVerified: should return the server checksum");
+            Assert.assertEquals(getClient().getChecksumEncoding(), encoding, 
+                    "putVerified: should not change the checksum scheme of the client");
+            
+            String algorithm = checksum.getChecksumEncoding() == ChecksumEncodingEnum.SHA256 ? "SHA-256" : "MD5";
+            StringBuilder expected = new StringBuilder();
+            for (byte b: MessageDigest.getInstance(algorithm).digest(FileUtils.readFileToByteArray(localFile))) {
+                expected.append(String.format("%02x", b));
+            }
+            Assert.assertEquals(checksum.getHexChecksumValue().toLowerCase(), expected.toString(), 
+                    "putVerified: server checksum should match an independent hash of the local file");
+        }
+        catch (Exception e) {
+            Assert.fail("Exception should not be thrown on a verified upload.", e);
+        }
+        finally {
+            try { getClient().delete(remotePath); } catch (Exception e) {}
+            FileUtils.deleteQuietly(localFile);
+        }
+    }
+    
+    @Test(priority=2, expectedExceptions=java.io.FileNotFoundException.class)
+    public void testPutVerifiedMissingLocalFileThrowsFileNotFoundException() throws Exception
+    {
+        getClient().putVerified(new File(FileUtils.getTempDirectory(), UUID.randomUUID().toString()), 
+                UUID.randomUUID().toString());
+    }
+}
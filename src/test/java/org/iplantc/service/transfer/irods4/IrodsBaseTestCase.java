@@ -1,11 +1,13 @@
 package org.iplantc.service.transfer.irods4;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.UUID;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.iplantc.service.transfer.exceptions.RemoteDataException;
+import org.iplantc.service.transfer.irods4.standin.InMemoryAccessObjectFactory;
 import org.irods.jargon.core.pub.io.IRODSFile;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
@@ -36,20 +38,68 @@ public class IrodsBaseTestCase {
      */
     protected IRODS4 getClient() {
         if (threadClient.get() == null) {
-            IRODS4 client = new IRODS4(
-                    getEnvironmentVariable("IRODS_HOST", "docker.example.com"),
-                    Integer.valueOf(getEnvironmentVariable("IRODS_PORT", "1257")),
-                    getEnvironmentVariable("IRODS_USERNAME", "testuser"),
-                    getEnvironmentVariable("IRODS_PASSWORD", "testuser"),
-                    getEnvironmentVariable("IRODS_RESOURCE", "demoResc"),
-                    getEnvironmentVariable("IRODS_ZONE", "iplant"),
-                    getClass().getSimpleName() + "/thread-" + Thread.currentThread().getId());
-            
-            threadClient.set(client);
+            threadClient.set(createClient());
         } 
         
         return threadClient.get();
     }
+    
+    /**
+     * Creates a new, unauthenticated {@link IRODS4} client pointed at the same
+     * threadsafe work directory as {@link #getClient()}.
+     * @return new instance of a {@link IRODS4} client
+     */
+    protected IRODS4 createClient() {
+        return new IRODS4(
+                getEnvironmentVariable("IRODS_HOST", "docker.example.com"),
+                Integer.valueOf(getEnvironmentVariable("IRODS_PORT", "1257")),
+                getEnvironmentVariable("IRODS_USERNAME", "testuser"),
+                getEnvironmentVariable("IRODS_PASSWORD", "testuser"),
+                getEnvironmentVariable("IRODS_RESOURCE", "demoResc"),
+                getEnvironmentVariable("IRODS_ZONE", "iplant"),
+                getClass().getSimpleName() + "/thread-" + Thread.currentThread().getId());
+    }
+
+    /**
+     * Creates a new, unauthenticated {@link SharedIRODS4} client pointed at the
+     * same threadsafe work directory as {@link #getClient()}.
+     * @return new instance of a {@link SharedIRODS4} client
+     */
+    protected SharedIRODS4 createSharedClient() {
+        return new SharedIRODS4(
+                getEnvironmentVariable("IRODS_HOST", "docker.example.com"),
+                Integer.valueOf(getEnvironmentVariable("IRODS_PORT", "1257")),
+                getEnvironmentVariable("IRODS_USERNAME", "testuser"),
+                getEnvironmentVariable("IRODS_PASSWORD", "testuser"),
+                getEnvironmentVariable("IRODS_RESOURCE", "demoResc"),
+                getEnvironmentVariable("IRODS_ZONE", "iplant"),
+                getClass().getSimpleName() + "/thread-" + Thread.currentThread().getId());
+    }
+
+    /**
+     * Creates a new, unauthenticated {@link IRODS4} client whose calls are answered
+     * by an in-memory stand-in rather than a server. Offline tests use this without
+     * extending this class.
+     * @param standIn stand-in serving the client's calls
+     * @return new instance of a {@link IRODS4} client
+     */
+    protected static IRODS4 createStandInClient(InMemoryAccessObjectFactory standIn) {
+        IRODS4 client = new IRODS4("docker.example.com", 1247, "testuser", "testuser", "demoResc", "iplant", "work");
+        client.setAccessObjectFactory(standIn.getAccessObjectFactory());
+        return client;
+    }
+
+    /**
+     * Creates a new, unauthenticated {@link SharedIRODS4} client whose calls are
+     * answered by an in-memory stand-in rather than a server.
+     * @param standIn stand-in serving the client's calls
+     * @return new instance of a {@link SharedIRODS4} client
+     */
+    protected static SharedIRODS4 createSharedStandInClient(InMemoryAccessObjectFactory standIn) {
+        SharedIRODS4 client = new SharedIRODS4("docker.example.com", 1247, "testuser", "testuser", "demoResc", "iplant", "work");
+        client.setAccessObjectFactory(standIn.getAccessObjectFactory());
+        return client;
+    }
 
     @BeforeClass(alwaysRun = true)
     protected void beforeSubclass() throws Exception {
@@ -106,20 +156,7 @@ public class IrodsBaseTestCase {
         File testDir = null;
         try {
             
-            testDir = new File(FileUtils.getTempDirectory(), UUID.randomUUID().toString());
-            if (!testDir.exists()) {
-                testDir.mkdirs();
-            }
-            
-            FileUtils.write(new File(testDir, "alpha.txt"), "this is alpha.txt");
-            FileUtils.write(new File(testDir, "beta.txt"), "this is beta.txt");
-            File subdir = new File(testDir, "sub1");
-            if (!subdir.exists()) {
-                subdir.mkdirs();
-            }
-            FileUtils.write(new File(subdir, "sub_alpha.txt"), "this is sub1/sub_alpha.txt");
-            FileUtils.write(new File(subdir, "sub_beta.txt"), "this is sub1/sub_beta.txt");
-            
+            testDir = createLocalTestDirectory();
             
             getClient().put(testDir, testDir.getName());
         }
@@ -129,5 +166,43 @@ public class IrodsBaseTestCase {
         
         return testDir;
     }
+    
+    /**
+     * Generates a temp directory tree on the local file system without uploading it
+     * @return {@link File} reference to local directory.
+     */
+    protected File createLocalTestDirectory() throws IOException {
+        File testDir = new File(FileUtils.getTempDirectory(), UUID.randomUUID().toString());
+        if (!testDir.exists()) {
+            testDir.mkdirs();
+        }
+        
+        FileUtils.write(new File(testDir, "alpha.txt"), "this is alpha.txt");
+        FileUtils.write(new File(testDir, "beta.txt"), "this is beta.txt");
+        File subdir = new File(testDir, "sub1");
+        if (!subdir.exists()) {
+            subdir.mkdirs();
+        }
+        FileUtils.write(new File(subdir, "sub_alpha.txt"), "this is sub1/sub_alpha.txt");
+        FileUtils.write(new File(subdir, "sub_beta.txt"), "this is sub1/sub_beta.txt");
+        
+        return testDir;
+    }
+
+    /**
+     * Generates a flat temp directory of {@code file<i>.dat} files on the local
+     * file system without uploading it
+     * @param fileCount number of files to write
+     * @param fileSize size of each file in bytes
+     * @return {@link File} reference to local directory.
+     */
+    protected static File createLocalTestDirectory(int fileCount, int fileSize) throws IOException {
+        File testDir = new File(FileUtils.getTempDirectory(), UUID.randomUUID().toString());
+        testDir.mkdirs();
+        for (int i = 0; i < fileCount; i++) {
+            FileUtils.writeByteArrayToFile(new File(testDir, "file" + i + ".dat"), new byte[fileSize]);
+        }
+        return testDir;
+    }
 
 }
\ No newline at end of file
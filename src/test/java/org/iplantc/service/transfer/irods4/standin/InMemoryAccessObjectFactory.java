@@ -0,0 +1,808 @@
+package org.iplantc.service.transfer.irods4.standin;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.iplantc.service.transfer.irods4.IRODS4;
+import org.iplantc.service.transfer.irods4.standin.InMemoryCatalog.Node;
+import org.irods.jargon.core.checksum.ChecksumEncodingEnum;
+import org.irods.jargon.core.checksum.ChecksumValue;
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.irods.jargon.core.connection.IRODSSession;
+import org.irods.jargon.core.connection.IRODSSimpleProtocolManager;
+import org.irods.jargon.core.exception.DataNotFoundException;
+import org.irods.jargon.core.exception.FileNotFoundException;
+import org.irods.jargon.core.exception.JargonException;
+import org.irods.jargon.core.exception.JargonRuntimeException;
+import org.irods.jargon.core.pub.CollectionAndDataObjectListAndSearchAO;
+import org.irods.jargon.core.pub.DataObjectAO;
+import org.irods.jargon.core.pub.DataObjectChecksumUtilitiesAO;
+import org.irods.jargon.core.pub.DataTransferOperations;
+import org.irods.jargon.core.pub.IRODSAccessObjectFactory;
+import org.irods.jargon.core.pub.IRODSFileSystemAO;
+import org.irods.jargon.core.pub.domain.ObjStat;
+import org.irods.jargon.core.pub.io.IRODSFile;
+import org.irods.jargon.core.pub.io.IRODSFileFactory;
+import org.irods.jargon.core.query.CollectionAndDataObjectListingEntry;
+import org.irods.jargon.core.query.CollectionAndDataObjectListingEntry.ObjectType;
+import org.irods.jargon.core.transfer.TransferStatus;
+import org.irods.jargon.core.transfer.TransferStatus.TransferState;
+import org.irods.jargon.core.transfer.TransferStatus.TransferType;
+import org.irods.jargon.core.transfer.TransferStatusCallbackListener;
+
+/**
+ * In-process stand-in for the iRODS access objects, backed by an
+ * {@link InMemoryCatalog}. Plug it into a client with
+ * {@link IRODS4#setAccessObjectFactory(IRODSAccessObjectFactory)} to
+ * exercise the client without a server or Docker. The client goes through
+ * its usual authenticate, circuit breaker and retry code, so failures
+ * injected into {@code authenticateIRODSAccount} look like a server which
+ * cannot be reached.
+ *
+ * <p>The access objects are dynamic proxies, so only the calls {@link IRODS4}
+ * makes are implemented: stat, mkdir, paged listings, file level transfers,
+ * checksums and deletes. Anything else, including the stream and random
+ * access file classes, throws {@link UnsupportedOperationException}. Every
+ * call is counted by method name so tests and benchmarks can check how much
+ * work reached the back end.</p>
+ *
+ * <p>Calls which would make a round trip to a real server can be slowed
+ * down, capped in number and made to fail, so load tests can model a remote
+ * server without one. Latency is added per call, optionally per method.
+ * Transfers share a single simulated link of fixed bandwidth. The max
+ * concurrent calls setting makes extra callers wait, as agents queue on a
+ * busy server. Failures can be injected for the next few calls to a method
+ * or at random with a seeded, and so repeatable, generator.</p>
+ */
+public class InMemoryAccessObjectFactory {
+
+    public static final int DEFAULT_PAGE_SIZE = 5000;
+
+    /** method name matching every remote call in the failure injection settings */
+    public static final String ANY_METHOD = "*";
+
+    /** methods answered locally by Jargon, which never see latency or failures */
+    private static final Set<String> LOCAL_METHODS = new HashSet<String>(Arrays.asList(
+            "getIRODSFileFactory", "getIRODSFileSystemAO", "getCollectionAndDataObjectListAndSearchAO",
+            "getDataTransferOperations", "getDataObjectChecksumUtilitiesAO", "getDataObjectAO",
+            "getIrodsSession", "getJargonProperties", "closeSession", "closeSessionAndEatExceptions",
+            "getIRODSAccount", "instanceIRODSFile", "getAbsolutePath", "getPath", "getName", "getParent", "close"));
+
+    private final InMemoryCatalog catalog;
+    private final IRODSSession irodsSession;
+    private final IRODSAccessObjectFactory accessObjectFactory;
+    private final ConcurrentHashMap<String, AtomicLong> callCounts = new ConcurrentHashMap<String, AtomicLong>();
+    private volatile int pageSize = DEFAULT_PAGE_SIZE;
+
+    private volatile long callLatencyMillis = 0;
+    private final ConcurrentHashMap<String, Long> methodLatencyMillis = new ConcurrentHashMap<String, Long>();
+    private volatile long bandwidthBytesPerSecond = 0;
+    private long linkFreeAtNanos = 0;
+    private volatile Semaphore callPermits;
+    private volatile int maxConcurrentCalls = 0;
+    private final AtomicInteger concurrentCalls = new AtomicInteger();
+    private final AtomicInteger peakConcurrentCalls = new AtomicInteger();
+    private final ConcurrentHashMap<String, FailureRule> failureRules = new ConcurrentHashMap<String, FailureRule>();
+    private volatile Random random = new Random(0);
+    private final AtomicLong injectedFailures = new AtomicLong();
+    private final AtomicLong bytesTransferred = new AtomicLong();
+
+    /**
+     * Failures to inject into calls of one method.
+     */
+    private static class FailureRule {
+        private final AtomicInteger remaining;
+        private final double probability;
+        private final JargonException failure;
+
+        private FailureRule(int count, double probability, JargonException failure) {
+            this.remaining = new AtomicInteger(count);
+            this.probability = probability;
+            this.failure = failure;
+        }
+    }
+
+    public InMemoryAccessObjectFactory() {
+        this(new InMemoryCatalog());
+    }
+
+    /**
+     * @param catalog the catalog to serve, which may be shared between factories
+     */
+    public InMemoryAccessObjectFactory(InMemoryCatalog catalog) {
+        this.catalog = catalog;
+        this.irodsSession = new IRODSSession(IRODSSimpleProtocolManager.instance());
+        this.accessObjectFactory = proxy(IRODSAccessObjectFactory.class, new FactoryHandler());
+    }
+
+    /**
+     * @return the stand-in to hand to {@link IRODS4#setAccessObjectFactory(IRODSAccessObjectFactory)}
+     */
+    public IRODSAccessObjectFactory getAccessObjectFactory() {
+        return accessObjectFactory;
+    }
+
+    public InMemoryCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * @param methodName simple name of an access object method, such as {@code getObjStat}
+     * @return number of times the method was called since the last {@link #resetCallCounts()}
+     */
+    public long getCallCount(String methodName) {
+        AtomicLong count = callCounts.get(methodName);
+        return count == null ? 0 : count.get();
+    }
+
+    public void resetCallCounts() {
+        callCounts.clear();
+        peakConcurrentCalls.set(concurrentCalls.get());
+        injectedFailures.set(0);
+        bytesTransferred.set(0);
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @param pageSize max number of entries returned per listing call
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = Math.max(1, pageSize);
+    }
+
+    public long getCallLatencyMillis() {
+        return callLatencyMillis;
+    }
+
+    /**
+     * @param callLatencyMillis time every remote call takes before it is answered
+     */
+    public void setCallLatencyMillis(long callLatencyMillis) {
+        this.callLatencyMillis = Math.max(0, callLatencyMillis);
+    }
+
+    /**
+     * Overrides the call latency of a single method.
+     *
+     * @param methodName simple name of the method, such as {@code getObjStat}
+     * @param latencyMillis time each call to the method takes, or a negative value to remove the override
+     */
+    public void setCallLatencyMillis(String methodName, long latencyMillis) {
+        if (latencyMillis < 0) {
+            methodLatencyMillis.remove(methodName);
+        } else {
+            methodLatencyMillis.put(methodName, latencyMillis);
+        }
+    }
+
+    public long getBandwidthBytesPerSecond() {
+        return bandwidthBytesPerSecond;
+    }
+
+    /**
+     * @param bandwidthBytesPerSecond bytes per second shared by all transfers, 0 for no limit
+     */
+    public void setBandwidthBytesPerSecond(long bandwidthBytesPerSecond) {
+        this.bandwidthBytesPerSecond = Math.max(0, bandwidthBytesPerSecond);
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    /**
+     * @param maxConcurrentCalls max remote calls served at once. Further
+     *            callers wait their turn. 0 for no limit.
+     */
+    public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+        this.maxConcurrentCalls = Math.max(0, maxConcurrentCalls);
+        this.callPermits = maxConcurrentCalls > 0 ? new Semaphore(maxConcurrentCalls, true) : null;
+    }
+
+    /**
+     * @return the most remote calls in flight at once since the last {@link #resetCallCounts()}
+     */
+    public int getPeakConcurrentCalls() {
+        return peakConcurrentCalls.get();
+    }
+
+    /**
+     * Makes the next {@code count} calls to a method fail.
+     *
+     * @param methodName simple name of the method, or {@link #ANY_METHOD}
+     * @param count number of calls to fail
+     * @param failure exception to throw, or null for a generic {@link JargonException}
+     */
+    public void failNextCalls(String methodName, int count, JargonException failure) {
+        failureRules.put(methodName, new FailureRule(count, 0, failure));
+    }
+
+    /**
+     * Makes calls to a method fail at random.
+     *
+     * @param methodName simple name of the method, or {@link #ANY_METHOD}
+     * @param probability chance between 0 and 1 that any one call fails
+     */
+    public void setFailureProbability(String methodName, double probability) {
+        failureRules.put(methodName, new FailureRule(0, probability, null));
+    }
+
+    /**
+     * @param seed seed of the generator deciding which calls fail at random
+     */
+    public void setRandomSeed(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Stops injecting failures.
+     */
+    public void clearFailures() {
+        failureRules.clear();
+    }
+
+    /**
+     * @return number of calls failed on purpose since the last {@link #resetCallCounts()}
+     */
+    public long getInjectedFailureCount() {
+        return injectedFailures.get();
+    }
+
+    /**
+     * @return bytes moved in or out of the catalog since the last {@link #resetCallCounts()}
+     */
+    public long getBytesTransferred() {
+        return bytesTransferred.get();
+    }
+
+    /**
+     * Hook run before every access object call except {@link Object} methods.
+     * Counts the call, then applies the latency and failure settings to
+     * remote calls.
+     *
+     * @param method the method being called
+     * @param args the call arguments
+     * @throws Exception to fail the call
+     */
+    protected void beforeCall(Method method, Object[] args) throws Exception {
+        String methodName = method.getName();
+        AtomicLong count = callCounts.get(methodName);
+        if (count == null) {
+            callCounts.putIfAbsent(methodName, new AtomicLong());
+            count = callCounts.get(methodName);
+        }
+        count.incrementAndGet();
+
+        if (LOCAL_METHODS.contains(methodName)) {
+            return;
+        }
+
+        Long latency = methodLatencyMillis.get(methodName);
+        sleep(TimeUnit.MILLISECONDS.toNanos(latency == null ? callLatencyMillis : latency));
+
+        FailureRule rule = failureRules.get(methodName);
+        if (rule == null) {
+            rule = failureRules.get(ANY_METHOD);
+        }
+        if (rule != null) {
+            boolean fail = rule.remaining.get() > 0 ? 
+                    rule.remaining.getAndDecrement() > 0 : 
+                    rule.probability > 0 && random.nextDouble() < rule.probability;
+            if (fail) {
+                injectedFailures.incrementAndGet();
+                throw rule.failure == null ? new JargonException("Injected failure in " + methodName) : rule.failure;
+            }
+        }
+    }
+
+    /**
+     * Hook run as data moves between the catalog and a local file. Holds the
+     * caller until the shared link has had time to carry {@code bytes}.
+     *
+     * @param bytes number of bytes about to move
+     * @throws Exception to fail the transfer
+     */
+    protected void beforeTransfer(long bytes) throws Exception {
+        bytesTransferred.addAndGet(bytes);
+        long bandwidth = bandwidthBytesPerSecond;
+        if (bandwidth <= 0) {
+            return;
+        }
+
+        long wakeAtNanos;
+        synchronized (this) {
+            // transfers queue on the link, so concurrent callers share its bandwidth
+            long startNanos = Math.max(System.nanoTime(), linkFreeAtNanos);
+            linkFreeAtNanos = startNanos + (long)(bytes * 1e9 / bandwidth);
+            wakeAtNanos = linkFreeAtNanos;
+        }
+        sleep(wakeAtNanos - System.nanoTime());
+    }
+
+    private void sleep(long nanos) throws JargonException {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JargonException("Interrupted waiting on the in-memory stand-in", e);
+        }
+    }
+
+    /**
+     * @param path absolute path
+     * @return an {@link IRODSFile} for {@code path} backed by the catalog
+     */
+    public IRODSFile instanceIRODSFile(String path) {
+        return proxy(IRODSFile.class, new FileHandler(path));
+    }
+
+    private Node getExisting(String path) throws FileNotFoundException {
+        Node node = catalog.get(path);
+        if (node == null) {
+            throw new FileNotFoundException("No collection or data object found at " + path);
+        }
+        return node;
+    }
+
+    private ObjStat getObjStat(String path) throws FileNotFoundException {
+        Node node = getExisting(path);
+        ObjStat objStat = new ObjStat();
+        objStat.setAbsolutePath(path);
+        objStat.setObjectType(node.isCollection() ? ObjectType.COLLECTION : ObjectType.DATA_OBJECT);
+        objStat.setObjSize(node.getSize());
+        objStat.setCreatedAt(new Date(node.getCreatedAt()));
+        objStat.setModifiedAt(new Date(node.getModifiedAt()));
+        objStat.setDataId(node.getId());
+        objStat.setSpecColType(ObjStat.SpecColType.NORMAL);
+        return objStat;
+    }
+
+    private List<CollectionAndDataObjectListingEntry> list(String path, boolean collections, int start)
+    throws FileNotFoundException {
+        Node parent = getExisting(path);
+        if (!parent.isCollection()) {
+            return Collections.emptyList();
+        }
+
+        List<Map.Entry<String, Node>> children = catalog.getChildren(path, collections);
+        int end = Math.min(children.size(), start + pageSize);
+        List<CollectionAndDataObjectListingEntry> page = new ArrayList<CollectionAndDataObjectListingEntry>();
+        for (int i = start; i < end; i++) {
+            String childPath = children.get(i).getKey();
+            Node child = children.get(i).getValue();
+            CollectionAndDataObjectListingEntry entry = new CollectionAndDataObjectListingEntry();
+            entry.setObjectType(collections ? ObjectType.COLLECTION : ObjectType.DATA_OBJECT);
+            entry.setParentPath(InMemoryCatalog.getParent(childPath));
+            // collections carry their absolute path, data objects just their name
+            entry.setPathOrName(collections ? childPath : childPath.substring(childPath.lastIndexOf('/') + 1));
+            entry.setDataSize(child.getSize());
+            entry.setCreatedAt(new Date(child.getCreatedAt()));
+            entry.setModifiedAt(new Date(child.getModifiedAt()));
+            entry.setId(child.getId());
+            entry.setCount(i + 1);
+            entry.setLastResult(i == children.size() - 1);
+            page.add(entry);
+        }
+        return page;
+    }
+
+    /**
+     * Copies a local file or directory tree into the catalog.
+     *
+     * @param totals running count of files and bytes copied
+     */
+    private void put(File source, String targetPath, long[] totals) throws Exception {
+        if (source.isDirectory()) {
+            if (catalog.get(targetPath) == null) {
+                catalog.mkdir(targetPath, false);
+            }
+            File[] children = source.listFiles();
+            if (children != null) {
+                for (File child: children) {
+                    put(child, targetPath + "/" + child.getName(), totals);
+                }
+            }
+        } else {
+            beforeTransfer(source.length());
+            catalog.write(targetPath, FileUtils.readFileToByteArray(source));
+            totals[0]++;
+            totals[1] += source.length();
+        }
+    }
+
+    /**
+     * Copies a data object or collection tree out of the catalog.
+     *
+     * @param totals running count of files and bytes copied
+     */
+    private void get(String sourcePath, File target, long[] totals) throws Exception {
+        Node node = getExisting(sourcePath);
+        if (node.isCollection()) {
+            if (!target.isDirectory() && !target.mkdirs()) {
+                throw new IOException("Unable to create local directory " + target.getAbsolutePath());
+            }
+            for (boolean collections: new boolean[] { true, false }) {
+                for (Map.Entry<String, Node> child: catalog.getChildren(sourcePath, collections)) {
+                    String name = child.getKey().substring(child.getKey().lastIndexOf('/') + 1);
+                    get(child.getKey(), new File(target, name), totals);
+                }
+            }
+        } else {
+            byte[] data = node.getData();
+            beforeTransfer(data.length);
+            FileUtils.writeByteArrayToFile(target, data);
+            totals[0]++;
+            totals[1] += data.length;
+        }
+    }
+
+    private ChecksumValue checksum(String path) throws Exception {
+        Node node = getExisting(path);
+        if (node.isCollection()) {
+            throw new DataNotFoundException("Cannot compute a checksum on collection " + path);
+        }
+        byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("MD5").digest(node.getData());
+        } catch (NoSuchAlgorithmException e) {
+            throw new JargonException("MD5 is not available", e);
+        }
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b: hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        ChecksumValue checksumValue = new ChecksumValue();
+        checksumValue.setChecksumEncoding(ChecksumEncodingEnum.MD5);
+        checksumValue.setHexChecksumValue(hex.toString());
+        checksumValue.setChecksumStringValue(hex.toString());
+        return checksumValue;
+    }
+
+    private void reportTransfer(TransferStatusCallbackListener listener, TransferType type,
+            String source, String target, long[] totals) throws JargonException {
+        if (listener == null) {
+            return;
+        }
+        int files = (int)totals[0];
+        listener.statusCallback(TransferStatus.instance(type, source, target, "", totals[1], totals[1],
+                files, 0, files, TransferState.SUCCESS, "localhost", ""));
+        listener.overallStatusCallback(TransferStatus.instance(type, source, target, "", totals[1], totals[1],
+                files, 0, files, TransferState.OVERALL_COMPLETION, "localhost", ""));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T)Proxy.newProxyInstance(InMemoryAccessObjectFactory.class.getClassLoader(),
+                new Class<?>[] { type }, handler);
+    }
+
+    /**
+     * Base handler which answers {@link Object} methods, runs
+     * {@link #beforeCall(Method, Object[])} and rejects anything the
+     * subclass does not implement.
+     */
+    private abstract class StandInHandler implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return toString();
+                }
+            }
+
+            Object result;
+            boolean remote = !LOCAL_METHODS.contains(method.getName());
+            Semaphore permits = remote ? callPermits : null;
+            try {
+                if (permits != null) {
+                    permits.acquire();
+                }
+                try {
+                    if (remote) {
+                        int inFlight = concurrentCalls.incrementAndGet();
+                        int peak;
+                        while (inFlight > (peak = peakConcurrentCalls.get()) 
+                                && !peakConcurrentCalls.compareAndSet(peak, inFlight)) {
+                            // another caller raised the peak first, try again
+                        }
+                    }
+
+                    beforeCall(method, args);
+                    result = handle(method.getName(), args == null ? new Object[0] : args);
+                } finally {
+                    if (remote) {
+                        concurrentCalls.decrementAndGet();
+                    }
+                    if (permits != null) {
+                        permits.release();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw toDeclaredException(method, new JargonException("Interrupted waiting on the in-memory stand-in", e));
+            } catch (Exception e) {
+                throw toDeclaredException(method, e);
+            }
+            if (result == UNSUPPORTED) {
+                throw new UnsupportedOperationException(method.getDeclaringClass().getSimpleName() + "."
+                        + method.getName() + " is not supported by the in-memory stand-in");
+            }
+            return result;
+        }
+
+        /**
+         * Fits a failure to what {@code method} may throw, so callers see a
+         * {@link JargonException} rather than an undeclared throwable.
+         */
+        private Exception toDeclaredException(Method method, Exception e) {
+            if (e instanceof RuntimeException) {
+                return e;
+            }
+            for (Class<?> declared: method.getExceptionTypes()) {
+                if (declared.isInstance(e)) {
+                    return e;
+                }
+            }
+            for (Class<?> declared: method.getExceptionTypes()) {
+                if (declared.isAssignableFrom(JargonException.class)) {
+                    return new JargonException(e.getMessage(), e);
+                }
+            }
+            return new JargonRuntimeException(e.getMessage(), e);
+        }
+
+        protected abstract Object handle(String methodName, Object[] args) throws Exception;
+    }
+
+    private static final Object UNSUPPORTED = new Object();
+
+    private class FactoryHandler extends StandInHandler {
+
+        private final IRODSFileFactory fileFactory = proxy(IRODSFileFactory.class, new FileFactoryHandler());
+        private final IRODSFileSystemAO fileSystemAO = proxy(IRODSFileSystemAO.class, new FileSystemHandler());
+        private final CollectionAndDataObjectListAndSearchAO listAndSearchAO =
+                proxy(CollectionAndDataObjectListAndSearchAO.class, new ListAndSearchHandler());
+        private final DataTransferOperations dataTransferOperations =
+                proxy(DataTransferOperations.class, new DataTransferHandler());
+        private final DataObjectChecksumUtilitiesAO checksumAO =
+                proxy(DataObjectChecksumUtilitiesAO.class, new ChecksumHandler());
+
+        @Override
+        protected Object handle(String methodName, Object[] args) throws Exception {
+            switch (methodName) {
+                case "getIRODSFileFactory":
+                    return fileFactory;
+                case "getIRODSFileSystemAO":
+                    return fileSystemAO;
+                case "getCollectionAndDataObjectListAndSearchAO":
+                    return listAndSearchAO;
+                case "getDataTransferOperations":
+                    return dataTransferOperations;
+                case "getDataObjectChecksumUtilitiesAO":
+                    return checksumAO;
+                case "getDataObjectAO":
+                    return proxy(DataObjectAO.class, new DataObjectHandler((IRODSAccount)args[0]));
+                case "getIrodsSession":
+                    return irodsSession;
+                case "getJargonProperties":
+                    return irodsSession.getJargonProperties();
+                case "closeSession":
+                case "closeSessionAndEatExceptions":
+                    return null;
+                case "authenticateIRODSAccount":
+                    // every account is welcome
+                    return null;
+                default:
+                    return UNSUPPORTED;
+            }
+        }
+    }
+
+    private class DataObjectHandler extends StandInHandler {
+
+        private final IRODSAccount irodsAccount;
+
+        private DataObjectHandler(IRODSAccount irodsAccount) {
+            this.irodsAccount = irodsAccount;
+        }
+
+        @Override
+        protected Object handle(String methodName, Object[] args) throws Exception {
+            if ("getIRODSAccount".equals(methodName)) {
+                return irodsAccount;
+            }
+            return UNSUPPORTED;
+        }
+    }
+
+    private class FileFactoryHandler extends StandInHandler {
+
+        @Override
+        protected Object handle(String methodName, Object[] args) throws Exception {
+            if ("instanceIRODSFile".equals(methodName)) {
+                if (args.length == 1 && args[0] instanceof String) {
+                    return instanceIRODSFile((String)args[0]);
+                } else if (args.length == 2 && args[0] instanceof String) {
+                    String parent = (String)args[0];
+                    return instanceIRODSFile((parent.endsWith("/") ? parent : parent + "/") + args[1]);
+                }
+            }
+            return UNSUPPORTED;
+        }
+    }
+
+    private class FileHandler extends StandInHandler {
+
+        private final String path;
+
+        private FileHandler(String path) {
+            this.path = path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        }
+
+        @Override
+        public String toString() {
+            return path;
+        }
+
+        @Override
+        protected Object handle(String methodName, Object[] args) throws Exception {
+            Node node = catalog.get(path);
+            switch (methodName) {
+                case "getAbsolutePath":
+                case "getPath":
+                    return path;
+                case "getName":
+                    return path.substring(path.lastIndexOf('/') + 1);
+                case "getParent":
+                    return InMemoryCatalog.getParent(path);
+                case "exists":
+                    return node != null;
+                case "isFile":
+                    return node != null && !node.isCollection();
+                case "isDirectory":
+                    return node != null && node.isCollection();
+                case "length":
+                    return node == null ? 0L : node.getSize();
+                case "lastModified":
+                    return node == null ? 0L : node.getModifiedAt();
+                case "delete":
+                case "deleteWithForceOption":
+                    return catalog.delete(path);
+                case "mkdir":
+                case "mkdirs":
+                    try {
+                        catalog.mkdir(path, "mkdirs".equals(methodName));
+                        return true;
+                    } catch (JargonException e) {
+                        return false;
+                    }
+                case "close":
+                    return null;
+                default:
+                    return UNSUPPORTED;
+            }
+        }
+    }
+
+    private class FileSystemHandler extends StandInHandler {
+
+        @Override
+        protected Object handle(String methodName, Object[] args) throws Exception {
+            switch (methodName) {
+                case "getObjStat":
+                    return getObjStat((String)args[0]);
+                case "mkdir":
+                    catalog.mkdir(((IRODSFile)args[0]).getAbsolutePath(), (Boolean)args[1]);
+                    return null;
+                case "fileDeleteForce":
+                case "fileDeleteNoForce":
+                case "directoryDeleteForce":
+                case "directoryDeleteNoForce":
+                    String path = ((IRODSFile)args[0]).getAbsolutePath();
+                    getExisting(path);
+                    catalog.deleteTree(path);
+                    return null;
+                default:
+                    return UNSUPPORTED;
+            }
+        }
+    }
+
+    private class ListAndSearchHandler extends StandInHandler {
+
+        @Override
+        protected Object handle(String methodName, Object[] args) throws Exception {
+            switch (methodName) {
+                case "listCollectionsUnderPath":
+                    return list((String)args[0], true, (Integer)args[1]);
+                case "listDataObjectsUnderPath":
+                    return list((String)args[0], false, (Integer)args[1]);
+                default:
+                    return UNSUPPORTED;
+            }
+        }
+    }
+
+    private class DataTransferHandler extends StandInHandler {
+
+        @Override
+        protected Object handle(String methodName, Object[] args) throws Exception {
+            if ("putOperation".equals(methodName) && args.length == 4 && args[0] instanceof File) {
+                File source = (File)args[0];
+                String targetPath = ((IRODSFile)args[1]).getAbsolutePath();
+                if (!source.exists()) {
+                    throw new FileNotFoundException("Local file " + source.getAbsolutePath() + " does not exist");
+                }
+                Node target = catalog.get(targetPath);
+                if (target != null && target.isCollection()) {
+                    targetPath = (targetPath.endsWith("/") ? targetPath : targetPath + "/") + source.getName();
+                }
+                long[] totals = new long[2];
+                put(source, targetPath, totals);
+                reportTransfer((TransferStatusCallbackListener)args[2], TransferType.PUT,
+                        source.getAbsolutePath(), targetPath, totals);
+                return null;
+            }
+            else if ("getOperation".equals(methodName) && args.length == 4 && args[1] instanceof File) {
+                String sourcePath = ((IRODSFile)args[0]).getAbsolutePath();
+                File target = (File)args[1];
+                if (target.isDirectory()) {
+                    target = new File(target, sourcePath.substring(sourcePath.lastIndexOf('/') + 1));
+                }
+                long[] totals = new long[2];
+                get(sourcePath, target, totals);
+                reportTransfer((TransferStatusCallbackListener)args[2], TransferType.GET,
+                        sourcePath, target.getAbsolutePath(), totals);
+                return null;
+            }
+            return UNSUPPORTED;
+        }
+    }
+
+    private class ChecksumHandler extends StandInHandler {
+
+        @Override
+        protected Object handle(String methodName, Object[] args) throws Exception {
+            switch (methodName) {
+                case "computeChecksumOnDataObject":
+                    return checksum(((IRODSFile)args[0]).getAbsolutePath());
+                case "retrieveExistingChecksumForDataObject":
+                    return checksum((String)args[0]);
+                default:
+                    return UNSUPPORTED;
+            }
+        }
+    }
+}
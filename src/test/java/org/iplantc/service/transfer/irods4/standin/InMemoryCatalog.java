@@ -0,0 +1,234 @@
+package org.iplantc.service.transfer.irods4.standin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.irods.jargon.core.exception.DuplicateDataException;
+import org.irods.jargon.core.exception.FileNotFoundException;
+import org.irods.jargon.core.exception.JargonException;
+
+/**
+ * Simulated iRODS catalog and object store held entirely in memory. Paths are
+ * absolute, slash separated and never end with a slash except for the root.
+ * Reads are lock free. Writes are serialized on the catalog so parent checks
+ * and inserts happen atomically, as they would in the real catalog.
+ */
+public class InMemoryCatalog {
+
+    /**
+     * A collection or data object in the catalog.
+     */
+    public static class Node {
+        private final int id;
+        private final boolean collection;
+        private final long createdAt;
+        private volatile long modifiedAt;
+        private volatile byte[] data;
+
+        private Node(int id, boolean collection, byte[] data) {
+            this.id = id;
+            this.collection = collection;
+            this.data = data;
+            this.createdAt = System.currentTimeMillis();
+            this.modifiedAt = createdAt;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public boolean isCollection() {
+            return collection;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        public long getModifiedAt() {
+            return modifiedAt;
+        }
+
+        /**
+         * @return the contents of a data object, null for a collection
+         */
+        public byte[] getData() {
+            return data;
+        }
+
+        public long getSize() {
+            return data == null ? 0 : data.length;
+        }
+    }
+
+    private final ConcurrentSkipListMap<String, Node> nodes = new ConcurrentSkipListMap<String, Node>();
+    private final AtomicInteger nextId = new AtomicInteger(10000);
+
+    public InMemoryCatalog() {
+        nodes.put("/", new Node(nextId.incrementAndGet(), true, null));
+    }
+
+    /**
+     * @param path absolute path
+     * @return the node at {@code path} or null if there is none
+     */
+    public Node get(String path) {
+        return nodes.get(normalize(path));
+    }
+
+    /**
+     * Creates a collection.
+     *
+     * @param path absolute path of the collection
+     * @param recursive true to create missing parents as well
+     * @throws DuplicateDataException if something already exists at {@code path}
+     * @throws FileNotFoundException if the parent does not exist and {@code recursive} is false
+     */
+    public synchronized void mkdir(String path, boolean recursive) throws JargonException {
+        path = normalize(path);
+        if (nodes.containsKey(path)) {
+            throw new DuplicateDataException("-809000 CATALOG_ALREADY_HAS_ITEM_BY_THAT_NAME " + path);
+        }
+        String parent = getParent(path);
+        Node parentNode = nodes.get(parent);
+        if (parentNode == null) {
+            if (!recursive) {
+                throw new FileNotFoundException("Parent collection " + parent + " does not exist");
+            }
+            mkdir(parent, true);
+        } else if (!parentNode.isCollection()) {
+            throw new FileNotFoundException("Parent " + parent + " is not a collection");
+        }
+        nodes.put(path, new Node(nextId.incrementAndGet(), true, null));
+    }
+
+    /**
+     * Creates or replaces a data object.
+     *
+     * @param path absolute path of the data object
+     * @param data contents of the data object
+     * @throws FileNotFoundException if the parent collection does not exist
+     * @throws DuplicateDataException if a collection exists at {@code path}
+     */
+    public synchronized void write(String path, byte[] data) throws JargonException {
+        path = normalize(path);
+        Node parentNode = nodes.get(getParent(path));
+        if (parentNode == null || !parentNode.isCollection()) {
+            throw new FileNotFoundException("Parent collection of " + path + " does not exist");
+        }
+        Node existing = nodes.get(path);
+        if (existing == null) {
+            nodes.put(path, new Node(nextId.incrementAndGet(), false, data));
+        } else if (existing.isCollection()) {
+            throw new DuplicateDataException("-809000 CATALOG_ALREADY_HAS_ITEM_BY_THAT_NAME " + path);
+        } else {
+            existing.data = data;
+            existing.modifiedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Creates a data object along with any missing parent collections. Meant
+     * for seeding the catalog before a test or benchmark.
+     *
+     * @param path absolute path of the data object
+     * @param data contents of the data object
+     * @throws JargonException if a data object is in the way of a parent collection
+     */
+    public synchronized void seed(String path, byte[] data) throws JargonException {
+        String parent = getParent(normalize(path));
+        if (nodes.get(parent) == null) {
+            mkdir(parent, true);
+        }
+        write(path, data);
+    }
+
+    /**
+     * Removes a data object or an empty collection.
+     *
+     * @param path absolute path
+     * @return true if the node was removed, false if it did not exist or is a non-empty collection
+     */
+    public synchronized boolean delete(String path) {
+        path = normalize(path);
+        Node node = nodes.get(path);
+        if (node == null || "/".equals(path)) {
+            return false;
+        }
+        if (node.isCollection()) {
+            String child = nodes.higherKey(path + "/");
+            if (child != null && child.startsWith(path + "/")) {
+                return false;
+            }
+        }
+        nodes.remove(path);
+        return true;
+    }
+
+    /**
+     * Removes a node and everything beneath it.
+     *
+     * @param path absolute path
+     * @return true if anything was removed
+     */
+    public synchronized boolean deleteTree(String path) {
+        path = normalize(path);
+        if ("/".equals(path) || nodes.remove(path) == null) {
+            return false;
+        }
+        nodes.subMap(path + "/", path + "/" + Character.MAX_VALUE).clear();
+        return true;
+    }
+
+    /**
+     * Lists the immediate children of a collection in path order.
+     *
+     * @param path absolute path of the collection
+     * @param collections true to list child collections, false to list data objects
+     * @return the absolute paths and nodes of the children
+     */
+    public List<Map.Entry<String, Node>> getChildren(String path, boolean collections) {
+        path = normalize(path);
+        String prefix = "/".equals(path) ? "/" : path + "/";
+        List<Map.Entry<String, Node>> children = new ArrayList<Map.Entry<String, Node>>();
+        for (Map.Entry<String, Node> entry: nodes.subMap(prefix, false, prefix + Character.MAX_VALUE, false).entrySet()) {
+            if (entry.getKey().indexOf('/', prefix.length()) == -1 && entry.getValue().isCollection() == collections) {
+                children.add(entry);
+            }
+        }
+        return children;
+    }
+
+    /**
+     * @return number of collections and data objects, including the root
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Removes everything but the root collection.
+     */
+    public synchronized void clear() {
+        nodes.tailMap("/", false).clear();
+    }
+
+    /**
+     * @param path absolute path
+     * @return the parent path, "/" for top level paths
+     */
+    public static String getParent(String path) {
+        int idx = path.lastIndexOf('/');
+        return idx <= 0 ? "/" : path.substring(0, idx);
+    }
+
+    private static String normalize(String path) {
+        if (path.length() > 1 && path.endsWith("/")) {
+            return path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+}